@@ -0,0 +1,62 @@
+/*
+ * Bench.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.bench;
+
+/**
+ * A benchmarked operation, run by a {@link Harness}.
+ * 
+ * @author Koka El Kiwi
+ */
+public abstract class Bench
+{
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The benchmark name. */
+    private final String name;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            the benchmark name.
+     */
+    protected Bench(final String name)
+    {
+        this.name = name;
+    }
+    
+    /**
+     * Returns the benchmark name.
+     * 
+     * @return the benchmark name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+    
+    /**
+     * Runs the operation a number of times. The results must be folded into
+     * the returned value, so that the JIT can't eliminate the operation.
+     * 
+     * @param ops
+     *            the number of operations.
+     * @return a value depending on every result.
+     */
+    public abstract long run(int ops);
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,446 @@
+/*
+ * CodecBenchmark.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+
+import net.sf.atomicdate.Client;
+import net.sf.atomicdate.Measurement;
+import net.sf.atomicdate.Session;
+import net.sf.atomicdate.sntp.Codec;
+import net.sf.atomicdate.sntp.Message;
+import net.sf.atomicdate.sntp.Timestamp;
+
+/**
+ * Benchmarks the SNTP message codec, the timestamp conversions and the offset
+ * computation of a query.
+ * <p>
+ * Usage: <code>java -cp out net.sf.atomicdate.bench.CodecBenchmark
+ * [-w warmup] [-i iterations] [-t millis] [filter]</code>; only the
+ * benchmarks whose name contains the filter are run. The baseline results are
+ * kept in <code>jvm/results</code>.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class CodecBenchmark
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** A local time, as sent and received by the benchmarked queries. */
+    private static final long TIME     = 1798761599123L;
+    
+    /** The number of distinct inputs, so that the JIT can't hoist them. */
+    private static final int  VARIANTS = 64;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Runs the benchmarks.
+     * 
+     * @param args
+     *            the command line arguments.
+     * @throws IOException
+     *             if the sample message can't be encoded.
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        final PrintStream out = System.out;
+        final Harness harness = new Harness(out);
+        int warmup = Harness.DEFAULT_WARMUP;
+        int iterations = Harness.DEFAULT_ITERATIONS;
+        long duration = Harness.DEFAULT_DURATION;
+        String filter = "";
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("-w".equals(args[i]))
+            {
+                warmup = Integer.parseInt(args[++i]);
+            }
+            else if ("-i".equals(args[i]))
+            {
+                iterations = Integer.parseInt(args[++i]);
+            }
+            else if ("-t".equals(args[i]))
+            {
+                duration = Long.parseLong(args[++i]);
+            }
+            else
+            {
+                filter = args[i];
+            }
+        }
+        harness.configure(warmup, iterations, duration);
+        harness.header();
+        for (final Bench bench : benchmarks())
+        {
+            if (bench.getName().contains(filter))
+            {
+                harness.run(bench);
+            }
+        }
+    }
+    
+    /**
+     * Returns the benchmarks.
+     * 
+     * @return the benchmarks.
+     * @throws IOException
+     *             if the sample message can't be encoded.
+     */
+    public static Bench[] benchmarks() throws IOException
+    {
+        final Message message = sample();
+        final ByteBuffer buffer = ByteBuffer.allocate(Codec.LENGTH);
+        Codec.encodeMessage(message, buffer);
+        final byte[] bytes = buffer.array();
+        final ByteBuffer[] replies = new ByteBuffer[VARIANTS];
+        final Message[] messages = new Message[VARIANTS];
+        final Timestamp[] timestamps = new Timestamp[VARIANTS];
+        for (int i = 0; i < VARIANTS; i++)
+        {
+            replies[i] = ByteBuffer.allocate(Codec.LENGTH);
+            Codec.encodeMessage(message, replies[i]);
+            Codec.encodeTime(TIME + 511 + i, replies[i],
+                    Codec.TRANSMIT_TIMESTAMP_INDEX);
+            messages[i] = Codec.decodeMessage(ByteBuffer.wrap(replies[i]
+                    .array()));
+            timestamps[i] = Conversions.toNtp(TIME + i * 7);
+        }
+        
+        return new Bench[] {
+                
+                new Bench("codec.encodeStream") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        final ByteArrayOutputStream output;
+                        output = new ByteArrayOutputStream(Codec.LENGTH);
+                        long acc = 0;
+                        try
+                        {
+                            for (int i = 0; i < ops; i++)
+                            {
+                                output.reset();
+                                Codec.encodeMessage(message, output);
+                                acc += output.size();
+                            }
+                        }
+                        catch (final IOException ioe)
+                        {
+                            throw new IllegalStateException(ioe);
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("codec.decodeStream") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        try
+                        {
+                            for (int i = 0; i < ops; i++)
+                            {
+                                acc += Codec.decodeMessage(
+                                        new ByteArrayInputStream(bytes))
+                                        .getStratum();
+                            }
+                        }
+                        catch (final IOException ioe)
+                        {
+                            throw new IllegalStateException(ioe);
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("codec.encodeBuffer") {
+                    
+                    private final ByteBuffer output = ByteBuffer
+                            .allocate(Codec.LENGTH);
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            output.clear();
+                            Codec.encodeMessage(message, output);
+                            acc += output.get(Codec.TRANSMIT_TIMESTAMP_INDEX);
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("codec.decodeBuffer") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            buffer.clear();
+                            acc += Codec.decodeMessage(buffer).getStratum();
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("time.encodeTime") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            Codec.encodeTime(TIME + i, buffer,
+                                    Codec.ORIGINATE_TIMESTAMP_INDEX);
+                            acc += buffer.get(Codec.ORIGINATE_TIMESTAMP_INDEX);
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("time.decodeTime") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            acc += Codec.decodeTime(replies[i
+                                    & VARIANTS - 1],
+                                    Codec.TRANSMIT_TIMESTAMP_INDEX);
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("time.toTimestamp") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            acc += Conversions.toNtp(TIME + i)
+                                    .getFraction();
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("time.fromTimestamp") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            acc += Conversions.toJava(timestamps[i
+                                    & VARIANTS - 1]);
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("offset.client") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            acc += Conversions.offset(
+                                    Codec.decodeMessage(ByteBuffer.wrap(bytes)),
+                                    TIME + 20).getOffset();
+                        }
+                        
+                        return acc;
+                    }
+                },
+                
+                new Bench("offset.session") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            final int v = i & VARIANTS - 1;
+                            acc += Replies.offset(messages[v], replies[v],
+                                    TIME, TIME + 20).getOffset();
+                        }
+                        
+                        return acc;
+                    }
+                } };
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns a typical server reply.
+     * 
+     * @return the reply.
+     */
+    private static Message sample()
+    {
+        final Message message = new Message();
+        message.setMode(Message.MODE_SERVER);
+        message.setStratum((byte) 2);
+        message.setPrecision((byte) -20);
+        message.setRootDelay(0.0123D);
+        message.setRootDispersion(0.0456D);
+        message.setReferenceIdentifier(new byte[] { 10, 0, 0, 1 });
+        message.setReferenceTimestamp(Conversions.toNtp(TIME - 64000));
+        message.setOriginateTimestamp(Conversions.toNtp(TIME));
+        message.setReceiveTimestamp(Conversions.toNtp(TIME + 510));
+        message.setTransmitTimestamp(Conversions.toNtp(TIME + 511));
+        
+        return message;
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * Exposes the timestamp conversions of the {@link Client}; never
+     * instantiated.
+     * 
+     * @author Koka El Kiwi
+     */
+    private static final class Conversions extends Client
+    {
+        
+        /**
+         * Constructor.
+         * 
+         * @throws SocketException
+         *             never thrown.
+         */
+        private Conversions() throws SocketException
+        {
+            super();
+        }
+        
+        /**
+         * Converts Java time to an SNTP timestamp, as the client does.
+         * 
+         * @param time
+         *            the Java time (in milliseconds).
+         * @return the SNTP timestamp.
+         */
+        static Timestamp toNtp(final long time)
+        {
+            return Client.toTimestamp(time);
+        }
+        
+        /**
+         * Converts an SNTP timestamp to Java time, as the client does.
+         * 
+         * @param timestamp
+         *            the timestamp.
+         * @return the Java time (in milliseconds).
+         */
+        static long toJava(final Timestamp timestamp)
+        {
+            return Client.fromTimestamp(timestamp);
+        }
+        
+        /**
+         * Computes the measurement of a reply, as the client does.
+         * 
+         * @param reply
+         *            the server reply.
+         * @param t4
+         *            the local time when the reply was received.
+         * @return the measurement.
+         */
+        static Measurement offset(final Message reply, final long t4)
+        {
+            return Client.toMeasurement(reply, t4);
+        }
+        
+    }
+    
+    /**
+     * Exposes the reply processing of the {@link Session}; never
+     * instantiated.
+     * 
+     * @author Koka El Kiwi
+     */
+    private static final class Replies extends Session
+    {
+        
+        /**
+         * Constructor.
+         * 
+         * @throws IOException
+         *             never thrown.
+         */
+        private Replies() throws IOException
+        {
+            super((InetSocketAddress) null);
+        }
+        
+        /**
+         * Computes the measurement of a reply, as the session does.
+         * 
+         * @param message
+         *            the decoded reply.
+         * @param reply
+         *            the reply buffer.
+         * @param t1
+         *            the local transmit time.
+         * @param t4
+         *            the local receive time.
+         * @return the measurement.
+         */
+        static Measurement offset(final Message message,
+                final ByteBuffer reply, final long t1, final long t4)
+        {
+            return Session.toMeasurement(message, reply, t1, t4);
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,255 @@
+/*
+ * Harness.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.bench;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * A minimal microbenchmark harness.
+ * <ul>
+ * <li>Every benchmark runs a number of warmup iterations, then measured
+ * iterations of a fixed duration; each iteration calls the benchmark in
+ * batches, so the timer overhead is amortized;</li>
+ * <li>The throughput is reported as the mean and the standard deviation of
+ * the measured iterations;</li>
+ * <li>The allocation per operation is measured with the per-thread allocation
+ * counter of the HotSpot JVM, when available.</li>
+ * </ul>
+ * The JVM should be started with a fixed heap and no other load.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Harness
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default number of warmup iterations. */
+    public static final int      DEFAULT_WARMUP     = 5;
+    
+    /** The default number of measured iterations. */
+    public static final int      DEFAULT_ITERATIONS = 5;
+    
+    /** The default iteration duration (in milliseconds). */
+    public static final long     DEFAULT_DURATION   = 1000L;
+    
+    /** The number of operations per batch. */
+    private static final int     BATCH              = 1024;
+    
+    /** The results sink, defeating the dead code elimination. */
+    private static volatile long sink;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The report output. */
+    private final PrintStream    out;
+    
+    /** The number of warmup iterations. */
+    private int                  warmup;
+    
+    /** The number of measured iterations. */
+    private int                  iterations;
+    
+    /** The iteration duration (in nanoseconds). */
+    private long                 duration;
+    
+    /** The HotSpot thread bean, null if unavailable. */
+    private final ThreadMXBean   threads;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param out
+     *            the report output.
+     * @throws NullPointerException
+     *             if the output is null.
+     */
+    public Harness(final PrintStream out)
+    {
+        if (out == null)
+        {
+            throw new NullPointerException("out=null");
+        }
+        this.out = out;
+        warmup = DEFAULT_WARMUP;
+        iterations = DEFAULT_ITERATIONS;
+        duration = DEFAULT_DURATION * 1000000L;
+        threads = allocationBean();
+    }
+    
+    /**
+     * Configures the iterations.
+     * 
+     * @param warmup
+     *            the number of warmup iterations.
+     * @param iterations
+     *            the number of measured iterations.
+     * @param duration
+     *            the iteration duration (in milliseconds).
+     * @throws IllegalArgumentException
+     *             if a number is negative, or a duration isn't positive.
+     */
+    public void configure(final int warmup, final int iterations,
+            final long duration)
+    {
+        if (warmup < 0)
+        {
+            throw new IllegalArgumentException("warmup<0");
+        }
+        if (iterations <= 0)
+        {
+            throw new IllegalArgumentException("iterations<=0");
+        }
+        if (duration <= 0)
+        {
+            throw new IllegalArgumentException("duration<=0");
+        }
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.duration = duration * 1000000L;
+    }
+    
+    /**
+     * Prints the report header.
+     */
+    public void header()
+    {
+        out.println("# JVM: " + System.getProperty("java.vm.name") + " "
+                + System.getProperty("java.version") + ", "
+                + Runtime.getRuntime().availableProcessors() + " CPUs");
+        out.println("# OS: " + System.getProperty("os.name") + " "
+                + System.getProperty("os.arch"));
+        out.println("# Warmup: " + warmup + " x " + duration / 1000000L
+                + " ms, measurement: " + iterations + " x " + duration
+                / 1000000L + " ms");
+        out.println(String.format(Locale.ROOT, "%-32s %14s %12s %10s %10s",
+                "Benchmark", "ops/s", "error", "ns/op", "B/op"));
+    }
+    
+    /**
+     * Runs a benchmark and prints its result.
+     * 
+     * @param bench
+     *            the benchmark.
+     */
+    public void run(final Bench bench)
+    {
+        for (int i = 0; i < warmup; i++)
+        {
+            iterate(bench);
+        }
+        
+        final double[] rates = new double[iterations];
+        long ops = 0;
+        final long allocated = allocatedBytes();
+        for (int i = 0; i < iterations; i++)
+        {
+            final long start = System.nanoTime();
+            final long done = iterate(bench);
+            rates[i] = done * 1E9D / (System.nanoTime() - start);
+            ops += done;
+        }
+        final long bytes = allocatedBytes() - allocated;
+        
+        double mean = 0;
+        for (final double rate : rates)
+        {
+            mean += rate;
+        }
+        mean /= iterations;
+        double var = 0;
+        for (final double rate : rates)
+        {
+            var += (rate - mean) * (rate - mean);
+        }
+        final double error = iterations > 1 ? Math.sqrt(var
+                / (iterations - 1)) : 0;
+        
+        out.println(String.format(Locale.ROOT,
+                "%-32s %14.0f %12.0f %10.2f %10s", bench.getName(), mean,
+                error, 1E9D / mean, allocated < 0 ? "n/a" : String.format(
+                        Locale.ROOT, "%.1f", (double) bytes / ops)));
+    }
+    
+    /**
+     * Runs an iteration.
+     * 
+     * @param bench
+     *            the benchmark.
+     * @return the number of operations run.
+     */
+    private long iterate(final Bench bench)
+    {
+        final long end = System.nanoTime() + duration;
+        long ops = 0;
+        long acc = 0;
+        do
+        {
+            acc += bench.run(BATCH);
+            ops += BATCH;
+        }
+        while (System.nanoTime() - end < 0);
+        sink += acc;
+        
+        return ops;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns the HotSpot thread bean, if the JVM has one.
+     * 
+     * @return the bean, null if unavailable.
+     */
+    private static ThreadMXBean allocationBean()
+    {
+        final Object bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof ThreadMXBean)
+        {
+            final ThreadMXBean hotspot = (ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported())
+            {
+                hotspot.setThreadAllocatedMemoryEnabled(true);
+                
+                return hotspot;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     * 
+     * @return the number of bytes, -1 if unavailable.
+     */
+    private long allocatedBytes()
+    {
+        if (threads == null)
+        {
+            return -1;
+        }
+        
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
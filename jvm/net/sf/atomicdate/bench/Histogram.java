@@ -0,0 +1,214 @@
+/*
+ * Histogram.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.bench;
+
+import java.util.Arrays;
+
+/**
+ * A latency histogram with a bounded relative error, in the spirit of
+ * HdrHistogram.
+ * <ul>
+ * <li>The values below 128 have their own bucket; above, every power of two
+ * is split into 128 linear buckets, so a value is known within 1/128 of its
+ * magnitude;</li>
+ * <li>Recording a value doesn't allocate, and the whole positive long range
+ * fits in about 7400 buckets.</li>
+ * </ul>
+ * The implementation isn't thread-safe: every thread records into its own
+ * histogram, and the histograms are {@link #add(Histogram) added} at the end.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Histogram
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The number of bits of the linear part of a bucket index. */
+    private static final int SUB_BITS = 7;
+    
+    /** The number of linear buckets per power of two. */
+    private static final int SUB      = 1 << SUB_BITS;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The bucket counts. */
+    private final long[]     counts;
+    
+    /** The number of values recorded. */
+    private long             count;
+    
+    /** The sum of the values recorded. */
+    private double           sum;
+    
+    /** The largest value recorded. */
+    private long             max;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Default constructor.
+     */
+    public Histogram()
+    {
+        counts = new long[(64 - SUB_BITS) * SUB];
+    }
+    
+    /**
+     * Records a value.
+     * 
+     * @param value
+     *            the value; negative values are recorded as 0.
+     */
+    public void record(final long value)
+    {
+        final long v = Math.max(0, value);
+        counts[index(v)]++;
+        count++;
+        sum += v;
+        if (v > max)
+        {
+            max = v;
+        }
+    }
+    
+    /**
+     * Adds the values of another histogram to this one.
+     * 
+     * @param other
+     *            the other histogram.
+     */
+    public void add(final Histogram other)
+    {
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+    
+    /**
+     * Discards all the values.
+     */
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+    
+    /**
+     * Returns the number of values recorded.
+     * 
+     * @return the number of values.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+    
+    /**
+     * Returns the mean of the values recorded.
+     * 
+     * @return the mean, 0 if empty.
+     */
+    public double getMean()
+    {
+        return count == 0 ? 0 : sum / count;
+    }
+    
+    /**
+     * Returns the largest value recorded.
+     * 
+     * @return the largest value, 0 if empty.
+     */
+    public long getMax()
+    {
+        return max;
+    }
+    
+    /**
+     * Returns the value at a given percentile, the upper bound of the bucket
+     * holding it.
+     * 
+     * @param percentile
+     *            the percentile, in the <code>[0, 100]</code> range.
+     * @return the value, 0 if empty.
+     */
+    public long getValueAtPercentile(final double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        final long rank = Math.max(1,
+                (long) Math.ceil(percentile / 100D * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+            {
+                return Math.min(max, highest(i));
+            }
+        }
+        
+        return max;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns the bucket index of a value.
+     * 
+     * @param value
+     *            the value, positive or 0.
+     * @return the bucket index.
+     */
+    private static int index(final long value)
+    {
+        if (value < SUB)
+        {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        
+        return (shift + 1 << SUB_BITS) + (int) (value >>> shift) - SUB;
+    }
+    
+    /**
+     * Returns the highest value of a bucket.
+     * 
+     * @param index
+     *            the bucket index.
+     * @return the highest value.
+     */
+    private static long highest(final int index)
+    {
+        if (index < SUB)
+        {
+            return index;
+        }
+        final int shift = (index >>> SUB_BITS) - 1;
+        final long mantissa = (index & SUB - 1) + SUB;
+        
+        return (mantissa + 1 << shift) - 1;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,465 @@
+/*
+ * LoopbackBenchmark.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+import net.sf.atomicdate.Client;
+import net.sf.atomicdate.ClockState;
+import net.sf.atomicdate.DualStack;
+import net.sf.atomicdate.Measurement;
+import net.sf.atomicdate.Server;
+import net.sf.atomicdate.Service;
+import net.sf.atomicdate.Session;
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * Benchmarks the SNTP clients end to end, against a {@link Server} on the
+ * loopback interface, so that the socket, thread handoff and wake-up costs
+ * are measured without network access.
+ * <ul>
+ * <li>In closed loop (the default), every client thread sends its next query
+ * as soon as the previous one is answered; the throughput is the maximum the
+ * client sustains at that concurrency;</li>
+ * <li>In open loop (<code>-r rate</code>), the queries are started on a fixed
+ * schedule and their latency counts from their scheduled start, so a stalled
+ * client shows in the percentiles instead of silently lowering the
+ * rate.</li>
+ * </ul>
+ * Usage: <code>java -cp out net.sf.atomicdate.bench.LoopbackBenchmark
+ * [-t threads] [-r rate] [-d seconds] [-w seconds] [-s workers]
+ * [client] [session] [dualstack] [service]</code>.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class LoopbackBenchmark
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The benchmarked clients. */
+    private static final String[] DRIVERS = { "client", "session",
+            "dualstack", "service" };
+    
+    /** The query timeout (in milliseconds). */
+    private static final int      TIMEOUT = 1000;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args
+     *            the command line arguments.
+     * @throws Exception
+     *             if the benchmark can't run.
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        int threads = 4;
+        double rate = 0;
+        long duration = 10;
+        long warmup = 2;
+        int workers = 1;
+        final List<String> drivers = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("-t".equals(args[i]))
+            {
+                threads = Integer.parseInt(args[++i]);
+            }
+            else if ("-r".equals(args[i]))
+            {
+                rate = Double.parseDouble(args[++i]);
+            }
+            else if ("-d".equals(args[i]))
+            {
+                duration = Long.parseLong(args[++i]);
+            }
+            else if ("-w".equals(args[i]))
+            {
+                warmup = Long.parseLong(args[++i]);
+            }
+            else if ("-s".equals(args[i]))
+            {
+                workers = Integer.parseInt(args[++i]);
+            }
+            else
+            {
+                drivers.add(args[i]);
+            }
+        }
+        if (drivers.isEmpty())
+        {
+            for (final String driver : DRIVERS)
+            {
+                drivers.add(driver);
+            }
+        }
+        
+        final Service source = new Service();
+        final Message reference = new Message();
+        reference.setStratum((byte) 1);
+        reference.setPrecision((byte) -20);
+        source.update(new Measurement(reference, 0, 0, System
+                .currentTimeMillis()));
+        final Server server = new Server(source, new InetSocketAddress(
+                InetAddress.getByName("127.0.0.1"), 0), workers);
+        server.start();
+        
+        final PrintStream out = System.out;
+        out.println("# JVM: " + System.getProperty("java.vm.name") + " "
+                + System.getProperty("java.version") + ", "
+                + Runtime.getRuntime().availableProcessors() + " CPUs");
+        out.println("# Server workers: " + workers + ", client threads: "
+                + threads + ", "
+                + (rate > 0 ? "open loop at " + rate + " q/s" : "closed loop")
+                + ", warmup: " + warmup + " s, measurement: " + duration
+                + " s");
+        out.println(String.format(Locale.ROOT,
+                "%-10s %10s %7s %9s %9s %9s %9s %9s", "Client", "q/s",
+                "errors", "p50(us)", "p99(us)", "p999(us)", "max(us)",
+                "mean(us)"));
+        try
+        {
+            for (final String driver : drivers)
+            {
+                run(driver, server.getLocalAddress(), threads, rate,
+                        warmup * 1000000000L, duration * 1000000000L, out);
+            }
+        }
+        finally
+        {
+            server.close();
+            source.close();
+        }
+    }
+    
+    /**
+     * Runs the benchmark of a client and prints its result.
+     * 
+     * @param driver
+     *            the client name.
+     * @param address
+     *            the server address.
+     * @param threads
+     *            the number of client threads.
+     * @param rate
+     *            the total query rate (in queries per second), 0 for a closed
+     *            loop.
+     * @param warmup
+     *            the warmup duration (in nanoseconds).
+     * @param duration
+     *            the measurement duration (in nanoseconds).
+     * @param out
+     *            the report output.
+     * @throws Exception
+     *             if the clients can't be created.
+     */
+    private static void run(final String driver,
+            final InetSocketAddress address, final int threads,
+            final double rate, final long warmup, final long duration,
+            final PrintStream out) throws Exception
+    {
+        final Runner[] runners = new Runner[threads];
+        final CountDownLatch done = new CountDownLatch(threads);
+        final long start = System.nanoTime() + 100000000L;
+        for (int i = 0; i < threads; i++)
+        {
+            runners[i] = new Runner(create(driver, address), start, warmup,
+                    duration, rate > 0 ? (long) (1E9D * threads / rate) : 0,
+                    done);
+            final Thread thread = new Thread(runners[i], "Loopback-" + driver
+                    + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        
+        final Histogram total = new Histogram();
+        long errors = 0;
+        for (final Runner runner : runners)
+        {
+            total.add(runner.histogram);
+            errors += runner.errors;
+        }
+        out.println(String.format(Locale.ROOT,
+                "%-10s %10.0f %7d %9.1f %9.1f %9.1f %9.1f %9.1f", driver,
+                total.getCount() * 1E9D / duration, errors,
+                total.getValueAtPercentile(50) / 1E3D,
+                total.getValueAtPercentile(99) / 1E3D,
+                total.getValueAtPercentile(99.9D) / 1E3D,
+                total.getMax() / 1E3D, total.getMean() / 1E3D));
+    }
+    
+    /**
+     * Creates a client.
+     * 
+     * @param driver
+     *            the client name.
+     * @param address
+     *            the server address.
+     * @return the client.
+     * @throws IOException
+     *             if the client can't be created.
+     */
+    private static Query create(final String driver,
+            final InetSocketAddress address) throws IOException
+    {
+        if ("client".equals(driver))
+        {
+            final Client client = new Client(TIMEOUT);
+            
+            return new Query() {
+                
+                @Override
+                public void query() throws IOException
+                {
+                    client.measure(address.getAddress(), address.getPort());
+                }
+                
+                @Override
+                public void close()
+                {
+                    client.close();
+                }
+            };
+        }
+        if ("session".equals(driver))
+        {
+            final Session session = new Session(address);
+            
+            return new Query() {
+                
+                @Override
+                public void query() throws IOException
+                {
+                    session.measure();
+                }
+                
+                @Override
+                public void close()
+                {
+                    session.close();
+                }
+            };
+        }
+        if ("dualstack".equals(driver))
+        {
+            final String host = address.getAddress().getHostAddress();
+            
+            return new Query() {
+                
+                @Override
+                public void query() throws IOException
+                {
+                    DualStack.measure(host, address.getPort(), TIMEOUT);
+                }
+            };
+        }
+        if ("service".equals(driver))
+        {
+            final Service service = new Service();
+            service.setServerHost(address.getAddress().getHostAddress());
+            service.setServerPort(address.getPort());
+            
+            return new Query() {
+                
+                @Override
+                public void query() throws IOException
+                {
+                    // run() logs the failures instead of throwing them, but
+                    // every success publishes a new state.
+                    final ClockState before = service.isSynchronized() ? service
+                            .getState() : null;
+                    service.run();
+                    if (!service.isSynchronized()
+                            || service.getState() == before)
+                    {
+                        throw new IOException("Synchronization failed.");
+                    }
+                }
+                
+                @Override
+                public void close()
+                {
+                    service.close();
+                }
+            };
+        }
+        
+        throw new IllegalArgumentException("Unknown client: " + driver);
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * A client under benchmark.
+     * 
+     * @author Koka El Kiwi
+     */
+    private abstract static class Query
+    {
+        
+        /**
+         * Queries the server once.
+         * 
+         * @throws IOException
+         *             if the query fails.
+         */
+        public abstract void query() throws IOException;
+        
+        /**
+         * Releases the client resources.
+         */
+        public void close()
+        {
+            // Nothing by default.
+        }
+        
+    }
+    
+    /**
+     * A client thread.
+     * 
+     * @author Koka El Kiwi
+     */
+    private static final class Runner implements Runnable
+    {
+        
+        /** The client. */
+        private final Query          query;
+        
+        /** The nano time of the start. */
+        private final long           start;
+        
+        /** The warmup duration (in nanoseconds). */
+        private final long           warmup;
+        
+        /** The measurement duration (in nanoseconds). */
+        private final long           duration;
+        
+        /** The interval between two queries (in nanoseconds), 0 if none. */
+        private final long           interval;
+        
+        /** The end signal. */
+        private final CountDownLatch done;
+        
+        /** The measured latencies (in nanoseconds). */
+        private final Histogram      histogram;
+        
+        /** The number of failed queries during the measurement. */
+        private long                 errors;
+        
+        /**
+         * Constructor.
+         * 
+         * @param query
+         *            the client.
+         * @param start
+         *            the nano time of the start.
+         * @param warmup
+         *            the warmup duration (in nanoseconds).
+         * @param duration
+         *            the measurement duration (in nanoseconds).
+         * @param interval
+         *            the interval between two queries (in nanoseconds), 0 for
+         *            a closed loop.
+         * @param done
+         *            the end signal.
+         */
+        public Runner(final Query query, final long start, final long warmup,
+                final long duration, final long interval,
+                final CountDownLatch done)
+        {
+            this.query = query;
+            this.start = start;
+            this.warmup = warmup;
+            this.duration = duration;
+            this.interval = interval;
+            this.done = done;
+            histogram = new Histogram();
+        }
+        
+        // See Runnable for details.
+        @Override
+        public void run()
+        {
+            try
+            {
+                final long measure = start + warmup;
+                final long end = measure + duration;
+                long next = start;
+                while (true)
+                {
+                    long now = System.nanoTime();
+                    if (interval > 0)
+                    {
+                        while (now - next < 0)
+                        {
+                            LockSupport.parkNanos(next - now);
+                            now = System.nanoTime();
+                        }
+                    }
+                    else
+                    {
+                        next = now;
+                    }
+                    if (next - end >= 0)
+                    {
+                        break;
+                    }
+                    
+                    boolean failed = false;
+                    try
+                    {
+                        query.query();
+                    }
+                    catch (final IOException ioe)
+                    {
+                        failed = true;
+                    }
+                    if (next - measure >= 0)
+                    {
+                        if (failed)
+                        {
+                            errors++;
+                        }
+                        else
+                        {
+                            histogram.record(System.nanoTime() - next);
+                        }
+                    }
+                    next += interval;
+                }
+            }
+            finally
+            {
+                query.close();
+                done.countDown();
+            }
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
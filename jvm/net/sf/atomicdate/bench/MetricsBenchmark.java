@@ -0,0 +1,174 @@
+/*
+ * MetricsBenchmark.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.bench;
+
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+
+import net.sf.atomicdate.metrics.AtomicHistogram;
+import net.sf.atomicdate.metrics.ServerMetrics;
+import net.sf.atomicdate.metrics.StripedCounter;
+
+/**
+ * Benchmarks the hot path of the metrics: the costs added to every exchange
+ * with a server.
+ * <p>
+ * Usage: <code>java -cp out net.sf.atomicdate.bench.MetricsBenchmark
+ * [-w warmup] [-i iterations] [-t millis] [filter]</code>; only the
+ * benchmarks whose name contains the filter are run. The baseline results are
+ * kept in <code>jvm/results</code>.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class MetricsBenchmark
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The number of distinct inputs, so that the JIT can't hoist them. */
+    private static final int VARIANTS = 64;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Runs the benchmarks.
+     * 
+     * @param args
+     *            the command line arguments.
+     */
+    public static void main(final String[] args)
+    {
+        final PrintStream out = System.out;
+        final Harness harness = new Harness(out);
+        int warmup = Harness.DEFAULT_WARMUP;
+        int iterations = Harness.DEFAULT_ITERATIONS;
+        long duration = Harness.DEFAULT_DURATION;
+        String filter = "";
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("-w".equals(args[i]))
+            {
+                warmup = Integer.parseInt(args[++i]);
+            }
+            else if ("-i".equals(args[i]))
+            {
+                iterations = Integer.parseInt(args[++i]);
+            }
+            else if ("-t".equals(args[i]))
+            {
+                duration = Long.parseLong(args[++i]);
+            }
+            else
+            {
+                filter = args[i];
+            }
+        }
+        harness.configure(warmup, iterations, duration);
+        harness.header();
+        for (final Bench bench : benchmarks())
+        {
+            if (bench.getName().contains(filter))
+            {
+                harness.run(bench);
+            }
+        }
+    }
+    
+    /**
+     * Returns the benchmarks.
+     * 
+     * @return the benchmarks.
+     */
+    public static Bench[] benchmarks()
+    {
+        final long[] values = new long[VARIANTS];
+        for (int i = 0; i < VARIANTS; i++)
+        {
+            values[i] = (i * 37L) % 200 - 100;
+        }
+        final ServerMetrics metrics = new ServerMetrics(new InetSocketAddress(
+                "127.0.0.1", 123));
+        
+        return new Bench[] {
+                
+                new Bench("metrics.counter") {
+                    
+                    private final StripedCounter counter = new StripedCounter();
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        for (int i = 0; i < ops; i++)
+                        {
+                            counter.increment();
+                        }
+                        
+                        return counter.sum();
+                    }
+                },
+                
+                new Bench("metrics.histogram") {
+                    
+                    private final AtomicHistogram histogram =
+                            new AtomicHistogram();
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        for (int i = 0; i < ops; i++)
+                        {
+                            histogram.record(values[i & VARIANTS - 1]);
+                        }
+                        
+                        return histogram.getCount();
+                    }
+                },
+                
+                new Bench("metrics.exchange") {
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        for (int i = 0; i < ops; i++)
+                        {
+                            final long value = values[i & VARIANTS - 1];
+                            metrics.onSent();
+                            metrics.onReceived(value + 100, value, i);
+                        }
+                        
+                        return metrics.getReceived();
+                    }
+                },
+                
+                new Bench("metrics.snapshot") {
+                    
+                    private final AtomicHistogram.Snapshot snapshot =
+                            new AtomicHistogram.Snapshot();
+                    
+                    @Override
+                    public long run(final int ops)
+                    {
+                        long acc = 0;
+                        for (int i = 0; i < ops; i++)
+                        {
+                            acc += metrics.getRoundTrips().snapshot(snapshot)
+                                    .getValueAtPercentile(99);
+                        }
+                        
+                        return acc;
+                    }
+                } };
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,201 @@
+/*
+ * Metrics.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.jmx;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.sf.atomicdate.metrics.MetricsRegistry;
+import net.sf.atomicdate.metrics.ServerMetrics;
+
+/**
+ * Exposes a {@link MetricsRegistry metrics registry} over JMX. The attributes
+ * are read from the registry on every access, so the servers registered later
+ * show up without registering the bean again.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Metrics implements MetricsMXBean
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default object name. */
+    public static final String    DEFAULT_NAME = "net.sf.atomicdate:type=Metrics";
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The exposed registry. */
+    private final MetricsRegistry registry;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Registers the {@link MetricsRegistry#getDefault() shared registry} in
+     * the platform MBean server, under the {@link #DEFAULT_NAME default name}.
+     * 
+     * @return the object name.
+     * @throws JMException
+     *             if the bean can't be registered.
+     */
+    public static ObjectName register() throws JMException
+    {
+        return register(MetricsRegistry.getDefault(), new ObjectName(
+                DEFAULT_NAME));
+    }
+    
+    /**
+     * Registers a registry in the platform MBean server.
+     * 
+     * @param registry
+     *            the registry.
+     * @param name
+     *            the object name.
+     * @return the object name.
+     * @throws NullPointerException
+     *             if an argument is null.
+     * @throws JMException
+     *             if the bean can't be registered.
+     */
+    public static ObjectName register(final MetricsRegistry registry,
+            final ObjectName name) throws JMException
+    {
+        if (name == null)
+        {
+            throw new NullPointerException("name=null");
+        }
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        
+        return server.registerMBean(new Metrics(registry), name)
+                .getObjectName();
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param registry
+     *            the exposed registry.
+     * @throws NullPointerException
+     *             if the registry is null.
+     */
+    public Metrics(final MetricsRegistry registry)
+    {
+        if (registry == null)
+        {
+            throw new NullPointerException("registry=null");
+        }
+        this.registry = registry;
+    }
+    
+    // See MetricsMXBean for details.
+    @Override
+    public int getServerCount()
+    {
+        return registry.getServers().length;
+    }
+    
+    // See MetricsMXBean for details.
+    @Override
+    public long getSent()
+    {
+        long total = 0;
+        for (final ServerMetrics metrics : registry.getServers())
+        {
+            total += metrics.getSent();
+        }
+        
+        return total;
+    }
+    
+    // See MetricsMXBean for details.
+    @Override
+    public long getReceived()
+    {
+        long total = 0;
+        for (final ServerMetrics metrics : registry.getServers())
+        {
+            total += metrics.getReceived();
+        }
+        
+        return total;
+    }
+    
+    // See MetricsMXBean for details.
+    @Override
+    public long getTimeouts()
+    {
+        long total = 0;
+        for (final ServerMetrics metrics : registry.getServers())
+        {
+            total += metrics.getTimeouts();
+        }
+        
+        return total;
+    }
+    
+    // See MetricsMXBean for details.
+    @Override
+    public long getKisses()
+    {
+        long total = 0;
+        for (final ServerMetrics metrics : registry.getServers())
+        {
+            total += metrics.getKisses();
+        }
+        
+        return total;
+    }
+    
+    // See MetricsMXBean for details.
+    @Override
+    public long getRejected()
+    {
+        long total = 0;
+        for (final ServerMetrics metrics : registry.getServers())
+        {
+            total += metrics.getRejected();
+        }
+        
+        return total;
+    }
+    
+    // See MetricsMXBean for details.
+    @Override
+    public ServerStatistics[] getServers()
+    {
+        final ServerMetrics.Snapshot[] snapshots = registry.snapshot();
+        final ServerStatistics[] stats = new ServerStatistics[snapshots.length];
+        for (int i = 0; i < snapshots.length; i++)
+        {
+            stats[i] = ServerStatistics.of(snapshots[i]);
+        }
+        
+        return stats;
+    }
+    
+    // See MetricsMXBean for details.
+    @Override
+    public void reset()
+    {
+        registry.reset();
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
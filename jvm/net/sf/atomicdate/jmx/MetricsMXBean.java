@@ -0,0 +1,77 @@
+/*
+ * MetricsMXBean.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.jmx;
+
+/**
+ * The management interface of a metrics registry. The times are in
+ * milliseconds.
+ * 
+ * @author Koka El Kiwi
+ */
+public interface MetricsMXBean
+{
+    
+    /**
+     * Returns the number of servers.
+     * 
+     * @return the number of servers.
+     */
+    int getServerCount();
+    
+    /**
+     * Returns the number of requests sent, to all the servers.
+     * 
+     * @return the number of requests.
+     */
+    long getSent();
+    
+    /**
+     * Returns the number of valid replies received, from all the servers.
+     * 
+     * @return the number of replies.
+     */
+    long getReceived();
+    
+    /**
+     * Returns the number of requests timed-out, to all the servers.
+     * 
+     * @return the number of timeouts.
+     */
+    long getTimeouts();
+    
+    /**
+     * Returns the number of Kiss-o'-Death replies, from all the servers.
+     * 
+     * @return the number of Kiss-o'-Death replies.
+     */
+    long getKisses();
+    
+    /**
+     * Returns the number of rejected replies, from all the servers.
+     * 
+     * @return the number of rejected replies.
+     */
+    long getRejected();
+    
+    /**
+     * Returns a snapshot of the metrics of every server.
+     * 
+     * @return the server statistics.
+     */
+    ServerStatistics[] getServers();
+    
+    /**
+     * Resets the metrics of all the servers.
+     */
+    void reset();
+    
+}
+
+/* End of file. */
\ No newline at end of file
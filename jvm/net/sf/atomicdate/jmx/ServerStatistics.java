@@ -0,0 +1,333 @@
+/*
+ * ServerStatistics.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.jmx;
+
+import java.beans.ConstructorProperties;
+
+import net.sf.atomicdate.metrics.AtomicHistogram;
+import net.sf.atomicdate.metrics.ServerMetrics;
+
+/**
+ * The metrics of a server, flattened to the open types of JMX. The times are
+ * in milliseconds.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class ServerStatistics
+{
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The server address. */
+    private final String server;
+    
+    /** The requests sent. */
+    private final long   sent;
+    
+    /** The valid replies received. */
+    private final long   received;
+    
+    /** The requests timed-out. */
+    private final long   timeouts;
+    
+    /** The Kiss-o'-Death replies received. */
+    private final long   kisses;
+    
+    /** The rejected replies. */
+    private final long   rejected;
+    
+    /** The last offset. */
+    private final long   offset;
+    
+    /** The local time of the last valid reply. */
+    private final long   lastReply;
+    
+    /** The mean round-trip time. */
+    private final double roundTripMean;
+    
+    /** The median round-trip time. */
+    private final long   roundTripMedian;
+    
+    /** The 99th percentile of the round-trip times. */
+    private final long   roundTrip99;
+    
+    /** The maximum round-trip time. */
+    private final long   roundTripMax;
+    
+    /** The mean offset. */
+    private final double offsetMean;
+    
+    /** The minimum offset. */
+    private final long   offsetMin;
+    
+    /** The median offset. */
+    private final long   offsetMedian;
+    
+    /** The maximum offset. */
+    private final long   offsetMax;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Flattens a snapshot of the metrics of a server.
+     * 
+     * @param snapshot
+     *            the snapshot.
+     * @return the statistics.
+     */
+    public static ServerStatistics of(final ServerMetrics.Snapshot snapshot)
+    {
+        final AtomicHistogram.Snapshot rtt = snapshot.getRoundTrips();
+        final AtomicHistogram.Snapshot off = snapshot.getOffsets();
+        
+        return new ServerStatistics(snapshot.getServer().toString(),
+                snapshot.getSent(), snapshot.getReceived(),
+                snapshot.getTimeouts(), snapshot.getKisses(),
+                snapshot.getRejected(), snapshot.getOffset(),
+                snapshot.getLastReply(), rtt.getMean(),
+                rtt.getValueAtPercentile(50), rtt.getValueAtPercentile(99),
+                rtt.getMax(), off.getMean(), off.getMin(),
+                off.getValueAtPercentile(50), off.getMax());
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor, also used by the JMX proxies.
+     * 
+     * @param server
+     *            the server address.
+     * @param sent
+     *            the requests sent.
+     * @param received
+     *            the valid replies received.
+     * @param timeouts
+     *            the requests timed-out.
+     * @param kisses
+     *            the Kiss-o'-Death replies received.
+     * @param rejected
+     *            the rejected replies.
+     * @param offset
+     *            the last offset.
+     * @param lastReply
+     *            the local time of the last valid reply.
+     * @param roundTripMean
+     *            the mean round-trip time.
+     * @param roundTripMedian
+     *            the median round-trip time.
+     * @param roundTrip99
+     *            the 99th percentile of the round-trip times.
+     * @param roundTripMax
+     *            the maximum round-trip time.
+     * @param offsetMean
+     *            the mean offset.
+     * @param offsetMin
+     *            the minimum offset.
+     * @param offsetMedian
+     *            the median offset.
+     * @param offsetMax
+     *            the maximum offset.
+     */
+    @ConstructorProperties({ "server", "sent", "received", "timeouts",
+            "kisses", "rejected", "offset", "lastReply", "roundTripMean",
+            "roundTripMedian", "roundTrip99", "roundTripMax", "offsetMean",
+            "offsetMin", "offsetMedian", "offsetMax" })
+    public ServerStatistics(final String server, final long sent,
+            final long received, final long timeouts, final long kisses,
+            final long rejected, final long offset, final long lastReply,
+            final double roundTripMean, final long roundTripMedian,
+            final long roundTrip99, final long roundTripMax,
+            final double offsetMean, final long offsetMin,
+            final long offsetMedian, final long offsetMax)
+    {
+        this.server = server;
+        this.sent = sent;
+        this.received = received;
+        this.timeouts = timeouts;
+        this.kisses = kisses;
+        this.rejected = rejected;
+        this.offset = offset;
+        this.lastReply = lastReply;
+        this.roundTripMean = roundTripMean;
+        this.roundTripMedian = roundTripMedian;
+        this.roundTrip99 = roundTrip99;
+        this.roundTripMax = roundTripMax;
+        this.offsetMean = offsetMean;
+        this.offsetMin = offsetMin;
+        this.offsetMedian = offsetMedian;
+        this.offsetMax = offsetMax;
+    }
+    
+    /**
+     * Returns the server address.
+     * 
+     * @return the server address.
+     */
+    public String getServer()
+    {
+        return server;
+    }
+    
+    /**
+     * Returns the number of requests sent.
+     * 
+     * @return the number of requests.
+     */
+    public long getSent()
+    {
+        return sent;
+    }
+    
+    /**
+     * Returns the number of valid replies received.
+     * 
+     * @return the number of replies.
+     */
+    public long getReceived()
+    {
+        return received;
+    }
+    
+    /**
+     * Returns the number of requests timed-out.
+     * 
+     * @return the number of timeouts.
+     */
+    public long getTimeouts()
+    {
+        return timeouts;
+    }
+    
+    /**
+     * Returns the number of Kiss-o'-Death replies received.
+     * 
+     * @return the number of Kiss-o'-Death replies.
+     */
+    public long getKisses()
+    {
+        return kisses;
+    }
+    
+    /**
+     * Returns the number of rejected replies.
+     * 
+     * @return the number of rejected replies.
+     */
+    public long getRejected()
+    {
+        return rejected;
+    }
+    
+    /**
+     * Returns the last offset.
+     * 
+     * @return the offset.
+     */
+    public long getOffset()
+    {
+        return offset;
+    }
+    
+    /**
+     * Returns the local time of the last valid reply.
+     * 
+     * @return the local time, 0 if none.
+     */
+    public long getLastReply()
+    {
+        return lastReply;
+    }
+    
+    /**
+     * Returns the mean round-trip time.
+     * 
+     * @return the mean round-trip time.
+     */
+    public double getRoundTripMean()
+    {
+        return roundTripMean;
+    }
+    
+    /**
+     * Returns the median round-trip time.
+     * 
+     * @return the median round-trip time.
+     */
+    public long getRoundTripMedian()
+    {
+        return roundTripMedian;
+    }
+    
+    /**
+     * Returns the 99th percentile of the round-trip times.
+     * 
+     * @return the 99th percentile.
+     */
+    public long getRoundTrip99()
+    {
+        return roundTrip99;
+    }
+    
+    /**
+     * Returns the maximum round-trip time.
+     * 
+     * @return the maximum round-trip time.
+     */
+    public long getRoundTripMax()
+    {
+        return roundTripMax;
+    }
+    
+    /**
+     * Returns the mean offset.
+     * 
+     * @return the mean offset.
+     */
+    public double getOffsetMean()
+    {
+        return offsetMean;
+    }
+    
+    /**
+     * Returns the minimum offset.
+     * 
+     * @return the minimum offset.
+     */
+    public long getOffsetMin()
+    {
+        return offsetMin;
+    }
+    
+    /**
+     * Returns the median offset.
+     * 
+     * @return the median offset.
+     */
+    public long getOffsetMedian()
+    {
+        return offsetMedian;
+    }
+    
+    /**
+     * Returns the maximum offset.
+     * 
+     * @return the maximum offset.
+     */
+    public long getOffsetMax()
+    {
+        return offsetMax;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
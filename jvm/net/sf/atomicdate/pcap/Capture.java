@@ -0,0 +1,382 @@
+/*
+ * Capture.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.pcap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A packet capture file, in the pcap or the pcapng format. Opening a capture
+ * only reads its headers; the records are read through memory-mapped regions,
+ * so any part of a file larger than the address space can be processed.
+ * <p>
+ * Only the first section of a pcapng file is supported: the interfaces
+ * described later are ignored.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Capture
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The pcap magic number, microsecond timestamps. */
+    private static final int       PCAP_MAGIC       = 0xA1B2C3D4;
+    
+    /** The pcap magic number, nanosecond timestamps. */
+    private static final int       PCAP_MAGIC_NANOS = 0xA1B23C4D;
+    
+    /** The pcapng block type: section header. */
+    static final int               BLOCK_SECTION    = 0x0A0D0D0A;
+    
+    /** The pcapng block type: interface description. */
+    static final int               BLOCK_INTERFACE  = 1;
+    
+    /** The pcapng block type: simple packet. */
+    static final int               BLOCK_SIMPLE     = 3;
+    
+    /** The pcapng block type: enhanced packet. */
+    static final int               BLOCK_ENHANCED   = 6;
+    
+    /** The pcapng byte-order magic number. */
+    private static final int       BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+    
+    /** The pcapng option: end of options. */
+    private static final int       OPT_END          = 0;
+    
+    /** The pcapng option: interface timestamp resolution. */
+    private static final int       OPT_TSRESOL      = 9;
+    
+    /** The size of the file header read at opening. */
+    private static final int       HEADER_SIZE      = 1 << 16;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The file. */
+    private final RandomAccessFile file;
+    
+    /** The file channel. */
+    private final FileChannel      channel;
+    
+    /** The file size. */
+    private final long             size;
+    
+    /** True for the pcapng format, false for pcap. */
+    private final boolean          next;
+    
+    /** True if the headers are byte swapped, relative to big-endian. */
+    private final boolean          swapped;
+    
+    /** The offset of the first record. */
+    private final long             start;
+    
+    /** The declared maximum record size, 0 if unknown. */
+    private final int              snapLength;
+    
+    /** The link type, by interface. */
+    private final int[]            linkTypes;
+    
+    /** The timestamp units, in nanoseconds (negative: 2^-n seconds). */
+    private final long[]           units;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param path
+     *            the capture file.
+     * @throws IOException
+     *             if the file can't be read or isn't a capture.
+     */
+    public Capture(final File path) throws IOException
+    {
+        file = new RandomAccessFile(path, "r");
+        boolean done = false;
+        try
+        {
+            channel = file.getChannel();
+            size = channel.size();
+            final ByteBuffer header = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(size, HEADER_SIZE));
+            if (header.limit() < 24)
+            {
+                throw new IOException("Not a capture file: " + path);
+            }
+            final int magic = header.getInt(0);
+            if (magic == BLOCK_SECTION)
+            {
+                next = true;
+                final int order = header.getInt(8);
+                swapped = order != BYTE_ORDER_MAGIC;
+                if (swapped && Integer.reverseBytes(order) != BYTE_ORDER_MAGIC)
+                {
+                    throw new IOException("Bad pcapng byte order: " + path);
+                }
+                final int[] types = new int[16];
+                final long[] resolutions = new long[16];
+                int count = 0;
+                long pos = read(header, 4);
+                
+                // The interfaces are described before the first packet.
+                while (pos + 12 <= header.limit())
+                {
+                    final int type = read(header, (int) pos);
+                    final int length = read(header, (int) pos + 4);
+                    if (type != BLOCK_INTERFACE || count == types.length
+                            || length < 20 || pos + length > header.limit())
+                    {
+                        break;
+                    }
+                    types[count] = read(header, (int) pos + 8) & 0xFFFF;
+                    resolutions[count] = resolution(header, (int) pos + 16,
+                            (int) pos + length - 4);
+                    count++;
+                    pos += length;
+                }
+                start = pos;
+                linkTypes = new int[count];
+                units = new long[count];
+                System.arraycopy(types, 0, linkTypes, 0, count);
+                System.arraycopy(resolutions, 0, units, 0, count);
+                snapLength = 0;
+            }
+            else
+            {
+                next = false;
+                final int reversed = Integer.reverseBytes(magic);
+                if (magic == PCAP_MAGIC || magic == PCAP_MAGIC_NANOS)
+                {
+                    swapped = false;
+                }
+                else if (reversed == PCAP_MAGIC || reversed == PCAP_MAGIC_NANOS)
+                {
+                    swapped = true;
+                }
+                else
+                {
+                    throw new IOException("Not a capture file: " + path);
+                }
+                final boolean nanos = (swapped ? reversed : magic)
+                        == PCAP_MAGIC_NANOS;
+                start = 24;
+                snapLength = read(header, 16);
+                linkTypes = new int[] { read(header, 20) & 0xFFFF };
+                units = new long[] { nanos ? 1 : 1000 };
+            }
+            done = true;
+        }
+        finally
+        {
+            if (!done)
+            {
+                file.close();
+            }
+        }
+    }
+    
+    /**
+     * Closes the file. The mapped regions stay valid until collected.
+     * 
+     * @throws IOException
+     *             if the file can't be closed.
+     */
+    public void close() throws IOException
+    {
+        file.close();
+    }
+    
+    /**
+     * Returns the file size.
+     * 
+     * @return the file size.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns the offset of the first record.
+     * 
+     * @return the offset.
+     */
+    public long getStart()
+    {
+        return start;
+    }
+    
+    /**
+     * Indicates if the file is in the pcapng format.
+     * 
+     * @return true for pcapng, false for pcap.
+     */
+    public boolean isNextGeneration()
+    {
+        return next;
+    }
+    
+    /**
+     * Indicates if the headers are byte swapped, relative to big-endian.
+     * 
+     * @return true if swapped, otherwise false.
+     */
+    public boolean isSwapped()
+    {
+        return swapped;
+    }
+    
+    /**
+     * Returns the maximum record size, as declared by a pcap file.
+     * 
+     * @return the maximum record size, or 0 if unknown.
+     */
+    public int getSnapLength()
+    {
+        return snapLength;
+    }
+    
+    /**
+     * Returns the number of interfaces.
+     * 
+     * @return the number of interfaces, 1 for pcap.
+     */
+    public int getInterfaces()
+    {
+        return linkTypes.length;
+    }
+    
+    /**
+     * Returns the link type of an interface.
+     * 
+     * @param index
+     *            the interface index.
+     * @return the link type.
+     */
+    public int getLinkType(final int index)
+    {
+        return linkTypes[index];
+    }
+    
+    /**
+     * Converts a raw timestamp of an interface to nanoseconds.
+     * 
+     * @param index
+     *            the interface index.
+     * @param timestamp
+     *            the raw timestamp.
+     * @return the timestamp (in nanoseconds since the epoch).
+     */
+    public long toNanos(final int index, final long timestamp)
+    {
+        final long unit = units[index];
+        if (unit >= 0)
+        {
+            return timestamp * unit;
+        }
+        final int shift = (int) -unit;
+        
+        return (timestamp >>> shift) * 1000000000L
+                + ((timestamp & (1L << shift) - 1) * 1000000000L >>> shift);
+    }
+    
+    /**
+     * Maps a region of the file.
+     * 
+     * @param position
+     *            the region offset.
+     * @param length
+     *            the region length, up to 2 GB.
+     * @return the region, in big-endian order.
+     * @throws IOException
+     *             if the region can't be mapped.
+     */
+    public MappedByteBuffer map(final long position, final long length)
+            throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+    
+    /**
+     * Reads a header integer.
+     * 
+     * @param buffer
+     *            the buffer.
+     * @param index
+     *            the integer index.
+     * @return the integer.
+     */
+    int read(final ByteBuffer buffer, final int index)
+    {
+        final int value = buffer.getInt(index);
+        
+        return swapped ? Integer.reverseBytes(value) : value;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Reads the timestamp resolution of a pcapng interface.
+     * 
+     * @param buffer
+     *            the buffer.
+     * @param from
+     *            the options index.
+     * @param to
+     *            the options end.
+     * @return the timestamp unit in nanoseconds, or -n for 2^-n seconds; 1000
+     *         (microseconds) by default.
+     */
+    private long resolution(final ByteBuffer buffer, final int from,
+            final int to)
+    {
+        int pos = from;
+        while (pos + 4 <= to)
+        {
+            final int option = read(buffer, pos);
+            final int code = swapped ? option & 0xFFFF : option >>> 16;
+            final int length = swapped ? option >>> 16 : option & 0xFFFF;
+            if (code == OPT_END)
+            {
+                break;
+            }
+            if (code == OPT_TSRESOL && length >= 1)
+            {
+                final int value = buffer.get(pos + 4) & 0xFF;
+                if ((value & 0x80) != 0)
+                {
+                    return -(value & 0x7F);
+                }
+                long unit = 1;
+                for (int i = value; i < 9; i++)
+                {
+                    unit *= 10;
+                }
+                
+                return value > 9 ? 0 : unit;
+            }
+            pos += 4 + (length + 3 & ~3);
+        }
+        
+        return 1000;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
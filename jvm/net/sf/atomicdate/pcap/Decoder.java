@@ -0,0 +1,614 @@
+/*
+ * Decoder.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.pcap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import net.sf.atomicdate.sntp.MessageView;
+
+/**
+ * Decodes the NTP messages of a part of a capture.
+ * <ul>
+ * <li>The part is memory mapped and read in place: the UDP payloads are
+ * decoded through a {@link MessageView}, so no record is copied and decoding
+ * doesn't allocate;</li>
+ * <li>A part may start anywhere in the file: the first record is found by
+ * looking for a chain of consecutive plausible record headers. The records
+ * starting in the part are decoded, including the last one, which may end
+ * after it;</li>
+ * <li>The IPv4 and IPv6 UDP datagrams from or to port 123 are decoded, over
+ * Ethernet (including VLAN tags), Linux cooked, BSD loopback and raw IP
+ * links. Fragmented datagrams and IPv6 extension headers are skipped.</li>
+ * </ul>
+ * The implementation isn't thread-safe; a decoder is used by a single thread.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Decoder
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The maximum record size, as defined by libpcap. */
+    private static final int  MAX_RECORD = 1 << 18;
+    
+    /** The maximum pcapng block size. */
+    private static final int  MAX_BLOCK  = MAX_RECORD + (1 << 12);
+    
+    /** The mapped size after the end of a part, for its last record. */
+    public static final int   SLACK      = 1 << 20;
+    
+    /** The number of records checked to resynchronize. */
+    private static final int  CHAIN      = 8;
+    
+    /** The maximum time between two records checked to resynchronize. */
+    private static final long MAX_GAP    = 86400;
+    
+    /** The NTP port. */
+    private static final int  PORT       = 123;
+    
+    /** The NTP message size, without extensions. */
+    private static final int  SIZE       = 48;
+    
+    /** The link type: BSD loopback, host byte order. */
+    private static final int  LINK_NULL  = 0;
+    
+    /** The link type: Ethernet. */
+    private static final int  LINK_ETHER = 1;
+    
+    /** The link type: raw IP. */
+    private static final int  LINK_RAW   = 101;
+    
+    /** The link type: OpenBSD loopback. */
+    private static final int  LINK_LOOP  = 108;
+    
+    /** The link type: Linux cooked. */
+    private static final int  LINK_SLL   = 113;
+    
+    /** The link type: raw IPv4. */
+    private static final int  LINK_IPV4  = 228;
+    
+    /** The link type: raw IPv6. */
+    private static final int  LINK_IPV6  = 229;
+    
+    /** The link type: Linux cooked, version 2. */
+    private static final int  LINK_SLL2  = 276;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The capture. */
+    private final Capture     capture;
+    
+    /** The message view. */
+    private final MessageView view;
+    
+    /** The maximum pcap record size. */
+    private final int         maxRecord;
+    
+    /** The mapped region. */
+    private ByteBuffer        buffer;
+    
+    /** The mapped region size. */
+    private int               limit;
+    
+    /** True if the mapped region ends with the file. */
+    private boolean           last;
+    
+    /** The statistics being filled. */
+    private Statistics        stats;
+    
+    /** The last packet capture time (in nanoseconds). */
+    private long              time;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param capture
+     *            the capture.
+     * @throws NullPointerException
+     *             if the capture is null.
+     */
+    public Decoder(final Capture capture)
+    {
+        if (capture == null)
+        {
+            throw new NullPointerException("capture=null");
+        }
+        this.capture = capture;
+        view = new MessageView();
+        final int snap = capture.getSnapLength();
+        maxRecord = snap > 0 && snap < MAX_RECORD ? snap : MAX_RECORD;
+    }
+    
+    /**
+     * Decodes the records starting in a part of the capture.
+     * 
+     * @param from
+     *            the part offset.
+     * @param to
+     *            the part end offset.
+     * @param stats
+     *            the statistics to fill.
+     * @throws NullPointerException
+     *             if the statistics are null.
+     * @throws IllegalArgumentException
+     *             if the part is larger than 2 GB minus the
+     *             {@link #SLACK slack}.
+     * @throws IOException
+     *             if the part can't be mapped.
+     */
+    public void decode(final long from, final long to, final Statistics stats)
+            throws IOException
+    {
+        if (stats == null)
+        {
+            throw new NullPointerException("stats=null");
+        }
+        final long start = Math.max(from, capture.getStart());
+        final long end = Math.min(to, capture.getSize());
+        if (start >= end)
+        {
+            return;
+        }
+        if (end - start > Integer.MAX_VALUE - SLACK)
+        {
+            throw new IllegalArgumentException("to-from>2G");
+        }
+        final long mapped = Math.min(capture.getSize(), end + SLACK);
+        buffer = capture.map(start, mapped - start);
+        limit = buffer.limit();
+        last = mapped == capture.getSize();
+        this.stats = stats;
+        time = 0;
+        try
+        {
+            final int size = (int) (end - start);
+            int pos = start == capture.getStart() ? 0 : resync(0, size, start);
+            if (pos == -1)
+            {
+                stats.corrupted++;
+            }
+            while (pos >= 0 && pos < size)
+            {
+                final int next = capture.isNextGeneration() ? block(pos)
+                        : record(pos);
+                if (next >= 0)
+                {
+                    pos = next;
+                }
+                else if (next == -1)
+                {
+                    stats.corrupted++;
+                    pos = resync(pos + 1, size, start);
+                }
+                else
+                {
+                    // Truncated file.
+                    stats.corrupted++;
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            buffer = null;
+            this.stats = null;
+        }
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Finds the first record starting in a range of the mapped region, as the
+     * first of a chain of plausible records.
+     * 
+     * @param from
+     *            the range offset.
+     * @param to
+     *            the range end offset.
+     * @param base
+     *            the mapped region offset in the file.
+     * @return the record offset, or -1 if not found.
+     */
+    private int resync(final int from, final int to, final long base)
+    {
+        final boolean ng = capture.isNextGeneration();
+        
+        // The pcapng blocks are 32 bit aligned.
+        int pos = ng ? from + (int) (-(base + from) & 3) : from;
+        for (; pos < to; pos += ng ? 4 : 1)
+        {
+            if (chain(pos, ng))
+            {
+                return pos;
+            }
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Checks a chain of records.
+     * 
+     * @param from
+     *            the first record offset.
+     * @param ng
+     *            true for a pcapng file.
+     * @return true if the chain is plausible, otherwise false.
+     */
+    private boolean chain(final int from, final boolean ng)
+    {
+        int pos = from;
+        long seconds = 0;
+        for (int i = 0; i < CHAIN; i++)
+        {
+            if (pos == limit && last)
+            {
+                return i > 0;
+            }
+            final int next = ng ? checkBlock(pos) : checkRecord(pos);
+            if (next < 0)
+            {
+                return false;
+            }
+            if (!ng)
+            {
+                final long s = capture.read(buffer, pos) & 0xFFFFFFFFL;
+                if (i > 0 && Math.abs(s - seconds) > MAX_GAP)
+                {
+                    return false;
+                }
+                seconds = s;
+            }
+            if (next + 16 > limit && !last)
+            {
+                // The chain can't be checked further.
+                return true;
+            }
+            pos = next;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Checks a pcap record header.
+     * 
+     * @param pos
+     *            the record offset.
+     * @return the next record offset, or -1 if the header isn't plausible or
+     *         the record doesn't fit in the mapped region.
+     */
+    private int checkRecord(final int pos)
+    {
+        if (pos + 16 > limit)
+        {
+            return -1;
+        }
+        final long fraction = capture.read(buffer, pos + 4) & 0xFFFFFFFFL;
+        final int length = capture.read(buffer, pos + 8);
+        final int original = capture.read(buffer, pos + 12);
+        if (capture.toNanos(0, fraction) >= 1000000000L || length < 0
+                || length > maxRecord || original < length
+                || pos + 16 + length > limit)
+        {
+            return -1;
+        }
+        
+        return pos + 16 + length;
+    }
+    
+    /**
+     * Checks a pcapng block.
+     * 
+     * @param pos
+     *            the block offset.
+     * @return the next block offset, or -1 if the block isn't plausible or
+     *         doesn't fit in the mapped region.
+     */
+    private int checkBlock(final int pos)
+    {
+        if (pos + 12 > limit)
+        {
+            return -1;
+        }
+        final int type = capture.read(buffer, pos);
+        final int length = capture.read(buffer, pos + 4);
+        if (type != Capture.BLOCK_SECTION && (type < 1 || type > 6)
+                || length < 12 || length > MAX_BLOCK || (length & 3) != 0
+                || pos + length > limit
+                || capture.read(buffer, pos + length - 4) != length)
+        {
+            return -1;
+        }
+        
+        return pos + length;
+    }
+    
+    /**
+     * Decodes a pcap record.
+     * 
+     * @param pos
+     *            the record offset.
+     * @return the next record offset, -1 if the record is corrupted, or -2 if
+     *         it's truncated by the end of the file.
+     */
+    private int record(final int pos)
+    {
+        final int next = checkRecord(pos);
+        if (next < 0)
+        {
+            return last && pos + 16 + maxRecord > limit ? -2 : -1;
+        }
+        final long seconds = capture.read(buffer, pos) & 0xFFFFFFFFL;
+        final long fraction = capture.read(buffer, pos + 4) & 0xFFFFFFFFL;
+        time = seconds * 1000000000L + capture.toNanos(0, fraction);
+        packet(pos + 16, next - pos - 16, capture.getLinkType(0));
+        
+        return next;
+    }
+    
+    /**
+     * Decodes a pcapng block. The blocks other than the packet blocks are
+     * skipped.
+     * 
+     * @param pos
+     *            the block offset.
+     * @return the next block offset, -1 if the block is corrupted, or -2 if
+     *         it's truncated by the end of the file.
+     */
+    private int block(final int pos)
+    {
+        if (pos + 12 > limit)
+        {
+            return last ? -2 : -1;
+        }
+        final int type = capture.read(buffer, pos);
+        final int length = capture.read(buffer, pos + 4);
+        if (length < 12 || (length & 3) != 0 || length > MAX_BLOCK
+                || pos + length > limit
+                || capture.read(buffer, pos + length - 4) != length)
+        {
+            return last && pos + MAX_BLOCK > limit ? -2 : -1;
+        }
+        
+        if (type == Capture.BLOCK_ENHANCED && length >= 32)
+        {
+            final int index = capture.read(buffer, pos + 8);
+            final int captured = capture.read(buffer, pos + 20);
+            if (captured < 0 || captured > length - 32)
+            {
+                return -1;
+            }
+            if (index >= 0 && index < capture.getInterfaces())
+            {
+                final long high = capture.read(buffer, pos + 12);
+                final long low = capture.read(buffer, pos + 16) & 0xFFFFFFFFL;
+                time = capture.toNanos(index, high << 32 | low);
+                packet(pos + 28, captured, capture.getLinkType(index));
+            }
+        }
+        else if (type == Capture.BLOCK_SIMPLE && length >= 16
+                && capture.getInterfaces() > 0)
+        {
+            // No timestamp: the last packet time is reused.
+            final int original = capture.read(buffer, pos + 8);
+            packet(pos + 12, Math.min(original, length - 16),
+                    capture.getLinkType(0));
+        }
+        
+        return pos + length;
+    }
+    
+    /**
+     * Decodes a packet.
+     * 
+     * @param pos
+     *            the packet offset.
+     * @param length
+     *            the captured length.
+     * @param link
+     *            the link type.
+     */
+    private void packet(final int pos, final int length, final int link)
+    {
+        stats.record(length, time);
+        final int end = pos + length;
+        int ip;
+        int type;
+        switch (link)
+        {
+            case LINK_ETHER:
+                if (length < 14)
+                {
+                    return;
+                }
+                type = buffer.getShort(pos + 12) & 0xFFFF;
+                ip = pos + 14;
+                while ((type == 0x8100 || type == 0x88A8) && ip + 4 <= end)
+                {
+                    type = buffer.getShort(ip + 2) & 0xFFFF;
+                    ip += 4;
+                }
+                break;
+            
+            case LINK_NULL:
+            case LINK_LOOP:
+                if (length < 4)
+                {
+                    return;
+                }
+                
+                // The family is in the byte order of the capturing host.
+                int family = buffer.getInt(pos);
+                if ((family & 0xFFFF0000) != 0)
+                {
+                    family = Integer.reverseBytes(family);
+                }
+                type = family == 2 ? 0x0800 : family == 24 || family == 28
+                        || family == 30 ? 0x86DD : 0;
+                ip = pos + 4;
+                break;
+            
+            case LINK_SLL:
+                if (length < 16)
+                {
+                    return;
+                }
+                type = buffer.getShort(pos + 14) & 0xFFFF;
+                ip = pos + 16;
+                break;
+            
+            case LINK_SLL2:
+                if (length < 20)
+                {
+                    return;
+                }
+                type = buffer.getShort(pos) & 0xFFFF;
+                ip = pos + 20;
+                break;
+            
+            case LINK_RAW:
+            case LINK_IPV4:
+            case LINK_IPV6:
+                if (length < 1)
+                {
+                    return;
+                }
+                final int version = (buffer.get(pos) & 0xF0) >>> 4;
+                type = version == 4 ? 0x0800 : version == 6 ? 0x86DD : 0;
+                ip = pos;
+                break;
+            
+            default:
+                return;
+        }
+        
+        if (type == 0x0800)
+        {
+            ipv4(ip, end);
+        }
+        else if (type == 0x86DD)
+        {
+            ipv6(ip, end);
+        }
+    }
+    
+    /**
+     * Decodes an IPv4 packet.
+     * 
+     * @param pos
+     *            the packet offset.
+     * @param end
+     *            the captured packet end.
+     */
+    private void ipv4(final int pos, final int end)
+    {
+        if (pos + 20 > end)
+        {
+            return;
+        }
+        final int header = buffer.get(pos) & 0xFF;
+        final int length = (header & 0x0F) * 4;
+        if (header >>> 4 != 4 || length < 20 || buffer.get(pos + 9) != 17
+                || (buffer.getShort(pos + 6) & 0x3FFF) != 0)
+        {
+            return;
+        }
+        
+        // IPv4-mapped IPv6 addresses.
+        final long source = 0xFFFF00000000L | buffer.getInt(pos + 12)
+                & 0xFFFFFFFFL;
+        final long destination = 0xFFFF00000000L | buffer.getInt(pos + 16)
+                & 0xFFFFFFFFL;
+        udp(pos + length, end, 0, source, 0, destination);
+    }
+    
+    /**
+     * Decodes an IPv6 packet.
+     * 
+     * @param pos
+     *            the packet offset.
+     * @param end
+     *            the captured packet end.
+     */
+    private void ipv6(final int pos, final int end)
+    {
+        if (pos + 40 > end || (buffer.get(pos) & 0xF0) != 0x60
+                || buffer.get(pos + 6) != 17)
+        {
+            return;
+        }
+        udp(pos + 40, end, buffer.getLong(pos + 8), buffer.getLong(pos + 16),
+                buffer.getLong(pos + 24), buffer.getLong(pos + 32));
+    }
+    
+    /**
+     * Decodes a UDP datagram.
+     * 
+     * @param pos
+     *            the datagram offset.
+     * @param end
+     *            the captured datagram end.
+     * @param sourceHigh
+     *            the source address, high 64 bits.
+     * @param sourceLow
+     *            the source address, low 64 bits.
+     * @param destinationHigh
+     *            the destination address, high 64 bits.
+     * @param destinationLow
+     *            the destination address, low 64 bits.
+     */
+    private void udp(final int pos, final int end, final long sourceHigh,
+            final long sourceLow, final long destinationHigh,
+            final long destinationLow)
+    {
+        if (pos + 8 > end)
+        {
+            return;
+        }
+        if ((buffer.getShort(pos) & 0xFFFF) != PORT
+                && (buffer.getShort(pos + 2) & 0xFFFF) != PORT)
+        {
+            return;
+        }
+        stats.datagrams++;
+        final int length = (buffer.getShort(pos + 4) & 0xFFFF) - 8;
+        if (length < SIZE || pos + 8 + SIZE > end)
+        {
+            stats.malformed++;
+            return;
+        }
+        
+        view.wrap(buffer, pos + 8);
+        final int mode = view.getMode();
+        if (mode == 4)
+        {
+            stats.record(destinationHigh, destinationLow, mode,
+                    view.getVersionNumber(), view.getPollInterval(),
+                    view.isKissOfDeath(), length, time);
+        }
+        else
+        {
+            stats.record(sourceHigh, sourceLow, mode, view.getVersionNumber(),
+                    view.getPollInterval(), view.isKissOfDeath(), length, time);
+        }
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
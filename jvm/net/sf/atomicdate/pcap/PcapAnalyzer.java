@@ -0,0 +1,317 @@
+/*
+ * PcapAnalyzer.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.pcap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Analyzes the NTP traffic of a capture file, decoding its parts in parallel.
+ * <p>
+ * The file is split in parts of about the same size by a fork-join task; each
+ * part is mapped and decoded on its own by a {@link Decoder}, into its own
+ * {@link Statistics}, merged when the parts are joined. Since the parts are
+ * cut at arbitrary offsets, every part but the first looks for its first
+ * record boundary.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class PcapAnalyzer
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default part size (in bytes). */
+    public static final long      DEFAULT_PART = 32L << 20;
+    
+    /** The NTP mode names. */
+    private static final String[] MODES        = { "reserved",
+            "symmetric active", "symmetric passive", "client", "server",
+            "broadcast", "control", "private" };
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The capture. */
+    private final Capture         capture;
+    
+    /** The part size (in bytes). */
+    private final long            part;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Runs the analyzer from the command line.
+     * <p>
+     * Usage: <code>java -cp out net.sf.atomicdate.pcap.PcapAnalyzer
+     * [-p parallelism] [-c partMB] [-t top] file</code>. The statistics are
+     * followed by the <code>top</code> clients with the most messages.
+     * 
+     * @param args
+     *            the command line arguments.
+     * @throws IOException
+     *             if the file can't be read.
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long part = DEFAULT_PART;
+        int top = 10;
+        String path = null;
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("-p".equals(args[i]))
+            {
+                parallelism = Integer.parseInt(args[++i]);
+            }
+            else if ("-c".equals(args[i]))
+            {
+                part = Long.parseLong(args[++i]) << 20;
+            }
+            else if ("-t".equals(args[i]))
+            {
+                top = Integer.parseInt(args[++i]);
+            }
+            else
+            {
+                path = args[i];
+            }
+        }
+        if (path == null)
+        {
+            System.err.println("Usage: PcapAnalyzer [-p parallelism] "
+                    + "[-c partMB] [-t top] file");
+            System.exit(1);
+        }
+        
+        final Capture capture = new Capture(new File(path));
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            final long begin = System.nanoTime();
+            final Statistics stats = new PcapAnalyzer(capture, part)
+                    .analyze(pool);
+            final long elapsed = System.nanoTime() - begin;
+            report(System.out, capture, stats, elapsed, parallelism, top);
+        }
+        finally
+        {
+            pool.shutdown();
+            capture.close();
+        }
+    }
+    
+    /**
+     * Prints the statistics of a capture.
+     * 
+     * @param out
+     *            the output stream.
+     * @param capture
+     *            the capture.
+     * @param stats
+     *            the statistics.
+     * @param elapsed
+     *            the analysis time (in nanoseconds).
+     * @param parallelism
+     *            the analysis parallelism.
+     * @param top
+     *            the number of clients printed.
+     */
+    private static void report(final PrintStream out, final Capture capture,
+            final Statistics stats, final long elapsed, final int parallelism,
+            final int top)
+    {
+        final double seconds = elapsed / 1E9D;
+        out.println(String.format(Locale.ROOT,
+                "# %s, %d bytes, %d threads: %.3f s, %.1f MB/s, "
+                        + "%.0f records/s",
+                capture.isNextGeneration() ? "pcapng" : "pcap",
+                capture.getSize(), parallelism, seconds, capture.getSize()
+                        / seconds / (1 << 20), stats.getRecords() / seconds));
+        out.println("records    " + stats.getRecords());
+        out.println("bytes      " + stats.getBytes());
+        out.println("datagrams  " + stats.getDatagrams());
+        out.println("decoded    " + stats.getDecoded());
+        out.println("malformed  " + stats.getMalformed());
+        out.println("corrupted  " + stats.getCorrupted());
+        out.println("kisses     " + stats.getKisses());
+        out.println("clients    " + stats.getClientCount());
+        if (stats.getRecords() > 0)
+        {
+            out.println(String.format(Locale.ROOT, "duration   %.3f s",
+                    (stats.getLastTime() - stats.getFirstTime()) / 1E9D));
+        }
+        for (int i = 0; i < MODES.length; i++)
+        {
+            if (stats.getMessages(i) > 0)
+            {
+                out.println("mode " + i + "     " + stats.getMessages(i)
+                        + " (" + MODES[i] + ")");
+            }
+        }
+        for (int i = 0; i < 8; i++)
+        {
+            if (stats.getVersionMessages(i) > 0)
+            {
+                out.println("version " + i + "  "
+                        + stats.getVersionMessages(i));
+            }
+        }
+        
+        out.println();
+        out.println(String.format(Locale.ROOT,
+                "%-40s %10s %10s %6s %8s %5s %9s", "client", "requests",
+                "replies", "kisses", "versions", "poll", "interval"));
+        for (final Statistics.Client client : stats.getClients(top))
+        {
+            out.println(String.format(Locale.ROOT,
+                    "%-40s %10d %10d %6d %8s %2d-%-2d %9.1f", client
+                            .getAddress().getHostAddress(), client
+                            .getRequests(), client.getReplies(), client
+                            .getKisses(), Integer.toBinaryString(client
+                            .getVersions() >>> 1), client.getMinPoll(),
+                    client.getMaxPoll(), client.getInterval()));
+        }
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param capture
+     *            the capture.
+     * @param part
+     *            the part size (in bytes).
+     * @throws NullPointerException
+     *             if the capture is null.
+     * @throws IllegalArgumentException
+     *             if the part size isn't positive or is larger than 1 GB.
+     */
+    public PcapAnalyzer(final Capture capture, final long part)
+    {
+        if (capture == null)
+        {
+            throw new NullPointerException("capture=null");
+        }
+        if (part <= 0 || part > 1L << 30)
+        {
+            throw new IllegalArgumentException("part<=0 || part>1G");
+        }
+        this.capture = capture;
+        this.part = part;
+    }
+    
+    /**
+     * Analyzes the capture.
+     * 
+     * @param pool
+     *            the pool decoding the parts.
+     * @return the statistics.
+     * @throws NullPointerException
+     *             if the pool is null.
+     * @throws IOException
+     *             if a part can't be mapped.
+     */
+    public Statistics analyze(final ForkJoinPool pool) throws IOException
+    {
+        if (pool == null)
+        {
+            throw new NullPointerException("pool=null");
+        }
+        try
+        {
+            return pool.invoke(new Part(capture.getStart(), capture.getSize()));
+        }
+        catch (final IllegalStateException ise)
+        {
+            if (ise.getCause() instanceof IOException)
+            {
+                throw (IOException) ise.getCause();
+            }
+            throw ise;
+        }
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The decoding of a part of the capture, split in halves until small
+     * enough.
+     * 
+     * @author Koka El Kiwi
+     */
+    private final class Part extends RecursiveTask<Statistics>
+    {
+        
+        /** The serialization version. */
+        private static final long serialVersionUID = 1L;
+        
+        /** The part offset. */
+        private final long        from;
+        
+        /** The part end offset. */
+        private final long        to;
+        
+        /**
+         * Constructor.
+         * 
+         * @param from
+         *            the part offset.
+         * @param to
+         *            the part end offset.
+         */
+        public Part(final long from, final long to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+        
+        // See RecursiveTask for details.
+        @Override
+        protected Statistics compute()
+        {
+            if (to - from <= part)
+            {
+                final Statistics stats = new Statistics();
+                try
+                {
+                    new Decoder(capture).decode(from, to, stats);
+                }
+                catch (final IOException ioe)
+                {
+                    throw new IllegalStateException(ioe);
+                }
+                
+                return stats;
+            }
+            
+            final long middle = from + (to - from) / 2;
+            final Part first = new Part(from, middle);
+            first.fork();
+            final Statistics stats = new Part(middle, to).compute();
+            stats.merge(first.join());
+            
+            return stats;
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,721 @@
+/*
+ * Statistics.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.pcap;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The NTP traffic statistics of a capture, or of a part of it.
+ * <ul>
+ * <li>The clients are kept in an open addressing table of primitive arrays,
+ * keyed by their IPv6 (or IPv4-mapped) address, so recording a message
+ * doesn't allocate;</li>
+ * <li>The statistics of the parts of a capture, decoded in parallel, are
+ * {@link #merge(Statistics) merged} at the end.</li>
+ * </ul>
+ * The client of a message is its source for a request (mode 3) and its
+ * destination for a reply (mode 4); the other modes are counted against their
+ * source. The implementation isn't thread-safe.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Statistics
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The initial table capacity. */
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The number of capture records. */
+    long                     records;
+    
+    /** The number of captured bytes. */
+    long                     bytes;
+    
+    /** The number of UDP datagrams from or to port 123. */
+    long                     datagrams;
+    
+    /** The number of decoded NTP messages. */
+    long                     decoded;
+    
+    /** The number of truncated or too short NTP messages. */
+    long                     malformed;
+    
+    /** The number of records that couldn't be resynchronized or read. */
+    long                     corrupted;
+    
+    /** The number of messages, by mode. */
+    final long[]             modes;
+    
+    /** The number of messages, by version. */
+    final long[]             versions;
+    
+    /** The number of kiss-o'-death replies. */
+    long                     kisses;
+    
+    /** The first record capture time (in nanoseconds), or Long.MAX_VALUE. */
+    long                     first;
+    
+    /** The last record capture time (in nanoseconds), or Long.MIN_VALUE. */
+    long                     last;
+    
+    /** The clients address, high 64 bits. */
+    private long[]           highs;
+    
+    /** The clients address, low 64 bits. */
+    private long[]           lows;
+    
+    /** The used slots. */
+    private boolean[]        used;
+    
+    /** The clients number of requests. */
+    private long[]           requests;
+    
+    /** The clients number of replies. */
+    private long[]           replies;
+    
+    /** The clients number of other messages. */
+    private long[]           others;
+    
+    /** The clients number of kiss-o'-death replies. */
+    private long[]           kissed;
+    
+    /** The clients NTP bytes. */
+    private long[]           sizes;
+    
+    /** The clients versions seen, as a bit mask. */
+    private int[]            masks;
+    
+    /** The clients minimum poll exponent. */
+    private byte[]           minPolls;
+    
+    /** The clients maximum poll exponent. */
+    private byte[]           maxPolls;
+    
+    /** The clients first message time (in nanoseconds). */
+    private long[]           firsts;
+    
+    /** The clients last message time (in nanoseconds). */
+    private long[]           lasts;
+    
+    /** The number of clients. */
+    private int              count;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Default constructor.
+     */
+    public Statistics()
+    {
+        modes = new long[8];
+        versions = new long[8];
+        first = Long.MAX_VALUE;
+        last = Long.MIN_VALUE;
+        allocate(INITIAL_CAPACITY);
+    }
+    
+    /**
+     * Records a decoded message.
+     * 
+     * @param high
+     *            the client address, high 64 bits.
+     * @param low
+     *            the client address, low 64 bits.
+     * @param mode
+     *            the message mode.
+     * @param version
+     *            the message version.
+     * @param poll
+     *            the message poll exponent.
+     * @param kiss
+     *            true for a kiss-o'-death reply.
+     * @param length
+     *            the message length (in bytes).
+     * @param time
+     *            the capture time (in nanoseconds).
+     */
+    void record(final long high, final long low, final int mode,
+            final int version, final byte poll, final boolean kiss,
+            final int length, final long time)
+    {
+        decoded++;
+        modes[mode]++;
+        versions[version]++;
+        if (kiss)
+        {
+            kisses++;
+        }
+        
+        final int slot = slot(high, low);
+        if (mode == 3)
+        {
+            requests[slot]++;
+        }
+        else if (mode == 4)
+        {
+            replies[slot]++;
+        }
+        else
+        {
+            others[slot]++;
+        }
+        if (kiss)
+        {
+            kissed[slot]++;
+        }
+        sizes[slot] += length;
+        masks[slot] |= 1 << version;
+        if (poll < minPolls[slot])
+        {
+            minPolls[slot] = poll;
+        }
+        if (poll > maxPolls[slot])
+        {
+            maxPolls[slot] = poll;
+        }
+        if (time < firsts[slot])
+        {
+            firsts[slot] = time;
+        }
+        if (time > lasts[slot])
+        {
+            lasts[slot] = time;
+        }
+    }
+    
+    /**
+     * Records a capture record.
+     * 
+     * @param length
+     *            the captured length (in bytes).
+     * @param time
+     *            the capture time (in nanoseconds).
+     */
+    void record(final int length, final long time)
+    {
+        records++;
+        bytes += length;
+        if (time < first)
+        {
+            first = time;
+        }
+        if (time > last)
+        {
+            last = time;
+        }
+    }
+    
+    /**
+     * Adds the statistics of another part of the capture.
+     * 
+     * @param other
+     *            the other statistics.
+     * @throws NullPointerException
+     *             if the other statistics are null.
+     */
+    public void merge(final Statistics other)
+    {
+        if (other == null)
+        {
+            throw new NullPointerException("other=null");
+        }
+        records += other.records;
+        bytes += other.bytes;
+        datagrams += other.datagrams;
+        decoded += other.decoded;
+        malformed += other.malformed;
+        corrupted += other.corrupted;
+        kisses += other.kisses;
+        first = Math.min(first, other.first);
+        last = Math.max(last, other.last);
+        for (int i = 0; i < modes.length; i++)
+        {
+            modes[i] += other.modes[i];
+            versions[i] += other.versions[i];
+        }
+        for (int i = 0; i < other.used.length; i++)
+        {
+            if (other.used[i])
+            {
+                final int slot = slot(other.highs[i], other.lows[i]);
+                requests[slot] += other.requests[i];
+                replies[slot] += other.replies[i];
+                others[slot] += other.others[i];
+                kissed[slot] += other.kissed[i];
+                sizes[slot] += other.sizes[i];
+                masks[slot] |= other.masks[i];
+                minPolls[slot] = (byte) Math.min(minPolls[slot],
+                        other.minPolls[i]);
+                maxPolls[slot] = (byte) Math.max(maxPolls[slot],
+                        other.maxPolls[i]);
+                firsts[slot] = Math.min(firsts[slot], other.firsts[i]);
+                lasts[slot] = Math.max(lasts[slot], other.lasts[i]);
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of capture records.
+     * 
+     * @return the number of records.
+     */
+    public long getRecords()
+    {
+        return records;
+    }
+    
+    /**
+     * Returns the number of captured bytes.
+     * 
+     * @return the number of bytes.
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+    
+    /**
+     * Returns the number of UDP datagrams from or to port 123.
+     * 
+     * @return the number of datagrams.
+     */
+    public long getDatagrams()
+    {
+        return datagrams;
+    }
+    
+    /**
+     * Returns the number of decoded NTP messages.
+     * 
+     * @return the number of messages.
+     */
+    public long getDecoded()
+    {
+        return decoded;
+    }
+    
+    /**
+     * Returns the number of truncated or too short NTP messages.
+     * 
+     * @return the number of malformed messages.
+     */
+    public long getMalformed()
+    {
+        return malformed;
+    }
+    
+    /**
+     * Returns the number of corrupted records, that couldn't be read or
+     * resynchronized.
+     * 
+     * @return the number of corrupted records.
+     */
+    public long getCorrupted()
+    {
+        return corrupted;
+    }
+    
+    /**
+     * Returns the number of messages of a mode.
+     * 
+     * @param mode
+     *            the mode (0 to 7).
+     * @return the number of messages.
+     */
+    public long getMessages(final int mode)
+    {
+        return modes[mode];
+    }
+    
+    /**
+     * Returns the number of messages of a version.
+     * 
+     * @param version
+     *            the version (0 to 7).
+     * @return the number of messages.
+     */
+    public long getVersionMessages(final int version)
+    {
+        return versions[version];
+    }
+    
+    /**
+     * Returns the number of kiss-o'-death replies.
+     * 
+     * @return the number of kiss-o'-death replies.
+     */
+    public long getKisses()
+    {
+        return kisses;
+    }
+    
+    /**
+     * Returns the first record capture time.
+     * 
+     * @return the capture time (in nanoseconds since the epoch), or
+     *         Long.MAX_VALUE if there are no records.
+     */
+    public long getFirstTime()
+    {
+        return first;
+    }
+    
+    /**
+     * Returns the last record capture time.
+     * 
+     * @return the capture time (in nanoseconds since the epoch), or
+     *         Long.MIN_VALUE if there are no records.
+     */
+    public long getLastTime()
+    {
+        return last;
+    }
+    
+    /**
+     * Returns the number of clients.
+     * 
+     * @return the number of clients.
+     */
+    public int getClientCount()
+    {
+        return count;
+    }
+    
+    /**
+     * Returns the clients, sorted by decreasing number of messages.
+     * 
+     * @param max
+     *            the maximum number of clients returned.
+     * @return the clients.
+     */
+    public Client[] getClients(final int max)
+    {
+        final Client[] all = new Client[count];
+        int n = 0;
+        for (int i = 0; i < used.length; i++)
+        {
+            if (used[i])
+            {
+                all[n++] = new Client(i);
+            }
+        }
+        Arrays.sort(all, new Comparator<Client>() {
+            
+            @Override
+            public int compare(final Client c1, final Client c2)
+            {
+                final long m1 = c1.getMessages();
+                final long m2 = c2.getMessages();
+                
+                return m1 > m2 ? -1 : m1 < m2 ? 1 : 0;
+            }
+        });
+        
+        return max < all.length ? Arrays.copyOf(all, max) : all;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns the slot of a client, adding it if needed.
+     * 
+     * @param high
+     *            the client address, high 64 bits.
+     * @param low
+     *            the client address, low 64 bits.
+     * @return the slot.
+     */
+    private int slot(final long high, final long low)
+    {
+        final int mask = used.length - 1;
+        int idx = hash(high, low) & mask;
+        while (used[idx])
+        {
+            if (highs[idx] == high && lows[idx] == low)
+            {
+                return idx;
+            }
+            idx = idx + 1 & mask;
+        }
+        if (2 * (count + 1) > used.length)
+        {
+            grow();
+            
+            return slot(high, low);
+        }
+        used[idx] = true;
+        highs[idx] = high;
+        lows[idx] = low;
+        minPolls[idx] = Byte.MAX_VALUE;
+        maxPolls[idx] = Byte.MIN_VALUE;
+        firsts[idx] = Long.MAX_VALUE;
+        lasts[idx] = Long.MIN_VALUE;
+        count++;
+        
+        return idx;
+    }
+    
+    /**
+     * Doubles the table capacity, rehashing the clients.
+     */
+    private void grow()
+    {
+        final long[] oldHighs = highs;
+        final long[] oldLows = lows;
+        final boolean[] oldUsed = used;
+        final long[] oldRequests = requests;
+        final long[] oldReplies = replies;
+        final long[] oldOthers = others;
+        final long[] oldKissed = kissed;
+        final long[] oldSizes = sizes;
+        final int[] oldMasks = masks;
+        final byte[] oldMinPolls = minPolls;
+        final byte[] oldMaxPolls = maxPolls;
+        final long[] oldFirsts = firsts;
+        final long[] oldLasts = lasts;
+        allocate(2 * oldUsed.length);
+        
+        final int mask = used.length - 1;
+        for (int i = 0; i < oldUsed.length; i++)
+        {
+            if (oldUsed[i])
+            {
+                int idx = hash(oldHighs[i], oldLows[i]) & mask;
+                while (used[idx])
+                {
+                    idx = idx + 1 & mask;
+                }
+                used[idx] = true;
+                highs[idx] = oldHighs[i];
+                lows[idx] = oldLows[i];
+                requests[idx] = oldRequests[i];
+                replies[idx] = oldReplies[i];
+                others[idx] = oldOthers[i];
+                kissed[idx] = oldKissed[i];
+                sizes[idx] = oldSizes[i];
+                masks[idx] = oldMasks[i];
+                minPolls[idx] = oldMinPolls[i];
+                maxPolls[idx] = oldMaxPolls[i];
+                firsts[idx] = oldFirsts[i];
+                lasts[idx] = oldLasts[i];
+            }
+        }
+    }
+    
+    /**
+     * Allocates an empty table.
+     * 
+     * @param capacity
+     *            the table capacity, a power of 2.
+     */
+    private void allocate(final int capacity)
+    {
+        highs = new long[capacity];
+        lows = new long[capacity];
+        used = new boolean[capacity];
+        requests = new long[capacity];
+        replies = new long[capacity];
+        others = new long[capacity];
+        kissed = new long[capacity];
+        sizes = new long[capacity];
+        masks = new int[capacity];
+        minPolls = new byte[capacity];
+        maxPolls = new byte[capacity];
+        firsts = new long[capacity];
+        lasts = new long[capacity];
+    }
+    
+    /**
+     * Hashes a client address.
+     * 
+     * @param high
+     *            the address, high 64 bits.
+     * @param low
+     *            the address, low 64 bits.
+     * @return the hash code.
+     */
+    private static int hash(final long high, final long low)
+    {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        
+        return (int) h;
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * A view of the statistics of a client, valid until the statistics
+     * change.
+     * 
+     * @author Koka El Kiwi
+     */
+    public final class Client
+    {
+        
+        /** The client slot. */
+        private final int slot;
+        
+        /**
+         * Constructor.
+         * 
+         * @param slot
+         *            the client slot.
+         */
+        private Client(final int slot)
+        {
+            this.slot = slot;
+        }
+        
+        /**
+         * Returns the client address.
+         * 
+         * @return the address.
+         */
+        public InetAddress getAddress()
+        {
+            final byte[] addr = new byte[16];
+            for (int i = 0; i < 8; i++)
+            {
+                addr[i] = (byte) (highs[slot] >>> 56 - 8 * i);
+                addr[8 + i] = (byte) (lows[slot] >>> 56 - 8 * i);
+            }
+            try
+            {
+                // IPv4-mapped addresses are returned as IPv4 addresses.
+                return InetAddress.getByAddress(addr);
+            }
+            catch (final UnknownHostException uhe)
+            {
+                throw new IllegalStateException(uhe);
+            }
+        }
+        
+        /**
+         * Returns the number of requests sent by the client.
+         * 
+         * @return the number of requests.
+         */
+        public long getRequests()
+        {
+            return requests[slot];
+        }
+        
+        /**
+         * Returns the number of replies sent to the client.
+         * 
+         * @return the number of replies.
+         */
+        public long getReplies()
+        {
+            return replies[slot];
+        }
+        
+        /**
+         * Returns the number of messages of the other modes.
+         * 
+         * @return the number of messages.
+         */
+        public long getOthers()
+        {
+            return others[slot];
+        }
+        
+        /**
+         * Returns the total number of messages.
+         * 
+         * @return the number of messages.
+         */
+        public long getMessages()
+        {
+            return requests[slot] + replies[slot] + others[slot];
+        }
+        
+        /**
+         * Returns the number of kiss-o'-death replies sent to the client.
+         * 
+         * @return the number of kiss-o'-death replies.
+         */
+        public long getKisses()
+        {
+            return kissed[slot];
+        }
+        
+        /**
+         * Returns the NTP bytes exchanged with the client.
+         * 
+         * @return the number of bytes.
+         */
+        public long getBytes()
+        {
+            return sizes[slot];
+        }
+        
+        /**
+         * Returns the versions seen.
+         * 
+         * @return the versions, as a bit mask.
+         */
+        public int getVersions()
+        {
+            return masks[slot];
+        }
+        
+        /**
+         * Returns the minimum poll exponent seen.
+         * 
+         * @return the minimum poll exponent.
+         */
+        public byte getMinPoll()
+        {
+            return minPolls[slot];
+        }
+        
+        /**
+         * Returns the maximum poll exponent seen.
+         * 
+         * @return the maximum poll exponent.
+         */
+        public byte getMaxPoll()
+        {
+            return maxPolls[slot];
+        }
+        
+        /**
+         * Returns the average interval between the client messages.
+         * 
+         * @return the interval (in seconds), or 0 if there's a single
+         *         message.
+         */
+        public double getInterval()
+        {
+            final long n = getMessages();
+            
+            return n > 1 ? (lasts[slot] - firsts[slot]) / 1E9D / (n - 1) : 0;
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,412 @@
+/*
+ * Exposition.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A writer of the Prometheus text exposition format, into a reusable byte
+ * buffer.
+ * <ul>
+ * <li>The numbers are formatted in place, without going through strings, so
+ * rendering the same metrics again doesn't allocate once the buffer is large
+ * enough;</li>
+ * <li>A sample is written by {@link #begin(String)}, any number of
+ * {@link #label(String, String)} and one of the <code>value</code>
+ * methods.</li>
+ * </ul>
+ * The implementation isn't thread-safe.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Exposition
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The number of decimals of the floating point values. */
+    private static final int    DECIMALS = 6;
+    
+    /** The scale of the floating point values, 10^DECIMALS. */
+    private static final double SCALE    = 1E6D;
+    
+    /** The largest floating point value formatted in place. */
+    private static final double MAX      = 1E12D;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The buffer. */
+    private byte[]              buffer;
+    
+    /** The buffer length. */
+    private int                 length;
+    
+    /** The number of labels of the current sample. */
+    private int                 labels;
+    
+    /** The digits scratch buffer. */
+    private final byte[]        digits;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Default constructor.
+     */
+    public Exposition()
+    {
+        buffer = new byte[1 << 12];
+        digits = new byte[20];
+    }
+    
+    /**
+     * Discards the written text.
+     */
+    public void reset()
+    {
+        length = 0;
+        labels = 0;
+    }
+    
+    /**
+     * Returns the length of the written text.
+     * 
+     * @return the length (in bytes).
+     */
+    public int size()
+    {
+        return length;
+    }
+    
+    /**
+     * Writes the written text to a stream.
+     * 
+     * @param out
+     *            the stream.
+     * @throws IOException
+     *             if the text can't be written.
+     */
+    public void writeTo(final OutputStream out) throws IOException
+    {
+        out.write(buffer, 0, length);
+    }
+    
+    /**
+     * Writes the header of a metric family.
+     * 
+     * @param name
+     *            the metric name.
+     * @param type
+     *            the metric type: <code>counter</code>, <code>gauge</code>,
+     *            <code>summary</code>, <code>histogram</code> or
+     *            <code>untyped</code>.
+     * @param help
+     *            the metric description.
+     * @return this writer.
+     */
+    public Exposition family(final String name, final String type,
+            final String help)
+    {
+        text("# HELP ");
+        text(name);
+        put(' ');
+        escaped(help, false);
+        put('\n');
+        text("# TYPE ");
+        text(name);
+        put(' ');
+        text(type);
+        put('\n');
+        
+        return this;
+    }
+    
+    /**
+     * Starts a sample.
+     * 
+     * @param name
+     *            the metric name, with its suffix if any.
+     * @return this writer.
+     */
+    public Exposition begin(final String name)
+    {
+        text(name);
+        labels = 0;
+        
+        return this;
+    }
+    
+    /**
+     * Adds a label to the current sample.
+     * 
+     * @param name
+     *            the label name.
+     * @param value
+     *            the label value.
+     * @return this writer.
+     */
+    public Exposition label(final String name, final String value)
+    {
+        put(labels++ == 0 ? '{' : ',');
+        text(name);
+        put('=');
+        put('"');
+        escaped(value, true);
+        put('"');
+        
+        return this;
+    }
+    
+    /**
+     * Ends the current sample with an integer value.
+     * 
+     * @param value
+     *            the value.
+     */
+    public void value(final long value)
+    {
+        separator();
+        number(value);
+        put('\n');
+    }
+    
+    /**
+     * Ends the current sample with a floating point value, rounded to 6
+     * decimals.
+     * 
+     * @param value
+     *            the value.
+     */
+    public void value(final double value)
+    {
+        separator();
+        if (Double.isNaN(value))
+        {
+            text("NaN");
+        }
+        else if (Double.isInfinite(value))
+        {
+            text(value > 0 ? "+Inf" : "-Inf");
+        }
+        else if (Math.abs(value) >= MAX)
+        {
+            // Rare enough to go through a string.
+            text(Double.toString(value));
+        }
+        else
+        {
+            final long scaled = Math.round(Math.abs(value) * SCALE);
+            if (value < 0 && scaled != 0)
+            {
+                put('-');
+            }
+            fixed(scaled, DECIMALS);
+        }
+        put('\n');
+    }
+    
+    /**
+     * Ends the current sample with a duration in milliseconds, written in
+     * seconds.
+     * 
+     * @param millis
+     *            the duration (in milliseconds).
+     */
+    public void seconds(final long millis)
+    {
+        separator();
+        if (millis < 0)
+        {
+            put('-');
+        }
+        fixed(millis == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(millis), 3);
+        put('\n');
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Closes the labels of the current sample and writes the value separator.
+     */
+    private void separator()
+    {
+        if (labels > 0)
+        {
+            put('}');
+        }
+        put(' ');
+    }
+    
+    /**
+     * Writes a non-negative fixed point number, without its trailing zeros.
+     * 
+     * @param scaled
+     *            the number, scaled by 10^decimals.
+     * @param decimals
+     *            the number of decimals.
+     */
+    private void fixed(final long scaled, final int decimals)
+    {
+        long divisor = 1;
+        for (int i = 0; i < decimals; i++)
+        {
+            divisor *= 10;
+        }
+        number(scaled / divisor);
+        long fraction = scaled % divisor;
+        if (fraction != 0)
+        {
+            put('.');
+            
+            // The leading zeros, then the digits up to the last non-zero one.
+            for (long d = divisor / 10; fraction != 0; d /= 10)
+            {
+                put((char) ('0' + fraction / d));
+                fraction %= d;
+            }
+        }
+    }
+    
+    /**
+     * Writes an integer.
+     * 
+     * @param value
+     *            the integer.
+     */
+    private void number(final long value)
+    {
+        if (value == Long.MIN_VALUE)
+        {
+            text("-9223372036854775808");
+            return;
+        }
+        long v = value;
+        if (v < 0)
+        {
+            put('-');
+            v = -v;
+        }
+        int n = 0;
+        do
+        {
+            digits[n++] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        while (v != 0);
+        ensure(n);
+        while (n > 0)
+        {
+            buffer[length++] = digits[--n];
+        }
+    }
+    
+    /**
+     * Writes an ASCII text.
+     * 
+     * @param text
+     *            the text.
+     */
+    private void text(final String text)
+    {
+        final int n = text.length();
+        ensure(n);
+        for (int i = 0; i < n; i++)
+        {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+    
+    /**
+     * Writes a text in UTF-8, escaping the backslashes, the line feeds and, in
+     * label values, the double quotes.
+     * 
+     * @param text
+     *            the text.
+     * @param quoted
+     *            true for a label value.
+     */
+    private void escaped(final String text, final boolean quoted)
+    {
+        final int n = text.length();
+        for (int i = 0; i < n; i++)
+        {
+            final char c = text.charAt(i);
+            if (c == '\\' || quoted && c == '"')
+            {
+                put('\\');
+                put(c);
+            }
+            else if (c == '\n')
+            {
+                put('\\');
+                put('n');
+            }
+            else if (c < 0x80)
+            {
+                put(c);
+            }
+            else if (c < 0x800)
+            {
+                put((char) (0xC0 | c >> 6));
+                put((char) (0x80 | c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < n)
+            {
+                final int cp = Character.toCodePoint(c, text.charAt(++i));
+                put((char) (0xF0 | cp >> 18));
+                put((char) (0x80 | cp >> 12 & 0x3F));
+                put((char) (0x80 | cp >> 6 & 0x3F));
+                put((char) (0x80 | cp & 0x3F));
+            }
+            else
+            {
+                put((char) (0xE0 | c >> 12));
+                put((char) (0x80 | c >> 6 & 0x3F));
+                put((char) (0x80 | c & 0x3F));
+            }
+        }
+    }
+    
+    /**
+     * Writes a byte.
+     * 
+     * @param c
+     *            the byte, as a char.
+     */
+    private void put(final char c)
+    {
+        ensure(1);
+        buffer[length++] = (byte) c;
+    }
+    
+    /**
+     * Makes room in the buffer.
+     * 
+     * @param n
+     *            the number of bytes to write.
+     */
+    private void ensure(final int n)
+    {
+        if (length + n > buffer.length)
+        {
+            final byte[] grown = new byte[Math.max(2 * buffer.length, length
+                    + n)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
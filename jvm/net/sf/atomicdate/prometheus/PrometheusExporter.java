@@ -0,0 +1,588 @@
+/*
+ * PrometheusExporter.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.sf.atomicdate.Client;
+import net.sf.atomicdate.ClockState;
+import net.sf.atomicdate.Date;
+import net.sf.atomicdate.Server;
+import net.sf.atomicdate.Service;
+import net.sf.atomicdate.metrics.AtomicHistogram;
+import net.sf.atomicdate.metrics.MetricsRegistry;
+import net.sf.atomicdate.metrics.ServerMetrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the metrics of a {@link Service} in the Prometheus text exposition
+ * format, over the HTTP server of the JDK.
+ * <ul>
+ * <li>The synchronization state: offset, error bounds, jitter, stratum and
+ * poll interval;</li>
+ * <li>The exchanges with every SNTP server, from the service
+ * {@link MetricsRegistry metrics registry}: counters, health, and round-trip
+ * time and offset summaries;</li>
+ * <li>The requests of the {@link #addServer(Server) registered} SNTP servers,
+ * if the service is also served.</li>
+ * </ul>
+ * The text is rendered in a reused {@link Exposition buffer}, and the
+ * histograms are read into reused snapshots, so a scrape allocates next to
+ * nothing. The scrapes are serialized.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class PrometheusExporter implements HttpHandler
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The metrics path. */
+    public static final String                   PATH         = "/metrics";
+    
+    /** The default HTTP port. */
+    public static final int                      DEFAULT_PORT = 9123;
+    
+    /** The exposition format content type. */
+    private static final String                  CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    
+    /** The summaries quantiles (in percents). */
+    private static final double[]                QUANTILES    = { 50, 90, 99 };
+    
+    /** The summaries quantiles labels. */
+    private static final String[]                LABELS       = { "0.5",
+            "0.9", "0.99" };
+    
+    /** The number of poll intervals without reply before a server is down. */
+    private static final int                     HEALTH_POLLS = 3;
+    
+    /** The minimum poll interval accounted for the health (in ms). */
+    private static final long                    MIN_POLL     = 64000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The exported service. */
+    private final Service                        service;
+    
+    /** The served SNTP servers. */
+    private final CopyOnWriteArrayList<Server>   servers;
+    
+    /** The text buffer. */
+    private final Exposition                     out;
+    
+    /** The histogram snapshot. */
+    private final AtomicHistogram.Snapshot       snapshot;
+    
+    /** The label values, by server address. */
+    private final Map<InetSocketAddress, String> names;
+    
+    /** The HTTP server, null until started. */
+    private HttpServer                           http;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Runs a synchronized service from the command line and exports its
+     * metrics.
+     * <p>
+     * Usage: <code>java -cp out net.sf.atomicdate.prometheus.PrometheusExporter
+     * [-p port] [-P period] [-S port] host[:port]</code>. The service polls the
+     * SNTP host every <code>period</code> milliseconds (64 s by default), and
+     * is also served on the <code>-S</code> port if given. The metrics are
+     * served on <code>http://*:port/metrics</code>.
+     * 
+     * @param args
+     *            the command line arguments.
+     * @throws IOException
+     *             if the service, the server or the exporter can't start.
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        int port = DEFAULT_PORT;
+        long period = MIN_POLL;
+        int serve = 0;
+        String host = Date.DEFAULT_SERVER_ADDRESS;
+        int sntp = Client.DEFAULT_SNTP_PORT;
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("-p".equals(args[i]))
+            {
+                port = Integer.parseInt(args[++i]);
+            }
+            else if ("-P".equals(args[i]))
+            {
+                period = Long.parseLong(args[++i]);
+            }
+            else if ("-S".equals(args[i]))
+            {
+                serve = Integer.parseInt(args[++i]);
+            }
+            else
+            {
+                final int colon = args[i].lastIndexOf(':');
+                if (colon > 0 && args[i].indexOf(':') == colon)
+                {
+                    host = args[i].substring(0, colon);
+                    sntp = Integer.parseInt(args[i].substring(colon + 1));
+                }
+                else
+                {
+                    host = args[i];
+                }
+            }
+        }
+        
+        final Service service = new Service();
+        service.setServerHost(host);
+        service.setServerPort(sntp);
+        service.setSyncPeriod(period);
+        service.requestSync();
+        final PrometheusExporter exporter = new PrometheusExporter(service);
+        if (serve > 0)
+        {
+            final Server server = new Server(service, new InetSocketAddress(
+                    serve));
+            server.start();
+            exporter.addServer(server);
+        }
+        exporter.start(new InetSocketAddress(port));
+        System.out.println("Exporting " + host + ":" + sntp + " metrics on "
+                + exporter.getLocalAddress() + PATH);
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param service
+     *            the exported service.
+     * @throws NullPointerException
+     *             if the service is null.
+     */
+    public PrometheusExporter(final Service service)
+    {
+        if (service == null)
+        {
+            throw new NullPointerException("service=null");
+        }
+        this.service = service;
+        servers = new CopyOnWriteArrayList<Server>();
+        out = new Exposition();
+        snapshot = new AtomicHistogram.Snapshot();
+        names = new HashMap<InetSocketAddress, String>();
+    }
+    
+    /**
+     * Starts serving the metrics on {@link #PATH}.
+     * 
+     * @param address
+     *            the local address to listen on.
+     * @throws NullPointerException
+     *             if the address is null.
+     * @throws IllegalStateException
+     *             if the exporter is already started.
+     * @throws IOException
+     *             if the HTTP server can't start.
+     */
+    public synchronized void start(final InetSocketAddress address)
+            throws IOException
+    {
+        if (address == null)
+        {
+            throw new NullPointerException("address=null");
+        }
+        if (http != null)
+        {
+            throw new IllegalStateException("Exporter started.");
+        }
+        http = HttpServer.create(address, 0);
+        http.createContext(PATH, this);
+        http.start();
+    }
+    
+    /**
+     * Stops serving the metrics.
+     */
+    public synchronized void close()
+    {
+        if (http != null)
+        {
+            http.stop(0);
+            http = null;
+        }
+    }
+    
+    /**
+     * Returns the local address the metrics are served on.
+     * 
+     * @return the local address, null if the exporter isn't started.
+     */
+    public synchronized InetSocketAddress getLocalAddress()
+    {
+        return http != null ? http.getAddress() : null;
+    }
+    
+    /**
+     * Exports the requests of an SNTP server.
+     * 
+     * @param server
+     *            the server.
+     * @throws NullPointerException
+     *             if the server is null.
+     */
+    public void addServer(final Server server)
+    {
+        if (server == null)
+        {
+            throw new NullPointerException("server=null");
+        }
+        servers.addIfAbsent(server);
+    }
+    
+    /**
+     * Stops exporting the requests of an SNTP server.
+     * 
+     * @param server
+     *            the server.
+     */
+    public void removeServer(final Server server)
+    {
+        servers.remove(server);
+    }
+    
+    /**
+     * Renders the metrics and writes them to a stream.
+     * 
+     * @param stream
+     *            the stream.
+     * @throws IOException
+     *             if the metrics can't be written.
+     */
+    public synchronized void writeTo(final OutputStream stream)
+            throws IOException
+    {
+        render();
+        out.writeTo(stream);
+    }
+    
+    // See HttpHandler for details.
+    @Override
+    public void handle(final HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            final String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method))
+            {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            synchronized (this)
+            {
+                render();
+                if ("HEAD".equals(method))
+                {
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                else
+                {
+                    exchange.sendResponseHeaders(200, out.size());
+                    out.writeTo(exchange.getResponseBody());
+                }
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Renders the metrics into the buffer. Must be called with the lock held.
+     */
+    private void render()
+    {
+        out.reset();
+        final long now = System.currentTimeMillis();
+        final long period = service.getSyncPeriod();
+        renderState(now, period);
+        
+        final MetricsRegistry registry = service.getMetrics();
+        if (registry != null)
+        {
+            renderSessions(registry.getServers(), now, period);
+        }
+        
+        if (!servers.isEmpty())
+        {
+            renderServers();
+        }
+    }
+    
+    /**
+     * Renders the synchronization state.
+     * 
+     * @param now
+     *            the local time.
+     * @param period
+     *            the synchronization period (in milliseconds).
+     */
+    private void renderState(final long now, final long period)
+    {
+        final boolean synced = service.isSynchronized();
+        out.family("atomicdate_synchronized", "gauge",
+                "Whether the service was synchronized at least once.");
+        out.begin("atomicdate_synchronized").value(synced ? 1 : 0);
+        out.family("atomicdate_poll_interval_seconds", "gauge",
+                "Automatic synchronization period, 0 if deactivated.");
+        out.begin("atomicdate_poll_interval_seconds").seconds(period);
+        if (!synced)
+        {
+            return;
+        }
+        
+        final ClockState state = service.getState();
+        out.family("atomicdate_offset_seconds", "gauge",
+                "Local clock offset to the network time.");
+        out.begin("atomicdate_offset_seconds").value(
+                state.getOffset(now) / 1000D);
+        out.family("atomicdate_max_error_seconds", "gauge",
+                "Maximum error of the network time.");
+        out.begin("atomicdate_max_error_seconds").value(
+                state.getMaxError(now) / 1000D);
+        out.family("atomicdate_estimated_error_seconds", "gauge",
+                "Estimated error of the network time.");
+        out.begin("atomicdate_estimated_error_seconds").value(
+                state.getEstimatedError() / 1000D);
+        out.family("atomicdate_jitter_seconds", "gauge",
+                "Clock filter jitter.");
+        out.begin("atomicdate_jitter_seconds").value(
+                state.getJitter() / 1000D);
+        out.family("atomicdate_delay_seconds", "gauge",
+                "Round-trip delay of the selected sample.");
+        out.begin("atomicdate_delay_seconds").value(state.getDelay() / 1000D);
+        out.family("atomicdate_drift_ratio", "gauge",
+                "Local clock drift relative to the network time.");
+        out.begin("atomicdate_drift_ratio").value(state.getDrift());
+        out.family("atomicdate_stratum", "gauge", "Stratum of the service.");
+        out.begin("atomicdate_stratum").value(state.getStratum());
+        out.family("atomicdate_last_sync_timestamp_seconds", "gauge",
+                "Local time of the last synchronization.");
+        out.begin("atomicdate_last_sync_timestamp_seconds").seconds(
+                state.getSyncTime());
+    }
+    
+    /**
+     * Renders the exchanges with the SNTP servers.
+     * 
+     * @param metrics
+     *            the servers metrics.
+     * @param now
+     *            the local time.
+     * @param period
+     *            the synchronization period (in milliseconds).
+     */
+    private void renderSessions(final ServerMetrics[] metrics,
+            final long now, final long period)
+    {
+        if (metrics.length == 0)
+        {
+            return;
+        }
+        final long window = HEALTH_POLLS * Math.max(period, MIN_POLL);
+        out.family("atomicdate_server_up", "gauge",
+                "Whether the server answered in the last poll intervals.");
+        for (final ServerMetrics m : metrics)
+        {
+            final long last = m.getLastReply();
+            out.begin("atomicdate_server_up").label("server",
+                    name(m.getServer())).value(
+                    last > 0 && now - last <= window ? 1 : 0);
+        }
+        out.family("atomicdate_server_last_reply_timestamp_seconds", "gauge",
+                "Local time of the last valid reply, 0 if none.");
+        for (final ServerMetrics m : metrics)
+        {
+            out.begin("atomicdate_server_last_reply_timestamp_seconds").label(
+                    "server", name(m.getServer())).seconds(m.getLastReply());
+        }
+        out.family("atomicdate_server_requests_total", "counter",
+                "Requests sent.");
+        for (final ServerMetrics m : metrics)
+        {
+            out.begin("atomicdate_server_requests_total").label("server",
+                    name(m.getServer())).value(m.getSent());
+        }
+        out.family("atomicdate_server_timeouts_total", "counter",
+                "Requests timed-out.");
+        for (final ServerMetrics m : metrics)
+        {
+            out.begin("atomicdate_server_timeouts_total").label("server",
+                    name(m.getServer())).value(m.getTimeouts());
+        }
+        out.family("atomicdate_server_kisses_total", "counter",
+                "Kiss-o'-Death replies received.");
+        for (final ServerMetrics m : metrics)
+        {
+            out.begin("atomicdate_server_kisses_total").label("server",
+                    name(m.getServer())).value(m.getKisses());
+        }
+        out.family("atomicdate_server_rejected_total", "counter",
+                "Replies rejected: late, forged or unsynchronized.");
+        for (final ServerMetrics m : metrics)
+        {
+            out.begin("atomicdate_server_rejected_total").label("server",
+                    name(m.getServer())).value(m.getRejected());
+        }
+        out.family("atomicdate_server_rtt_seconds", "summary",
+                "Round-trip time of the valid replies.");
+        for (final ServerMetrics m : metrics)
+        {
+            summary("atomicdate_server_rtt_seconds",
+                    "atomicdate_server_rtt_seconds_sum",
+                    "atomicdate_server_rtt_seconds_count", name(m.getServer()),
+                    m.getRoundTrips());
+        }
+        out.family("atomicdate_server_offset_seconds", "summary",
+                "Local clock offset measured by the valid replies.");
+        for (final ServerMetrics m : metrics)
+        {
+            summary("atomicdate_server_offset_seconds",
+                    "atomicdate_server_offset_seconds_sum",
+                    "atomicdate_server_offset_seconds_count",
+                    name(m.getServer()), m.getOffsets());
+        }
+    }
+    
+    /**
+     * Renders a summary of a histogram of milliseconds.
+     * 
+     * @param metric
+     *            the metric name.
+     * @param sum
+     *            the sum sample name.
+     * @param count
+     *            the count sample name.
+     * @param server
+     *            the server label.
+     * @param histogram
+     *            the histogram.
+     */
+    private void summary(final String metric, final String sum,
+            final String count, final String server,
+            final AtomicHistogram histogram)
+    {
+        histogram.snapshot(snapshot);
+        for (int i = 0; i < QUANTILES.length; i++)
+        {
+            out.begin(metric).label("server", server).label("quantile",
+                    LABELS[i]).seconds(
+                    snapshot.getValueAtPercentile(QUANTILES[i]));
+        }
+        out.begin(sum).label("server", server).seconds(snapshot.getSum());
+        out.begin(count).label("server", server).value(snapshot.getCount());
+    }
+    
+    /**
+     * Renders the requests of the served SNTP servers. The stopped servers
+     * are skipped.
+     */
+    private void renderServers()
+    {
+        out.family("atomicdate_serve_requests_total", "counter",
+                "Requests received by the SNTP server.");
+        for (final Server s : servers)
+        {
+            final String name = name(s.getLocalAddress());
+            if (name != null)
+            {
+                out.begin("atomicdate_serve_requests_total").label("address",
+                        name).value(s.getReceived());
+            }
+        }
+        out.family("atomicdate_serve_replies_total", "counter",
+                "Requests answered by the SNTP server.");
+        for (final Server s : servers)
+        {
+            final String name = name(s.getLocalAddress());
+            if (name != null)
+            {
+                out.begin("atomicdate_serve_replies_total").label("address",
+                        name).value(s.getReplied());
+            }
+        }
+        out.family("atomicdate_serve_limited_total", "counter",
+                "Requests over the rate limit.");
+        for (final Server s : servers)
+        {
+            final String name = name(s.getLocalAddress());
+            if (name != null)
+            {
+                out.begin("atomicdate_serve_limited_total").label("address",
+                        name).value(s.getLimited());
+            }
+        }
+        out.family("atomicdate_serve_dropped_total", "counter",
+                "Requests dropped, invalid or while unsynchronized.");
+        for (final Server s : servers)
+        {
+            final String name = name(s.getLocalAddress());
+            if (name != null)
+            {
+                out.begin("atomicdate_serve_dropped_total").label("address",
+                        name).value(s.getDropped());
+            }
+        }
+    }
+    
+    /**
+     * Returns the label value of an address, computed once.
+     * 
+     * @param addr
+     *            the address, may be null.
+     * @return the label value, null if the address is null.
+     */
+    private String name(final InetSocketAddress addr)
+    {
+        if (addr == null)
+        {
+            return null;
+        }
+        String name = names.get(addr);
+        if (name == null)
+        {
+            name = addr.getAddress().getHostAddress() + ":" + addr.getPort();
+            names.put(addr, name);
+        }
+        
+        return name;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,156 @@
+/*
+ * Oscillator.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.sim;
+
+import java.util.Random;
+
+/**
+ * A simulated local clock oscillator. Its frequency error is the sum of:
+ * <ul>
+ * <li>A constant error, the manufacturing tolerance;</li>
+ * <li>A daily temperature wander, a sine over 24 hours;</li>
+ * <li>A random walk, the aging and the other slow disturbances.</li>
+ * </ul>
+ * The random walk moves on a fixed time grid, so a given random source yields
+ * the same clock however often it's read. The local clock reads with a
+ * millisecond resolution, like {@link System#currentTimeMillis()}. The times
+ * are in nanoseconds of the simulated true time.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Oscillator
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The temperature wander period (in nanoseconds). */
+    private static final double DAY  = 86400E9D;
+    
+    /** The random walk step (in nanoseconds). */
+    private static final long   STEP = 60000000000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The constant frequency error (1E-6 is 1 PPM). */
+    private final double        frequency;
+    
+    /** The temperature wander amplitude (1E-6 is 1 PPM). */
+    private final double        wander;
+    
+    /** The random walk deviation, per square root of second. */
+    private final double        walk;
+    
+    /** The random source. */
+    private final Random        random;
+    
+    /** The true time of the last update (in nanoseconds). */
+    private long                time;
+    
+    /** The local clock phase, minus the true time (in nanoseconds). */
+    private double              phase;
+    
+    /** The random walk frequency error. */
+    private double              walked;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param offset
+     *            the initial local clock offset (in milliseconds).
+     * @param frequency
+     *            the constant frequency error (1E-6 is 1 PPM).
+     * @param wander
+     *            the temperature wander amplitude (1E-6 is 1 PPM).
+     * @param walk
+     *            the random walk deviation, per square root of second.
+     * @param random
+     *            the random source.
+     * @throws NullPointerException
+     *             if the random source is null.
+     */
+    public Oscillator(final double offset, final double frequency,
+            final double wander, final double walk, final Random random)
+    {
+        if (random == null)
+        {
+            throw new NullPointerException("random=null");
+        }
+        this.frequency = frequency;
+        this.wander = wander;
+        this.walk = walk;
+        this.random = random;
+        phase = offset * 1E6D;
+    }
+    
+    /**
+     * Returns the local clock reading at a true time. The time can't go
+     * backward.
+     * 
+     * @param now
+     *            the true time (in nanoseconds).
+     * @return the local time (in milliseconds).
+     */
+    public long read(final long now)
+    {
+        advance(now);
+        
+        return (long) Math.floor((now + phase) / 1E6D);
+    }
+    
+    /**
+     * Returns the current frequency error.
+     * 
+     * @param now
+     *            the true time (in nanoseconds).
+     * @return the frequency error (1E-6 is 1 PPM).
+     */
+    public double getFrequency(final long now)
+    {
+        advance(now);
+        
+        return frequency + walked + wander * Math.sin(2 * Math.PI * now / DAY);
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Integrates the frequency error up to a true time.
+     * 
+     * @param now
+     *            the true time (in nanoseconds).
+     */
+    private void advance(final long now)
+    {
+        while (now > time)
+        {
+            final long grid = (time / STEP + 1) * STEP;
+            final long end = Math.min(now, grid);
+            
+            // The temperature term is integrated exactly.
+            final double w = 2 * Math.PI / DAY;
+            phase += (frequency + walked) * (end - time) + wander / w
+                    * (Math.cos(w * time) - Math.cos(w * end));
+            if (end == grid)
+            {
+                walked += walk * Math.sqrt(STEP / 1E9D) * random.nextGaussian();
+            }
+            time = end;
+        }
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
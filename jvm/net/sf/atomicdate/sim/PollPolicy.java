@@ -0,0 +1,139 @@
+/*
+ * PollPolicy.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.sim;
+
+import net.sf.atomicdate.ClockState;
+
+/**
+ * A synchronization poll policy, deciding when to query the server next. A
+ * policy may keep a state, so every simulation run needs its own instance.
+ * 
+ * @author Koka El Kiwi
+ */
+public abstract class PollPolicy
+{
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The policy name. */
+    private final String name;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Returns a fixed period policy, like the automatic synchronization of a
+     * {@link net.sf.atomicdate.Service}.
+     * 
+     * @param period
+     *            the period (in seconds).
+     * @return the policy.
+     */
+    public static PollPolicy fixed(final long period)
+    {
+        return new PollPolicy("fixed " + period + "s") {
+            
+            @Override
+            public long next(final ClockState previous,
+                    final ClockState state, final boolean success)
+            {
+                return period * 1000L;
+            }
+        };
+    }
+    
+    /**
+     * Returns an adaptive policy in the spirit of NTP: the period doubles
+     * while the offset changes stay within a few jitters, and is halved when
+     * they don't or when a query fails.
+     * 
+     * @param min
+     *            the minimum period (in seconds).
+     * @param max
+     *            the maximum period (in seconds).
+     * @return the policy.
+     */
+    public static PollPolicy adaptive(final long min, final long max)
+    {
+        return new PollPolicy("adaptive " + min + "-" + max + "s") {
+            
+            /** The current period (in milliseconds). */
+            private long period = min * 1000L;
+            
+            @Override
+            public long next(final ClockState previous,
+                    final ClockState state, final boolean success)
+            {
+                if (!success)
+                {
+                    period = Math.max(min * 1000L, period / 2);
+                }
+                else if (previous != null)
+                {
+                    final long now = state.getSyncTime();
+                    final double change = Math.abs(state.getOffset(now)
+                            - previous.getOffset(now));
+                    if (change > 4 * state.getEstimatedError())
+                    {
+                        period = Math.max(min * 1000L, period / 2);
+                    }
+                    else
+                    {
+                        period = Math.min(max * 1000L, period * 2);
+                    }
+                }
+                
+                return period;
+            }
+        };
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            the policy name.
+     */
+    protected PollPolicy(final String name)
+    {
+        this.name = name;
+    }
+    
+    /**
+     * Returns the policy name.
+     * 
+     * @return the policy name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+    
+    /**
+     * Returns the delay until the next query.
+     * 
+     * @param previous
+     *            the state before the last query, null if none.
+     * @param state
+     *            the current state, null if none.
+     * @param success
+     *            true if the last query succeeded, otherwise false.
+     * @return the delay (in milliseconds of local time).
+     */
+    public abstract long next(ClockState previous, ClockState state,
+            boolean success);
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,393 @@
+/*
+ * Simulator.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.sim;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Random;
+
+import net.sf.atomicdate.ClockFilter;
+import net.sf.atomicdate.ClockState;
+import net.sf.atomicdate.Measurement;
+import net.sf.atomicdate.bench.Histogram;
+import net.sf.atomicdate.sntp.Message;
+import net.sf.atomicdate.tools.FakeServer.Delay;
+
+/**
+ * A discrete-event simulator of the synchronization, running days of
+ * operation in seconds.
+ * <ul>
+ * <li>The local clock is an {@link Oscillator}, the server a perfect clock,
+ * and the network path has its own delay distribution in each direction,
+ * plus loss;</li>
+ * <li>The replies feed a {@link ClockFilter} and the {@link ClockState}
+ * drift estimation exactly as {@link net.sf.atomicdate.Service#update
+ * Service} does, and the {@link PollPolicy} decides when to query next;</li>
+ * <li>The network time of the state is compared to the true time at regular
+ * intervals, which gives the accuracy, and the error bound violations.</li>
+ * </ul>
+ * Usage: <code>java -cp out net.sf.atomicdate.sim.Simulator [-d days]
+ * [-S seed]</code> compares a set of poll policies.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Simulator
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default interval between two accuracy samples (in seconds). */
+    public static final long  DEFAULT_SAMPLE_INTERVAL = 16;
+    
+    /** The nanoseconds in a millisecond. */
+    private static final long MILLIS                  = 1000000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The local clock. */
+    private final Oscillator  oscillator;
+    
+    /** The client to server delay. */
+    private final Delay       request;
+    
+    /** The server to client delay. */
+    private final Delay       reply;
+    
+    /** The query loss probability. */
+    private final double      loss;
+    
+    /** The network random source. */
+    private final Random      random;
+    
+    /** The interval between two accuracy samples (in nanoseconds). */
+    private long              sampleInterval;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Compares a set of poll policies over the same simulated conditions.
+     * 
+     * @param args
+     *            the command line arguments.
+     */
+    public static void main(final String[] args)
+    {
+        long days = 7;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2)
+        {
+            if ("-d".equals(args[i]))
+            {
+                days = Long.parseLong(args[i + 1]);
+            }
+            else if ("-S".equals(args[i]))
+            {
+                seed = Long.parseLong(args[i + 1]);
+            }
+        }
+        final PollPolicy[] policies = { PollPolicy.fixed(16),
+                PollPolicy.fixed(64), PollPolicy.fixed(256),
+                PollPolicy.fixed(1024), PollPolicy.fixed(4096),
+                PollPolicy.adaptive(64, 1024), PollPolicy.adaptive(16, 4096) };
+        
+        final PrintStream out = System.out;
+        out.println("# " + days + " days, oscillator: 20 PPM, 2 PPM daily "
+                + "wander, 1E-9/s^0.5 walk; path: 5+exp(2) ms up, 5+exp(10) "
+                + "ms down, 2% loss; seed " + seed);
+        out.println(Report.HEADER);
+        for (final PollPolicy policy : policies)
+        {
+            final Random clock = new Random(seed);
+            final Simulator simulator = new Simulator(new Oscillator(500,
+                    20E-6D, 2E-6D, 1E-9D, clock), Delay.exponential(5, 2),
+                    Delay.exponential(5, 10), 0.02D, new Random(seed + 1));
+            out.println(simulator.run(policy, days * 86400L * 1000L));
+        }
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param oscillator
+     *            the local clock.
+     * @param request
+     *            the client to server delay.
+     * @param reply
+     *            the server to client delay.
+     * @param loss
+     *            the query loss probability.
+     * @param random
+     *            the network random source.
+     * @throws NullPointerException
+     *             if any object argument is null.
+     */
+    public Simulator(final Oscillator oscillator, final Delay request,
+            final Delay reply, final double loss, final Random random)
+    {
+        if (oscillator == null)
+        {
+            throw new NullPointerException("oscillator=null");
+        }
+        if (request == null)
+        {
+            throw new NullPointerException("request=null");
+        }
+        if (reply == null)
+        {
+            throw new NullPointerException("reply=null");
+        }
+        if (random == null)
+        {
+            throw new NullPointerException("random=null");
+        }
+        this.oscillator = oscillator;
+        this.request = request;
+        this.reply = reply;
+        this.loss = loss;
+        this.random = random;
+        sampleInterval = DEFAULT_SAMPLE_INTERVAL * 1000L * MILLIS;
+    }
+    
+    /**
+     * Configures the interval between two accuracy samples.
+     * 
+     * @param interval
+     *            the interval (in seconds).
+     * @throws IllegalArgumentException
+     *             if the interval isn't positive.
+     */
+    public void setSampleInterval(final long interval)
+    {
+        if (interval <= 0)
+        {
+            throw new IllegalArgumentException("interval<=0");
+        }
+        sampleInterval = interval * 1000L * MILLIS;
+    }
+    
+    /**
+     * Runs a simulation from true time 0. The simulator is left at the end
+     * of the run, so every run needs a new one.
+     * 
+     * @param policy
+     *            the poll policy.
+     * @param duration
+     *            the simulated duration (in milliseconds).
+     * @return the results.
+     */
+    public Report run(final PollPolicy policy, final long duration)
+    {
+        final Report report = new Report(policy.getName(), duration);
+        final ClockFilter filter = new ClockFilter();
+        final long end = duration * MILLIS;
+        ClockState state = null;
+        ClockState previous = null;
+        long nextPoll = 0;
+        long nextSample = sampleInterval;
+        long replyTime = Long.MAX_VALUE;
+        long t1 = 0;
+        long t2 = 0;
+        
+        while (true)
+        {
+            final long now = Math.min(nextPoll, Math.min(nextSample,
+                    replyTime));
+            if (now >= end)
+            {
+                break;
+            }
+            
+            if (now == replyTime)
+            {
+                // Reply: the same computation as a real query.
+                replyTime = Long.MAX_VALUE;
+                final long t4 = oscillator.read(now);
+                final Message message = new Message();
+                message.setMode(Message.MODE_SERVER);
+                message.setStratum((byte) 1);
+                message.setPrecision((byte) -20);
+                final Measurement m = new Measurement(message, (t2 - t1 + t2
+                        - t4) / 2, Math.max(0, t4 - t1), t4);
+                filter.add(m.getOffset(), m.getDelay(), m.getDispersion(),
+                        m.getTime());
+                previous = state;
+                state = new ClockState(filter, m, state);
+                nextPoll = now
+                        + Math.max(1, policy.next(previous, state, true))
+                        * MILLIS;
+            }
+            else if (now == nextPoll)
+            {
+                // Query: the reply arrives later, unless lost.
+                report.polls++;
+                final double up = request.next(random);
+                final double down = reply.next(random);
+                if (random.nextDouble() < loss)
+                {
+                    report.lost++;
+                    nextPoll = now
+                            + Math.max(1, policy.next(state, state, false))
+                            * MILLIS;
+                }
+                else
+                {
+                    t1 = oscillator.read(now);
+                    final long arrival = now + (long) (up * MILLIS);
+                    t2 = arrival / MILLIS;
+                    replyTime = arrival + (long) (down * MILLIS);
+                    nextPoll = Long.MAX_VALUE;
+                }
+            }
+            else
+            {
+                // Accuracy sample.
+                nextSample += sampleInterval;
+                if (state != null)
+                {
+                    final long local = oscillator.read(now);
+                    final double error = local + state.getOffset(local)
+                            - now / (double) MILLIS;
+                    report.sample(error, state.getMaxError(local));
+                }
+            }
+        }
+        
+        return report;
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The results of a simulation run. The errors are in milliseconds.
+     * 
+     * @author Koka El Kiwi
+     */
+    public static final class Report
+    {
+        
+        /** The report header. */
+        public static final String HEADER = String.format(Locale.ROOT,
+                "%-22s %7s %6s %8s %8s %8s %8s %8s %7s", "Policy",
+                "polls", "lost", "polls/d", "rms(ms)", "p50(ms)", "p99(ms)",
+                "max(ms)", "viol%");
+        
+        /** The policy name. */
+        private final String       policy;
+        
+        /** The simulated duration (in milliseconds). */
+        private final long         duration;
+        
+        /** The absolute errors (in microseconds). */
+        private final Histogram    errors;
+        
+        /** The number of queries. */
+        private long               polls;
+        
+        /** The number of lost queries. */
+        private long               lost;
+        
+        /** The number of error bound violations. */
+        private long               violations;
+        
+        /** The sum of the squared errors. */
+        private double             squares;
+        
+        /**
+         * Constructor.
+         * 
+         * @param policy
+         *            the policy name.
+         * @param duration
+         *            the simulated duration (in milliseconds).
+         */
+        private Report(final String policy, final long duration)
+        {
+            this.policy = policy;
+            this.duration = duration;
+            errors = new Histogram();
+        }
+        
+        /**
+         * Records an accuracy sample.
+         * 
+         * @param error
+         *            the error of the network time.
+         * @param bound
+         *            the maximum error claimed by the state.
+         */
+        private void sample(final double error, final double bound)
+        {
+            errors.record(Math.round(Math.abs(error) * 1000D));
+            squares += error * error;
+            if (Math.abs(error) > bound)
+            {
+                violations++;
+            }
+        }
+        
+        /**
+         * Returns the number of queries.
+         * 
+         * @return the number of queries.
+         */
+        public long getPolls()
+        {
+            return polls;
+        }
+        
+        /**
+         * Returns the root mean square error.
+         * 
+         * @return the RMS error.
+         */
+        public double getRmsError()
+        {
+            final long count = errors.getCount();
+            
+            return count == 0 ? 0 : Math.sqrt(squares / count);
+        }
+        
+        /**
+         * Returns the absolute errors.
+         * 
+         * @return the error histogram (in microseconds).
+         */
+        public Histogram getErrors()
+        {
+            return errors;
+        }
+        
+        // See Object for details.
+        @Override
+        public String toString()
+        {
+            final long count = errors.getCount();
+            
+            return String.format(Locale.ROOT,
+                    "%-22s %7d %6d %8.1f %8.3f %8.3f %8.3f %8.3f %7.2f",
+                    policy, polls, lost, polls * 86400000D / duration,
+                    getRmsError(), errors.getValueAtPercentile(50) / 1E3D,
+                    errors.getValueAtPercentile(99) / 1E3D,
+                    errors.getMax() / 1E3D, count == 0 ? 0 : violations
+                            * 100D / count);
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,870 @@
+/*
+ * FakeServer.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.tools;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.atomicdate.sntp.Codec;
+import net.sf.atomicdate.sntp.Message;
+import net.sf.atomicdate.sntp.Timestamp;
+
+/**
+ * A programmable SNTP server, standing in for a real one in the tests.
+ * <ul>
+ * <li>The request and reply paths have their own {@link Delay delay}
+ * distributions, so asymmetric paths can be simulated; the receive timestamp
+ * is taken after the request delay, the transmit one before the reply
+ * delay;</li>
+ * <li>The requests can be lost, the replies duplicated or reordered (held back
+ * by an extra delay);</li>
+ * <li>The reference clock has an offset and a drift relative to the local
+ * clock, and can be stepped at any time;</li>
+ * <li>A fraction of the requests can be answered with a Kiss-o'-Death.</li>
+ * </ul>
+ * All the random draws happen in the receiving thread, from a seeded source,
+ * so a given request sequence always meets the same impairments. The server
+ * runs in-process, or from the command line through {@link #main(String[])}.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class FakeServer
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The NTP era offset (in seconds). */
+    private static final long                 SECS_1900_1970 = 2208988800L;
+    
+    /** The reference timestamp age (in milliseconds). */
+    private static final long                 REFERENCE_AGE  = 16000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The server channel. */
+    private final DatagramChannel             channel;
+    
+    /** The delayed replies scheduler. */
+    private final ScheduledThreadPoolExecutor scheduler;
+    
+    /** The impairments random source, only used by the receiving thread. */
+    private final Random                      random;
+    
+    /** The local time origin (in milliseconds). */
+    private final long                        originTime;
+    
+    /** The nano time origin. */
+    private final long                        originNanos;
+    
+    /** The request path delay. */
+    private volatile Delay                    requestDelay;
+    
+    /** The reply path delay. */
+    private volatile Delay                    replyDelay;
+    
+    /** The request loss probability. */
+    private volatile double                   loss;
+    
+    /** The reply duplication probability. */
+    private volatile double                   duplication;
+    
+    /** The reply reordering probability. */
+    private volatile double                   reordering;
+    
+    /** The extra delay of the reordered replies. */
+    private volatile Delay                    reorderDelay;
+    
+    /** The reference clock offset at the origin (in milliseconds). */
+    private volatile double                   offset;
+    
+    /** The reference clock drift (1E-6 is 1 PPM). */
+    private volatile double                   drift;
+    
+    /** The Kiss-o'-Death code, null for none. */
+    private volatile String                   kissCode;
+    
+    /** The Kiss-o'-Death probability. */
+    private volatile double                   kissRate;
+    
+    /** The stratum. */
+    private volatile byte                     stratum;
+    
+    /** The leap indicator. */
+    private volatile byte                     leap;
+    
+    /** The number of requests received. */
+    private final AtomicLong                  received;
+    
+    /** The number of replies sent, duplicates included. */
+    private final AtomicLong                  replied;
+    
+    /** The number of requests lost. */
+    private final AtomicLong                  lost;
+    
+    /** The number of Kiss-o'-Death replies. */
+    private final AtomicLong                  kissed;
+    
+    /** The receiving thread. */
+    private final Thread                      thread;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Runs a fake server from the command line, until killed.
+     * <p>
+     * Usage: <code>java -cp out net.sf.atomicdate.tools.FakeServer [-b host]
+     * [-p port] [-d delay] [-D delay] [-l loss] [-u duplication]
+     * [-o reordering] [-O offset] [-f drift] [-k code:rate] [-s stratum]
+     * [-L leap] [-S seed]</code>. The delays are given as
+     * <code>const:ms</code>, <code>uniform:min:max</code>,
+     * <code>exp:min:mean</code> or <code>normal:mean:deviation</code>; the
+     * probabilities in the <code>[0, 1]</code> range; the offset in
+     * milliseconds and the drift in PPM.
+     * 
+     * @param args
+     *            the command line arguments.
+     * @throws IOException
+     *             if the server can't start.
+     * @throws InterruptedException
+     *             if the main thread is interrupted.
+     */
+    public static void main(final String[] args) throws IOException,
+            InterruptedException
+    {
+        String host = "127.0.0.1";
+        int port = 12300;
+        long seed = 1;
+        for (int i = 0; i < args.length; i += 2)
+        {
+            if ("-b".equals(args[i]))
+            {
+                host = args[i + 1];
+            }
+            else if ("-p".equals(args[i]))
+            {
+                port = Integer.parseInt(args[i + 1]);
+            }
+            else if ("-S".equals(args[i]))
+            {
+                seed = Long.parseLong(args[i + 1]);
+            }
+        }
+        
+        final FakeServer server = new FakeServer(new InetSocketAddress(
+                InetAddress.getByName(host), port), seed);
+        for (int i = 0; i < args.length; i += 2)
+        {
+            final String value = args[i + 1];
+            if ("-d".equals(args[i]))
+            {
+                server.setRequestDelay(Delay.parse(value));
+            }
+            else if ("-D".equals(args[i]))
+            {
+                server.setReplyDelay(Delay.parse(value));
+            }
+            else if ("-l".equals(args[i]))
+            {
+                server.setLoss(Double.parseDouble(value));
+            }
+            else if ("-u".equals(args[i]))
+            {
+                server.setDuplication(Double.parseDouble(value));
+            }
+            else if ("-o".equals(args[i]))
+            {
+                server.setReordering(Double.parseDouble(value),
+                        Delay.uniform(1, 50));
+            }
+            else if ("-O".equals(args[i]))
+            {
+                server.setClock(Double.parseDouble(value), server.drift);
+            }
+            else if ("-f".equals(args[i]))
+            {
+                server.setClock(server.getClockOffset(),
+                        Double.parseDouble(value) / 1E6D);
+            }
+            else if ("-k".equals(args[i]))
+            {
+                final int colon = value.indexOf(':');
+                server.setKiss(colon < 0 ? value : value.substring(0, colon),
+                        colon < 0 ? 1 : Double.parseDouble(value
+                                .substring(colon + 1)));
+            }
+            else if ("-s".equals(args[i]))
+            {
+                server.setStratum(Integer.parseInt(value));
+            }
+            else if ("-L".equals(args[i]))
+            {
+                server.setLeapIndicator(Integer.parseInt(value));
+            }
+        }
+        System.out.println("Fake SNTP server listening on "
+                + server.getLocalAddress());
+        while (true)
+        {
+            Thread.sleep(10000);
+            System.out.println(server);
+        }
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The server is started, without any impairment: no delay, no
+     * loss, and the reference clock is the local clock.
+     * 
+     * @param address
+     *            the local address to listen on.
+     * @param seed
+     *            the seed of the impairments random source.
+     * @throws NullPointerException
+     *             if the address is null.
+     * @throws IOException
+     *             if the server can't bind the address.
+     */
+    public FakeServer(final InetSocketAddress address, final long seed)
+            throws IOException
+    {
+        if (address == null)
+        {
+            throw new NullPointerException("address=null");
+        }
+        random = new Random(seed);
+        requestDelay = Delay.constant(0);
+        replyDelay = Delay.constant(0);
+        reorderDelay = Delay.constant(0);
+        stratum = 1;
+        received = new AtomicLong();
+        replied = new AtomicLong();
+        lost = new AtomicLong();
+        kissed = new AtomicLong();
+        originTime = System.currentTimeMillis();
+        originNanos = System.nanoTime();
+        
+        channel = DatagramChannel.open();
+        channel.socket().bind(address);
+        final ThreadFactory factory = new ThreadFactory() {
+            
+            @Override
+            public Thread newThread(final Runnable r)
+            {
+                final Thread thread = new Thread(r, "FakeServer-Reply");
+                thread.setDaemon(true);
+                
+                return thread;
+            }
+        };
+        scheduler = new ScheduledThreadPoolExecutor(1, factory);
+        thread = new Thread(new Runnable() {
+            
+            @Override
+            public void run()
+            {
+                receive();
+            }
+        }, "FakeServer-Receive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Stops the server.
+     */
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (final IOException ioe)
+        {
+            ioe.printStackTrace(System.err);
+        }
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Returns the local address the server listens on.
+     * 
+     * @return the local address.
+     */
+    public InetSocketAddress getLocalAddress()
+    {
+        return (InetSocketAddress) channel.socket().getLocalSocketAddress();
+    }
+    
+    /**
+     * Configures the request path delay.
+     * 
+     * @param delay
+     *            the delay distribution.
+     * @throws NullPointerException
+     *             if the delay is null.
+     */
+    public void setRequestDelay(final Delay delay)
+    {
+        if (delay == null)
+        {
+            throw new NullPointerException("delay=null");
+        }
+        requestDelay = delay;
+    }
+    
+    /**
+     * Configures the reply path delay.
+     * 
+     * @param delay
+     *            the delay distribution.
+     * @throws NullPointerException
+     *             if the delay is null.
+     */
+    public void setReplyDelay(final Delay delay)
+    {
+        if (delay == null)
+        {
+            throw new NullPointerException("delay=null");
+        }
+        replyDelay = delay;
+    }
+    
+    /**
+     * Configures the request loss.
+     * 
+     * @param probability
+     *            the loss probability.
+     */
+    public void setLoss(final double probability)
+    {
+        loss = probability;
+    }
+    
+    /**
+     * Configures the reply duplication.
+     * 
+     * @param probability
+     *            the duplication probability.
+     */
+    public void setDuplication(final double probability)
+    {
+        duplication = probability;
+    }
+    
+    /**
+     * Configures the reply reordering.
+     * 
+     * @param probability
+     *            the reordering probability.
+     * @param delay
+     *            the extra delay of the reordered replies.
+     * @throws NullPointerException
+     *             if the delay is null.
+     */
+    public void setReordering(final double probability, final Delay delay)
+    {
+        if (delay == null)
+        {
+            throw new NullPointerException("delay=null");
+        }
+        reordering = probability;
+        reorderDelay = delay;
+    }
+    
+    /**
+     * Configures the reference clock, from now on.
+     * 
+     * @param offset
+     *            the current offset to the local clock (in milliseconds).
+     * @param drift
+     *            the drift relative to the local clock (1E-6 is 1 PPM).
+     */
+    public synchronized void setClock(final double offset, final double drift)
+    {
+        this.offset = offset - drift * elapsed();
+        this.drift = drift;
+    }
+    
+    /**
+     * Returns the current offset of the reference clock to the local clock.
+     * 
+     * @return the offset (in milliseconds).
+     */
+    public double getClockOffset()
+    {
+        return offset + drift * elapsed();
+    }
+    
+    /**
+     * Steps the reference clock.
+     * 
+     * @param step
+     *            the step (in milliseconds).
+     */
+    public synchronized void step(final double step)
+    {
+        offset += step;
+    }
+    
+    /**
+     * Returns the reference time.
+     * 
+     * @return the reference time (in milliseconds since the epoch).
+     */
+    public double getReferenceTime()
+    {
+        final double elapsed = elapsed();
+        
+        return originTime + elapsed + offset + drift * elapsed;
+    }
+    
+    /**
+     * Configures the Kiss-o'-Death replies.
+     * 
+     * @param code
+     *            the kiss code, like {@link Message#KISS_RATE}, null for none.
+     * @param probability
+     *            the probability of a kiss reply.
+     */
+    public void setKiss(final String code, final double probability)
+    {
+        kissRate = probability;
+        kissCode = code;
+    }
+    
+    /**
+     * Configures the stratum.
+     * 
+     * @param stratum
+     *            the stratum.
+     */
+    public void setStratum(final int stratum)
+    {
+        this.stratum = (byte) stratum;
+    }
+    
+    /**
+     * Configures the leap indicator.
+     * 
+     * @param leap
+     *            the leap indicator, like {@link Message#LI_ALARM}.
+     */
+    public void setLeapIndicator(final int leap)
+    {
+        this.leap = (byte) leap;
+    }
+    
+    /**
+     * Returns the number of requests received.
+     * 
+     * @return the number of requests.
+     */
+    public long getReceived()
+    {
+        return received.get();
+    }
+    
+    /**
+     * Returns the number of replies sent, duplicates included.
+     * 
+     * @return the number of replies.
+     */
+    public long getReplied()
+    {
+        return replied.get();
+    }
+    
+    /**
+     * Returns the number of requests lost on purpose.
+     * 
+     * @return the number of lost requests.
+     */
+    public long getLost()
+    {
+        return lost.get();
+    }
+    
+    /**
+     * Returns the number of Kiss-o'-Death replies sent.
+     * 
+     * @return the number of kiss replies.
+     */
+    public long getKissed()
+    {
+        return kissed.get();
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        return "received=" + received + ", replied=" + replied + ", lost="
+                + lost + ", kissed=" + kissed;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns the local time elapsed since the origin.
+     * 
+     * @return the elapsed time (in milliseconds).
+     */
+    private double elapsed()
+    {
+        return (System.nanoTime() - originNanos) / 1E6D;
+    }
+    
+    /**
+     * The receiving thread loop.
+     */
+    private void receive()
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(Codec.LENGTH + 1);
+        while (true)
+        {
+            final SocketAddress source;
+            try
+            {
+                buffer.clear();
+                source = channel.receive(buffer);
+            }
+            catch (final ClosedChannelException cce)
+            {
+                return;
+            }
+            catch (final IOException ioe)
+            {
+                ioe.printStackTrace(System.err);
+                continue;
+            }
+            if (buffer.position() != Codec.LENGTH
+                    || (buffer.get(0) & 0x07) != Message.MODE_CLIENT)
+            {
+                continue;
+            }
+            received.incrementAndGet();
+            if (random.nextDouble() < loss)
+            {
+                lost.incrementAndGet();
+                continue;
+            }
+            
+            final byte[] request = new byte[Codec.LENGTH];
+            buffer.flip();
+            buffer.get(request);
+            final boolean kiss = kissCode != null
+                    && random.nextDouble() < kissRate;
+            final long in = micros(requestDelay.next(random));
+            final long out = micros(replyDelay.next(random))
+                    + (random.nextDouble() < reordering ? micros(reorderDelay
+                            .next(random)) : 0);
+            final long copy = random.nextDouble() < duplication ? out
+                    + micros(replyDelay.next(random)) : -1;
+            scheduler.schedule(new Runnable() {
+                
+                @Override
+                public void run()
+                {
+                    final ByteBuffer reply = reply(request, kiss);
+                    send(reply, source, out);
+                    if (copy >= 0)
+                    {
+                        send(reply, source, copy);
+                    }
+                }
+            }, in, TimeUnit.MICROSECONDS);
+        }
+    }
+    
+    /**
+     * Sends a reply, after a delay.
+     * 
+     * @param reply
+     *            the reply.
+     * @param target
+     *            the client address.
+     * @param delay
+     *            the delay (in microseconds).
+     */
+    private void send(final ByteBuffer reply, final SocketAddress target,
+            final long delay)
+    {
+        final Runnable task = new Runnable() {
+            
+            @Override
+            public void run()
+            {
+                try
+                {
+                    channel.send(reply.duplicate(), target);
+                    replied.incrementAndGet();
+                }
+                catch (final IOException ioe)
+                {
+                    if (channel.isOpen())
+                    {
+                        ioe.printStackTrace(System.err);
+                    }
+                }
+            }
+        };
+        if (delay <= 0)
+        {
+            task.run();
+        }
+        else
+        {
+            scheduler.schedule(task, delay, TimeUnit.MICROSECONDS);
+        }
+    }
+    
+    /**
+     * Builds the reply to a request, timestamped now.
+     * 
+     * @param request
+     *            the request.
+     * @param kiss
+     *            true for a Kiss-o'-Death reply.
+     * @return the reply.
+     */
+    private ByteBuffer reply(final byte[] request, final boolean kiss)
+    {
+        final double now = getReferenceTime();
+        final Message message = new Message();
+        message.setVersionNumber((byte) (request[0] >> 3 & 0x07));
+        message.setMode(Message.MODE_SERVER);
+        message.setPollInterval(request[2]);
+        message.setPrecision((byte) -20);
+        if (kiss)
+        {
+            kissed.incrementAndGet();
+            message.setLeapIndicator(Message.LI_ALARM);
+            message.setStratum(Message.STRATUM_KISS_OF_DEATH);
+            message.setReferenceIdentifier(kissCode.getBytes());
+        }
+        else
+        {
+            message.setLeapIndicator(leap);
+            message.setStratum(stratum);
+            message.setReferenceIdentifier("FAKE".getBytes());
+            message.setReferenceTimestamp(toTimestamp(now - REFERENCE_AGE));
+        }
+        message.setReceiveTimestamp(toTimestamp(now));
+        message.setTransmitTimestamp(toTimestamp(getReferenceTime()));
+        
+        final ByteBuffer reply = ByteBuffer.allocate(Codec.LENGTH);
+        Codec.encodeMessage(message, reply);
+        // The originate timestamp is echoed bit for bit.
+        reply.position(Codec.ORIGINATE_TIMESTAMP_INDEX);
+        reply.put(request, Codec.TRANSMIT_TIMESTAMP_INDEX, 8);
+        reply.clear();
+        
+        return reply;
+    }
+    
+    /**
+     * Converts a Java time to an SNTP timestamp, keeping the sub-millisecond
+     * part.
+     * 
+     * @param time
+     *            the Java time (in milliseconds).
+     * @return the timestamp.
+     */
+    private static Timestamp toTimestamp(final double time)
+    {
+        final double secs = Math.floor(time / 1000D);
+        final long fraction = (long) ((time / 1000D - secs) * 0x100000000L);
+        
+        return new Timestamp((long) secs + SECS_1900_1970, fraction);
+    }
+    
+    /**
+     * Converts a delay to microseconds.
+     * 
+     * @param millis
+     *            the delay (in milliseconds).
+     * @return the delay (in microseconds), 0 if negative.
+     */
+    private static long micros(final double millis)
+    {
+        return Math.max(0, Math.round(millis * 1000D));
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * A one-way delay distribution. The values are in milliseconds.
+     * 
+     * @author Koka El Kiwi
+     */
+    public abstract static class Delay
+    {
+        
+        /**
+         * Draws a delay.
+         * 
+         * @param random
+         *            the random source.
+         * @return the delay (in milliseconds).
+         */
+        public abstract double next(Random random);
+        
+        /**
+         * Returns a constant delay.
+         * 
+         * @param delay
+         *            the delay.
+         * @return the distribution.
+         */
+        public static Delay constant(final double delay)
+        {
+            return new Delay() {
+                
+                @Override
+                public double next(final Random random)
+                {
+                    return delay;
+                }
+            };
+        }
+        
+        /**
+         * Returns a uniform delay.
+         * 
+         * @param min
+         *            the minimum delay.
+         * @param max
+         *            the maximum delay.
+         * @return the distribution.
+         */
+        public static Delay uniform(final double min, final double max)
+        {
+            return new Delay() {
+                
+                @Override
+                public double next(final Random random)
+                {
+                    return min + (max - min) * random.nextDouble();
+                }
+            };
+        }
+        
+        /**
+         * Returns a shifted exponential delay, the usual shape of a queueing
+         * delay over a fixed propagation delay.
+         * 
+         * @param min
+         *            the minimum delay.
+         * @param mean
+         *            the mean of the delay above the minimum.
+         * @return the distribution.
+         */
+        public static Delay exponential(final double min, final double mean)
+        {
+            return new Delay() {
+                
+                @Override
+                public double next(final Random random)
+                {
+                    return min - mean * Math.log(1 - random.nextDouble());
+                }
+            };
+        }
+        
+        /**
+         * Returns a normal delay, truncated at 0.
+         * 
+         * @param mean
+         *            the mean delay.
+         * @param deviation
+         *            the standard deviation.
+         * @return the distribution.
+         */
+        public static Delay normal(final double mean, final double deviation)
+        {
+            return new Delay() {
+                
+                @Override
+                public double next(final Random random)
+                {
+                    return Math.max(0, mean + deviation
+                            * random.nextGaussian());
+                }
+            };
+        }
+        
+        /**
+         * Parses a delay distribution: <code>const:ms</code>,
+         * <code>uniform:min:max</code>, <code>exp:min:mean</code> or
+         * <code>normal:mean:deviation</code>.
+         * 
+         * @param spec
+         *            the distribution specification.
+         * @return the distribution.
+         * @throws IllegalArgumentException
+         *             if the specification is invalid.
+         */
+        public static Delay parse(final String spec)
+        {
+            final String[] parts = spec.split(":");
+            try
+            {
+                if ("const".equals(parts[0]) && parts.length == 2)
+                {
+                    return constant(Double.parseDouble(parts[1]));
+                }
+                if (parts.length == 3)
+                {
+                    final double a = Double.parseDouble(parts[1]);
+                    final double b = Double.parseDouble(parts[2]);
+                    if ("uniform".equals(parts[0]))
+                    {
+                        return uniform(a, b);
+                    }
+                    if ("exp".equals(parts[0]))
+                    {
+                        return exponential(a, b);
+                    }
+                    if ("normal".equals(parts[0]))
+                    {
+                        return normal(a, b);
+                    }
+                }
+            }
+            catch (final NumberFormatException nfe)
+            {
+                throw new IllegalArgumentException("Invalid delay: " + spec);
+            }
+            
+            throw new IllegalArgumentException("Invalid delay: " + spec);
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
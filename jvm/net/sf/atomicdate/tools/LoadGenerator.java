@@ -0,0 +1,682 @@
+/*
+ * LoadGenerator.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.tools;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Locale;
+
+import net.sf.atomicdate.bench.Histogram;
+import net.sf.atomicdate.sntp.Codec;
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * An SNTP load generator, for stress-testing time servers.
+ * <ul>
+ * <li>The requests are spread over many sockets, so the server sees many
+ * source ports, and are all driven by a single selector thread;</li>
+ * <li>In open loop, the requests are sent at a target rate, stepped from a
+ * start rate to an end rate (a ramp), so the saturation point shows where the
+ * achieved rate stops following the target or the loss rises; in closed loop,
+ * a fixed number of requests is kept outstanding;</li>
+ * <li>Every reply is validated: length, mode, echoed originate timestamp,
+ * transmit timestamp and leap indicator. Kiss-o'-Death replies are counted
+ * apart;</li>
+ * <li>A request unanswered after the timeout is lost; its late reply, if any,
+ * is counted as late, like the duplicated replies.</li>
+ * </ul>
+ * The transmit timestamp of every request carries its sequence number in its
+ * fraction, so the replies are matched without any per-request allocation.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class LoadGenerator
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The NTP era offset (in seconds). */
+    private static final long       SECS_1900_1970 = 2208988800L;
+    
+    /** The number of requests tracked at once. */
+    private static final int        CAPACITY       = 1 << 20;
+    
+    /** The first byte of a request: LI=0, VN=4, mode client. */
+    private static final byte       REQUEST_FLAGS  = 0x23;
+    
+    /** The wait after a closed loop send failed (in nanoseconds). */
+    private static final long       STALL_WAIT     = 1000000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The target server. */
+    private final InetSocketAddress target;
+    
+    /** The request sockets. */
+    private final DatagramChannel[] channels;
+    
+    /** The selector. */
+    private final Selector          selector;
+    
+    /** The request timeout (in nanoseconds). */
+    private final long              timeout;
+    
+    /** The send nano time of the tracked requests. */
+    private final long[]            sent;
+    
+    /** The sequence number of the tracked requests. */
+    private final long[]            sequences;
+    
+    /** The step of the tracked requests. */
+    private final Step[]            steps;
+    
+    /** The request buffer. */
+    private final ByteBuffer        request;
+    
+    /** The reply buffer. */
+    private final ByteBuffer        reply;
+    
+    /** The next sequence number. */
+    private long                    sequence;
+    
+    /** The oldest sequence number maybe still pending. */
+    private long                    oldest;
+    
+    /** The number of pending requests. */
+    private int                     outstanding;
+    
+    /** The current step. */
+    private Step                    current;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Runs the load generator from the command line.
+     * <p>
+     * Usage: <code>java -cp out net.sf.atomicdate.tools.LoadGenerator
+     * [-n sockets] [-T timeout] [-s seconds] [-r rate | -R from:to:step |
+     * -c concurrency] host[:port]</code>. The rates are in requests per second,
+     * the timeout in milliseconds, and <code>-s</code> is the duration of
+     * every step.
+     * 
+     * @param args
+     *            the command line arguments.
+     * @throws IllegalArgumentException
+     *             if the ramp step isn't positive.
+     * @throws IOException
+     *             if the sockets can't be opened.
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        int sockets = 16;
+        long timeout = 1000;
+        long seconds = 5;
+        double from = 1000;
+        double to = 1000;
+        double increment = 1;
+        int concurrency = 0;
+        String host = "127.0.0.1";
+        int port = 123;
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("-n".equals(args[i]))
+            {
+                sockets = Integer.parseInt(args[++i]);
+            }
+            else if ("-T".equals(args[i]))
+            {
+                timeout = Long.parseLong(args[++i]);
+            }
+            else if ("-s".equals(args[i]))
+            {
+                seconds = Long.parseLong(args[++i]);
+            }
+            else if ("-r".equals(args[i]))
+            {
+                from = Double.parseDouble(args[++i]);
+                to = from;
+            }
+            else if ("-R".equals(args[i]))
+            {
+                final String[] ramp = args[++i].split(":");
+                from = Double.parseDouble(ramp[0]);
+                to = Double.parseDouble(ramp[1]);
+                increment = Double.parseDouble(ramp[2]);
+                if (increment <= 0)
+                {
+                    throw new IllegalArgumentException("step<=0");
+                }
+            }
+            else if ("-c".equals(args[i]))
+            {
+                concurrency = Integer.parseInt(args[++i]);
+            }
+            else
+            {
+                final int colon = args[i].lastIndexOf(':');
+                if (colon > 0 && args[i].indexOf(':') == colon)
+                {
+                    host = args[i].substring(0, colon);
+                    port = Integer.parseInt(args[i].substring(colon + 1));
+                }
+                else
+                {
+                    host = args[i];
+                }
+            }
+        }
+        
+        final LoadGenerator generator = new LoadGenerator(
+                new InetSocketAddress(InetAddress.getByName(host), port),
+                sockets, timeout);
+        final PrintStream out = System.out;
+        out.println("# Target: " + generator.target + ", sockets: " + sockets
+                + ", timeout: " + timeout + " ms, step: " + seconds + " s");
+        out.println(Step.HEADER);
+        try
+        {
+            if (concurrency > 0)
+            {
+                out.println(generator.run(0, concurrency, seconds * 1000L));
+            }
+            else
+            {
+                final int count = (int) Math.max(1,
+                        Math.floor((to - from) / increment) + 1);
+                for (int i = 0; i < count; i++)
+                {
+                    out.println(generator.run(from + i * increment, 0,
+                            seconds * 1000L));
+                }
+            }
+        }
+        finally
+        {
+            generator.close();
+        }
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param target
+     *            the target server.
+     * @param sockets
+     *            the number of request sockets.
+     * @param timeout
+     *            the request timeout (in milliseconds).
+     * @throws NullPointerException
+     *             if the target is null.
+     * @throws IllegalArgumentException
+     *             if the number of sockets or the timeout isn't positive.
+     * @throws IOException
+     *             if the sockets can't be opened.
+     */
+    public LoadGenerator(final InetSocketAddress target, final int sockets,
+            final long timeout) throws IOException
+    {
+        if (target == null)
+        {
+            throw new NullPointerException("target=null");
+        }
+        if (sockets <= 0)
+        {
+            throw new IllegalArgumentException("sockets<=0");
+        }
+        if (timeout <= 0)
+        {
+            throw new IllegalArgumentException("timeout<=0");
+        }
+        this.target = target;
+        this.timeout = timeout * 1000000L;
+        sent = new long[CAPACITY];
+        sequences = new long[CAPACITY];
+        steps = new Step[CAPACITY];
+        request = ByteBuffer.allocate(Codec.LENGTH);
+        reply = ByteBuffer.allocate(Codec.LENGTH + 1);
+        selector = Selector.open();
+        channels = new DatagramChannel[sockets];
+        for (int i = 0; i < sockets; i++)
+        {
+            channels[i] = DatagramChannel.open();
+            channels[i].configureBlocking(false);
+            channels[i].connect(target);
+            channels[i].register(selector, SelectionKey.OP_READ);
+        }
+    }
+    
+    /**
+     * Runs a load step.
+     * 
+     * @param rate
+     *            the target rate (in requests per second), 0 for a closed loop.
+     * @param concurrency
+     *            the number of outstanding requests in closed loop.
+     * @param duration
+     *            the step duration (in milliseconds).
+     * @return the step results, once all its requests are answered or lost.
+     * @throws IllegalArgumentException
+     *             if neither the rate nor the concurrency is positive, or if
+     *             the concurrency exceeds the number of tracked requests.
+     * @throws IOException
+     *             if an error occurs while sending or receiving.
+     */
+    public Step run(final double rate, final int concurrency,
+            final long duration) throws IOException
+    {
+        if (rate <= 0 && concurrency <= 0)
+        {
+            throw new IllegalArgumentException("rate<=0 && concurrency<=0");
+        }
+        if (concurrency >= CAPACITY)
+        {
+            throw new IllegalArgumentException("concurrency>=" + CAPACITY);
+        }
+        final Step step = new Step(rate, concurrency);
+        current = step;
+        final long interval = rate > 0 ? (long) (1E9D / rate) : 0;
+        final long start = System.nanoTime();
+        final long end = start + duration * 1000000L;
+        long next = start;
+        long now = start;
+        while (now - end < 0)
+        {
+            boolean stalled = false;
+            if (interval > 0)
+            {
+                while (next - now <= 0 && next - end < 0)
+                {
+                    send(step, now);
+                    next += interval;
+                }
+            }
+            else
+            {
+                // A failed send stalls the loop: receive and expire first.
+                while (outstanding < concurrency && !stalled)
+                {
+                    stalled = !send(step, now);
+                }
+            }
+            final long wait = interval > 0 ? next - System.nanoTime()
+                    : stalled ? STALL_WAIT : Math.min(end - now, timeout);
+            poll(wait);
+            now = System.nanoTime();
+            expire(now);
+        }
+        step.elapsed = now - start;
+        
+        // Drain the step requests.
+        final long drain = now + timeout;
+        while (outstanding > 0 && now - drain < 0)
+        {
+            poll(drain - now);
+            now = System.nanoTime();
+            expire(now);
+        }
+        expire(drain + 1);
+        
+        return step;
+    }
+    
+    /**
+     * Closes the sockets.
+     */
+    public void close()
+    {
+        for (final DatagramChannel channel : channels)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (final IOException ioe)
+            {
+                ioe.printStackTrace(System.err);
+            }
+        }
+        try
+        {
+            selector.close();
+        }
+        catch (final IOException ioe)
+        {
+            ioe.printStackTrace(System.err);
+        }
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Sends a request.
+     * 
+     * @param step
+     *            the current step.
+     * @param now
+     *            the current nano time.
+     * @return true if the request was sent, otherwise false.
+     * @throws IOException
+     *             if the request can't be sent.
+     */
+    private boolean send(final Step step, final long now) throws IOException
+    {
+        if (sequence - oldest >= CAPACITY)
+        {
+            // Too many requests in flight.
+            step.unsent++;
+            
+            return false;
+        }
+        final long seq = sequence;
+        request.clear();
+        request.put(0, REQUEST_FLAGS);
+        request.putInt(Codec.TRANSMIT_TIMESTAMP_INDEX,
+                (int) (System.currentTimeMillis() / 1000L + SECS_1900_1970));
+        request.putInt(Codec.TRANSMIT_TIMESTAMP_INDEX + 4, (int) seq);
+        final long time = System.nanoTime();
+        final int written;
+        try
+        {
+            written = channels[(int) (seq % channels.length)].write(request);
+        }
+        catch (final PortUnreachableException pue)
+        {
+            // ICMP port unreachable from a previous request, keep going.
+            step.unsent++;
+            
+            return false;
+        }
+        if (written == 0)
+        {
+            // The socket buffer is full.
+            step.unsent++;
+            
+            return false;
+        }
+        final int slot = (int) (seq & CAPACITY - 1);
+        sent[slot] = time;
+        sequences[slot] = seq;
+        steps[slot] = step;
+        sequence++;
+        outstanding++;
+        step.sent++;
+        
+        return true;
+    }
+    
+    /**
+     * Receives the pending replies.
+     * 
+     * @param wait
+     *            the maximum time to wait (in nanoseconds).
+     * @throws IOException
+     *             if an error occurs while receiving.
+     */
+    private void poll(final long wait) throws IOException
+    {
+        final int ready = wait < 1000000L ? selector.selectNow() : selector
+                .select(wait / 1000000L);
+        if (ready == 0)
+        {
+            return;
+        }
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext())
+        {
+            final DatagramChannel channel = (DatagramChannel) keys.next()
+                    .channel();
+            keys.remove();
+            while (true)
+            {
+                reply.clear();
+                final int length;
+                try
+                {
+                    length = channel.read(reply);
+                }
+                catch (final IOException ioe)
+                {
+                    // ICMP port unreachable, the requests will expire.
+                    break;
+                }
+                if (length <= 0)
+                {
+                    break;
+                }
+                process(length, System.nanoTime());
+            }
+        }
+    }
+    
+    /**
+     * Validates and accounts a reply.
+     * 
+     * @param length
+     *            the reply length.
+     * @param now
+     *            the reception nano time.
+     */
+    private void process(final int length, final long now)
+    {
+        if (length != Codec.LENGTH)
+        {
+            current.invalid++;
+            
+            return;
+        }
+        // The most recent request whose sequence number has these low bits.
+        final int low = reply.getInt(Codec.ORIGINATE_TIMESTAMP_INDEX + 4);
+        final long seq = sequence - 1
+                - ((int) (sequence - 1) - low & 0xFFFFFFFFL);
+        final int slot = (int) (seq & CAPACITY - 1);
+        if (seq < 0 || sequences[slot] != seq || steps[slot] == null)
+        {
+            // Expired, already answered or unknown request.
+            current.late++;
+            
+            return;
+        }
+        final Step step = steps[slot];
+        steps[slot] = null;
+        outstanding--;
+        
+        final byte flags = reply.get(0);
+        if ((flags & 0x07) != Message.MODE_SERVER)
+        {
+            step.invalid++;
+            
+            return;
+        }
+        if (reply.get(1) == Message.STRATUM_KISS_OF_DEATH)
+        {
+            step.kissed++;
+            
+            return;
+        }
+        if ((flags >> 6 & 0x03) == Message.LI_ALARM
+                || reply.getLong(Codec.TRANSMIT_TIMESTAMP_INDEX) == 0)
+        {
+            step.invalid++;
+            
+            return;
+        }
+        step.received++;
+        step.latency.record(now - sent[slot]);
+    }
+    
+    /**
+     * Expires the requests unanswered after the timeout.
+     * 
+     * @param now
+     *            the current nano time.
+     */
+    private void expire(final long now)
+    {
+        while (oldest < sequence)
+        {
+            final int slot = (int) (oldest & CAPACITY - 1);
+            if (steps[slot] != null)
+            {
+                if (now - sent[slot] < timeout)
+                {
+                    return;
+                }
+                steps[slot].lost++;
+                steps[slot] = null;
+                outstanding--;
+            }
+            oldest++;
+        }
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The results of a load step.
+     * 
+     * @author Koka El Kiwi
+     */
+    public static final class Step
+    {
+        
+        /** The report header. */
+        public static final String HEADER = String.format(Locale.ROOT,
+                "%10s %10s %10s %7s %7s %7s %7s %7s %9s %9s %9s %9s",
+                "target/s", "sent/s", "recv/s", "unsent", "loss%", "invalid",
+                "kiss", "late",
+                "p50(us)", "p99(us)", "p999(us)", "max(us)");
+        
+        /** The target rate, 0 for a closed loop. */
+        private final double       rate;
+        
+        /** The closed loop concurrency. */
+        private final int          concurrency;
+        
+        /** The reply latencies (in nanoseconds). */
+        private final Histogram    latency;
+        
+        /** The step duration (in nanoseconds). */
+        private long               elapsed;
+        
+        /** The number of requests sent. */
+        private long               sent;
+        
+        /** The number of requests not sent (no buffer, port unreachable). */
+        private long               unsent;
+        
+        /** The number of valid replies. */
+        private long               received;
+        
+        /** The number of invalid replies. */
+        private long               invalid;
+        
+        /** The number of Kiss-o'-Death replies. */
+        private long               kissed;
+        
+        /** The number of requests lost. */
+        private long               lost;
+        
+        /** The number of late or duplicated replies. */
+        private long               late;
+        
+        /**
+         * Constructor.
+         * 
+         * @param rate
+         *            the target rate, 0 for a closed loop.
+         * @param concurrency
+         *            the closed loop concurrency.
+         */
+        private Step(final double rate, final int concurrency)
+        {
+            this.rate = rate;
+            this.concurrency = concurrency;
+            latency = new Histogram();
+        }
+        
+        /**
+         * Returns the number of requests sent.
+         * 
+         * @return the number of requests.
+         */
+        public long getSent()
+        {
+            return sent;
+        }
+        
+        /**
+         * Returns the number of valid replies.
+         * 
+         * @return the number of replies.
+         */
+        public long getReceived()
+        {
+            return received;
+        }
+        
+        /**
+         * Returns the number of requests lost.
+         * 
+         * @return the number of lost requests.
+         */
+        public long getLost()
+        {
+            return lost;
+        }
+        
+        /**
+         * Returns the reply latencies.
+         * 
+         * @return the latency histogram (in nanoseconds).
+         */
+        public Histogram getLatency()
+        {
+            return latency;
+        }
+        
+        // See Object for details.
+        @Override
+        public String toString()
+        {
+            final double secs = elapsed / 1E9D;
+            
+            return String.format(Locale.ROOT,
+                    "%10s %10.0f %10.0f %7d %7.2f %7d %7d %7d %9.1f %9.1f"
+                            + " %9.1f %9.1f", rate > 0 ? String.format(
+                            Locale.ROOT, "%.0f", rate) : "c=" + concurrency,
+                    sent / secs, received / secs, unsent, sent == 0 ? 0
+                            : lost * 100D / sent, invalid, kissed, late,
+                    latency.getValueAtPercentile(50) / 1E3D,
+                    latency.getValueAtPercentile(99) / 1E3D,
+                    latency.getValueAtPercentile(99.9D) / 1E3D,
+                    latency.getMax() / 1E3D);
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -1,13 +1,14 @@
 package com.kokakiwi.android.newyeardroid;
 
 import java.io.IOException;
-import java.util.Timer;
 
 import android.app.Activity;
 import android.os.Bundle;
 
 import com.kokakiwi.android.newyeardroid.utils.NewYearLib;
 
+import net.sf.atomicdate.PreciseScheduler;
+
 public class NewYearDroidActivity extends Activity
 {
     private NewYearLib        lib;
@@ -15,8 +16,7 @@ public class NewYearDroidActivity extends Activity
     private NewYearTimer      task;
     private SynchronizerTimer synchronizer;
     
-    private final Timer       timer1 = new Timer("NewYearTimerUpdate", true);
-    private final Timer       timer2 = new Timer("NewYearTimerSync", true);
+    private PreciseScheduler  timer1;
     
     @Override
     public void onCreate(Bundle savedInstanceState)
@@ -32,8 +32,11 @@ public class NewYearDroidActivity extends Activity
             
             synchronizer.sync();
             
-            timer1.scheduleAtFixedRate(task, 0L, 1000L);
-            timer2.scheduleAtFixedRate(synchronizer, 0L, 30000L);
+            // Tick on the network time seconds, not the local ones.
+            timer1 = new PreciseScheduler(synchronizer.getSynchro());
+            final long next = (timer1.currentTimeMillis() / 1000L + 1) * 1000L;
+            timer1.schedule(task, timer1.currentTimeMillis());
+            timer1.scheduleAtFixedRate(task, next, 1000L);
         }
         catch (IOException e)
         {
@@ -45,8 +48,10 @@ public class NewYearDroidActivity extends Activity
     @Override
     protected void onDestroy()
     {
-        timer1.cancel();
-        timer2.cancel();
+        if (timer1 != null)
+        {
+            timer1.close();
+        }
         
         task.cancel();
         synchronizer.cancel();
@@ -1,57 +1,60 @@
 package com.kokakiwi.android.newyeardroid;
 
 import java.io.IOException;
-import java.util.TimerTask;
 
-import net.sf.atomicdate.Client;
+import net.sf.atomicdate.Service;
+import net.sf.atomicdate.TimeEstimate;
 
-public class SynchronizerTimer extends TimerTask
+public class SynchronizerTimer
 {
     public final static String         NTP_SERVER = "fr.pool.ntp.org";
+    public final static double         MAX_ERROR  = 100.0D;
+    public final static long           STALENESS  = 15 * 60 * 1000L;
     
     private final NewYearDroidActivity activity;
-    private final Client               synchro;
-    private long                       offset     = 0;
+    private final Service              synchro;
     
     public SynchronizerTimer(NewYearDroidActivity activity) throws IOException
     {
         this.activity = activity;
-        synchro = new Client();
+        synchro = new Service();
+        synchro.setServerHost(NTP_SERVER);
+        synchro.setStalenessLimit(STALENESS);
     }
     
-    @Override
-    public void run()
+    public void sync()
     {
-        sync();
+        synchro.run();
     }
     
-    public void sync()
+    public void cancel()
     {
-        try
-        {
-            offset = synchro.getOffset(NTP_SERVER, Client.DEFAULT_SNTP_PORT);
-            System.out.println(synchro.getOffset(NTP_SERVER,
-                    Client.DEFAULT_SNTP_PORT));
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-        }
+        synchro.close();
     }
     
-    @Override
-    public boolean cancel()
+    public long currentTimeMillis()
     {
-        synchro.close();
+        if (!synchro.isSynchronized())
+        {
+            synchro.requestSync();
+            
+            return System.currentTimeMillis();
+        }
         
-        return super.cancel();
+        return synchro.getTime(MAX_ERROR);
     }
     
-    public long currentTimeMillis()
+    public TimeEstimate getTimeEstimate()
     {
-        long current = System.currentTimeMillis() + offset;
+        if (!synchro.isSynchronized())
+        {
+            synchro.requestSync();
+            
+            return new TimeEstimate(System.currentTimeMillis(),
+                    Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
         
-        return current;
+        return synchro.getTimeEstimate(MAX_ERROR);
     }
     
     public java.util.Date getDate()
@@ -64,7 +67,7 @@ public class SynchronizerTimer extends TimerTask
         return activity;
     }
     
-    public Client getSynchro()
+    public Service getSynchro()
     {
         return synchro;
     }
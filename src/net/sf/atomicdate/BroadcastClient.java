@@ -0,0 +1,400 @@
+/*
+ * BroadcastClient.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.sf.atomicdate.metrics.MetricsRegistry;
+import net.sf.atomicdate.sntp.Listener;
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * An SNTP broadcast (or multicast) client, passively feeding a
+ * {@link Service} with the messages periodically sent by a broadcast server.
+ * No request is sent per message, so any number of clients can listen to a
+ * single server.
+ * <ul>
+ * <li>The messages aren't timed by a round-trip, so the one-way delay from the
+ * server is added to every offset;</li>
+ * <li>The one-way delay is calibrated by a unicast exchange with the server on
+ * the first message, then once per {@link #CALIBRATION_PERIOD calibration
+ * period}; the server must answer the unicast requests too (on the
+ * {@link #setServerPort(int) server port});</li>
+ * <li>Until the first calibration, a {@link #DEFAULT_DELAY default delay} is
+ * assumed;</li>
+ * <li>Only the messages of a single server are used: the
+ * {@link #setServerAddress(InetAddress) configured} one, or else the first
+ * broadcaster that answers a calibration. The other sources are ignored;</li>
+ * <li>A failed calibration is retried after {@link #CALIBRATION_RETRY}, and
+ * this delay doubles after every consecutive failure, up to the calibration
+ * period;</li>
+ * <li>The messages of the server and the calibrations update the server
+ * metrics in the {@link Service#getMetrics() registry of the service}; the
+ * round-trip of a message is the calibrated one, twice the one-way delay.
+ * The messages of a server not yet adopted are not recorded.</li>
+ * </ul>
+ * 
+ * @author Koka El Kiwi
+ */
+public class BroadcastClient extends Listener
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default one-way delay (in milliseconds), as in IETF RFC 1305. */
+    public static final long     DEFAULT_DELAY      = 4L;
+    
+    /** The one-way delay calibration period (in milliseconds). */
+    public static final long     CALIBRATION_PERIOD = 3600000L;
+    
+    /** The minimum delay before retrying a failed calibration (in ms). */
+    public static final long     CALIBRATION_RETRY  = 64000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The service fed by the received messages. */
+    private final Service        service;
+    
+    /** The multicast group, null for broadcast. */
+    private final InetAddress    group;
+    
+    /** The server address, null until configured or calibrated. */
+    private volatile InetAddress server;
+    
+    /** The server port, for the unicast calibration. */
+    private volatile int         port;
+    
+    /** The one-way delay from the server (in milliseconds). */
+    private volatile long        delay;
+    
+    /** The local time of the last calibration, 0 if none. */
+    private volatile long        calibrated;
+    
+    /** The local time before which no calibration is attempted. */
+    private volatile long        retry;
+    
+    /** The number of consecutive failed calibrations. */
+    private volatile int         failures;
+    
+    /** The pending calibration flag. */
+    private final AtomicBoolean  pending;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The client listens to the broadcasts on the default SNTP
+     * port.
+     * 
+     * @param service
+     *            the service fed by the received messages.
+     * @throws NullPointerException
+     *             if the argument is null.
+     * @throws IOException
+     *             if an error occurs while creating the socket.
+     * @see Client#DEFAULT_SNTP_PORT
+     */
+    public BroadcastClient(final Service service) throws IOException
+    {
+        this(service, null, Client.DEFAULT_SNTP_PORT);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param service
+     *            the service fed by the received messages.
+     * @param group
+     *            the multicast group to join, null to listen to the
+     *            broadcasts.
+     * @param port
+     *            the local port.
+     * @throws NullPointerException
+     *             if the service is null.
+     * @throws IllegalArgumentException
+     *             if the group isn't a multicast address.
+     * @throws IOException
+     *             if an error occurs while creating the socket or joining the
+     *             group.
+     */
+    public BroadcastClient(final Service service, final InetAddress group,
+            final int port) throws IOException
+    {
+        super(new MulticastSocket(port));
+        if (service == null)
+        {
+            getSocket().close();
+            throw new NullPointerException("service=null");
+        }
+        if (group != null && !group.isMulticastAddress())
+        {
+            getSocket().close();
+            throw new IllegalArgumentException("group not multicast");
+        }
+        this.service = service;
+        this.group = group;
+        this.server = null;
+        this.port = Client.DEFAULT_SNTP_PORT;
+        delay = DEFAULT_DELAY;
+        calibrated = 0;
+        retry = 0;
+        failures = 0;
+        pending = new AtomicBoolean();
+        if (group != null)
+        {
+            ((MulticastSocket) getSocket()).joinGroup(group);
+        }
+        startListening();
+    }
+    
+    /**
+     * Releases the client resources.
+     */
+    public void close()
+    {
+        if (isListening())
+        {
+            stopListening();
+        }
+        if (group != null)
+        {
+            try
+            {
+                ((MulticastSocket) getSocket()).leaveGroup(group);
+            }
+            catch (final IOException ioe)
+            {
+                // Closing anyway.
+            }
+        }
+        getSocket().close();
+    }
+    
+    /**
+     * Configures the address of the broadcast server; the messages of the
+     * other sources are ignored. By default, the first broadcaster that
+     * answers a calibration is used.
+     * 
+     * @param server
+     *            the server address, null for the first calibrated one.
+     */
+    public void setServerAddress(final InetAddress server)
+    {
+        this.server = server;
+        calibrated = 0;
+        retry = 0;
+        failures = 0;
+    }
+    
+    /**
+     * Returns the address of the broadcast server.
+     * 
+     * @return the server address, null if none was configured or calibrated
+     *         yet.
+     */
+    public InetAddress getServerAddress()
+    {
+        return server;
+    }
+    
+    /**
+     * Configures the server port for the unicast calibration. The default SNTP
+     * port is used by default.
+     * 
+     * @param port
+     *            the server port.
+     * @throws IllegalArgumentException
+     *             if the port is invalid.
+     */
+    public void setServerPort(final int port)
+    {
+        if (port <= 0)
+        {
+            throw new IllegalArgumentException("port<=0");
+        }
+        this.port = port;
+    }
+    
+    /**
+     * Configures the one-way delay from the server, until the next
+     * calibration.
+     * 
+     * @param delay
+     *            the one-way delay (in milliseconds).
+     * @throws IllegalArgumentException
+     *             if the argument is negative.
+     */
+    public void setDelay(final long delay)
+    {
+        if (delay < 0)
+        {
+            throw new IllegalArgumentException("delay<0");
+        }
+        this.delay = delay;
+    }
+    
+    /**
+     * Returns the one-way delay from the server.
+     * 
+     * @return the one-way delay (in milliseconds).
+     */
+    public long getDelay()
+    {
+        return delay;
+    }
+    
+    /**
+     * Returns the service fed by the received messages.
+     * 
+     * @return the service.
+     */
+    public Service getService()
+    {
+        return service;
+    }
+    
+    /* See Listener for information. */
+    @Override
+    protected void onMessage(final Message message, final long time)
+    {
+        // The source address is required.
+    }
+    
+    /* See Listener for information. */
+    @Override
+    protected void onMessage(final Message message, final long time,
+            final SocketAddress source)
+    {
+        final InetAddress addr = ((InetSocketAddress) source).getAddress();
+        final InetAddress expected = server;
+        if (message.getMode() != Message.MODE_BROADCAST || expected != null
+                && !expected.equals(addr))
+        {
+            return;
+        }
+        final MetricsRegistry metrics = service.getMetrics();
+        if (message.getLeapIndicator() == Message.LI_ALARM
+                || message.getStratum() == 0
+                || (message.getStratum() & 0xFF) > 15)
+        {
+            if (metrics != null && expected != null)
+            {
+                metrics.getServer((InetSocketAddress) source).onRejected();
+            }
+            
+            return;
+        }
+        if (time - calibrated >= CALIBRATION_PERIOD || calibrated == 0)
+        {
+            calibrate(addr, time);
+        }
+        if (expected == null)
+        {
+            // Not adopted until it answers a calibration.
+            return;
+        }
+        final long d = delay;
+        final long t3 = Client.fromTimestamp(message.getTransmitTimestamp());
+        final Measurement m = new Measurement(message, t3 + d - time, 2 * d,
+                time);
+        if (metrics != null)
+        {
+            metrics.getServer((InetSocketAddress) source).onReceived(2 * d,
+                    m.getOffset(), time);
+        }
+        service.update(m);
+    }
+    
+    // See Object for details.
+    @Override
+    protected void finalize() throws Throwable
+    {
+        close();
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Calibrates the one-way delay in the background, by a unicast exchange
+     * with the server, unless a failed calibration is being backed off. The
+     * measurement also feeds the service, and the server is adopted if none
+     * was yet.
+     * 
+     * @param source
+     *            the server address.
+     * @param now
+     *            the local time.
+     */
+    private void calibrate(final InetAddress source, final long now)
+    {
+        if (now >= retry && pending.compareAndSet(false, true))
+        {
+            SyncScheduler.getDefault().execute(new Runnable() {
+                
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        final Client client = new Client();
+                        client.setMetrics(service.getMetrics());
+                        try
+                        {
+                            final Measurement m = client.measure(source,
+                                    port);
+                            if (server == null)
+                            {
+                                server = source;
+                            }
+                            else if (!server.equals(source))
+                            {
+                                // Reconfigured meanwhile.
+                                return;
+                            }
+                            delay = Math.max(0, m.getDelay() / 2);
+                            calibrated = m.getTime();
+                            failures = 0;
+                            service.update(m);
+                        }
+                        finally
+                        {
+                            client.close();
+                        }
+                    }
+                    catch (final IOException ioe)
+                    {
+                        final int n = Math.min(failures++, 6);
+                        retry = System.currentTimeMillis()
+                                + Math.min(CALIBRATION_RETRY << n,
+                                        CALIBRATION_PERIOD);
+                        System.err.println("AtomicDate: error calibrating"
+                                + " the broadcast delay.");
+                        ioe.printStackTrace(System.err);
+                    }
+                    finally
+                    {
+                        pending.set(false);
+                    }
+                }
+            });
+        }
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,214 @@
+/*
+ * Broadcaster.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+
+import net.sf.atomicdate.sntp.Message;
+import net.sf.atomicdate.sntp.Sender;
+
+/**
+ * An SNTP broadcast server, periodically sending the network time of a
+ * synchronized {@link Service} to a broadcast or multicast address. The
+ * {@link BroadcastClient broadcast clients} calibrate their delay with unicast
+ * requests, which must be answered by a {@link Server} on the same host.
+ * 
+ * @author Koka El Kiwi
+ */
+public class Broadcaster
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default broadcast period (in milliseconds). */
+    public static final long        DEFAULT_PERIOD = 64000L;
+    
+    /** The default multicast time-to-live. */
+    public static final int         DEFAULT_TTL    = 1;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The service providing the network time. */
+    private final Service           service;
+    
+    /** The broadcast or multicast address. */
+    private final InetSocketAddress address;
+    
+    /** The broadcast period (in milliseconds). */
+    private final long              period;
+    
+    /** The multicast time-to-live. */
+    private final int               ttl;
+    
+    /** The broadcast socket, null if the broadcaster isn't running. */
+    private MulticastSocket         socket;
+    
+    /** The broadcast task, null if the broadcaster isn't running. */
+    private SyncScheduler.Task      task;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The messages are sent every {@link #DEFAULT_PERIOD default
+     * period}, with the {@link #DEFAULT_TTL default time-to-live}.
+     * 
+     * @param service
+     *            the service providing the network time.
+     * @param address
+     *            the broadcast or multicast address.
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public Broadcaster(final Service service, final InetSocketAddress address)
+    {
+        this(service, address, DEFAULT_PERIOD, DEFAULT_TTL);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param service
+     *            the service providing the network time.
+     * @param address
+     *            the broadcast or multicast address.
+     * @param period
+     *            the broadcast period (in milliseconds).
+     * @param ttl
+     *            the multicast time-to-live.
+     * @throws NullPointerException
+     *             if the service or the address is null.
+     * @throws IllegalArgumentException
+     *             if the period or the time-to-live isn't valid.
+     */
+    public Broadcaster(final Service service, final InetSocketAddress address,
+            final long period, final int ttl)
+    {
+        if (service == null)
+        {
+            throw new NullPointerException("service=null");
+        }
+        if (address == null)
+        {
+            throw new NullPointerException("address=null");
+        }
+        if (period < 1000)
+        {
+            throw new IllegalArgumentException("period<1000");
+        }
+        if (ttl < 0 || ttl > 255)
+        {
+            throw new IllegalArgumentException("ttl<0 || ttl>255");
+        }
+        this.service = service;
+        this.address = address;
+        this.period = period;
+        this.ttl = ttl;
+    }
+    
+    /**
+     * Starts broadcasting. Nothing is sent while the service isn't
+     * synchronized.
+     * 
+     * @throws IllegalStateException
+     *             if the broadcaster is already running.
+     * @throws IOException
+     *             if an error occurs while creating the socket.
+     */
+    public synchronized void start() throws IOException
+    {
+        if (socket != null)
+        {
+            throw new IllegalStateException("Broadcaster running.");
+        }
+        socket = new MulticastSocket();
+        socket.setBroadcast(true);
+        socket.setTimeToLive(ttl);
+        task = SyncScheduler.getDefault().schedule(new Runnable() {
+            
+            @Override
+            public void run()
+            {
+                broadcast();
+            }
+        }, period);
+        SyncScheduler.getDefault().execute(new Runnable() {
+            
+            @Override
+            public void run()
+            {
+                broadcast();
+            }
+        });
+    }
+    
+    /**
+     * Stops broadcasting, releasing the socket.
+     */
+    public synchronized void close()
+    {
+        if (socket != null)
+        {
+            task.cancel();
+            task = null;
+            socket.close();
+            socket = null;
+        }
+    }
+    
+    /**
+     * Indicates if the broadcaster is running.
+     * 
+     * @return true if it's running, otherwise false.
+     */
+    public synchronized boolean isRunning()
+    {
+        return socket != null;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Sends a broadcast message, if the service is synchronized.
+     */
+    private synchronized void broadcast()
+    {
+        if (socket == null || !service.isSynchronized())
+        {
+            return;
+        }
+        final ClockState state = service.getState();
+        final Message message = Server.buildHeader(state, System
+                .currentTimeMillis());
+        message.setMode(Message.MODE_BROADCAST);
+        message.setPollInterval((byte) (63 - Long
+                .numberOfLeadingZeros(period / 1000)));
+        message.setTransmitTimestamp(Client.toTimestamp(state.getTime(System
+                .currentTimeMillis())));
+        try
+        {
+            new Sender(socket).send(message, address.getAddress(), address
+                    .getPort());
+        }
+        catch (final IOException ioe)
+        {
+            System.err.println("AtomicDate: error sending a broadcast.");
+            ioe.printStackTrace(System.err);
+        }
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -13,8 +13,11 @@ package net.sf.atomicdate;
 import java.io.IOException;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 
+import net.sf.atomicdate.metrics.MetricsRegistry;
+import net.sf.atomicdate.metrics.ServerMetrics;
 import net.sf.atomicdate.sntp.Listener;
 import net.sf.atomicdate.sntp.Message;
 import net.sf.atomicdate.sntp.Sender;
@@ -26,7 +29,9 @@ import net.sf.atomicdate.sntp.Timestamp;
  * <li>The implementation is thread-safe but can only handle one request at a
  * time;</li>
  * <li>The returned values are the local time offset relative to the network
- * time.</li>
+ * time;</li>
+ * <li>The queries update the {@link #setMetrics(MetricsRegistry) metrics} of
+ * the queried servers.</li>
  * </ul>
  * 
  * @author Arm&eacute;nio Pinto (armenio[at]users.sourceforge.net)
@@ -38,23 +43,26 @@ public class Client extends Listener
     // **************************************************************************
     
     /** The default SNTP source and destination port. */
-    public static final int     DEFAULT_SNTP_PORT = 123;
+    public static final int          DEFAULT_SNTP_PORT = 123;
     
     /** The default server query timeout (in milliseconds). */
-    public static final int     DEFAULT_TIMEOUT   = 10000;
+    public static final int          DEFAULT_TIMEOUT   = 10000;
     
     /**
      * The SNTP time is referenced to 01/01/1900-00:00. On the other hand, Unix
      * systems and Java reference time to 01/01/1970-00:00. This means that
      * convertion is necessary.
      */
-    private static final long   SECS_1900_1970    = 2208988800L;
+    private static final long        SECS_1900_1970    = 2208988800L;
     
     // Instance attributes.
     // ***********************************************************************
     
     /** The received message holder. */
-    private final MessageHolder holder;
+    private final MessageHolder      holder;
+    
+    /** The metrics registry, null if none. */
+    private volatile MetricsRegistry metrics;
     
     // Instance methods.
     // **************************************************************************
@@ -92,6 +100,7 @@ public class Client extends Listener
             super.getSocket().setSoTimeout(timeout);
         }
         holder = new MessageHolder();
+        metrics = MetricsRegistry.getDefault();
         super.startListening();
     }
     
@@ -107,6 +116,28 @@ public class Client extends Listener
         super.getSocket().close();
     }
     
+    /**
+     * Configures the registry of the SNTP servers metrics. The
+     * {@link MetricsRegistry#getDefault() shared registry} is used by default.
+     * 
+     * @param metrics
+     *            the metrics registry, null for none.
+     */
+    public void setMetrics(final MetricsRegistry metrics)
+    {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Returns the registry of the SNTP servers metrics.
+     * 
+     * @return the metrics registry, null if none.
+     */
+    public MetricsRegistry getMetrics()
+    {
+        return metrics;
+    }
+    
     /**
      * Retrieves the network time offset from an SNTP server. The default port
      * is used.
@@ -128,7 +159,8 @@ public class Client extends Listener
     }
     
     /**
-     * Retrieves the network time offset from an SNTP server.
+     * Retrieves the network time offset from an SNTP server. All the host
+     * addresses are raced, IPv6 and IPv4 alike (see {@link DualStack}).
      * 
      * @param host
      *            the server host address (IP or DNS).
@@ -146,7 +178,7 @@ public class Client extends Listener
      */
     public long getOffset(final String host, final int port) throws IOException
     {
-        return getOffset(InetAddress.getByName(host), port);
+        return measure(host, port).getOffset();
     }
     
     /**
@@ -188,6 +220,60 @@ public class Client extends Listener
      */
     public long getOffset(final InetAddress addr, final int port)
             throws IOException
+    {
+        return queryServer(addr, port).getOffset();
+    }
+    
+    /**
+     * Queries an SNTP server, keeping the whole measurement. All the host
+     * addresses are raced, IPv6 and IPv4 alike (see {@link DualStack}).
+     * 
+     * @param host
+     *            the server host address (IP or DNS).
+     * @param port
+     *            the server port.
+     * @return the measurement.
+     * @throws NullPointerException
+     *             if the address is null.
+     * @throws IllegalArgumentException
+     *             if the port is invalid.
+     * @throws IllegalStateException
+     *             if the client is closed.
+     * @throws IOException
+     *             if an error occurs while contacting the server.
+     */
+    public Measurement measure(final String host, final int port)
+            throws IOException
+    {
+        if (!super.isListening())
+        {
+            throw new IllegalStateException("Client closed.");
+        }
+        final int timeout = super.getSocket().getSoTimeout();
+        
+        return DualStack.measure(host, port, timeout > 0 ? timeout
+                : DEFAULT_TIMEOUT, metrics);
+    }
+    
+    /**
+     * Queries an SNTP server, keeping the whole measurement.
+     * 
+     * @param addr
+     *            the server host address.
+     * @param port
+     *            the server port.
+     * @return the measurement.
+     * @throws NullPointerException
+     *             if the address is null.
+     * @throws IllegalArgumentException
+     *             if the port is invalid.
+     * @throws IllegalStateException
+     *             if the client is closed.
+     * @throws IOException
+     *             if an error occurs while contacting the server.
+     */
+    public Measurement measure(final InetAddress addr, final int port)
+            throws IOException
     {
         return queryServer(addr, port);
     }
@@ -228,7 +314,7 @@ public class Client extends Listener
      *            the server host address.
      * @param port
      *            the server port.
-     * @return the network time offset (in milliseconds).
+     * @return the measurement.
      * @throws NullPointerException
      *             if the address is null.
      * @throws IllegalStateException
@@ -236,7 +322,7 @@ public class Client extends Listener
      * @throws IOException
      *             if an error occurs while contacting the server.
      */
-    private long queryServer(final InetAddress addr, final int port)
+    private Measurement queryServer(final InetAddress addr, final int port)
             throws IOException
     {
         if (addr == null)
@@ -248,15 +334,24 @@ public class Client extends Listener
             throw new IllegalStateException("Client closed.");
         }
         
+        final MetricsRegistry registry = metrics;
+        final ServerMetrics m = registry != null ? registry
+                .getServer(new InetSocketAddress(addr, port)) : null;
         final Sender sender = new Sender(super.getSocket());
         final Message smessage = new Message();
-        smessage.setTransmitTimestamp(toTimestamp(System.currentTimeMillis()));
+        final long t1 = System.currentTimeMillis();
+        smessage.setTransmitTimestamp(toTimestamp(t1));
         
         final Message rmessage;
         final long t4;
-        sender.send(smessage, addr, port);
         synchronized (holder)
         {
+            holder.release();
+            sender.send(smessage, addr, port);
+            if (m != null)
+            {
+                m.onSent();
+            }
             try
             {
                 holder.wait(DEFAULT_TIMEOUT);
@@ -269,22 +364,55 @@ public class Client extends Listener
             t4 = holder.getTimestamp();
             if (!holder.isHolding())
             {
+                if (m != null)
+                {
+                    m.onTimeout();
+                }
                 throw new IOException("Timed-out while querying the server.");
             }
             rmessage = holder.getMessage();
         }
         
+        final Measurement measurement = toMeasurement(rmessage, t4);
+        if (m != null)
+        {
+            if (rmessage.isKissOfDeath())
+            {
+                m.onKiss();
+            }
+            else
+            {
+                m.onReceived(t4 - t1, measurement.getOffset(), t4);
+            }
+        }
+        
+        return measurement;
+    }
+    
+    /**
+     * Computes the measurement of a server reply.
+     * 
+     * @param reply
+     *            the server reply.
+     * @param t4
+     *            the local time when the reply was received.
+     * @return the measurement.
+     */
+    protected static Measurement toMeasurement(final Message reply,
+            final long t4)
+    {
         // t1 - original timestamp.
         // t2 - receive timestamp.
         // t3 - transmit timstamp.
         // t4 - destination timestamp.
         // rtd=(t2-t1)+(t4-t3)
         // off=t3-(t4-delay/2)=(t3-t4)+(t2-t1)/2-(t3-t4)/2=((t2-t1)+(t3-t4))/2
-        final long t1 = fromTimestamp(rmessage.getOriginateTimestamp());
-        final long t2 = fromTimestamp(rmessage.getReceiveTimestamp());
-        final long t3 = fromTimestamp(rmessage.getTransmitTimestamp());
+        final long t1 = fromTimestamp(reply.getOriginateTimestamp());
+        final long t2 = fromTimestamp(reply.getReceiveTimestamp());
+        final long t3 = fromTimestamp(reply.getTransmitTimestamp());
         
-        return (t2 - t1 + t3 - t4) / 2;
+        return new Measurement(reply, (t2 - t1 + t3 - t4) / 2, t2 - t1 + t4
+                - t3, t4);
     }
     
     /**
@@ -0,0 +1,260 @@
+/*
+ * ClockFilter.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+/**
+ * The NTP clock filter of a single server.
+ * <ul>
+ * <li>The last samples are kept in a ring buffer of primitive arrays, so
+ * adding a sample doesn't allocate;</li>
+ * <li>The sample with the lowest round-trip delay is selected, since it's the
+ * one least affected by the network queues;</li>
+ * <li>The filter dispersion and jitter are computed as described in IETF RFC
+ * 5905, section 10.</li>
+ * </ul>
+ * The implementation isn't thread-safe. All the values are in milliseconds.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class ClockFilter
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default number of samples. */
+    public static final int    DEFAULT_SIZE = 8;
+    
+    /** The frequency tolerance (15 PPM), used to age the dispersion. */
+    public static final double PHI          = 15E-6D;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The samples offset. */
+    private final double[]     offsets;
+    
+    /** The samples round-trip delay. */
+    private final double[]     delays;
+    
+    /** The samples dispersion, at the time they were taken. */
+    private final double[]     dispersions;
+    
+    /** The samples local time. */
+    private final long[]       times;
+    
+    /** The samples index, sorted by increasing delay. */
+    private final int[]        order;
+    
+    /** The next sample slot. */
+    private int                head;
+    
+    /** The number of samples held. */
+    private int                count;
+    
+    /** The selected offset. */
+    private double             offset;
+    
+    /** The selected delay. */
+    private double             delay;
+    
+    /** The filter dispersion. */
+    private double             dispersion;
+    
+    /** The filter jitter. */
+    private double             jitter;
+    
+    /** The selected sample local time. */
+    private long               time;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Default constructor. The filter holds the {@link #DEFAULT_SIZE default
+     * number} of samples.
+     */
+    public ClockFilter()
+    {
+        this(DEFAULT_SIZE);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param size
+     *            the number of samples.
+     * @throws IllegalArgumentException
+     *             if the size isn't positive.
+     */
+    public ClockFilter(final int size)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException("size<=0");
+        }
+        offsets = new double[size];
+        delays = new double[size];
+        dispersions = new double[size];
+        times = new long[size];
+        order = new int[size];
+        clear();
+    }
+    
+    /**
+     * Adds a sample, evicting the oldest one if the filter is full, and
+     * selects the new best sample.
+     * 
+     * @param offset
+     *            the sample offset.
+     * @param delay
+     *            the sample round-trip delay.
+     * @param dispersion
+     *            the sample dispersion.
+     * @param time
+     *            the local time of the sample.
+     */
+    public void add(final double offset, final double delay,
+            final double dispersion, final long time)
+    {
+        offsets[head] = offset;
+        delays[head] = delay;
+        dispersions[head] = dispersion;
+        times[head] = time;
+        head = (head + 1) % offsets.length;
+        if (count < offsets.length)
+        {
+            count++;
+        }
+        
+        // Insertion sort by delay; the buffer is small.
+        for (int i = 0; i < count; i++)
+        {
+            final int idx = i;
+            int j = i - 1;
+            while (j >= 0 && delays[order[j]] > delays[idx])
+            {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = idx;
+        }
+        
+        final int best = order[0];
+        this.offset = offsets[best];
+        this.delay = delays[best];
+        this.time = times[best];
+        
+        double disp = 0;
+        double sum = 0;
+        double weight = 0.5D;
+        for (int i = 0; i < count; i++)
+        {
+            final int idx = order[i];
+            disp += (dispersions[idx] + PHI * (time - times[idx])) * weight;
+            weight /= 2;
+            if (i > 0)
+            {
+                final double diff = offsets[idx] - this.offset;
+                sum += diff * diff;
+            }
+        }
+        this.dispersion = disp;
+        this.jitter = count > 1 ? Math.sqrt(sum / (count - 1)) : 0;
+    }
+    
+    /**
+     * Discards all the samples.
+     */
+    public void clear()
+    {
+        head = 0;
+        count = 0;
+        offset = 0;
+        delay = 0;
+        dispersion = 0;
+        jitter = 0;
+        time = 0;
+    }
+    
+    /**
+     * Indicates if the filter holds no samples.
+     * 
+     * @return true if it's empty, otherwise false.
+     */
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+    
+    /**
+     * Returns the number of samples held.
+     * 
+     * @return the number of samples.
+     */
+    public int size()
+    {
+        return count;
+    }
+    
+    /**
+     * Returns the offset of the selected sample.
+     * 
+     * @return the selected offset.
+     */
+    public double getOffset()
+    {
+        return offset;
+    }
+    
+    /**
+     * Returns the round-trip delay of the selected sample.
+     * 
+     * @return the selected delay.
+     */
+    public double getDelay()
+    {
+        return delay;
+    }
+    
+    /**
+     * Returns the filter dispersion, as of the last added sample.
+     * 
+     * @return the filter dispersion.
+     */
+    public double getDispersion()
+    {
+        return dispersion;
+    }
+    
+    /**
+     * Returns the filter jitter, the RMS difference between the selected
+     * offset and the offsets of the other samples.
+     * 
+     * @return the filter jitter.
+     */
+    public double getJitter()
+    {
+        return jitter;
+    }
+    
+    /**
+     * Returns the local time of the selected sample.
+     * 
+     * @return the selected sample local time.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
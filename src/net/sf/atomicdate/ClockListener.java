@@ -0,0 +1,32 @@
+/*
+ * ClockListener.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+/**
+ * A listener of the synchronization state of a {@link Service}. The method
+ * {@link #onUpdate(ClockState)} is invoked after every successful
+ * synchronization, from the synchronizing thread.
+ * 
+ * @author Koka El Kiwi
+ */
+public interface ClockListener
+{
+    
+    /**
+     * This method is called everytime the synchronization state changes.
+     * 
+     * @param state
+     *            the new synchronization state.
+     */
+    void onUpdate(ClockState state);
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,320 @@
+/*
+ * ClockState.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * An immutable snapshot of the local clock synchronization state, taken after
+ * a synchronization. It gives the network time together with its error
+ * bounds. The offset is extrapolated with the local clock drift, estimated
+ * from the successive synchronizations.
+ * <ul>
+ * <li>the maximum error is the root distance of IETF RFC 5905: half the root
+ * delay, plus the root dispersion, plus the filter dispersion and jitter, plus
+ * the frequency tolerance over the time elapsed since the synchronization;</li>
+ * <li>the estimated error is the filter jitter, bounded by the local clock
+ * precision.</li>
+ * </ul>
+ * All the values are in milliseconds.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class ClockState
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The minimum interval between samples used to estimate the drift. */
+    public static final long    MIN_DRIFT_INTERVAL = 128000L;
+    
+    /** The maximum drift of the local clock (500 PPM). */
+    public static final double  MAX_DRIFT          = 500E-6D;
+    
+    /** The weight of a new drift estimate. */
+    private static final double DRIFT_GAIN         = 0.25D;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The local time offset to the network time, at the synchronization. */
+    private final double        offset;
+    
+    /** The local clock drift, relative to the network time. */
+    private final double        drift;
+    
+    /** The local time of the selected filter sample. */
+    private final long          epoch;
+    
+    /** The round-trip delay to the server. */
+    private final double        delay;
+    
+    /** The filter dispersion. */
+    private final double        dispersion;
+    
+    /** The filter jitter. */
+    private final double        jitter;
+    
+    /** The server root delay. */
+    private final double        rootDelay;
+    
+    /** The server root dispersion. */
+    private final double        rootDispersion;
+    
+    /** The server stratum. */
+    private final int           stratum;
+    
+    /** The local time of the synchronization. */
+    private final long          time;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The local clock drift isn't estimated.
+     * 
+     * @param filter
+     *            the clock filter, holding at least one sample.
+     * @param measurement
+     *            the last measurement added to the filter.
+     * @throws NullPointerException
+     *             if any argument is null.
+     * @throws IllegalArgumentException
+     *             if the filter is empty.
+     */
+    public ClockState(final ClockFilter filter, final Measurement measurement)
+    {
+        this(filter, measurement, null);
+    }
+    
+    /**
+     * Constructor. The local clock drift estimate is refined with the
+     * previous state, if the filter selected a new sample long enough after
+     * it.
+     * 
+     * @param filter
+     *            the clock filter, holding at least one sample.
+     * @param measurement
+     *            the last measurement added to the filter.
+     * @param previous
+     *            the previous state, null if none.
+     * @throws NullPointerException
+     *             if the filter or the measurement is null.
+     * @throws IllegalArgumentException
+     *             if the filter is empty.
+     */
+    public ClockState(final ClockFilter filter, final Measurement measurement,
+            final ClockState previous)
+    {
+        if (filter == null)
+        {
+            throw new NullPointerException("filter=null");
+        }
+        if (measurement == null)
+        {
+            throw new NullPointerException("measurement=null");
+        }
+        if (filter.isEmpty())
+        {
+            throw new IllegalArgumentException("filter empty");
+        }
+        final Message message = measurement.getMessage();
+        time = measurement.getTime();
+        epoch = filter.getTime();
+        double freq = 0;
+        if (previous != null)
+        {
+            freq = previous.drift;
+            final long interval = epoch - previous.time;
+            if (epoch > previous.epoch && interval >= MIN_DRIFT_INTERVAL)
+            {
+                final double predicted = previous.offset + freq * interval;
+                freq += (filter.getOffset() - predicted) / interval
+                        * DRIFT_GAIN;
+                freq = Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, freq));
+            }
+        }
+        drift = freq;
+        offset = filter.getOffset() + drift * (time - epoch);
+        delay = filter.getDelay();
+        dispersion = filter.getDispersion();
+        jitter = filter.getJitter();
+        rootDelay = message.getRootDelay() * 1000D;
+        rootDispersion = message.getRootDispersion() * 1000D;
+        stratum = message.getStratum() & 0xFF;
+    }
+    
+    /**
+     * Returns the network time.
+     * 
+     * @param now
+     *            the local time.
+     * @return the network time.
+     */
+    public long getTime(final long now)
+    {
+        return now + Math.round(getOffset(now));
+    }
+    
+    /**
+     * Returns the local time offset to the network time, extrapolated with the
+     * local clock drift.
+     * 
+     * @param now
+     *            the local time.
+     * @return the offset.
+     */
+    public double getOffset(final long now)
+    {
+        return offset + drift * (now - time);
+    }
+    
+    /**
+     * Returns the maximum error of the network time.
+     * 
+     * @param now
+     *            the local time.
+     * @return the maximum error.
+     */
+    public double getMaxError(final long now)
+    {
+        return (rootDelay + delay) / 2 + rootDispersion + dispersion + jitter
+                + ClockFilter.PHI * Math.max(0, now - time);
+    }
+    
+    /**
+     * Returns the estimated error of the network time.
+     * 
+     * @return the estimated error.
+     */
+    public double getEstimatedError()
+    {
+        return Math.max(jitter, Measurement.LOCAL_PRECISION);
+    }
+    
+    /**
+     * Returns the network time together with its error bounds.
+     * 
+     * @param now
+     *            the local time.
+     * @return the time estimate.
+     */
+    public TimeEstimate estimate(final long now)
+    {
+        return new TimeEstimate(getTime(now), getMaxError(now),
+                getEstimatedError());
+    }
+    
+    /**
+     * Returns the local time offset to the network time, at the
+     * synchronization.
+     * 
+     * @return the offset.
+     */
+    public double getOffset()
+    {
+        return offset;
+    }
+    
+    /**
+     * Returns the local clock drift relative to the network time, as a
+     * fraction (1E-6 is 1 PPM).
+     * 
+     * @return the drift.
+     */
+    public double getDrift()
+    {
+        return drift;
+    }
+    
+    /**
+     * Returns the round-trip delay to the server.
+     * 
+     * @return the round-trip delay.
+     */
+    public double getDelay()
+    {
+        return delay;
+    }
+    
+    /**
+     * Returns the filter dispersion.
+     * 
+     * @return the dispersion.
+     */
+    public double getDispersion()
+    {
+        return dispersion;
+    }
+    
+    /**
+     * Returns the filter jitter.
+     * 
+     * @return the jitter.
+     */
+    public double getJitter()
+    {
+        return jitter;
+    }
+    
+    /**
+     * Returns the server root delay.
+     * 
+     * @return the root delay.
+     */
+    public double getRootDelay()
+    {
+        return rootDelay;
+    }
+    
+    /**
+     * Returns the server root dispersion.
+     * 
+     * @return the root dispersion.
+     */
+    public double getRootDispersion()
+    {
+        return rootDispersion;
+    }
+    
+    /**
+     * Returns the server stratum.
+     * 
+     * @return the stratum.
+     */
+    public int getStratum()
+    {
+        return stratum;
+    }
+    
+    /**
+     * Returns the local time of the synchronization.
+     * 
+     * @return the synchronization local time.
+     */
+    public long getSyncTime()
+    {
+        return time;
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        return "offset=" + offset + ", drift=" + drift + ", delay=" + delay
+                + ", dispersion=" + dispersion + ", jitter=" + jitter
+                + ", rootDelay=" + rootDelay + ", rootDispersion="
+                + rootDispersion + ", stratum=" + stratum + ", time=" + time;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
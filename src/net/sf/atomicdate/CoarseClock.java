@@ -0,0 +1,281 @@
+/*
+ * CoarseClock.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A network clock for the hot paths that only need about a millisecond of
+ * resolution. A ticker thread publishes the network time every tick, so that
+ * reading it is a single volatile load, without computation nor allocation.
+ * <ul>
+ * <li>The published value sits alone on its cache line, so the readers
+ * don't suffer from false sharing with the neighbouring fields;</li>
+ * <li>The value lags the network time by up to a tick, plus the ticker
+ * scheduling latency; the actual gaps between the ticks are measured.</li>
+ * </ul>
+ * The network time comes from the last synchronization state of the service;
+ * the coarse clock never triggers a synchronization. Until the service is
+ * synchronized, the local clock is published.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class CoarseClock
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default tick period (in microseconds). */
+    public static final long    DEFAULT_PERIOD = 1000L;
+    
+    /** The ticker thread name. */
+    private static final String THREAD_NAME    = "AtomicDate-Ticker";
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The network time service. */
+    private final Service       service;
+    
+    /** The tick period (in nanoseconds). */
+    private final long          period;
+    
+    /** The published network time, padded. */
+    private final PaddedLong    millis;
+    
+    /** The nano time of the last tick. */
+    private volatile long       tickNanos;
+    
+    /** The largest gap between two ticks (in nanoseconds). */
+    private volatile long       maxGap;
+    
+    /** The number of ticks. */
+    private volatile long       ticks;
+    
+    /** The ticker thread, null if not started. */
+    private Thread              thread;
+    
+    /** The running flag. */
+    private volatile boolean    running;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The clock ticks every {@link #DEFAULT_PERIOD default
+     * period}.
+     * 
+     * @param service
+     *            the network time service.
+     * @throws NullPointerException
+     *             if the service is null.
+     */
+    public CoarseClock(final Service service)
+    {
+        this(service, DEFAULT_PERIOD);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param service
+     *            the network time service.
+     * @param period
+     *            the tick period (in microseconds), the staleness accepted by
+     *            the readers.
+     * @throws NullPointerException
+     *             if the service is null.
+     * @throws IllegalArgumentException
+     *             if the period isn't positive.
+     */
+    public CoarseClock(final Service service, final long period)
+    {
+        if (service == null)
+        {
+            throw new NullPointerException("service=null");
+        }
+        if (period <= 0)
+        {
+            throw new IllegalArgumentException("period<=0");
+        }
+        this.service = service;
+        this.period = period * 1000L;
+        millis = new PaddedLong();
+        tick();
+    }
+    
+    /**
+     * Starts the ticker thread. Does nothing if it's already started.
+     */
+    public synchronized void start()
+    {
+        if (thread != null)
+        {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            
+            @Override
+            public void run()
+            {
+                while (running)
+                {
+                    LockSupport.parkNanos(period);
+                    tick();
+                }
+            }
+        }, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Stops the ticker thread. The clock then keeps its last value.
+     */
+    public synchronized void close()
+    {
+        running = false;
+        if (thread != null)
+        {
+            LockSupport.unpark(thread);
+            thread = null;
+        }
+    }
+    
+    /**
+     * Returns the network time, as of the last tick.
+     * 
+     * @return the network time (in milliseconds since the epoch).
+     */
+    public long currentTimeMillis()
+    {
+        return millis.value;
+    }
+    
+    /**
+     * Returns the age of the current value.
+     * 
+     * @return the time since the last tick (in nanoseconds).
+     */
+    public long getStaleness()
+    {
+        return System.nanoTime() - tickNanos;
+    }
+    
+    /**
+     * Returns the largest gap measured between two ticks, the worst staleness
+     * seen by the readers so far.
+     * 
+     * @return the largest gap (in nanoseconds).
+     */
+    public long getMaxStaleness()
+    {
+        return maxGap;
+    }
+    
+    /**
+     * Returns the number of ticks so far.
+     * 
+     * @return the number of ticks.
+     */
+    public long getTicks()
+    {
+        return ticks;
+    }
+    
+    /**
+     * Returns the tick period.
+     * 
+     * @return the tick period (in microseconds).
+     */
+    public long getPeriod()
+    {
+        return period / 1000L;
+    }
+    
+    /**
+     * Resets the largest gap measured.
+     */
+    public void resetStaleness()
+    {
+        maxGap = 0;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Publishes the network time. Only called by the ticker thread, or from the
+     * constructor.
+     */
+    private void tick()
+    {
+        final long now = System.currentTimeMillis();
+        millis.value = service.isSynchronized() ? service.getState().getTime(
+                now) : now;
+        
+        final long nanos = System.nanoTime();
+        final long last = tickNanos;
+        if (last != 0 && nanos - last > maxGap)
+        {
+            maxGap = nanos - last;
+        }
+        tickNanos = nanos;
+        ticks++;
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The left padding of a {@link PaddedLong}. The padding lives in
+     * superclasses, since the fields of a class may be reordered.
+     * 
+     * @author Koka El Kiwi
+     */
+    static class LeftPadding
+    {
+        
+        /** The padding. */
+        protected long p1, p2, p3, p4, p5, p6, p7;
+        
+    }
+    
+    /**
+     * The value of a {@link PaddedLong}.
+     * 
+     * @author Koka El Kiwi
+     */
+    static class Value extends LeftPadding
+    {
+        
+        /** The value. */
+        protected volatile long value;
+        
+    }
+    
+    /**
+     * A volatile long alone on its cache line.
+     * 
+     * @author Koka El Kiwi
+     */
+    static final class PaddedLong extends Value
+    {
+        
+        /** The padding. */
+        protected long p9, p10, p11, p12, p13, p14, p15;
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -3,6 +3,7 @@
  * 
  * 2008/04/05 - [AP] class created.
  * 2008/11/07 - [AP] refactoring.
+ * 2026/10/18 - [KK] dual-stack host queries.
  * 
  * Copyright (C) 2008 by Armnio Pinto
  * Read license.txt for details.
@@ -103,7 +104,8 @@ public class Date extends java.util.Date
      */
     public Date(final String haddr, final int port) throws IOException
     {
-        this(InetAddress.getByName(haddr), port);
+        super();
+        synchronize(haddr, port);
     }
     
     /**
@@ -179,7 +181,30 @@ public class Date extends java.util.Date
             port = Client.DEFAULT_SNTP_PORT;
         }
         
-        synchronize(InetAddress.getByName(host), port);
+        synchronize(host, port);
+    }
+    
+    /**
+     * Synchronizes the date with an SNTP server. All the host addresses are
+     * raced, IPv6 and IPv4 alike (see {@link DualStack}).
+     * 
+     * @param host
+     *            the server host address (IP or DNS).
+     * @param port
+     *            the server port.
+     * @throws NullPointerException
+     *             if the host is null.
+     * @throws IllegalArgumentException
+     *             if the port is invalid.
+     * @throws IOException
+     *             if an error occurs while contacting the server.
+     */
+    public void synchronize(final String host, final int port)
+            throws IOException
+    {
+        final Measurement m = DualStack.measure(host, port,
+                Client.DEFAULT_TIMEOUT);
+        super.setTime(System.currentTimeMillis() + m.getOffset());
     }
     
     /**
@@ -203,8 +228,8 @@ public class Date extends java.util.Date
         try
         {
             client = new Client();
-            System.out.println(client.getOffset(addr, port));
-            super.setTime(System.currentTimeMillis() + client.getOffset(addr));
+            super.setTime(System.currentTimeMillis()
+                    + client.getOffset(addr, port));
         }
         finally
         {
@@ -0,0 +1,494 @@
+/*
+ * DualStack.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.atomicdate.metrics.MetricsRegistry;
+import net.sf.atomicdate.metrics.ServerMetrics;
+import net.sf.atomicdate.sntp.Codec;
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * Dual-stack SNTP queries, racing the IPv6 and IPv4 addresses of a host as
+ * described in IETF RFC 8305 ("Happy Eyeballs").
+ * <ul>
+ * <li>The addresses are queried one after the other, staggered by a short
+ * delay, alternating the address families;</li>
+ * <li>The first valid reply wins, and the other queries are abandoned;</li>
+ * <li>The family of the winning address is remembered per host, and queried
+ * first the next time;</li>
+ * <li>A broken path (no reply, or an ICMP error) only costs the stagger delay,
+ * instead of the whole timeout;</li>
+ * <li>An address answering with a Kiss-o'-Death is given up; the kiss is
+ * reported if no other address gives a valid reply;</li>
+ * <li>The queries update the metrics of every queried address; the abandoned
+ * queries count neither as replies nor as timeouts.</li>
+ * </ul>
+ * All the queries run in the calling thread, over non-blocking channels.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class DualStack
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The delay between two queries (in milliseconds). */
+    public static final long                  STAGGER   = 250L;
+    
+    /** The maximum number of hosts remembered. */
+    private static final int                  MAX_HOSTS = 64;
+    
+    /** The winning family per host, true for IPv6. */
+    private static final Map<String, Boolean> WINNERS   = new HostCache();
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Private constructor, the class only has class methods.
+     */
+    private DualStack()
+    {
+        // Nothing to do.
+    }
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Queries an SNTP server through all its addresses, keeping the first
+     * valid reply. The {@link MetricsRegistry#getDefault() shared metrics
+     * registry} is updated.
+     * 
+     * @param host
+     *            the server host address (IP or DNS).
+     * @param port
+     *            the server port.
+     * @param timeout
+     *            the overall timeout (in milliseconds).
+     * @return the measurement.
+     * @throws NullPointerException
+     *             if the host is null.
+     * @throws IllegalArgumentException
+     *             if the port or the timeout is invalid.
+     * @throws KissOfDeathException
+     *             if an address answered with a Kiss-o'-Death, and no other
+     *             gave a valid reply.
+     * @throws IOException
+     *             if the host is unknown or no address answered in time.
+     */
+    public static Measurement measure(final String host, final int port,
+            final long timeout) throws IOException
+    {
+        return measure(host, port, timeout, MetricsRegistry.getDefault());
+    }
+    
+    /**
+     * Queries an SNTP server through all its addresses, keeping the first
+     * valid reply.
+     * 
+     * @param host
+     *            the server host address (IP or DNS).
+     * @param port
+     *            the server port.
+     * @param timeout
+     *            the overall timeout (in milliseconds).
+     * @param metrics
+     *            the registry of the metrics to update, null for none.
+     * @return the measurement.
+     * @throws NullPointerException
+     *             if the host is null.
+     * @throws IllegalArgumentException
+     *             if the port or the timeout is invalid.
+     * @throws KissOfDeathException
+     *             if an address answered with a Kiss-o'-Death, and no other
+     *             gave a valid reply.
+     * @throws IOException
+     *             if the host is unknown or no address answered in time.
+     */
+    public static Measurement measure(final String host, final int port,
+            final long timeout, final MetricsRegistry metrics)
+            throws IOException
+    {
+        if (host == null)
+        {
+            throw new NullPointerException("host=null");
+        }
+        if (port <= 0)
+        {
+            throw new IllegalArgumentException("port<=0");
+        }
+        if (timeout <= 0)
+        {
+            throw new IllegalArgumentException("timeout<=0");
+        }
+        final List<InetAddress> addrs = order(host, InetAddress
+                .getAllByName(host));
+        final int count = addrs.size();
+        final DatagramChannel[] channels = new DatagramChannel[count];
+        final InetSocketAddress[] servers = new InetSocketAddress[count];
+        final ServerMetrics[] meters = new ServerMetrics[count];
+        final long[] sent = new long[count];
+        final long[] times = new long[count];
+        final ByteBuffer request = ByteBuffer.allocate(Codec.LENGTH);
+        final ByteBuffer reply = ByteBuffer.allocate(Message.MAXIMUM_LENGTH);
+        Codec.encodeMessage(new Message(), request);
+        
+        IOException failure = null;
+        final Selector selector = Selector.open();
+        try
+        {
+            final long deadline = System.currentTimeMillis() + timeout;
+            int next = 0;
+            int open = 0;
+            long start = 0;
+            while (true)
+            {
+                long now = System.currentTimeMillis();
+                if (next < count && now >= start)
+                {
+                    final int idx = next++;
+                    try
+                    {
+                        channels[idx] = DatagramChannel.open();
+                        channels[idx].configureBlocking(false);
+                        servers[idx] = new InetSocketAddress(addrs.get(idx),
+                                port);
+                        channels[idx].connect(servers[idx]);
+                        if (metrics != null)
+                        {
+                            meters[idx] = metrics.getServer(servers[idx]);
+                        }
+                        channels[idx].register(selector, SelectionKey.OP_READ,
+                                Integer.valueOf(idx));
+                        times[idx] = System.currentTimeMillis();
+                        Codec.encodeTime(times[idx], request,
+                                Codec.TRANSMIT_TIMESTAMP_INDEX);
+                        sent[idx] = request
+                                .getLong(Codec.TRANSMIT_TIMESTAMP_INDEX);
+                        request.clear();
+                        channels[idx].write(request);
+                        if (meters[idx] != null)
+                        {
+                            meters[idx].onSent();
+                        }
+                        open++;
+                        start = now + STAGGER;
+                    }
+                    catch (final IOException ioe)
+                    {
+                        // Unreachable family, try the next address at once.
+                        failure = failure(failure, ioe);
+                        close(channels[idx]);
+                    }
+                    continue;
+                }
+                if (now >= deadline || open == 0 && next == count)
+                {
+                    break;
+                }
+                
+                long wait = deadline - now;
+                if (next < count)
+                {
+                    wait = Math.min(wait, start - now);
+                }
+                selector.select(Math.max(1, wait));
+                for (final SelectionKey key : selector.selectedKeys())
+                {
+                    final int idx = ((Integer) key.attachment()).intValue();
+                    try
+                    {
+                        reply.clear();
+                        while (channels[idx].read(reply) > 0)
+                        {
+                            final long t4 = System.currentTimeMillis();
+                            final Measurement m = accept(reply, servers[idx],
+                                    meters[idx], sent[idx], times[idx], t4);
+                            if (m != null)
+                            {
+                                remember(host, addrs.get(idx));
+                                
+                                return m;
+                            }
+                            reply.clear();
+                        }
+                    }
+                    catch (final IOException ioe)
+                    {
+                        // ICMP error or Kiss-o'-Death, give up the address.
+                        failure = failure(failure, ioe);
+                        key.cancel();
+                        close(channels[idx]);
+                        open--;
+                        start = 0;
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            
+            // The addresses still queried never answered.
+            for (int i = 0; i < next; i++)
+            {
+                if (meters[i] != null && channels[i] != null
+                        && channels[i].isOpen())
+                {
+                    meters[i].onTimeout();
+                }
+            }
+        }
+        finally
+        {
+            for (final DatagramChannel channel : channels)
+            {
+                close(channel);
+            }
+            selector.close();
+        }
+        
+        if (failure != null)
+        {
+            throw failure;
+        }
+        throw new IOException("Timed-out while querying the server.");
+    }
+    
+    /**
+     * Forgets the winning family of all the hosts.
+     */
+    public static void clear()
+    {
+        synchronized (WINNERS)
+        {
+            WINNERS.clear();
+        }
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Orders the addresses of a host: alternating families, starting with the
+     * last winning one, or IPv6 by default.
+     * 
+     * @param host
+     *            the host.
+     * @param all
+     *            the host addresses, in resolver order.
+     * @return the ordered addresses.
+     */
+    private static List<InetAddress> order(final String host,
+            final InetAddress[] all)
+    {
+        final Boolean winner;
+        synchronized (WINNERS)
+        {
+            winner = WINNERS.get(host);
+        }
+        final boolean v6First = winner == null || winner.booleanValue();
+        final List<InetAddress> first = new ArrayList<InetAddress>();
+        final List<InetAddress> second = new ArrayList<InetAddress>();
+        for (final InetAddress addr : all)
+        {
+            if (addr instanceof Inet6Address == v6First)
+            {
+                first.add(addr);
+            }
+            else
+            {
+                second.add(addr);
+            }
+        }
+        final List<InetAddress> ordered = new ArrayList<InetAddress>(
+                all.length);
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++)
+        {
+            if (i < first.size())
+            {
+                ordered.add(first.get(i));
+            }
+            if (i < second.size())
+            {
+                ordered.add(second.get(i));
+            }
+        }
+        
+        return ordered;
+    }
+    
+    /**
+     * Remembers the winning family of a host.
+     * 
+     * @param host
+     *            the host.
+     * @param addr
+     *            the winning address.
+     */
+    private static void remember(final String host, final InetAddress addr)
+    {
+        synchronized (WINNERS)
+        {
+            WINNERS.put(host, Boolean.valueOf(addr instanceof Inet6Address));
+        }
+    }
+    
+    /**
+     * Selects the failure to report, a Kiss-o'-Death prevailing over the
+     * network errors.
+     * 
+     * @param failure
+     *            the failure so far, may be null.
+     * @param ioe
+     *            the new failure.
+     * @return the failure to report.
+     */
+    private static IOException failure(final IOException failure,
+            final IOException ioe)
+    {
+        return failure instanceof KissOfDeathException ? failure : ioe;
+    }
+    
+    /**
+     * Validates a reply.
+     * 
+     * @param reply
+     *            the reply buffer.
+     * @param server
+     *            the server address.
+     * @param m
+     *            the server metrics, null if none.
+     * @param sent
+     *            the request transmit timestamp.
+     * @param t1
+     *            the local transmit time.
+     * @param t4
+     *            the local receive time.
+     * @return the measurement, null if the reply isn't valid.
+     * @throws KissOfDeathException
+     *             if the reply is a Kiss-o'-Death.
+     */
+    private static Measurement accept(final ByteBuffer reply,
+            final InetSocketAddress server, final ServerMetrics m,
+            final long sent, final long t1, final long t4)
+            throws KissOfDeathException
+    {
+        if (reply.position() < Codec.LENGTH
+                || reply.getLong(Codec.ORIGINATE_TIMESTAMP_INDEX) != sent)
+        {
+            if (m != null)
+            {
+                m.onRejected();
+            }
+            
+            return null;
+        }
+        reply.flip();
+        final Message message = Codec.decodeMessage(reply.duplicate());
+        if (message.isKissOfDeath())
+        {
+            if (m != null)
+            {
+                m.onKiss();
+            }
+            final String code = message.getKissCode();
+            throw new KissOfDeathException(server, code,
+                    "Kiss-o'-Death from the server (" + code + ").");
+        }
+        if (message.getLeapIndicator() == Message.LI_ALARM
+                || (message.getStratum() & 0xFF) > 15)
+        {
+            if (m != null)
+            {
+                m.onRejected();
+            }
+            
+            return null;
+        }
+        
+        final Measurement measurement = Session.toMeasurement(message, reply,
+                t1, t4);
+        if (m != null)
+        {
+            m.onReceived(t4 - t1, measurement.getOffset(), t4);
+        }
+        
+        return measurement;
+    }
+    
+    /**
+     * Closes a channel, ignoring the errors.
+     * 
+     * @param channel
+     *            the channel, may be null.
+     */
+    private static void close(final DatagramChannel channel)
+    {
+        if (channel != null)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (final IOException ioe)
+            {
+                // Nothing to do.
+            }
+        }
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * A bounded map of the hosts, evicting the least recently used one.
+     * 
+     * @author Koka El Kiwi
+     */
+    private static class HostCache extends LinkedHashMap<String, Boolean>
+    {
+        
+        /** The class version for serialization purposes. */
+        private static final long serialVersionUID = 6105781302841551743L;
+        
+        /**
+         * Default constructor.
+         */
+        public HostCache()
+        {
+            super(16, 0.75F, true);
+        }
+        
+        // See LinkedHashMap for details.
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, Boolean> eldest)
+        {
+            return size() > MAX_HOSTS;
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
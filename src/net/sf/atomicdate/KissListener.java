@@ -0,0 +1,32 @@
+/*
+ * KissListener.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+/**
+ * A listener of the Kiss-o'-Death replies received by a {@link Service}. The
+ * method {@link #onKiss(KissOfDeathException)} is invoked from the
+ * synchronizing thread.
+ * 
+ * @author Koka El Kiwi
+ */
+public interface KissListener
+{
+    
+    /**
+     * This method is called everytime a server sends a Kiss-o'-Death.
+     * 
+     * @param kiss
+     *            the Kiss-o'-Death details.
+     */
+    void onKiss(KissOfDeathException kiss);
+    
+}
+
+/* End of file. */
\ No newline at end of file
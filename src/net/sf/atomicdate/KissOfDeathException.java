@@ -0,0 +1,81 @@
+/*
+ * KissOfDeathException.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Thrown when an SNTP server answers with a Kiss-o'-Death.
+ * 
+ * @author Koka El Kiwi
+ */
+public class KissOfDeathException extends IOException
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The class version for serialization purposes. */
+    private static final long       serialVersionUID = -2786427781306512405L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The server address. */
+    private final InetSocketAddress server;
+    
+    /** The kiss code. */
+    private final String            code;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param server
+     *            the server address.
+     * @param code
+     *            the kiss code.
+     * @param message
+     *            the detail message.
+     */
+    public KissOfDeathException(final InetSocketAddress server,
+            final String code, final String message)
+    {
+        super(message);
+        this.server = server;
+        this.code = code;
+    }
+    
+    /**
+     * Returns the server address.
+     * 
+     * @return the server address.
+     */
+    public InetSocketAddress getServer()
+    {
+        return server;
+    }
+    
+    /**
+     * Returns the kiss code.
+     * 
+     * @return the kiss code, like <code>RATE</code>.
+     */
+    public String getKissCode()
+    {
+        return code;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
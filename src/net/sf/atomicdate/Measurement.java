@@ -0,0 +1,135 @@
+/*
+ * Measurement.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * The result of a single exchange with an SNTP server. All the values are in
+ * milliseconds.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class Measurement
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The resolution of the local clock (in milliseconds). */
+    public static final double LOCAL_PRECISION = 1.0D;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The server reply. */
+    private final Message      message;
+    
+    /** The local time offset to the network time. */
+    private final long         offset;
+    
+    /** The round-trip delay. */
+    private final long         delay;
+    
+    /** The local time when the reply was received. */
+    private final long         time;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param message
+     *            the server reply.
+     * @param offset
+     *            the local time offset to the network time.
+     * @param delay
+     *            the round-trip delay.
+     * @param time
+     *            the local time when the reply was received.
+     * @throws NullPointerException
+     *             if the message is null.
+     */
+    public Measurement(final Message message, final long offset,
+            final long delay, final long time)
+    {
+        if (message == null)
+        {
+            throw new NullPointerException("message=null");
+        }
+        this.message = message;
+        this.offset = offset;
+        this.delay = delay;
+        this.time = time;
+    }
+    
+    /**
+     * Returns the server reply.
+     * 
+     * @return the server reply.
+     */
+    public Message getMessage()
+    {
+        return message;
+    }
+    
+    /**
+     * Returns the local time offset to the network time.
+     * 
+     * @return the offset.
+     */
+    public long getOffset()
+    {
+        return offset;
+    }
+    
+    /**
+     * Returns the round-trip delay, excluding the server processing time.
+     * 
+     * @return the round-trip delay.
+     */
+    public long getDelay()
+    {
+        return delay;
+    }
+    
+    /**
+     * Returns the dispersion of the measurement: the server and local clock
+     * precisions, plus the frequency tolerance over the round-trip.
+     * 
+     * @return the dispersion.
+     */
+    public double getDispersion()
+    {
+        return Math.pow(2, message.getPrecision()) * 1000D + LOCAL_PRECISION
+                + ClockFilter.PHI * delay;
+    }
+    
+    /**
+     * Returns the local time when the reply was received.
+     * 
+     * @return the local receive time.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        return "offset=" + offset + ", delay=" + delay + ", time=" + time;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,546 @@
+/*
+ * PreciseScheduler.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs tasks at absolute network time instants.
+ * <ul>
+ * <li>The network time is mapped onto {@link System#nanoTime()}, which isn't
+ * affected by the local clock adjustments; the mapping is anchored on a tick
+ * of the local clock, so it's accurate below the millisecond;</li>
+ * <li>The mapping is re-anchored every time the {@link Service} synchronizes,
+ * so the pending tasks follow the new offset and drift estimates. The
+ * scheduler thread re-anchors it, without holding the lock while it waits for
+ * the clock tick;</li>
+ * <li>The thread waits until shortly before the target instant, then parks
+ * and finally spins, so the tasks start within a fraction of a millisecond of
+ * their target.</li>
+ * </ul>
+ * Until the service is synchronized, the local clock is used as the network
+ * time. The tasks run one at a time on a single daemon thread, so they must
+ * be short.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class PreciseScheduler
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The scheduler thread name. */
+    private static final String       THREAD_NAME    = "AtomicDate-Timer";
+    
+    /** The time left when the thread stops waiting and parks (in ns). */
+    private static final long         PARK_THRESHOLD = 2000000L;
+    
+    /** The time left when the thread stops parking and spins (in ns). */
+    private static final long         SPIN_THRESHOLD = 100000L;
+    
+    /** The maximum time between two anchors (in ns). */
+    private static final long         ANCHOR_PERIOD  = 60000000000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The network time service. */
+    private final Service             service;
+    
+    /** The synchronization state listener, re-anchoring the mapping. */
+    private final ClockListener       listener;
+    
+    /** The pending tasks, by increasing target instant. */
+    private final PriorityQueue<Task> queue;
+    
+    /** The scheduler thread. */
+    private final Thread              thread;
+    
+    /** The network time of the anchor (in milliseconds). */
+    private double                    anchorTime;
+    
+    /** The nano time of the anchor. */
+    private long                      anchorNanos;
+    
+    /** The local clock drift relative to the network time. */
+    private double                    drift;
+    
+    /** The re-anchor request flag. */
+    private boolean                   stale;
+    
+    /** The number of tasks scheduled so far, ordering equal instants. */
+    private long                      sequence;
+    
+    /** The closed flag. */
+    private boolean                   closed;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The scheduler thread is started.
+     * 
+     * @param service
+     *            the network time service.
+     * @throws NullPointerException
+     *             if the service is null.
+     */
+    public PreciseScheduler(final Service service)
+    {
+        if (service == null)
+        {
+            throw new NullPointerException("service=null");
+        }
+        this.service = service;
+        queue = new PriorityQueue<Task>();
+        
+        // Coarse anchor, refined on the next tick by the scheduler thread.
+        anchor(System.currentTimeMillis(), System.nanoTime());
+        stale = true;
+        listener = new ClockListener() {
+            
+            @Override
+            public void onUpdate(final ClockState state)
+            {
+                synchronized (PreciseScheduler.this)
+                {
+                    stale = true;
+                    PreciseScheduler.this.notifyAll();
+                }
+            }
+        };
+        service.addClockListener(listener);
+        thread = new Thread(new Runnable() {
+            
+            @Override
+            public void run()
+            {
+                loop();
+            }
+        }, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Schedules a task for a single execution.
+     * 
+     * @param task
+     *            the task.
+     * @param time
+     *            the network time instant (in milliseconds since the epoch).
+     * @return the handle of the scheduled task.
+     * @throws NullPointerException
+     *             if the task is null.
+     * @throws IllegalStateException
+     *             if the scheduler is closed.
+     */
+    public Task schedule(final Runnable task, final long time)
+    {
+        return schedule(task, time, 0);
+    }
+    
+    /**
+     * Schedules a task for periodic execution, at <code>time</code>,
+     * <code>time+period</code>, and so on. The executions missed because the
+     * scheduler was late are skipped, not run in a burst.
+     * 
+     * @param task
+     *            the task.
+     * @param time
+     *            the network time instant of the first execution (in
+     *            milliseconds since the epoch).
+     * @param period
+     *            the period (in milliseconds).
+     * @return the handle of the scheduled task.
+     * @throws NullPointerException
+     *             if the task is null.
+     * @throws IllegalArgumentException
+     *             if the period isn't positive.
+     * @throws IllegalStateException
+     *             if the scheduler is closed.
+     */
+    public Task scheduleAtFixedRate(final Runnable task, final long time,
+            final long period)
+    {
+        if (period <= 0)
+        {
+            throw new IllegalArgumentException("period<=0");
+        }
+        
+        return schedule(task, time, period);
+    }
+    
+    /**
+     * Returns the current network time, as seen by the scheduler.
+     * 
+     * @return the network time (in milliseconds since the epoch).
+     */
+    public synchronized long currentTimeMillis()
+    {
+        return (long) Math.floor(toTime(System.nanoTime()));
+    }
+    
+    /**
+     * Stops the scheduler. The pending tasks are discarded; a task already
+     * running isn't interrupted.
+     */
+    public void close()
+    {
+        service.removeClockListener(listener);
+        synchronized (this)
+        {
+            closed = true;
+            for (final Task task : queue)
+            {
+                task.cancelled = true;
+            }
+            queue.clear();
+            notifyAll();
+        }
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Schedules a task.
+     * 
+     * @param task
+     *            the task.
+     * @param time
+     *            the network time instant (in milliseconds).
+     * @param period
+     *            the period (in milliseconds), 0 for a single execution.
+     * @return the handle of the scheduled task.
+     */
+    private synchronized Task schedule(final Runnable task, final long time,
+            final long period)
+    {
+        if (task == null)
+        {
+            throw new NullPointerException("task=null");
+        }
+        if (closed)
+        {
+            throw new IllegalStateException("Scheduler closed.");
+        }
+        final Task handle = new Task(task, time, period, sequence++);
+        queue.add(handle);
+        notifyAll();
+        
+        return handle;
+    }
+    
+    /**
+     * Anchors the network time mapping on a tick of the local clock. Must be
+     * called with the lock held, or from the constructor.
+     * 
+     * @param now
+     *            the local time of the tick (in milliseconds).
+     * @param nanos
+     *            the nano time of the tick.
+     */
+    private void anchor(final long now, final long nanos)
+    {
+        stale = false;
+        anchorNanos = nanos;
+        if (service.isSynchronized())
+        {
+            final ClockState state = service.getState();
+            anchorTime = now + state.getOffset(now);
+            drift = state.getDrift();
+        }
+        else
+        {
+            anchorTime = now;
+            drift = 0;
+        }
+    }
+    
+    /**
+     * Converts a nano time to a network time. Must be called with the lock
+     * held.
+     * 
+     * @param nanos
+     *            the nano time.
+     * @return the network time (in milliseconds).
+     */
+    private double toTime(final long nanos)
+    {
+        return anchorTime + (nanos - anchorNanos) / 1E6D * (1 + drift);
+    }
+    
+    /**
+     * Converts a network time to a nano time. Must be called with the lock
+     * held.
+     * 
+     * @param time
+     *            the network time (in milliseconds).
+     * @return the nano time.
+     */
+    private long toNanos(final long time)
+    {
+        return anchorNanos
+                + Math.round((time - anchorTime) * 1E6D / (1 + drift));
+    }
+    
+    /**
+     * The scheduler thread loop.
+     */
+    private void loop()
+    {
+        while (true)
+        {
+            final boolean due;
+            synchronized (this)
+            {
+                if (closed)
+                {
+                    return;
+                }
+                due = stale || System.nanoTime() - anchorNanos > ANCHOR_PERIOD;
+            }
+            if (due)
+            {
+                // Wait for the next tick without the lock.
+                final long tick = System.currentTimeMillis();
+                long now = tick;
+                while (now == tick)
+                {
+                    now = System.currentTimeMillis();
+                }
+                final long nanos = System.nanoTime();
+                synchronized (this)
+                {
+                    anchor(now, nanos);
+                }
+            }
+            
+            final Task task;
+            final long deadline;
+            synchronized (this)
+            {
+                if (closed)
+                {
+                    return;
+                }
+                task = queue.peek();
+                if (task == null)
+                {
+                    waitNanos(ANCHOR_PERIOD);
+                    continue;
+                }
+                deadline = toNanos(task.time);
+                final long left = deadline - System.nanoTime();
+                if (left > PARK_THRESHOLD)
+                {
+                    waitNanos(Math.min(left - PARK_THRESHOLD, ANCHOR_PERIOD));
+                    continue;
+                }
+            }
+            
+            // Last stretch without the lock: park, then spin.
+            long left = deadline - System.nanoTime();
+            while (left > SPIN_THRESHOLD)
+            {
+                LockSupport.parkNanos(left - SPIN_THRESHOLD);
+                left = deadline - System.nanoTime();
+            }
+            while (System.nanoTime() - deadline < 0)
+            {
+                // Spin.
+            }
+            
+            final long late = System.nanoTime() - deadline;
+            synchronized (this)
+            {
+                if (closed || task.cancelled || queue.peek() != task)
+                {
+                    continue;
+                }
+                if (stale || toNanos(task.time) != deadline)
+                {
+                    // Re-anchored meanwhile: wait for the new deadline.
+                    continue;
+                }
+                queue.poll();
+                task.lateness = late;
+                if (task.period > 0)
+                {
+                    final double now = toTime(System.nanoTime());
+                    do
+                    {
+                        task.time += task.period;
+                    }
+                    while (task.time <= now);
+                    queue.add(task);
+                }
+                else
+                {
+                    task.cancelled = true;
+                }
+            }
+            try
+            {
+                task.task.run();
+            }
+            catch (final RuntimeException re)
+            {
+                System.err.println("AtomicDate: error running a timed task.");
+                re.printStackTrace(System.err);
+            }
+        }
+    }
+    
+    /**
+     * Waits for a notification or a timeout. Must be called with the lock
+     * held.
+     * 
+     * @param nanos
+     *            the timeout (in nanoseconds).
+     */
+    private void waitNanos(final long nanos)
+    {
+        try
+        {
+            wait(nanos / 1000000L, (int) (nanos % 1000000L));
+        }
+        catch (final InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The handle of a scheduled task.
+     * 
+     * @author Koka El Kiwi
+     */
+    public final class Task implements Comparable<Task>
+    {
+        
+        /** The scheduled task. */
+        private final Runnable task;
+        
+        /** The period (in milliseconds), 0 for a single execution. */
+        private final long     period;
+        
+        /** The scheduling order. */
+        private final long     order;
+        
+        /** The network time of the next execution (in milliseconds). */
+        private long           time;
+        
+        /** The lateness of the last execution (in nanoseconds). */
+        private long           lateness;
+        
+        /** The cancellation flag, also set after a single execution. */
+        private boolean        cancelled;
+        
+        /**
+         * Constructor.
+         * 
+         * @param task
+         *            the scheduled task.
+         * @param time
+         *            the network time of the first execution.
+         * @param period
+         *            the period, 0 for a single execution.
+         * @param order
+         *            the scheduling order.
+         */
+        private Task(final Runnable task, final long time, final long period,
+                final long order)
+        {
+            this.task = task;
+            this.time = time;
+            this.period = period;
+            this.order = order;
+        }
+        
+        /**
+         * Cancels the task. An execution already in progress isn't
+         * interrupted.
+         */
+        public void cancel()
+        {
+            synchronized (PreciseScheduler.this)
+            {
+                cancelled = true;
+                queue.remove(this);
+                PreciseScheduler.this.notifyAll();
+            }
+        }
+        
+        /**
+         * Indicates if the task was cancelled, or already executed for a
+         * single execution task.
+         * 
+         * @return true if no execution is pending, otherwise false.
+         */
+        public boolean isCancelled()
+        {
+            synchronized (PreciseScheduler.this)
+            {
+                return cancelled;
+            }
+        }
+        
+        /**
+         * Returns the network time of the next execution.
+         * 
+         * @return the network time (in milliseconds since the epoch).
+         */
+        public long getTime()
+        {
+            synchronized (PreciseScheduler.this)
+            {
+                return time;
+            }
+        }
+        
+        /**
+         * Returns how late the last execution started, as measured by the
+         * scheduler.
+         * 
+         * @return the lateness (in nanoseconds).
+         */
+        public long getLateness()
+        {
+            synchronized (PreciseScheduler.this)
+            {
+                return lateness;
+            }
+        }
+        
+        // See Comparable for details.
+        @Override
+        public int compareTo(final Task other)
+        {
+            if (time != other.time)
+            {
+                return time < other.time ? -1 : 1;
+            }
+            
+            return order < other.order ? -1 : order > other.order ? 1 : 0;
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
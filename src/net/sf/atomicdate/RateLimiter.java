@@ -0,0 +1,318 @@
+/*
+ * RateLimiter.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+
+/**
+ * A per-source address token bucket rate limiter. The IPv6 sources are
+ * limited per /64 prefix rather than per address, since a single host can
+ * pick any address of its subnet.
+ * <ul>
+ * <li>The buckets are kept in a fixed-size table of primitive arrays, split in
+ * independently locked stripes; the memory use doesn't depend on the number
+ * of sources;</li>
+ * <li>A source is looked up in a small window of slots; when the window is
+ * full, the least recently seen source of the window is evicted (approximate
+ * LRU);</li>
+ * <li>Checking an IPv4 source doesn't allocate.</li>
+ * </ul>
+ * An evicted source starts again with a full bucket, so the table must be
+ * large enough to hold the sources polling faster than the bucket refill.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class RateLimiter
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** Check result: the request is allowed. */
+    public static final int  ALLOWED      = 0;
+    
+    /** Check result: first request over the limit since the last allowed one. */
+    public static final int  LIMITED      = 1;
+    
+    /** Check result: request over the limit, already signaled. */
+    public static final int  DROPPED      = 2;
+    
+    /** The default number of sources tracked. */
+    public static final int  DEFAULT_SIZE = 1 << 16;
+    
+    /** The number of slots looked up per source. */
+    private static final int WINDOW       = 8;
+    
+    /** The number of stripes. */
+    private static final int STRIPES      = 64;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The table stripes. */
+    private final Stripe[]   stripes;
+    
+    /** The bucket refill rate (in tokens per millisecond). */
+    private final double     rate;
+    
+    /** The bucket size (in tokens). */
+    private final double     burst;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The {@link #DEFAULT_SIZE default number} of sources is
+     * tracked.
+     * 
+     * @param rate
+     *            the allowed average rate (in requests per second).
+     * @param burst
+     *            the allowed burst (in requests).
+     * @throws IllegalArgumentException
+     *             if the rate or the burst isn't positive.
+     */
+    public RateLimiter(final double rate, final double burst)
+    {
+        this(rate, burst, DEFAULT_SIZE);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param rate
+     *            the allowed average rate (in requests per second).
+     * @param burst
+     *            the allowed burst (in requests).
+     * @param size
+     *            the number of sources tracked.
+     * @throws IllegalArgumentException
+     *             if any argument isn't positive.
+     */
+    public RateLimiter(final double rate, final double burst, final int size)
+    {
+        if (rate <= 0)
+        {
+            throw new IllegalArgumentException("rate<=0");
+        }
+        if (burst < 1)
+        {
+            throw new IllegalArgumentException("burst<1");
+        }
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException("size<=0");
+        }
+        this.rate = rate / 1000D;
+        this.burst = burst;
+        stripes = new Stripe[STRIPES];
+        final int slots = Math.max(WINDOW, (size + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++)
+        {
+            stripes[i] = new Stripe(slots);
+        }
+    }
+    
+    /**
+     * Checks a request from a source, consuming a token if it's allowed.
+     * 
+     * @param addr
+     *            the source address.
+     * @param now
+     *            the current time (in milliseconds).
+     * @return {@link #ALLOWED}, {@link #LIMITED} or {@link #DROPPED}.
+     * @throws NullPointerException
+     *             if the address is null.
+     */
+    public int check(final InetAddress addr, final long now)
+    {
+        final byte family;
+        long key;
+        if (addr instanceof Inet4Address)
+        {
+            // Inet4Address.hashCode() is the address itself.
+            family = 4;
+            key = addr.hashCode() & 0xFFFFFFFFL;
+        }
+        else
+        {
+            family = 6;
+            key = 0;
+            final byte[] bytes = addr.getAddress();
+            for (int i = 0; i < 8; i++)
+            {
+                key = key << 8 | bytes[i] & 0xFF;
+            }
+        }
+        final int hash = mix((int) (key ^ key >>> 32) ^ family);
+        
+        return stripes[hash & STRIPES - 1].check(family, key, hash >>> 6, now);
+    }
+    
+    /**
+     * Returns the number of sources evicted from the table so far.
+     * 
+     * @return the number of evictions.
+     */
+    public long getEvictions()
+    {
+        long total = 0;
+        for (final Stripe stripe : stripes)
+        {
+            synchronized (stripe)
+            {
+                total += stripe.evictions;
+            }
+        }
+        
+        return total;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Spreads the bits of a hash code (MurmurHash3 finalizer).
+     * 
+     * @param h
+     *            the hash code.
+     * @return the mixed hash code.
+     */
+    private static int mix(int h)
+    {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        
+        return h;
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * A stripe of the bucket table, an open addressing table guarded by its
+     * own lock.
+     * 
+     * @author Koka El Kiwi
+     */
+    private final class Stripe
+    {
+        
+        /** The source families (4 or 6), 0 for a free slot. */
+        private final byte[]    families;
+        
+        /** The source keys: IPv4 address or IPv6 /64 prefix. */
+        private final long[]    keys;
+        
+        /** The buckets tokens. */
+        private final double[]  tokens;
+        
+        /** The last time the sources were seen. */
+        private final long[]    seen;
+        
+        /** The over-the-limit signaled flags. */
+        private final boolean[] signaled;
+        
+        /** The number of evictions. */
+        private long            evictions;
+        
+        /**
+         * Constructor.
+         * 
+         * @param slots
+         *            the number of slots.
+         */
+        public Stripe(final int slots)
+        {
+            families = new byte[slots];
+            keys = new long[slots];
+            tokens = new double[slots];
+            seen = new long[slots];
+            signaled = new boolean[slots];
+        }
+        
+        /**
+         * Checks a request from a source.
+         * 
+         * @param family
+         *            the source family.
+         * @param key
+         *            the source key.
+         * @param hash
+         *            the source hash.
+         * @param now
+         *            the current time (in milliseconds).
+         * @return {@link #ALLOWED}, {@link #LIMITED} or {@link #DROPPED}.
+         */
+        public synchronized int check(final byte family, final long key,
+                final int hash, final long now)
+        {
+            final int length = keys.length;
+            final int start = (hash & 0x7FFFFFFF) % length;
+            int slot = -1;
+            int victim = start;
+            for (int i = 0; i < WINDOW; i++)
+            {
+                final int idx = (start + i) % length;
+                if (families[idx] == family && keys[idx] == key)
+                {
+                    slot = idx;
+                    break;
+                }
+                if (families[victim] != 0
+                        && (families[idx] == 0 || seen[idx] < seen[victim]))
+                {
+                    victim = idx;
+                }
+            }
+            
+            if (slot == -1)
+            {
+                if (families[victim] != 0)
+                {
+                    evictions++;
+                }
+                families[victim] = family;
+                keys[victim] = key;
+                tokens[victim] = burst;
+                seen[victim] = now;
+                signaled[victim] = false;
+                slot = victim;
+            }
+            
+            final double refill = Math.max(0, now - seen[slot]) * rate;
+            tokens[slot] = Math.min(burst, tokens[slot] + refill);
+            seen[slot] = now;
+            if (tokens[slot] >= 1)
+            {
+                tokens[slot] -= 1;
+                signaled[slot] = false;
+                
+                return ALLOWED;
+            }
+            if (!signaled[slot])
+            {
+                signaled[slot] = true;
+                
+                return LIMITED;
+            }
+            
+            return DROPPED;
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
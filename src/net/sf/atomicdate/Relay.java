@@ -0,0 +1,287 @@
+/*
+ * Relay.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * An SNTP relay, serving the local clients from a {@link Service} continuously
+ * synchronized with an upstream server. A single relay absorbs any number of
+ * clients while querying the upstream server once per synchronization period.
+ * <ul>
+ * <li>The stratum is the upstream one plus one, and the root delay and
+ * dispersion accumulate the path to the upstream server;</li>
+ * <li>The reference identifier is the upstream server address (IPv4), or the
+ * first four bytes of its MD5 hash (IPv6), so that the clients can detect
+ * timing loops;</li>
+ * <li>The reply header is refreshed periodically, so that the advertised root
+ * dispersion grows with the age of the last synchronization;</li>
+ * <li>When the maximum error of the relayed time exceeds a limit, for instance
+ * because the upstream server is unreachable, the replies carry the alarm
+ * leap indicator and are ignored by the clients.</li>
+ * </ul>
+ * 
+ * @author Koka El Kiwi
+ */
+public class Relay extends Server
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default upstream synchronization period (in milliseconds). */
+    public static final long   DEFAULT_SYNC_PERIOD = 64000L;
+    
+    /** The default maximum error of the relayed time (in milliseconds). */
+    public static final double DEFAULT_MAX_ERROR   = 1000D;
+    
+    /** The reply header refresh period (in milliseconds). */
+    private static final long  REFRESH_PERIOD      = 16000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The service synchronized with the upstream server. */
+    private final Service      service;
+    
+    /** The upstream synchronization period (in milliseconds). */
+    private final long         period;
+    
+    /** The maximum error of the relayed time (in milliseconds). */
+    private volatile double    maxError;
+    
+    /** The reply header refresh task, null if the relay isn't running. */
+    private SyncScheduler.Task refresher;
+    
+    /** The service synchronization period before the relay started. */
+    private long               previous;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The relay listens on the default SNTP port and synchronizes
+     * with the upstream server every {@link #DEFAULT_SYNC_PERIOD default
+     * period}.
+     * 
+     * @param service
+     *            the service synchronized with the upstream server.
+     * @throws NullPointerException
+     *             if the argument is null.
+     * @see Client#DEFAULT_SNTP_PORT
+     */
+    public Relay(final Service service)
+    {
+        this(service, new InetSocketAddress(Client.DEFAULT_SNTP_PORT), 1,
+                DEFAULT_SYNC_PERIOD);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param service
+     *            the service synchronized with the upstream server.
+     * @param address
+     *            the local address to listen on.
+     * @param workers
+     *            the number of request processing threads.
+     * @param period
+     *            the upstream synchronization period (in milliseconds).
+     * @throws NullPointerException
+     *             if the service or the address is null.
+     * @throws IllegalArgumentException
+     *             if the number of workers or the period isn't positive.
+     */
+    public Relay(final Service service, final InetSocketAddress address,
+            final int workers, final long period)
+    {
+        super(service, address, workers);
+        if (period <= 0)
+        {
+            throw new IllegalArgumentException("period<=0");
+        }
+        this.service = service;
+        this.period = period;
+        maxError = DEFAULT_MAX_ERROR;
+    }
+    
+    /**
+     * Configures the maximum error of the relayed time. Beyond it, the
+     * replies carry the alarm leap indicator.
+     * 
+     * @param maxError
+     *            the maximum error (in milliseconds).
+     * @throws IllegalArgumentException
+     *             if the argument isn't positive.
+     */
+    public void setMaxError(final double maxError)
+    {
+        if (maxError <= 0)
+        {
+            throw new IllegalArgumentException("maxError<=0");
+        }
+        this.maxError = maxError;
+        refresh();
+    }
+    
+    /**
+     * Returns the service synchronized with the upstream server.
+     * 
+     * @return the upstream service.
+     */
+    public Service getService()
+    {
+        return service;
+    }
+    
+    /**
+     * Starts the upstream synchronization and serving the requests. The
+     * requests are dropped until the first synchronization. If the relay
+     * fails to start, the service synchronization period is left unchanged.
+     * 
+     * @throws IllegalStateException
+     *             if the relay is already running, or the service is closed.
+     * @throws IOException
+     *             if an error occurs while binding the channel.
+     */
+    @Override
+    public synchronized void start() throws IOException
+    {
+        if (refresher != null)
+        {
+            throw new IllegalStateException("Relay running.");
+        }
+        final long before = service.getSyncPeriod();
+        service.setSyncPeriod(period);
+        try
+        {
+            super.start();
+        }
+        catch (final IOException ioe)
+        {
+            restore(before);
+            throw ioe;
+        }
+        catch (final RuntimeException re)
+        {
+            restore(before);
+            throw re;
+        }
+        previous = before;
+        if (!service.isSynchronized())
+        {
+            service.requestSync();
+        }
+        refresher = SyncScheduler.getDefault().schedule(new Runnable() {
+            
+            @Override
+            public void run()
+            {
+                refresh();
+            }
+        }, REFRESH_PERIOD);
+    }
+    
+    /**
+     * Stops serving the requests and the upstream synchronization. The
+     * service isn't closed: its synchronization period before the relay
+     * started is restored.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (refresher != null)
+        {
+            refresher.cancel();
+            refresher = null;
+            restore(previous);
+        }
+        super.close();
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Restores a synchronization period of the service, unless it was closed
+     * meanwhile.
+     * 
+     * @param period
+     *            the synchronization period (in milliseconds).
+     */
+    private void restore(final long period)
+    {
+        synchronized (service)
+        {
+            if (!service.isClosed())
+            {
+                service.setSyncPeriod(period);
+            }
+        }
+    }
+    
+    // See Server for details.
+    @Override
+    protected Message buildReply(final ClockState state, final long now)
+    {
+        final Message message = super.buildReply(state, now);
+        final InetAddress upstream = service.getServerHost();
+        if (upstream != null)
+        {
+            message.setReferenceIdentifier(toReferenceIdentifier(upstream));
+        }
+        if (state.getMaxError(now) > maxError)
+        {
+            message.setLeapIndicator(Message.LI_ALARM);
+        }
+        
+        return message;
+    }
+    
+    /**
+     * Returns the reference identifier of an upstream server, as described in
+     * IETF RFC 5905, section 7.3.
+     * 
+     * @param addr
+     *            the upstream server address.
+     * @return the reference identifier.
+     */
+    private static byte[] toReferenceIdentifier(final InetAddress addr)
+    {
+        if (addr instanceof Inet4Address)
+        {
+            return addr.getAddress();
+        }
+        final byte[] refid = new byte[4];
+        try
+        {
+            final byte[] hash = MessageDigest.getInstance("MD5").digest(
+                    addr.getAddress());
+            System.arraycopy(hash, 0, refid, 0, refid.length);
+        }
+        catch (final NoSuchAlgorithmException nsae)
+        {
+            System.err.println("AtomicDate: MD5 unavailable.");
+            nsae.printStackTrace(System.err);
+        }
+        
+        return refid;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
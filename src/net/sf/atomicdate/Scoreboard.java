@@ -0,0 +1,492 @@
+/*
+ * Scoreboard.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import net.sf.atomicdate.metrics.MetricsRegistry;
+
+/**
+ * A health scoreboard of the addresses of an SNTP server, typically the many
+ * addresses of a pool name, steering the queries toward the best ones.
+ * <ul>
+ * <li>Every address has its own {@link Session}, and the round-trip time,
+ * jitter and loss rate are tracked as exponentially weighted moving
+ * averages;</li>
+ * <li>The address with the lowest score (round-trip time plus four times the
+ * jitter, plus a penalty per stratum, inflated by the loss rate) is
+ * queried;</li>
+ * <li>Every {@link #PROBE_INTERVAL few} queries, the least recently queried
+ * other address is re-probed, so that a demoted server can recover;</li>
+ * <li>When the queried address fails, the next best one is tried at once;</li>
+ * <li>The addresses denied by a Kiss-o'-Death, or held off by a rate one, are
+ * skipped;</li>
+ * <li>The local clock drift is estimated per address, since the addresses
+ * may serve different clocks.</li>
+ * </ul>
+ * 
+ * @author Koka El Kiwi
+ */
+public class Scoreboard
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The number of queries between two probes of a demoted address. */
+    public static final int       PROBE_INTERVAL  = 8;
+    
+    /** The number of addresses tried per poll. */
+    public static final int       MAX_ATTEMPTS    = 2;
+    
+    /** The score penalty per stratum (in milliseconds). */
+    public static final double    STRATUM_PENALTY = 5D;
+    
+    /** The moving averages gain. */
+    private static final double   GAIN            = 0.125D;
+    
+    /** The maximum loss rate accounted for in the score. */
+    private static final double   MAX_LOSS        = 0.9D;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The tracked addresses. */
+    private final Entry[]         entries;
+    
+    /** The number of polls so far. */
+    private long                  polls;
+    
+    /** The address of the last successful query, null if none. */
+    private Entry                 last;
+    
+    /** The Kiss-o'-Death listener, null if none. */
+    private volatile KissListener kissListener;
+    
+    /** The metrics registry, null if none. */
+    private MetricsRegistry       metrics;
+    
+    /** The closed flag. */
+    private boolean               closed;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Creates the scoreboard of all the addresses of a host.
+     * 
+     * @param host
+     *            the server host address (IP or DNS).
+     * @param port
+     *            the server port.
+     * @return the scoreboard.
+     * @throws NullPointerException
+     *             if the host is null.
+     * @throws IOException
+     *             if the host is unknown.
+     */
+    public static Scoreboard resolve(final String host, final int port)
+            throws IOException
+    {
+        if (host == null)
+        {
+            throw new NullPointerException("host=null");
+        }
+        
+        return new Scoreboard(InetAddress.getAllByName(host), port);
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The sessions are opened on the first query of each address.
+     * 
+     * @param addrs
+     *            the server addresses.
+     * @param port
+     *            the server port.
+     * @throws NullPointerException
+     *             if the addresses are null.
+     * @throws IllegalArgumentException
+     *             if there's no address or the port is invalid.
+     */
+    public Scoreboard(final InetAddress[] addrs, final int port)
+    {
+        if (addrs == null)
+        {
+            throw new NullPointerException("addrs=null");
+        }
+        if (addrs.length == 0)
+        {
+            throw new IllegalArgumentException("addrs.length=0");
+        }
+        if (port <= 0)
+        {
+            throw new IllegalArgumentException("port<=0");
+        }
+        entries = new Entry[addrs.length];
+        for (int i = 0; i < addrs.length; i++)
+        {
+            entries[i] = new Entry(new InetSocketAddress(addrs[i], port));
+        }
+    }
+    
+    /**
+     * Releases all the sessions. The sessions aren't reopened afterward: the
+     * polls fail.
+     */
+    public synchronized void close()
+    {
+        closed = true;
+        for (final Entry entry : entries)
+        {
+            entry.close();
+        }
+    }
+    
+    /**
+     * Queries the best address (or a demoted one, from time to time) and
+     * builds the new synchronization state from its session clock filter, and
+     * from the previous state of the same address for the drift.
+     * 
+     * @return the new synchronization state.
+     * @throws IOException
+     *             if no address answered.
+     */
+    public ClockState poll() throws IOException
+    {
+        final Entry[] candidates = select(System.currentTimeMillis());
+        if (candidates.length == 0)
+        {
+            throw new IOException("No server available.");
+        }
+        
+        IOException failure = null;
+        for (final Entry entry : candidates)
+        {
+            try
+            {
+                final Session session = entry.open();
+                final Measurement m;
+                final ClockState state;
+                synchronized (session)
+                {
+                    m = session.measure();
+                    state = new ClockState(session.getFilter(), m,
+                            entry.state);
+                    entry.state = state;
+                }
+                entry.succeeded(m);
+                synchronized (this)
+                {
+                    last = entry;
+                }
+                
+                return state;
+            }
+            catch (final IOException ioe)
+            {
+                entry.failed();
+                failure = ioe;
+                final KissListener listener = kissListener;
+                if (ioe instanceof KissOfDeathException && listener != null)
+                {
+                    listener.onKiss((KissOfDeathException) ioe);
+                }
+            }
+        }
+        
+        throw failure;
+    }
+    
+    /**
+     * Configures the listener of the Kiss-o'-Death replies.
+     * 
+     * @param listener
+     *            the listener, null for none.
+     */
+    public void setKissListener(final KissListener listener)
+    {
+        kissListener = listener;
+    }
+    
+    /**
+     * Configures the registry of the sessions metrics. The opened sessions
+     * switch to it immediately.
+     * 
+     * @param metrics
+     *            the metrics registry, null for none.
+     */
+    public synchronized void setMetrics(final MetricsRegistry metrics)
+    {
+        this.metrics = metrics;
+        for (final Entry entry : entries)
+        {
+            if (entry.session != null)
+            {
+                entry.session.setMetrics(metrics != null ? metrics
+                        .getServer(entry.server) : null);
+            }
+        }
+    }
+    
+    /**
+     * Returns the address of the last successful query.
+     * 
+     * @return the server address, null if no query succeeded yet.
+     */
+    public synchronized InetSocketAddress getLastServer()
+    {
+        return last != null ? last.server : null;
+    }
+    
+    // See Object for details.
+    @Override
+    public synchronized String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (final Entry entry : entries)
+        {
+            if (builder.length() > 0)
+            {
+                builder.append('\n');
+            }
+            builder.append(entry);
+        }
+        
+        return builder.toString();
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Selects the addresses to try for the next poll, in order.
+     * 
+     * @param now
+     *            the local time.
+     * @return the addresses to try, at most {@link #MAX_ATTEMPTS}.
+     */
+    private synchronized Entry[] select(final long now)
+    {
+        Entry best = null;
+        Entry second = null;
+        Entry stalest = null;
+        for (final Entry entry : entries)
+        {
+            if (!entry.isAvailable(now))
+            {
+                continue;
+            }
+            if (best == null || entry.score() < best.score())
+            {
+                second = best;
+                best = entry;
+            }
+            else if (second == null || entry.score() < second.score())
+            {
+                second = entry;
+            }
+        }
+        for (final Entry entry : entries)
+        {
+            if (entry != best && entry.isAvailable(now)
+                    && (stalest == null || entry.used < stalest.used))
+            {
+                stalest = entry;
+            }
+        }
+        polls++;
+        
+        final boolean probe = stalest != null && polls % PROBE_INTERVAL == 0;
+        final Entry first = probe ? stalest : best;
+        final Entry next = first == best ? second : best;
+        if (first == null)
+        {
+            return new Entry[0];
+        }
+        first.used = now;
+        
+        return next != null && MAX_ATTEMPTS > 1 ? new Entry[] { first, next }
+                : new Entry[] { first };
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The health of a single address.
+     * 
+     * @author Koka El Kiwi
+     */
+    private class Entry
+    {
+        
+        /** The server address. */
+        private final InetSocketAddress server;
+        
+        /** The session, null until the first query. */
+        private Session                 session;
+        
+        /** The last state built from the session, null if none. */
+        private ClockState              state;
+        
+        /** The round-trip time average (in milliseconds), negative if none. */
+        private double                  rtt;
+        
+        /** The round-trip time jitter average (in milliseconds). */
+        private double                  jitter;
+        
+        /** The loss rate average. */
+        private double                  loss;
+        
+        /** The last stratum. */
+        private int                     stratum;
+        
+        /** The local time of the last query. */
+        private long                    used;
+        
+        /**
+         * Constructor.
+         * 
+         * @param server
+         *            the server address.
+         */
+        public Entry(final InetSocketAddress server)
+        {
+            this.server = server;
+            rtt = -1;
+        }
+        
+        /**
+         * Returns the session, opening it if needed.
+         * 
+         * @return the session.
+         * @throws IOException
+         *             if an error occurs while opening the session, or if the
+         *             scoreboard is closed.
+         */
+        public Session open() throws IOException
+        {
+            synchronized (Scoreboard.this)
+            {
+                if (closed)
+                {
+                    throw new IOException("Scoreboard closed.");
+                }
+                if (session == null)
+                {
+                    session = new Session(server);
+                    if (metrics != null)
+                    {
+                        session.setMetrics(metrics.getServer(server));
+                    }
+                }
+                
+                return session;
+            }
+        }
+        
+        /**
+         * Closes the session, if any. Must be called with the scoreboard lock
+         * held.
+         */
+        public void close()
+        {
+            if (session != null)
+            {
+                session.close();
+                session = null;
+            }
+        }
+        
+        /**
+         * Indicates if the address can be queried.
+         * 
+         * @param now
+         *            the local time.
+         * @return true if it can be queried, otherwise false.
+         */
+        public boolean isAvailable(final long now)
+        {
+            return session == null || session.isAvailable(now);
+        }
+        
+        /**
+         * Returns the score of the address, the lower the better. The
+         * addresses never queried have the best score.
+         * 
+         * @return the score.
+         */
+        public double score()
+        {
+            if (rtt < 0)
+            {
+                return loss > 0 ? Double.MAX_VALUE : 0;
+            }
+            
+            final double penalty = STRATUM_PENALTY * Math.max(0, stratum - 1);
+            
+            return (rtt + 4 * jitter + penalty)
+                    / (1 - Math.min(loss, MAX_LOSS));
+        }
+        
+        /**
+         * Records a successful query.
+         * 
+         * @param m
+         *            the measurement.
+         */
+        public void succeeded(final Measurement m)
+        {
+            synchronized (Scoreboard.this)
+            {
+                final double sample = m.getDelay();
+                if (rtt < 0)
+                {
+                    rtt = sample;
+                }
+                else
+                {
+                    jitter += GAIN * (Math.abs(sample - rtt) - jitter);
+                    rtt += GAIN * (sample - rtt);
+                }
+                loss -= GAIN * loss;
+                stratum = m.getMessage().getStratum() & 0xFF;
+            }
+        }
+        
+        /**
+         * Records a failed query.
+         */
+        public void failed()
+        {
+            synchronized (Scoreboard.this)
+            {
+                loss += GAIN * (1 - loss);
+            }
+        }
+        
+        // See Object for details.
+        @Override
+        public String toString()
+        {
+            return server + ": rtt=" + rtt + ", jitter=" + jitter + ", loss="
+                    + loss + ", stratum=" + stratum + ", score=" + score();
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,729 @@
+/*
+ * Server.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Set;
+
+import net.sf.atomicdate.sntp.Codec;
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * An SNTP server, answering the client requests with the network time of a
+ * synchronized {@link Service}.
+ * <ul>
+ * <li>The reply is pre-built from the service state every time it changes;
+ * only the version, poll and timestamps are patched per request;</li>
+ * <li>The receive timestamp is taken right after the request is received, and
+ * the transmit timestamp right before the reply is sent;</li>
+ * <li>The request processing doesn't allocate, besides the source address
+ * returned by the channel;</li>
+ * <li>The requests are dropped until the service is synchronized.</li>
+ * </ul>
+ * The server can run several workers, each with its own channel, buffers and
+ * counters. When the platform supports <code>SO_REUSEPORT</code>, every worker
+ * binds its own channel to the same address and the kernel spreads the
+ * requests between them; otherwise the workers share a single channel.
+ * <p>
+ * An optional {@link RateLimiter} is checked for every request, before it's
+ * even decoded. The clients over the limit are dropped, or sent a single
+ * <code>RATE</code> Kiss-o'-Death reply until they slow down.
+ * 
+ * @author Koka El Kiwi
+ */
+public class Server
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The server thread name. */
+    private static final String     THREAD_NAME = "AtomicDate-Server";
+    
+    /** The advertised precision (2^-10 seconds, the millisecond clock). */
+    public static final byte        PRECISION   = -10;
+    
+    /** The SO_REUSEPORT option, null if the platform doesn't support it. */
+    private static final Object     REUSE_PORT  = lookupReusePort();
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The service providing the network time. */
+    private final Service           service;
+    
+    /** The local address to listen on. */
+    private final InetSocketAddress address;
+    
+    /** The number of workers. */
+    private final int               workers;
+    
+    /** The reply template updater. */
+    private final ClockListener     updater;
+    
+    /** The reply template, null until the service is synchronized. */
+    private volatile ByteBuffer     template;
+    
+    /** The Kiss-o'-Death reply template. */
+    private final ByteBuffer        kissTemplate;
+    
+    /** The per-client rate limiter, null if none. */
+    private volatile RateLimiter    limiter;
+    
+    /** Indicates if the limited clients are sent a Kiss-o'-Death reply. */
+    private volatile boolean        kiss;
+    
+    /** The request processing threads, null if the server isn't running. */
+    private volatile Worker[]       active;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The server listens on the default SNTP port.
+     * 
+     * @param service
+     *            the service providing the network time.
+     * @throws NullPointerException
+     *             if the argument is null.
+     * @see Client#DEFAULT_SNTP_PORT
+     */
+    public Server(final Service service)
+    {
+        this(service, new InetSocketAddress(Client.DEFAULT_SNTP_PORT));
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param service
+     *            the service providing the network time.
+     * @param address
+     *            the local address to listen on.
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public Server(final Service service, final InetSocketAddress address)
+    {
+        this(service, address, 1);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param service
+     *            the service providing the network time.
+     * @param address
+     *            the local address to listen on.
+     * @param workers
+     *            the number of request processing threads, usually the number
+     *            of cores.
+     * @throws NullPointerException
+     *             if the service or the address is null.
+     * @throws IllegalArgumentException
+     *             if the number of workers isn't positive.
+     */
+    public Server(final Service service, final InetSocketAddress address,
+            final int workers)
+    {
+        if (service == null)
+        {
+            throw new NullPointerException("service=null");
+        }
+        if (address == null)
+        {
+            throw new NullPointerException("address=null");
+        }
+        if (workers <= 0)
+        {
+            throw new IllegalArgumentException("workers<=0");
+        }
+        this.service = service;
+        this.address = address;
+        this.workers = workers;
+        kissTemplate = buildKissTemplate();
+        updater = new ClockListener() {
+            
+            @Override
+            public void onUpdate(final ClockState state)
+            {
+                refresh();
+            }
+        };
+    }
+    
+    /**
+     * Starts serving the requests.
+     * 
+     * @throws IllegalStateException
+     *             if the server is already running.
+     * @throws IOException
+     *             if an error occurs while binding the channel.
+     */
+    public synchronized void start() throws IOException
+    {
+        if (active != null)
+        {
+            throw new IllegalStateException("Server running.");
+        }
+        final Worker[] started = new Worker[workers];
+        final boolean shard = workers > 1 && REUSE_PORT != null;
+        DatagramChannel channel = null;
+        try
+        {
+            InetSocketAddress local = address;
+            for (int i = 0; i < workers; i++)
+            {
+                if (channel == null || shard)
+                {
+                    channel = DatagramChannel.open();
+                    started[i] = new Worker(channel, i);
+                    if (shard)
+                    {
+                        setReusePort(channel);
+                    }
+                    channel.socket().bind(local);
+                    local = (InetSocketAddress) channel.socket()
+                            .getLocalSocketAddress();
+                }
+                else
+                {
+                    started[i] = new Worker(channel, i);
+                }
+            }
+        }
+        catch (final IOException ioe)
+        {
+            close(started);
+            throw ioe;
+        }
+        service.addClockListener(updater);
+        refresh();
+        for (final Worker worker : started)
+        {
+            worker.start();
+        }
+        active = started;
+    }
+    
+    /**
+     * Stops serving the requests, releasing the channels.
+     */
+    public synchronized void close()
+    {
+        if (active != null)
+        {
+            service.removeClockListener(updater);
+            close(active);
+            active = null;
+        }
+    }
+    
+    /**
+     * Configures the per-client rate limiting. It can be changed while the
+     * server is running.
+     * 
+     * @param limiter
+     *            the rate limiter, null to deactivate the rate limiting.
+     * @param kiss
+     *            true to send a <code>RATE</code> Kiss-o'-Death reply to the
+     *            clients over the limit, false to silently drop them.
+     */
+    public void setRateLimiter(final RateLimiter limiter, final boolean kiss)
+    {
+        this.kiss = kiss;
+        this.limiter = limiter;
+    }
+    
+    /**
+     * Indicates if the server is running.
+     * 
+     * @return true if it's running, otherwise false.
+     */
+    public boolean isRunning()
+    {
+        return active != null;
+    }
+    
+    /**
+     * Returns the local address the server is bound to.
+     * 
+     * @return the bound address, null if the server isn't running.
+     */
+    public InetSocketAddress getLocalAddress()
+    {
+        final Worker[] w = active;
+        
+        return w == null ? null : (InetSocketAddress) w[0].channel.socket()
+                .getLocalSocketAddress();
+    }
+    
+    /**
+     * Indicates if every worker has its own channel.
+     * 
+     * @return true if the platform supports <code>SO_REUSEPORT</code>,
+     *         otherwise false.
+     */
+    public static boolean isReusePortSupported()
+    {
+        return REUSE_PORT != null;
+    }
+    
+    /**
+     * Returns the number of requests received.
+     * 
+     * @return the number of requests received.
+     */
+    public long getReceived()
+    {
+        long total = 0;
+        final Worker[] w = active;
+        for (int i = 0; w != null && i < w.length; i++)
+        {
+            total += w[i].received;
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Returns the number of requests answered.
+     * 
+     * @return the number of replies.
+     */
+    public long getReplied()
+    {
+        long total = 0;
+        final Worker[] w = active;
+        for (int i = 0; w != null && i < w.length; i++)
+        {
+            total += w[i].replied;
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Returns the number of requests over the rate limit.
+     * 
+     * @return the number of requests limited.
+     */
+    public long getLimited()
+    {
+        long total = 0;
+        final Worker[] w = active;
+        for (int i = 0; w != null && i < w.length; i++)
+        {
+            total += w[i].limited;
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Returns the number of requests dropped, because they were invalid or
+     * the service wasn't synchronized.
+     * 
+     * @return the number of requests dropped.
+     */
+    public long getDropped()
+    {
+        long total = 0;
+        final Worker[] w = active;
+        for (int i = 0; w != null && i < w.length; i++)
+        {
+            total += w[i].dropped;
+        }
+        
+        return total;
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        return "SNTP server " + address;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Rebuilds the reply template from the current state of the service, so
+     * that the advertised root dispersion keeps up with the state age. It's
+     * called on every synchronization, and can be called periodically in
+     * between.
+     */
+    protected synchronized void refresh()
+    {
+        if (service.isSynchronized())
+        {
+            final Message message = buildReply(service.getState(),
+                    System.currentTimeMillis());
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(Codec.LENGTH);
+            Codec.encodeMessage(message, buffer);
+            buffer.flip();
+            template = buffer.asReadOnlyBuffer();
+        }
+    }
+    
+    /**
+     * Builds the reply header for a synchronization state. The stratum is one
+     * more than the upstream server's, the root delay includes the path to it
+     * and the root dispersion grows with the state age. Only the leap
+     * indicator, stratum, precision, root delay, root dispersion, reference
+     * identifier and reference timestamp are used.
+     * 
+     * @param state
+     *            the synchronization state.
+     * @param now
+     *            the local time.
+     * @return the reply header.
+     */
+    protected Message buildReply(final ClockState state, final long now)
+    {
+        return buildHeader(state, now);
+    }
+    
+    /**
+     * Builds the header advertised for a synchronization state, as described
+     * in {@link #buildReply(ClockState, long)}.
+     * 
+     * @param state
+     *            the synchronization state.
+     * @param now
+     *            the local time.
+     * @return the header.
+     */
+    static Message buildHeader(final ClockState state, final long now)
+    {
+        final long age = Math.max(0, now - state.getSyncTime());
+        final Message message = new Message();
+        message.setMode(Message.MODE_SERVER);
+        message.setStratum((byte) Math.min(state.getStratum() + 1, 15));
+        message.setPrecision(PRECISION);
+        message.setRootDelay((state.getRootDelay() + state.getDelay()) / 1000D);
+        message.setRootDispersion((state.getRootDispersion()
+                + state.getDispersion() + state.getJitter() + ClockFilter.PHI
+                * age) / 1000D);
+        message.setReferenceTimestamp(Client.toTimestamp(state
+                .getTime(state.getSyncTime())));
+        
+        return message;
+    }
+    
+    /**
+     * Builds the <code>RATE</code> Kiss-o'-Death reply template.
+     * 
+     * @return the reply template.
+     */
+    private static ByteBuffer buildKissTemplate()
+    {
+        final Message message = new Message();
+        message.setLeapIndicator(Message.LI_ALARM);
+        message.setMode(Message.MODE_SERVER);
+        message.setStratum(Message.STRATUM_KISS_OF_DEATH);
+        message.setPrecision(PRECISION);
+        message.setReferenceIdentifier(Message.KISS_RATE.getBytes());
+        
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(Codec.LENGTH);
+        Codec.encodeMessage(message, buffer);
+        buffer.flip();
+        
+        return buffer.asReadOnlyBuffer();
+    }
+    
+    /**
+     * Stops workers and closes their channels.
+     * 
+     * @param stopped
+     *            the workers, some of which may be null.
+     */
+    private static void close(final Worker[] stopped)
+    {
+        for (final Worker worker : stopped)
+        {
+            if (worker != null)
+            {
+                worker.running = false;
+                try
+                {
+                    worker.channel.close();
+                }
+                catch (final IOException ioe)
+                {
+                    ioe.printStackTrace(System.err);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Looks up the <code>SO_REUSEPORT</code> socket option, which only exists
+     * on recent platforms.
+     * 
+     * @return the option, null if it isn't supported.
+     */
+    private static Object lookupReusePort()
+    {
+        try
+        {
+            final Object option = Class.forName(
+                    "java.net.StandardSocketOptions").getField("SO_REUSEPORT")
+                    .get(null);
+            final DatagramChannel probe = DatagramChannel.open();
+            try
+            {
+                final Method supported = DatagramChannel.class
+                        .getMethod("supportedOptions");
+                final Set<?> options = (Set<?>) supported.invoke(probe);
+                
+                return options.contains(option) ? option : null;
+            }
+            finally
+            {
+                probe.close();
+            }
+        }
+        catch (final Exception e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Enables <code>SO_REUSEPORT</code> on a channel.
+     * 
+     * @param channel
+     *            the unbound channel.
+     * @throws IOException
+     *             if the option can't be set.
+     */
+    private static void setReusePort(final DatagramChannel channel)
+            throws IOException
+    {
+        try
+        {
+            final Method setOption = DatagramChannel.class.getMethod(
+                    "setOption", Class.forName("java.net.SocketOption"),
+                    Object.class);
+            setOption.invoke(channel, REUSE_PORT, Boolean.TRUE);
+        }
+        catch (final Exception e)
+        {
+            throw new IOException("Unable to set SO_REUSEPORT: " + e);
+        }
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The request processing thread. The counters are only written by the
+     * worker itself, and padded against false sharing with the other
+     * workers.
+     * 
+     * @author Koka El Kiwi
+     */
+    private class Worker extends Thread
+    {
+        
+        /** Padding, see the class description. */
+        protected long                p0, p1, p2, p3, p4, p5, p6;
+        
+        /** The listening channel. */
+        private final DatagramChannel channel;
+        
+        /** The request buffer. */
+        private final ByteBuffer      request;
+        
+        /** The reply buffer. */
+        private final ByteBuffer      reply;
+        
+        /** The template copied in the reply buffer. */
+        private ByteBuffer            current;
+        
+        /** The Kiss-o'-Death reply buffer. */
+        private final ByteBuffer      kissReply;
+        
+        /** The running flag. */
+        private volatile boolean      running;
+        
+        /** The number of requests received. */
+        private volatile long         received;
+        
+        /** The number of requests answered. */
+        private volatile long         replied;
+        
+        /** The number of requests dropped. */
+        private volatile long         dropped;
+        
+        /** The number of requests over the rate limit. */
+        private volatile long         limited;
+        
+        /** Padding, see the class description. */
+        protected long                q0, q1, q2, q3, q4, q5, q6;
+        
+        /**
+         * Constructor.
+         * 
+         * @param channel
+         *            the listening channel.
+         * @param index
+         *            the worker index.
+         */
+        public Worker(final DatagramChannel channel, final int index)
+        {
+            super(THREAD_NAME + "-" + index);
+            this.channel = channel;
+            request = ByteBuffer.allocateDirect(Message.MAXIMUM_LENGTH);
+            reply = ByteBuffer.allocateDirect(Codec.LENGTH);
+            kissReply = ByteBuffer.allocateDirect(Codec.LENGTH);
+            kissReply.put(kissTemplate.duplicate());
+            running = true;
+        }
+        
+        // See Thread for details.
+        @Override
+        public void run()
+        {
+            while (running)
+            {
+                try
+                {
+                    request.clear();
+                    final SocketAddress source = channel.receive(request);
+                    final long now = System.currentTimeMillis();
+                    received++;
+                    if (source == null)
+                    {
+                        dropped++;
+                        continue;
+                    }
+                    final RateLimiter rl = limiter;
+                    final int verdict = rl == null ? RateLimiter.ALLOWED : rl
+                            .check(((InetSocketAddress) source).getAddress(),
+                                    now);
+                    if (verdict != RateLimiter.ALLOWED)
+                    {
+                        limited++;
+                        if (verdict == RateLimiter.LIMITED && kiss
+                                && kiss(now))
+                        {
+                            channel.send(kissReply, source);
+                        }
+                        continue;
+                    }
+                    if (!serve(now))
+                    {
+                        dropped++;
+                        continue;
+                    }
+                    channel.send(reply, source);
+                    replied++;
+                }
+                catch (final ClosedChannelException cce)
+                {
+                    running = false;
+                }
+                catch (final IOException ioe)
+                {
+                    if (running)
+                    {
+                        System.err
+                                .println("AtomicDate: error serving a request.");
+                        ioe.printStackTrace(System.err);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Prepares the reply to the received request.
+         * 
+         * @param now
+         *            the local receive time.
+         * @return true if the request must be answered, otherwise false.
+         */
+        private boolean serve(final long now)
+        {
+            final ByteBuffer t = template;
+            if (t == null || request.position() < Codec.LENGTH)
+            {
+                return false;
+            }
+            final byte flags = request.get(0);
+            if ((flags & 0x07) != Message.MODE_CLIENT)
+            {
+                return false;
+            }
+            if (t != current)
+            {
+                reply.clear();
+                reply.put(t.duplicate());
+                current = t;
+            }
+            final ClockState state = service.getState();
+            reply.put(0, (byte) (t.get(0) & 0xC0 | flags & 0x38
+                    | Message.MODE_SERVER));
+            reply.put(2, request.get(2));
+            reply.putLong(Codec.ORIGINATE_TIMESTAMP_INDEX,
+                    request.getLong(Codec.TRANSMIT_TIMESTAMP_INDEX));
+            Codec.encodeTime(state.getTime(now), reply,
+                    Codec.RECEIVE_TIMESTAMP_INDEX);
+            Codec.encodeTime(state.getTime(System.currentTimeMillis()), reply,
+                    Codec.TRANSMIT_TIMESTAMP_INDEX);
+            reply.clear();
+            
+            return true;
+        }
+        
+        /**
+         * Prepares the Kiss-o'-Death reply to the received request.
+         * 
+         * @param now
+         *            the local receive time.
+         * @return true if the request must be answered, otherwise false.
+         */
+        private boolean kiss(final long now)
+        {
+            if (request.position() < Codec.LENGTH)
+            {
+                return false;
+            }
+            final byte flags = request.get(0);
+            if ((flags & 0x07) != Message.MODE_CLIENT)
+            {
+                return false;
+            }
+            final long time = service.isSynchronized() ? service.getState()
+                    .getTime(now) : now;
+            kissReply.put(0, (byte) (kissReply.get(0) & 0xC0 | flags & 0x38
+                    | Message.MODE_SERVER));
+            kissReply.putLong(Codec.ORIGINATE_TIMESTAMP_INDEX,
+                    request.getLong(Codec.TRANSMIT_TIMESTAMP_INDEX));
+            Codec.encodeTime(time, kissReply, Codec.RECEIVE_TIMESTAMP_INDEX);
+            Codec.encodeTime(time, kissReply, Codec.TRANSMIT_TIMESTAMP_INDEX);
+            kissReply.clear();
+            
+            return true;
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
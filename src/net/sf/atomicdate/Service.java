@@ -13,36 +13,97 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.sf.atomicdate.metrics.MetricsRegistry;
 
 /**
  * An SNTP service bean, suitable for POJO containers. The service can be
  * manually or automatically (in fixed intervals) synchronized with the SNTP
  * server. By default, the service starts in manual synchronization mode.
+ * <p>
+ * The automatic synchronization is driven by the {@link SyncScheduler shared
+ * scheduler}, so any number of services can run without a thread each.
+ * All the addresses of the server host are tracked by a {@link Scoreboard},
+ * which steers the queries toward the fastest and most reliable ones; each
+ * address has its own {@link Session}, keeping its clock filter, round-trip
+ * estimator and Kiss-o'-Death status. The synchronizations are serialized, so
+ * the automatic and demand ones never query the server concurrently.
+ * <p>
+ * The service can also be synchronized on demand, leaving the automatic
+ * synchronization off: the readers state the accuracy they need (see
+ * {@link #getTimeEstimate(double)}) and a synchronization is triggered in the
+ * background only when the current error bound or the data age exceeds it. An
+ * idle service then generates no network traffic at all. The demand
+ * synchronizations are at least {@link #MIN_DEMAND} apart from the last
+ * attempt, and this interval is doubled after every failure, up to
+ * {@link #MAX_DEMAND}.
  * 
  * @author Arm&eacute;nio Pinto (armenio[at]users.sourceforge.net)
  */
-public class Service extends TimerTask
+public class Service implements Runnable
 {
     
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The minimum interval between demand synchronizations (in ms). */
+    public static final long                          MIN_DEMAND = 64000L;
+    
+    /** The maximum interval between failed demand synchronizations (in ms). */
+    public static final long                          MAX_DEMAND = 1024000L;
+    
     // Instance attributes.
     // ***********************************************************************
     
-    /** The SNTP server host address. */
-    private InetAddress host;
+    /** The SNTP server host addresses, null until configured. */
+    private InetAddress[]                             addrs;
+    
+    /** The SNTP server address of the last synchronization. */
+    private volatile InetAddress                      host;
     
     /** The SNTP server port. */
-    private int         port;
+    private int                                       port;
+    
+    /** The automatic synchronization task. */
+    private SyncScheduler.Task                        task;
+    
+    /** The SNTP server scoreboard, null until the next sync. */
+    private Scoreboard                                scoreboard;
+    
+    /** The clock filter fed by the external measurements. */
+    private final ClockFilter                         filter;
+    
+    /** The last synchronization state, null until the first one. */
+    private volatile ClockState                       state;
+    
+    /** The maximum age of the state for demand reads (0 for unlimited). */
+    private volatile long                             staleness;
+    
+    /** The pending demand synchronization flag. */
+    private final AtomicBoolean                       pending;
+    
+    /** The lock serializing the synchronizations. */
+    private final Object                              sync;
+    
+    /** The local time of the last synchronization attempt, 0 if none. */
+    private volatile long                             attempt;
+    
+    /** The number of consecutive failed synchronizations. */
+    private volatile int                              failures;
+    
+    /** The closed flag. */
+    private volatile boolean                          closed;
     
-    /** The automatic synchronization timer. */
-    private Timer       timer;
+    /** The synchronization state listeners. */
+    private final CopyOnWriteArrayList<ClockListener> listeners;
     
-    /** The SNTP client. */
-    private Client      client;
+    /** The Kiss-o'-Death listeners. */
+    private final CopyOnWriteArrayList<KissListener>  kissListeners;
     
-    /** The local time offset to the network time (in milliseconds). */
-    private long        offset;
+    /** The metrics registry, null if none. */
+    private MetricsRegistry                           metrics;
     
     // Instance methods.
     // **************************************************************************
@@ -53,38 +114,51 @@ public class Service extends TimerTask
      * @throws UnknownHostException
      *             if the default SNMP server host address is unknown.
      * @throws SocketException
-     *             if an error occurs while creating the SNTP client.
+     *             never; the sessions with the SNTP server are opened on the
+     *             first synchronization.
      * @see Date#DEFAULT_SERVER_ADDRESS
      * @see Client#DEFAULT_SNTP_PORT
      */
     public Service() throws SocketException
     {
+        addrs = null;
         host = null;
+        sync = new Object();
         setServerPort(Client.DEFAULT_SNTP_PORT);
-        client = new Client();
-        offset = -1;
+        scoreboard = null;
+        filter = new ClockFilter();
+        state = null;
+        staleness = 0;
+        pending = new AtomicBoolean();
+        attempt = 0;
+        failures = 0;
+        closed = false;
+        listeners = new CopyOnWriteArrayList<ClockListener>();
+        kissListeners = new CopyOnWriteArrayList<KissListener>();
+        metrics = MetricsRegistry.getDefault();
         setSyncPeriod(0);
     }
     
     /**
-     * Closes the service, releasing all the held resources.
+     * Closes the service, releasing all the held resources. A closed service
+     * doesn't synchronize anymore: its last state is still readable. A
+     * synchronization in progress ends with its current exchange, and fails
+     * silently.
      */
-    public void close()
+    public synchronized void close()
     {
-        if (timer != null)
+        closed = true;
+        if (task != null)
         {
-            timer.cancel();
-            timer = null;
-        }
-        if (client != null)
-        {
-            client.close();
-            client = null;
+            task.cancel();
+            task = null;
         }
+        closeScoreboard();
     }
     
     /**
-     * Configures the SNTP server host address.
+     * Configures the SNTP server host address. All the addresses of the host
+     * are used. A synchronization in progress is completed first.
      * 
      * @param host
      *            the new host address.
@@ -99,11 +173,32 @@ public class Service extends TimerTask
         {
             throw new NullPointerException("host=null");
         }
-        this.host = InetAddress.getByName(host);
+        final InetAddress[] all = InetAddress.getAllByName(host);
+        synchronized (sync)
+        {
+            synchronized (this)
+            {
+                this.addrs = all;
+                this.host = all[0];
+                closeScoreboard();
+            }
+        }
     }
     
     /**
-     * Configures the SNTP server port.
+     * Returns the SNTP server host address: the address of the last
+     * synchronization, or the first address of the host.
+     * 
+     * @return the host address, null if it wasn't configured.
+     */
+    public InetAddress getServerHost()
+    {
+        return host;
+    }
+    
+    /**
+     * Configures the SNTP server port. A synchronization in progress is
+     * completed first.
      * 
      * @param port
      *            the new port.
@@ -116,17 +211,27 @@ public class Service extends TimerTask
         {
             throw new NullPointerException("port<=0");
         }
-        this.port = port;
+        synchronized (sync)
+        {
+            synchronized (this)
+            {
+                this.port = port;
+                closeScoreboard();
+            }
+        }
     }
     
     /**
      * Configures the automatic synchronization period. A value of 0 deactivates
-     * the automatic synchronization feature.
+     * the automatic synchronization feature. The period can be changed while
+     * the automatic synchronization is running.
      * 
      * @param period
-     *            the new period.
+     *            the new period (in milliseconds).
      * @throws IllegalArgumentException
      *             if the argument is negative.
+     * @throws IllegalStateException
+     *             if the period isn't 0 and the service was closed.
      */
     public synchronized void setSyncPeriod(final long period)
     {
@@ -134,26 +239,144 @@ public class Service extends TimerTask
         {
             throw new IllegalArgumentException("period<0");
         }
+        if (period != 0 && closed)
+        {
+            throw new IllegalStateException("Service closed.");
+        }
         
-        this.cancel();
         if (period != 0)
         {
-            if (timer != null)
+            if (task == null)
             {
-                timer = new Timer();
+                task = SyncScheduler.getDefault().schedule(this, period);
+            }
+            else
+            {
+                task.setPeriod(period);
             }
-            timer.schedule(this, period, period);
         }
         else
         {
-            if (timer != null)
+            if (task != null)
             {
-                timer.cancel();
-                timer = null;
+                task.cancel();
+                task = null;
             }
         }
     }
     
+    /**
+     * Returns the automatic synchronization period.
+     * 
+     * @return the period (in milliseconds), 0 if the automatic
+     *         synchronization is deactivated.
+     */
+    public synchronized long getSyncPeriod()
+    {
+        return task != null ? task.getPeriod() : 0;
+    }
+    
+    /**
+     * Configures the maximum age of the synchronization state for the demand
+     * reads. Older states trigger a synchronization, whatever their error
+     * bound. A value of 0 deactivates this limit.
+     * 
+     * @param staleness
+     *            the maximum state age (in milliseconds).
+     * @throws IllegalArgumentException
+     *             if the argument is negative.
+     */
+    public void setStalenessLimit(final long staleness)
+    {
+        if (staleness < 0)
+        {
+            throw new IllegalArgumentException("staleness<0");
+        }
+        this.staleness = staleness;
+    }
+    
+    /**
+     * Registers a listener of the synchronization state.
+     * 
+     * @param listener
+     *            the listener.
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public void addClockListener(final ClockListener listener)
+    {
+        if (listener == null)
+        {
+            throw new NullPointerException("listener=null");
+        }
+        listeners.addIfAbsent(listener);
+    }
+    
+    /**
+     * Unregisters a listener of the synchronization state.
+     * 
+     * @param listener
+     *            the listener.
+     */
+    public void removeClockListener(final ClockListener listener)
+    {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Registers a listener of the Kiss-o'-Death replies.
+     * 
+     * @param listener
+     *            the listener.
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public void addKissListener(final KissListener listener)
+    {
+        if (listener == null)
+        {
+            throw new NullPointerException("listener=null");
+        }
+        kissListeners.addIfAbsent(listener);
+    }
+    
+    /**
+     * Unregisters a listener of the Kiss-o'-Death replies.
+     * 
+     * @param listener
+     *            the listener.
+     */
+    public void removeKissListener(final KissListener listener)
+    {
+        kissListeners.remove(listener);
+    }
+    
+    /**
+     * Configures the registry of the SNTP servers metrics. The
+     * {@link MetricsRegistry#getDefault() shared registry} is used by default.
+     * 
+     * @param metrics
+     *            the metrics registry, null for none.
+     */
+    public synchronized void setMetrics(final MetricsRegistry metrics)
+    {
+        this.metrics = metrics;
+        if (scoreboard != null)
+        {
+            scoreboard.setMetrics(metrics);
+        }
+    }
+    
+    /**
+     * Returns the registry of the SNTP servers metrics.
+     * 
+     * @return the metrics registry, null if none.
+     */
+    public synchronized MetricsRegistry getMetrics()
+    {
+        return metrics;
+    }
+    
     /**
      * Returns the network time.
      * 
@@ -164,12 +387,174 @@ public class Service extends TimerTask
      */
     public long getTime() throws IOException
     {
-        if (offset == -1)
+        return getState().getTime(System.currentTimeMillis());
+    }
+    
+    /**
+     * Returns the network time together with its error bounds, so that the
+     * caller can decide if a new synchronization is worth it.
+     * 
+     * @return the network time estimate.
+     * @throws IllegalStateException
+     *             if the service wasn't synchronized yet.
+     */
+    public TimeEstimate getTimeEstimate()
+    {
+        return getState().estimate(System.currentTimeMillis());
+    }
+    
+    /**
+     * Returns the network time, requesting a background synchronization if
+     * its maximum error exceeds the given requirement or if the state is stale.
+     * The current value is returned meanwhile.
+     * 
+     * @param maxError
+     *            the required maximum error (in milliseconds).
+     * @return the network time (in milliseconds).
+     * @throws IllegalStateException
+     *             if the service wasn't synchronized yet.
+     * @see #setStalenessLimit(long)
+     */
+    public long getTime(final double maxError)
+    {
+        final long now = System.currentTimeMillis();
+        
+        return demand(maxError, now).getTime(now);
+    }
+    
+    /**
+     * Returns the network time together with its error bounds, requesting a
+     * background synchronization if its maximum error exceeds the given
+     * requirement or if the state is stale. The current estimate is returned
+     * meanwhile.
+     * 
+     * @param maxError
+     *            the required maximum error (in milliseconds).
+     * @return the network time estimate.
+     * @throws IllegalStateException
+     *             if the service wasn't synchronized yet.
+     * @see #setStalenessLimit(long)
+     */
+    public TimeEstimate getTimeEstimate(final double maxError)
+    {
+        final long now = System.currentTimeMillis();
+        
+        return demand(maxError, now).estimate(now);
+    }
+    
+    /**
+     * Returns the local time of the last synchronization attempt, successful
+     * or not.
+     * 
+     * @return the attempt time (in milliseconds), 0 if none.
+     */
+    public long getLastAttemptTime()
+    {
+        return attempt;
+    }
+    
+    /**
+     * Requests a background synchronization. Concurrent requests are coalesced
+     * into a single network exchange, and requests made less than the demand
+     * interval after the last attempt are ignored: {@link #MIN_DEMAND} after a
+     * success, doubled after every consecutive failure up to
+     * {@link #MAX_DEMAND}. Requests made after the service was closed are
+     * ignored too.
+     */
+    public void requestSync()
+    {
+        if (closed)
+        {
+            return;
+        }
+        final long last = attempt;
+        if (last != 0
+                && System.currentTimeMillis() - last < getDemandInterval())
+        {
+            return;
+        }
+        if (pending.compareAndSet(false, true))
+        {
+            SyncScheduler.getDefault().execute(new Runnable() {
+                
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        Service.this.run();
+                    }
+                    finally
+                    {
+                        pending.set(false);
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * Waits for the first synchronization.
+     * 
+     * @param timeout
+     *            the maximum time to wait (in milliseconds).
+     * @return true if the service is synchronized, otherwise false.
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting.
+     */
+    public boolean awaitSynchronization(final long timeout)
+            throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + timeout;
+        synchronized (filter)
+        {
+            long left = timeout;
+            while (state == null && left > 0)
+            {
+                filter.wait(left);
+                left = deadline - System.currentTimeMillis();
+            }
+        }
+        
+        return state != null;
+    }
+    
+    /**
+     * Returns the last synchronization state.
+     * 
+     * @return the synchronization state.
+     * @throws IllegalStateException
+     *             if the service wasn't synchronized yet.
+     */
+    public ClockState getState()
+    {
+        final ClockState current = state;
+        if (current == null)
         {
             throw new IllegalStateException("Not synchronized.");
         }
         
-        return System.currentTimeMillis() + offset;
+        return current;
+    }
+    
+    /**
+     * Indicates if the service is closed.
+     * 
+     * @return true if it's closed, otherwise false.
+     */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+    
+    /**
+     * Indicates if the service was synchronized at least once.
+     * 
+     * @return true if it's synchronized, otherwise false.
+     */
+    public boolean isSynchronized()
+    {
+        return state != null;
     }
     
     /**
@@ -184,22 +569,180 @@ public class Service extends TimerTask
         return new java.util.Date(getTime());
     }
     
-    // See TimerTask for details.
+    /**
+     * Feeds the service with a measurement taken elsewhere, for instance from
+     * a broadcast server.
+     * 
+     * @param measurement
+     *            the measurement.
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public void update(final Measurement measurement)
+    {
+        if (measurement == null)
+        {
+            throw new NullPointerException("measurement=null");
+        }
+        final ClockState updated;
+        synchronized (filter)
+        {
+            filter.add(measurement.getOffset(), measurement.getDelay(),
+                    measurement.getDispersion(), measurement.getTime());
+            updated = new ClockState(filter, measurement, state);
+        }
+        publish(updated);
+    }
+    
+    // See Runnable for details.
     @Override
     public void run()
     {
-        try
+        synchronized (sync)
+        {
+            if (closed)
+            {
+                return;
+            }
+            attempt = System.currentTimeMillis();
+            try
+            {
+                final Scoreboard board = getScoreboard();
+                final ClockState updated = board.poll();
+                host = board.getLastServer().getAddress();
+                failures = 0;
+                publish(updated);
+            }
+            catch (final IOException ioe)
+            {
+                failures++;
+                if (closed)
+                {
+                    return;
+                }
+                System.err.println("AtomicDate: error synchronizing the SNTP "
+                        + "service.");
+                ioe.printStackTrace(System.err);
+            }
+        }
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns the SNTP server scoreboard, creating it if needed.
+     * 
+     * @return the scoreboard.
+     * @throws IOException
+     *             if the server host isn't configured, or if the service was
+     *             closed.
+     */
+    private synchronized Scoreboard getScoreboard() throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Service closed.");
+        }
+        if (addrs == null)
+        {
+            throw new IOException("No SNTP server host configured.");
+        }
+        if (scoreboard == null)
+        {
+            scoreboard = new Scoreboard(addrs, port);
+            scoreboard.setMetrics(metrics);
+            scoreboard.setKissListener(new KissListener() {
+                
+                @Override
+                public void onKiss(final KissOfDeathException kiss)
+                {
+                    for (final KissListener listener : kissListeners)
+                    {
+                        listener.onKiss(kiss);
+                    }
+                }
+            });
+        }
+        
+        return scoreboard;
+    }
+    
+    /**
+     * Returns the minimum interval between demand synchronizations, backed off
+     * exponentially after consecutive failures.
+     * 
+     * @return the interval (in milliseconds).
+     */
+    private long getDemandInterval()
+    {
+        final int n = Math.min(failures, 4);
+        
+        return Math.min(MIN_DEMAND << n, MAX_DEMAND);
+    }
+    
+    /**
+     * Closes the SNTP server scoreboard and its sessions, if any. Must be
+     * called with the lock held.
+     */
+    private void closeScoreboard()
+    {
+        if (scoreboard != null)
+        {
+            scoreboard.close();
+            scoreboard = null;
+        }
+    }
+    
+    /**
+     * Publishes a new synchronization state to the waiting threads and the
+     * listeners.
+     * 
+     * @param updated
+     *            the new state.
+     */
+    private void publish(final ClockState updated)
+    {
+        synchronized (filter)
         {
-            offset = client.getOffset(host, port);
+            state = updated;
+            filter.notifyAll();
         }
-        catch (final IOException ioe)
+        for (final ClockListener listener : listeners)
         {
-            System.err
-                    .println("AtomicDate: error synchronizing the SNTP service.");
-            ioe.printStackTrace(System.err);
+            listener.onUpdate(updated);
         }
     }
     
+    /**
+     * Returns the current state for a demand read, requesting a background
+     * synchronization if it doesn't meet the requirements.
+     * 
+     * @param maxError
+     *            the required maximum error (in milliseconds).
+     * @param now
+     *            the local time.
+     * @return the current state.
+     * @throws IllegalStateException
+     *             if the service wasn't synchronized yet.
+     */
+    private ClockState demand(final double maxError, final long now)
+    {
+        final ClockState current = state;
+        final long limit = staleness;
+        if (current == null || current.getMaxError(now) > maxError
+                || limit > 0 && now - current.getSyncTime() > limit)
+        {
+            requestSync();
+        }
+        if (current == null)
+        {
+            throw new IllegalStateException("Not synchronized.");
+        }
+        
+        return current;
+    }
+    
 }
 
 /* End of file. */
\ No newline at end of file
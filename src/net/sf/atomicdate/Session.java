@@ -0,0 +1,496 @@
+/*
+ * Session.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import net.sf.atomicdate.metrics.ServerMetrics;
+import net.sf.atomicdate.sntp.Codec;
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * A session with a single SNTP server, keeping all the per-server state.
+ * <ul>
+ * <li>The channel is connected to the server, so the kernel discards the
+ * datagrams from any other source and the route and security checks are done
+ * once;</li>
+ * <li>The replies must echo the request transmit timestamp, so the late or
+ * forged replies are ignored;</li>
+ * <li>The reply timeout follows a smoothed round-trip time estimator (IETF RFC
+ * 6298), and is doubled after every timeout;</li>
+ * <li>The measurements feed the session {@link ClockFilter clock filter};</li>
+ * <li>A <code>RATE</code> Kiss-o'-Death reply holds the session off for an
+ * increasing interval; a <code>DENY</code> or <code>RSTR</code> one closes it
+ * for good.</li>
+ * </ul>
+ * The implementation is thread-safe but can only handle one request at a time.
+ * 
+ * @author Koka El Kiwi
+ */
+public class Session
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The initial reply timeout (in milliseconds). */
+    public static final long        INITIAL_TIMEOUT = 1000L;
+    
+    /** The minimum reply timeout (in milliseconds). */
+    public static final long        MIN_TIMEOUT     = 100L;
+    
+    /** The maximum reply timeout (in milliseconds). */
+    public static final long        MAX_TIMEOUT     = Client.DEFAULT_TIMEOUT;
+    
+    /** The initial hold-off after a RATE kiss (in milliseconds). */
+    public static final long        MIN_HOLDOFF     = 64000L;
+    
+    /** The maximum hold-off after a RATE kiss (in milliseconds). */
+    public static final long        MAX_HOLDOFF     = 36 * 64000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The server address. */
+    private final InetSocketAddress server;
+    
+    /** The channel connected to the server. */
+    private final DatagramChannel   channel;
+    
+    /** The reply selector. */
+    private final Selector          selector;
+    
+    /** The request buffer. */
+    private final ByteBuffer        request;
+    
+    /** The reply buffer. */
+    private final ByteBuffer        reply;
+    
+    /** The clock filter fed by the measurements. */
+    private final ClockFilter       filter;
+    
+    /** The smoothed round-trip time (in milliseconds), negative if unknown. */
+    private double                  srtt;
+    
+    /** The round-trip time variation (in milliseconds). */
+    private double                  rttvar;
+    
+    /** The current reply timeout (in milliseconds). */
+    private long                    timeout;
+    
+    /** The last kiss code received, null if none. */
+    private String                  kiss;
+    
+    /** The current hold-off after a RATE kiss (in milliseconds). */
+    private long                    holdoff;
+    
+    /** The local time before which no request is sent. */
+    private volatile long           resume;
+    
+    /** Indicates if the server denied the access. */
+    private volatile boolean        denied;
+    
+    /** The server metrics, null if none. */
+    private volatile ServerMetrics  metrics;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The default SNTP port is used.
+     * 
+     * @param addr
+     *            the server host address.
+     * @throws NullPointerException
+     *             if the argument is null.
+     * @throws IOException
+     *             if an error occurs while opening the channel.
+     * @see Client#DEFAULT_SNTP_PORT
+     */
+    public Session(final InetAddress addr) throws IOException
+    {
+        this(new InetSocketAddress(addr, Client.DEFAULT_SNTP_PORT));
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param server
+     *            the server address.
+     * @throws NullPointerException
+     *             if the argument is null.
+     * @throws IOException
+     *             if an error occurs while opening the channel.
+     */
+    public Session(final InetSocketAddress server) throws IOException
+    {
+        if (server == null)
+        {
+            throw new NullPointerException("server=null");
+        }
+        this.server = server;
+        channel = DatagramChannel.open();
+        try
+        {
+            channel.connect(server);
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+        catch (final IOException ioe)
+        {
+            channel.close();
+            throw ioe;
+        }
+        request = ByteBuffer.allocateDirect(Codec.LENGTH);
+        reply = ByteBuffer.allocateDirect(Message.MAXIMUM_LENGTH);
+        filter = new ClockFilter();
+        srtt = -1;
+        rttvar = 0;
+        timeout = INITIAL_TIMEOUT;
+        
+        final Message message = new Message();
+        Codec.encodeMessage(message, request);
+    }
+    
+    /**
+     * Releases the session resources, waiting for the request in progress.
+     */
+    public synchronized void close()
+    {
+        try
+        {
+            selector.close();
+            channel.close();
+        }
+        catch (final IOException ioe)
+        {
+            System.err.println("AtomicDate: error closing a session.");
+            ioe.printStackTrace(System.err);
+        }
+    }
+    
+    /**
+     * Queries the server, and feeds the measurement to the session clock
+     * filter.
+     * 
+     * @return the measurement.
+     * @throws KissOfDeathException
+     *             if the server sent a Kiss-o'-Death reply.
+     * @throws IOException
+     *             if the session is closed, or if the server can't be queried
+     *             or doesn't answer in time.
+     */
+    public synchronized Measurement measure() throws IOException
+    {
+        if (!channel.isOpen())
+        {
+            throw new IOException("Session closed.");
+        }
+        if (denied)
+        {
+            throw new IOException("Access denied by the server (" + kiss
+                    + ").");
+        }
+        final long start = System.currentTimeMillis();
+        if (start < resume)
+        {
+            throw new IOException("Rate limited by the server ("
+                    + (resume - start) + " ms left).");
+        }
+        
+        // Discard the replies left over by a previous timeout.
+        reply.clear();
+        while (channel.read(reply) > 0)
+        {
+            reply.clear();
+        }
+        
+        final ServerMetrics m = metrics;
+        final long t1 = System.currentTimeMillis();
+        Codec.encodeTime(t1, request, Codec.TRANSMIT_TIMESTAMP_INDEX);
+        final long sent = request.getLong(Codec.TRANSMIT_TIMESTAMP_INDEX);
+        request.clear();
+        channel.write(request);
+        request.clear();
+        if (m != null)
+        {
+            m.onSent();
+        }
+        
+        final long deadline = t1 + timeout;
+        long left = timeout;
+        while (left > 0)
+        {
+            selector.select(left);
+            selector.selectedKeys().clear();
+            reply.clear();
+            while (channel.read(reply) > 0)
+            {
+                final long t4 = System.currentTimeMillis();
+                if (reply.position() >= Codec.LENGTH
+                        && reply.getLong(Codec.ORIGINATE_TIMESTAMP_INDEX)
+                                == sent)
+                {
+                    return accept(t1, t4, m);
+                }
+                if (m != null)
+                {
+                    m.onRejected();
+                }
+                reply.clear();
+            }
+            left = deadline - System.currentTimeMillis();
+        }
+        timeout = Math.min(timeout * 2, MAX_TIMEOUT);
+        if (m != null)
+        {
+            m.onTimeout();
+        }
+        
+        throw new IOException("Timed-out while querying the server.");
+    }
+    
+    /**
+     * Indicates if the server can be queried: the access wasn't denied and the
+     * rate limit hold-off is over.
+     * 
+     * @param now
+     *            the local time.
+     * @return true if it can be queried, otherwise false.
+     */
+    public boolean isAvailable(final long now)
+    {
+        return !denied && now >= resume;
+    }
+    
+    /**
+     * Configures the metrics updated by the session.
+     * 
+     * @param metrics
+     *            the server metrics, null for none.
+     */
+    public void setMetrics(final ServerMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Returns the metrics updated by the session.
+     * 
+     * @return the server metrics, null if none.
+     */
+    public ServerMetrics getMetrics()
+    {
+        return metrics;
+    }
+    
+    /**
+     * Returns the server address.
+     * 
+     * @return the server address.
+     */
+    public InetSocketAddress getServer()
+    {
+        return server;
+    }
+    
+    /**
+     * Returns the session clock filter. It must only be accessed while holding
+     * the session lock.
+     * 
+     * @return the clock filter.
+     */
+    public ClockFilter getFilter()
+    {
+        return filter;
+    }
+    
+    /**
+     * Returns the smoothed round-trip time.
+     * 
+     * @return the smoothed round-trip time (in milliseconds), negative if
+     *         unknown.
+     */
+    public synchronized double getRoundTripTime()
+    {
+        return srtt;
+    }
+    
+    /**
+     * Returns the current reply timeout.
+     * 
+     * @return the reply timeout (in milliseconds).
+     */
+    public synchronized long getTimeout()
+    {
+        return timeout;
+    }
+    
+    /**
+     * Returns the code of the last Kiss-o'-Death reply.
+     * 
+     * @return the kiss code, null if none was received.
+     */
+    public synchronized String getKissCode()
+    {
+        return kiss;
+    }
+    
+    /**
+     * Indicates if the server denied the access, with a <code>DENY</code> or
+     * <code>RSTR</code> Kiss-o'-Death reply.
+     * 
+     * @return true if the access was denied, otherwise false.
+     */
+    public synchronized boolean isDenied()
+    {
+        return denied;
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        return server.toString();
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Processes a valid reply.
+     * 
+     * @param t1
+     *            the local transmit time.
+     * @param t4
+     *            the local receive time.
+     * @param m
+     *            the server metrics, null if none.
+     * @return the measurement.
+     * @throws IOException
+     *             if the reply is a Kiss-o'-Death or the server isn't
+     *             synchronized.
+     */
+    private Measurement accept(final long t1, final long t4,
+            final ServerMetrics m) throws IOException
+    {
+        reply.flip();
+        final Message message = Codec.decodeMessage(reply.duplicate());
+        if (message.isKissOfDeath())
+        {
+            if (m != null)
+            {
+                m.onKiss();
+            }
+            kiss(message.getKissCode(), t4);
+        }
+        if (message.getLeapIndicator() == Message.LI_ALARM
+                || (message.getStratum() & 0xFF) > 15)
+        {
+            if (m != null)
+            {
+                m.onRejected();
+            }
+            throw new IOException("Server not synchronized.");
+        }
+        
+        final Measurement measurement = toMeasurement(message, reply, t1, t4);
+        filter.add(measurement.getOffset(), measurement.getDelay(), measurement
+                .getDispersion(), measurement.getTime());
+        
+        // RFC 6298, on the whole round-trip, Karn's rule being moot since the
+        // replies are matched to their request.
+        final long rtt = t4 - t1;
+        if (srtt < 0)
+        {
+            srtt = rtt;
+            rttvar = rtt / 2D;
+        }
+        else
+        {
+            rttvar = 0.75D * rttvar + 0.25D * Math.abs(srtt - rtt);
+            srtt = 0.875D * srtt + 0.125D * rtt;
+        }
+        timeout = Math.max(MIN_TIMEOUT, Math.min(MAX_TIMEOUT,
+                (long) Math.ceil(srtt + 4 * rttvar)));
+        holdoff = 0;
+        if (m != null)
+        {
+            m.onReceived(rtt, measurement.getOffset(), t4);
+        }
+        
+        return measurement;
+    }
+    
+    /**
+     * Computes the measurement of a reply.
+     * 
+     * @param message
+     *            the decoded reply.
+     * @param reply
+     *            the reply buffer.
+     * @param t1
+     *            the local transmit time.
+     * @param t4
+     *            the local receive time.
+     * @return the measurement.
+     */
+    protected static Measurement toMeasurement(final Message message,
+            final ByteBuffer reply, final long t1, final long t4)
+    {
+        final long t2 = Codec.decodeTime(reply, Codec.RECEIVE_TIMESTAMP_INDEX);
+        final long t3 = Codec.decodeTime(reply, Codec.TRANSMIT_TIMESTAMP_INDEX);
+        final long delay = Math.max(0, t2 - t1 + t4 - t3);
+        
+        return new Measurement(message, (t2 - t1 + t3 - t4) / 2, delay, t4);
+    }
+    
+    /**
+     * Processes a Kiss-o'-Death reply.
+     * 
+     * @param code
+     *            the kiss code.
+     * @param now
+     *            the local time.
+     * @throws KissOfDeathException
+     *             always.
+     */
+    private void kiss(final String code, final long now)
+            throws KissOfDeathException
+    {
+        kiss = code;
+        if (Message.KISS_DENY.equals(code) || Message.KISS_RSTR.equals(code))
+        {
+            denied = true;
+            throw new KissOfDeathException(server, code,
+                    "Access denied by the server (" + code + ").");
+        }
+        if (Message.KISS_RATE.equals(code))
+        {
+            holdoff = Math.min(Math.max(holdoff * 2, MIN_HOLDOFF), MAX_HOLDOFF);
+            resume = now + holdoff;
+            throw new KissOfDeathException(server, code,
+                    "Rate limited by the server (" + holdoff + " ms).");
+        }
+        
+        throw new KissOfDeathException(server, code,
+                "Kiss-o'-Death from the server (" + code + ").");
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
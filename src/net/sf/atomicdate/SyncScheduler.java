@@ -0,0 +1,408 @@
+/*
+ * SyncScheduler.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scheduler shared by all the synchronization sessions of the JVM.
+ * <ul>
+ * <li>A single timer thread drives every periodic task, and hands its
+ * executions over to a bounded pool of worker threads, so a task blocked on a
+ * slow or unreachable server doesn't delay the other tasks;</li>
+ * <li>Every execution is delayed by the task period plus a random jitter, so
+ * that sessions created at the same time don't poll in lockstep;</li>
+ * <li>The period of a scheduled task can be changed at any time.</li>
+ * </ul>
+ * 
+ * @author Koka El Kiwi
+ */
+public final class SyncScheduler
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The scheduler threads name. */
+    private static final String               THREAD_NAME     = "AtomicDate-Sync";
+    
+    /** The default jitter, as a fraction of the period. */
+    public static final double                DEFAULT_JITTER  = 0.1D;
+    
+    /** The number of worker threads of the shared scheduler. */
+    public static final int                   DEFAULT_WORKERS = 8;
+    
+    /** The idle worker threads keep-alive (in seconds). */
+    private static final long                 KEEP_ALIVE      = 60L;
+    
+    /** The default scheduler instance. */
+    private static SyncScheduler              instance;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The executor timing the tasks. */
+    private final ScheduledThreadPoolExecutor executor;
+    
+    /** The executor running the tasks. */
+    private final ThreadPoolExecutor          workers;
+    
+    /** The jitter random source. */
+    private final Random                      random;
+    
+    /** The jitter, as a fraction of the period. */
+    private volatile double                   jitter;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Returns the scheduler shared by the whole JVM.
+     * 
+     * @return the shared scheduler.
+     */
+    public static synchronized SyncScheduler getDefault()
+    {
+        if (instance == null)
+        {
+            instance = new SyncScheduler(DEFAULT_WORKERS);
+        }
+        
+        return instance;
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param threads
+     *            the maximum number of worker threads, running the tasks
+     *            concurrently; idle workers are released after a while.
+     * @throws IllegalArgumentException
+     *             if the number of threads isn't positive.
+     */
+    public SyncScheduler(final int threads)
+    {
+        if (threads <= 0)
+        {
+            throw new IllegalArgumentException("threads<=0");
+        }
+        final ThreadFactory factory = new DaemonThreadFactory();
+        executor = new ScheduledThreadPoolExecutor(1, factory);
+        workers = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+        workers.allowCoreThreadTimeOut(true);
+        random = new Random();
+        jitter = DEFAULT_JITTER;
+    }
+    
+    /**
+     * Configures the jitter applied to every execution delay. A jitter of
+     * <code>j</code> spreads the delays uniformly over
+     * <code>[period*(1-j), period*(1+j)]</code>.
+     * 
+     * @param jitter
+     *            the jitter, as a fraction of the period.
+     * @throws IllegalArgumentException
+     *             if the jitter isn't in the <code>[0, 1[</code> range.
+     */
+    public void setJitter(final double jitter)
+    {
+        if (jitter < 0 || jitter >= 1)
+        {
+            throw new IllegalArgumentException("jitter<0 || jitter>=1");
+        }
+        this.jitter = jitter;
+    }
+    
+    /**
+     * Returns the jitter applied to every execution delay.
+     * 
+     * @return the jitter, as a fraction of the period.
+     */
+    public double getJitter()
+    {
+        return jitter;
+    }
+    
+    /**
+     * Schedules a task for periodic execution. The first execution happens
+     * after one (jittered) period.
+     * 
+     * @param task
+     *            the task.
+     * @param period
+     *            the period (in milliseconds).
+     * @return the handle of the scheduled task.
+     * @throws NullPointerException
+     *             if the task is null.
+     * @throws IllegalArgumentException
+     *             if the period isn't positive.
+     */
+    public Task schedule(final Runnable task, final long period)
+    {
+        if (task == null)
+        {
+            throw new NullPointerException("task=null");
+        }
+        final Task handle = new Task(task);
+        handle.setPeriod(period);
+        
+        return handle;
+    }
+    
+    /**
+     * Executes a task once, as soon as a worker thread is available.
+     * 
+     * @param task
+     *            the task.
+     * @throws NullPointerException
+     *             if the task is null.
+     */
+    public void execute(final Runnable task)
+    {
+        if (task == null)
+        {
+            throw new NullPointerException("task=null");
+        }
+        workers.execute(task);
+    }
+    
+    /**
+     * Stops the scheduler. The pending tasks are discarded.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+        workers.shutdownNow();
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns a jittered delay.
+     * 
+     * @param period
+     *            the period (in milliseconds).
+     * @return the delay (in milliseconds).
+     */
+    private long jittered(final long period)
+    {
+        final double j = jitter;
+        final double factor;
+        synchronized (random)
+        {
+            factor = 1 + j * (2 * random.nextDouble() - 1);
+        }
+        
+        return Math.max(1, (long) (period * factor));
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The handle of a periodic task.
+     * 
+     * @author Koka El Kiwi
+     */
+    public final class Task
+    {
+        
+        /** The scheduled task. */
+        private final Runnable     task;
+        
+        /** The period (in milliseconds). */
+        private long               period;
+        
+        /** The schedule generation, incremented on every reschedule. */
+        private int                generation;
+        
+        /** The cancellation flag. */
+        private boolean            cancelled;
+        
+        /** The next pending execution. */
+        private ScheduledFuture<?> future;
+        
+        /**
+         * Constructor.
+         * 
+         * @param task
+         *            the scheduled task.
+         */
+        private Task(final Runnable task)
+        {
+            this.task = task;
+        }
+        
+        /**
+         * Changes the period. The pending execution is rescheduled to happen
+         * one (jittered) period from now.
+         * 
+         * @param period
+         *            the new period (in milliseconds).
+         * @throws IllegalArgumentException
+         *             if the period isn't positive.
+         * @throws IllegalStateException
+         *             if the task was cancelled.
+         */
+        public synchronized void setPeriod(final long period)
+        {
+            if (period <= 0)
+            {
+                throw new IllegalArgumentException("period<=0");
+            }
+            if (cancelled)
+            {
+                throw new IllegalStateException("Task cancelled.");
+            }
+            this.period = period;
+            if (future != null)
+            {
+                future.cancel(false);
+            }
+            generation++;
+            next(generation);
+        }
+        
+        /**
+         * Returns the period.
+         * 
+         * @return the period (in milliseconds).
+         */
+        public synchronized long getPeriod()
+        {
+            return period;
+        }
+        
+        /**
+         * Cancels the task. An execution already in progress isn't
+         * interrupted.
+         */
+        public synchronized void cancel()
+        {
+            cancelled = true;
+            if (future != null)
+            {
+                future.cancel(false);
+                future = null;
+            }
+        }
+        
+        /**
+         * Indicates if the task was cancelled.
+         * 
+         * @return true if it was cancelled, otherwise false.
+         */
+        public synchronized boolean isCancelled()
+        {
+            return cancelled;
+        }
+        
+        /**
+         * Schedules the next execution, handed over to the workers when due.
+         * Must be called with the lock held.
+         * 
+         * @param gen
+         *            the schedule generation.
+         */
+        private void next(final int gen)
+        {
+            future = executor.schedule(new Runnable() {
+                
+                @Override
+                public void run()
+                {
+                    workers.execute(new Runnable() {
+                        
+                        @Override
+                        public void run()
+                        {
+                            execute(gen);
+                        }
+                    });
+                }
+            }, jittered(period), TimeUnit.MILLISECONDS);
+        }
+        
+        /**
+         * Runs the task and schedules the next execution, unless the task was
+         * cancelled or rescheduled meanwhile (possibly while the execution was
+         * waiting for a worker).
+         * 
+         * @param gen
+         *            the schedule generation.
+         */
+        private void execute(final int gen)
+        {
+            synchronized (this)
+            {
+                if (cancelled || gen != generation)
+                {
+                    return;
+                }
+            }
+            try
+            {
+                task.run();
+            }
+            catch (final RuntimeException re)
+            {
+                System.err.println("AtomicDate: error running a sync task.");
+                re.printStackTrace(System.err);
+            }
+            synchronized (this)
+            {
+                if (!cancelled && gen == generation)
+                {
+                    next(gen);
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Creates the scheduler daemon threads.
+     * 
+     * @author Koka El Kiwi
+     */
+    private static class DaemonThreadFactory implements ThreadFactory
+    {
+        
+        /** The created threads counter. */
+        private final AtomicInteger count = new AtomicInteger();
+        
+        // See ThreadFactory for details.
+        @Override
+        public Thread newThread(final Runnable r)
+        {
+            final Thread thread = new Thread(r, THREAD_NAME + "-"
+                    + count.incrementAndGet());
+            thread.setDaemon(true);
+            
+            return thread;
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
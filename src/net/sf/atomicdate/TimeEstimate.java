@@ -0,0 +1,104 @@
+/*
+ * TimeEstimate.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate;
+
+/**
+ * The network time together with its error bounds. The true network time is
+ * guaranteed to be within <code>time &plusmn; maxError</code>, and is likely
+ * within <code>time &plusmn; estimatedError</code>.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class TimeEstimate
+{
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The network time (in milliseconds). */
+    private final long   time;
+    
+    /** The maximum error (in milliseconds). */
+    private final double maxError;
+    
+    /** The estimated error (in milliseconds). */
+    private final double estimatedError;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param time
+     *            the network time (in milliseconds).
+     * @param maxError
+     *            the maximum error (in milliseconds).
+     * @param estimatedError
+     *            the estimated error (in milliseconds).
+     */
+    public TimeEstimate(final long time, final double maxError,
+            final double estimatedError)
+    {
+        this.time = time;
+        this.maxError = maxError;
+        this.estimatedError = estimatedError;
+    }
+    
+    /**
+     * Returns the network time.
+     * 
+     * @return the network time (in milliseconds).
+     */
+    public long getTime()
+    {
+        return time;
+    }
+    
+    /**
+     * Returns the maximum error.
+     * 
+     * @return the maximum error (in milliseconds).
+     */
+    public double getMaxError()
+    {
+        return maxError;
+    }
+    
+    /**
+     * Returns the estimated error.
+     * 
+     * @return the estimated error (in milliseconds).
+     */
+    public double getEstimatedError()
+    {
+        return estimatedError;
+    }
+    
+    /**
+     * Returns the network date.
+     * 
+     * @return the network date.
+     */
+    public java.util.Date getDate()
+    {
+        return new java.util.Date(time);
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        return time + " +/-" + maxError + " (~" + estimatedError + ")";
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,188 @@
+/*
+ * ClockEvent.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.flow;
+
+import java.net.InetAddress;
+
+import net.sf.atomicdate.ClockState;
+
+/**
+ * An event of the synchronization of a {@link net.sf.atomicdate.Service},
+ * published by a {@link ClockEventPublisher}. The events are immutable.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class ClockEvent
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** Event type: a new synchronization sample. */
+    public static final int       TYPE_SAMPLE        = 0;
+    
+    /** Event type: the network time jumped by more than the step threshold. */
+    public static final int       TYPE_STEP          = 1;
+    
+    /** Event type: the network time moved by more than the estimated error. */
+    public static final int       TYPE_SLEW          = 2;
+    
+    /** Event type: the synchronization server changed. */
+    public static final int       TYPE_SERVER_CHANGE = 3;
+    
+    /** Event type: a server sent a Kiss-o'-Death. */
+    public static final int       TYPE_KISS          = 4;
+    
+    /** The type names, by type. */
+    private static final String[] NAMES              = {
+            "SAMPLE", "STEP", "SLEW", "SERVER_CHANGE", "KISS" };
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The event type. */
+    private final int             type;
+    
+    /** The local time of the event (in milliseconds). */
+    private final long            time;
+    
+    /** The synchronization state, null if none. */
+    private final ClockState      state;
+    
+    /** The network time change (in milliseconds). */
+    private final double          change;
+    
+    /** The server address, null if unknown. */
+    private final InetAddress     server;
+    
+    /** The kiss code, null if none. */
+    private final String          kissCode;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param type
+     *            the event type.
+     * @param time
+     *            the local time of the event (in milliseconds).
+     * @param state
+     *            the synchronization state, null if none.
+     * @param change
+     *            the network time change (in milliseconds).
+     * @param server
+     *            the server address, null if unknown.
+     * @param kissCode
+     *            the kiss code, null if none.
+     */
+    ClockEvent(final int type, final long time, final ClockState state,
+            final double change, final InetAddress server,
+            final String kissCode)
+    {
+        this.type = type;
+        this.time = time;
+        this.state = state;
+        this.change = change;
+        this.server = server;
+        this.kissCode = kissCode;
+    }
+    
+    /**
+     * Returns the event type.
+     * 
+     * @return the event type, like {@link #TYPE_SAMPLE}.
+     */
+    public int getType()
+    {
+        return type;
+    }
+    
+    /**
+     * Returns the local time of the event.
+     * 
+     * @return the local time (in milliseconds).
+     */
+    public long getTime()
+    {
+        return time;
+    }
+    
+    /**
+     * Returns the synchronization state after the event.
+     * 
+     * @return the synchronization state, null for a {@link #TYPE_KISS} event.
+     */
+    public ClockState getState()
+    {
+        return state;
+    }
+    
+    /**
+     * Returns the change of the network time seen by the local clock, for
+     * {@link #TYPE_STEP} and {@link #TYPE_SLEW} events.
+     * 
+     * @return the change (in milliseconds), 0 for the other events.
+     */
+    public double getChange()
+    {
+        return change;
+    }
+    
+    /**
+     * Returns the address of the server involved.
+     * 
+     * @return the server address, null if unknown.
+     */
+    public InetAddress getServer()
+    {
+        return server;
+    }
+    
+    /**
+     * Returns the kiss code of a {@link #TYPE_KISS} event.
+     * 
+     * @return the kiss code, null for the other events.
+     */
+    public String getKissCode()
+    {
+        return kissCode;
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder(NAMES[type]);
+        sb.append(": time=").append(time);
+        if (type == TYPE_STEP || type == TYPE_SLEW)
+        {
+            sb.append(", change=").append(change);
+        }
+        if (server != null)
+        {
+            sb.append(", server=").append(server.getHostAddress());
+        }
+        if (kissCode != null)
+        {
+            sb.append(", kiss=").append(kissCode);
+        }
+        if (state != null)
+        {
+            sb.append(", ").append(state);
+        }
+        
+        return sb.toString();
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
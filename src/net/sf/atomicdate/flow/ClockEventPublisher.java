@@ -0,0 +1,570 @@
+/*
+ * ClockEventPublisher.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.flow;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.atomicdate.ClockListener;
+import net.sf.atomicdate.ClockState;
+import net.sf.atomicdate.KissListener;
+import net.sf.atomicdate.KissOfDeathException;
+import net.sf.atomicdate.Service;
+
+/**
+ * Publishes the synchronization events of a {@link Service}, so that the
+ * consumers can react to changes instead of polling.
+ * <ul>
+ * <li>Every synchronization publishes a {@link ClockEvent#TYPE_SAMPLE sample},
+ * followed by a {@link ClockEvent#TYPE_STEP step} or a
+ * {@link ClockEvent#TYPE_SLEW slew} event if the network time moved, and a
+ * {@link ClockEvent#TYPE_SERVER_CHANGE server change} event if another server
+ * was used;</li>
+ * <li>Every Kiss-o'-Death publishes a {@link ClockEvent#TYPE_KISS kiss}
+ * event;</li>
+ * <li>The events are delivered on an executor, never more than requested by
+ * the subscriber; the events not yet requested are queued per subscriber;</li>
+ * <li>A queued sample is replaced by a newer one, so a slow subscriber only
+ * sees the latest sample. When a queue is full, its oldest sample, or else its
+ * oldest event, is dropped.</li>
+ * </ul>
+ * 
+ * @author Koka El Kiwi
+ */
+public class ClockEventPublisher implements Publisher<ClockEvent>
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default number of events queued per subscriber. */
+    public static final int                               DEFAULT_CAPACITY = 16;
+    
+    /** The network time change reported as a step (in milliseconds). */
+    public static final double                            STEP_THRESHOLD   = 128D;
+    
+    /** The default delivery thread name. */
+    private static final String                           THREAD_NAME      = "AtomicDate-Events";
+    
+    /** The default delivery thread idle time (in milliseconds). */
+    private static final long                             KEEP_ALIVE       = 60000L;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The published service. */
+    private final Service                                 service;
+    
+    /** The events delivery executor. */
+    private final Executor                                executor;
+    
+    /** The number of events queued per subscriber. */
+    private final int                                     capacity;
+    
+    /** The active subscriptions. */
+    private final CopyOnWriteArrayList<EventSubscription> subscriptions;
+    
+    /** The synchronization state listener. */
+    private final ClockListener                           clockListener;
+    
+    /** The Kiss-o'-Death listener. */
+    private final KissListener                            kissListener;
+    
+    /** The number of events dropped. */
+    private final AtomicLong                              dropped;
+    
+    /** The last published synchronization state, null if none. */
+    private ClockState                                    previous;
+    
+    /** The last synchronization server, null if unknown. */
+    private InetAddress                                   server;
+    
+    /** The closed flag. */
+    private volatile boolean                              closed;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The events are delivered by a dedicated daemon thread, and
+     * the {@link #DEFAULT_CAPACITY default number} of events is queued per
+     * subscriber.
+     * 
+     * @param service
+     *            the published service.
+     * @throws NullPointerException
+     *             if the service is null.
+     */
+    public ClockEventPublisher(final Service service)
+    {
+        this(service, createExecutor(), DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param service
+     *            the published service.
+     * @param executor
+     *            the events delivery executor.
+     * @param capacity
+     *            the number of events queued per subscriber.
+     * @throws NullPointerException
+     *             if the service or the executor is null.
+     * @throws IllegalArgumentException
+     *             if the capacity isn't positive.
+     */
+    public ClockEventPublisher(final Service service, final Executor executor,
+            final int capacity)
+    {
+        if (service == null)
+        {
+            throw new NullPointerException("service=null");
+        }
+        if (executor == null)
+        {
+            throw new NullPointerException("executor=null");
+        }
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("capacity<=0");
+        }
+        this.service = service;
+        this.executor = executor;
+        this.capacity = capacity;
+        subscriptions = new CopyOnWriteArrayList<EventSubscription>();
+        dropped = new AtomicLong();
+        previous = service.isSynchronized() ? service.getState() : null;
+        server = service.getServerHost();
+        clockListener = new ClockListener() {
+            
+            @Override
+            public void onUpdate(final ClockState state)
+            {
+                update(state);
+            }
+        };
+        kissListener = new KissListener() {
+            
+            @Override
+            public void onKiss(final KissOfDeathException kiss)
+            {
+                publish(new ClockEvent(ClockEvent.TYPE_KISS,
+                        System.currentTimeMillis(), null, 0, kiss.getServer()
+                                .getAddress(), kiss.getKissCode()));
+            }
+        };
+        service.addClockListener(clockListener);
+        service.addKissListener(kissListener);
+    }
+    
+    // See Publisher for details.
+    @Override
+    public void subscribe(final Subscriber<? super ClockEvent> subscriber)
+    {
+        if (subscriber == null)
+        {
+            throw new NullPointerException("subscriber=null");
+        }
+        final EventSubscription subscription = new EventSubscription(
+                subscriber);
+        subscriptions.add(subscription);
+        if (closed)
+        {
+            subscription.complete();
+        }
+        else
+        {
+            subscription.schedule();
+        }
+    }
+    
+    /**
+     * Returns the number of events dropped so far because a subscriber queue
+     * was full. The replaced samples aren't counted.
+     * 
+     * @return the number of dropped events.
+     */
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+    
+    /**
+     * Returns the number of active subscribers.
+     * 
+     * @return the number of subscribers.
+     */
+    public int getSubscriberCount()
+    {
+        return subscriptions.size();
+    }
+    
+    /**
+     * Stops publishing. The subscribers receive their queued events, then
+     * {@link Subscriber#onComplete()}. The service isn't closed.
+     */
+    public void close()
+    {
+        closed = true;
+        service.removeClockListener(clockListener);
+        service.removeKissListener(kissListener);
+        for (final EventSubscription subscription : subscriptions)
+        {
+            subscription.complete();
+        }
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Creates the default delivery executor, a single daemon thread stopped
+     * when idle.
+     * 
+     * @return the executor.
+     */
+    private static Executor createExecutor()
+    {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    
+                    @Override
+                    public Thread newThread(final Runnable r)
+                    {
+                        final Thread thread = new Thread(r, THREAD_NAME);
+                        thread.setDaemon(true);
+                        
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        
+        return executor;
+    }
+    
+    /**
+     * Publishes the events of a synchronization.
+     * 
+     * @param state
+     *            the new synchronization state.
+     */
+    private synchronized void update(final ClockState state)
+    {
+        final long now = System.currentTimeMillis();
+        final InetAddress host = service.getServerHost();
+        publish(new ClockEvent(ClockEvent.TYPE_SAMPLE, now, state, 0, host,
+                null));
+        if (previous != null)
+        {
+            final double change = state.getOffset(now)
+                    - previous.getOffset(now);
+            if (Math.abs(change) >= STEP_THRESHOLD)
+            {
+                publish(new ClockEvent(ClockEvent.TYPE_STEP, now, state,
+                        change, host, null));
+            }
+            else if (Math.abs(change) > state.getEstimatedError())
+            {
+                publish(new ClockEvent(ClockEvent.TYPE_SLEW, now, state,
+                        change, host, null));
+            }
+        }
+        if (host != null && server != null && !host.equals(server))
+        {
+            publish(new ClockEvent(ClockEvent.TYPE_SERVER_CHANGE, now, state,
+                    0, host, null));
+        }
+        previous = state;
+        if (host != null)
+        {
+            server = host;
+        }
+    }
+    
+    /**
+     * Queues an event for every subscriber.
+     * 
+     * @param event
+     *            the event.
+     */
+    private void publish(final ClockEvent event)
+    {
+        for (final EventSubscription subscription : subscriptions)
+        {
+            subscription.offer(event);
+        }
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The subscription of a subscriber: the queue of its pending events and
+     * its demand. The delivery runs on the executor, one task at a time.
+     * 
+     * @author Koka El Kiwi
+     */
+    private final class EventSubscription implements Subscription, Runnable
+    {
+        
+        /** The subscriber. */
+        private final Subscriber<? super ClockEvent> subscriber;
+        
+        /** The pending events. */
+        private final ArrayDeque<ClockEvent>         queue;
+        
+        /** The number of events requested and not yet delivered. */
+        private long                                 demand;
+        
+        /** The subscription failure, null if none. */
+        private Throwable                            error;
+        
+        /** The onSubscribe() delivered flag. */
+        private boolean                              started;
+        
+        /** The delivery task scheduled flag. */
+        private boolean                              scheduled;
+        
+        /** The publisher closed flag. */
+        private boolean                              completed;
+        
+        /** The terminated flag, set when cancelled or terminally signaled. */
+        private boolean                              done;
+        
+        /**
+         * Constructor.
+         * 
+         * @param subscriber
+         *            the subscriber.
+         */
+        public EventSubscription(
+                final Subscriber<? super ClockEvent> subscriber)
+        {
+            this.subscriber = subscriber;
+            queue = new ArrayDeque<ClockEvent>(capacity);
+        }
+        
+        // See Subscription for details.
+        @Override
+        public synchronized void request(final long n)
+        {
+            if (done)
+            {
+                return;
+            }
+            if (n <= 0)
+            {
+                error = new IllegalArgumentException("n<=0");
+                queue.clear();
+            }
+            else
+            {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            schedule();
+        }
+        
+        // See Subscription for details.
+        @Override
+        public void cancel()
+        {
+            synchronized (this)
+            {
+                done = true;
+                queue.clear();
+            }
+            subscriptions.remove(this);
+        }
+        
+        /**
+         * Queues an event, conflating the samples.
+         * 
+         * @param event
+         *            the event.
+         */
+        public synchronized void offer(final ClockEvent event)
+        {
+            if (done || completed)
+            {
+                return;
+            }
+            if (event.getType() == ClockEvent.TYPE_SAMPLE)
+            {
+                removeSample();
+            }
+            if (queue.size() >= capacity)
+            {
+                if (!removeSample())
+                {
+                    queue.poll();
+                }
+                dropped.incrementAndGet();
+            }
+            queue.add(event);
+            schedule();
+        }
+        
+        /**
+         * Signals the publisher closing.
+         */
+        public synchronized void complete()
+        {
+            completed = true;
+            schedule();
+        }
+        
+        /**
+         * Schedules the delivery task if there's something to deliver.
+         */
+        public synchronized void schedule()
+        {
+            if (scheduled || done)
+            {
+                return;
+            }
+            if (started && error == null
+                    && (demand == 0 || queue.isEmpty())
+                    && !(completed && queue.isEmpty()))
+            {
+                return;
+            }
+            scheduled = true;
+            try
+            {
+                executor.execute(this);
+            }
+            catch (final RejectedExecutionException ree)
+            {
+                System.err.println("AtomicDate: can't deliver clock events.");
+                ree.printStackTrace(System.err);
+                scheduled = false;
+                done = true;
+                queue.clear();
+                subscriptions.remove(this);
+            }
+        }
+        
+        // See Runnable for details.
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                ClockEvent event = null;
+                Throwable failure = null;
+                boolean subscribe = false;
+                boolean terminate = false;
+                synchronized (this)
+                {
+                    if (done)
+                    {
+                        scheduled = false;
+                        return;
+                    }
+                    if (!started)
+                    {
+                        started = true;
+                        subscribe = true;
+                    }
+                    else if (error != null)
+                    {
+                        failure = error;
+                        done = true;
+                    }
+                    else if (demand > 0 && !queue.isEmpty())
+                    {
+                        event = queue.poll();
+                        if (demand != Long.MAX_VALUE)
+                        {
+                            demand--;
+                        }
+                    }
+                    else if (completed && queue.isEmpty())
+                    {
+                        terminate = true;
+                        done = true;
+                    }
+                    else
+                    {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                
+                try
+                {
+                    if (subscribe)
+                    {
+                        subscriber.onSubscribe(this);
+                    }
+                    else if (event != null)
+                    {
+                        subscriber.onNext(event);
+                    }
+                    else if (failure != null)
+                    {
+                        subscriber.onError(failure);
+                    }
+                    else if (terminate)
+                    {
+                        subscriber.onComplete();
+                    }
+                }
+                catch (final RuntimeException re)
+                {
+                    System.err.println("AtomicDate: error in a clock event "
+                            + "subscriber.");
+                    re.printStackTrace(System.err);
+                    cancel();
+                }
+                if (failure != null || terminate)
+                {
+                    subscriptions.remove(this);
+                }
+            }
+        }
+        
+        /**
+         * Removes the queued sample, if any. Must be called with the lock held.
+         * 
+         * @return true if a sample was removed, otherwise false.
+         */
+        private boolean removeSample()
+        {
+            final Iterator<ClockEvent> it = queue.iterator();
+            while (it.hasNext())
+            {
+                if (it.next().getType() == ClockEvent.TYPE_SAMPLE)
+                {
+                    it.remove();
+                    
+                    return true;
+                }
+            }
+            
+            return false;
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
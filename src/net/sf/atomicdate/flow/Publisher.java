@@ -0,0 +1,38 @@
+/*
+ * Publisher.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.flow;
+
+/**
+ * A producer of items received by {@link Subscriber subscribers}, following
+ * the Reactive Streams protocol. This interface mirrors
+ * <code>java.util.concurrent.Flow.Publisher</code>, which isn't available on
+ * every platform, so a trivial adapter can bridge the two.
+ * 
+ * @param <T>
+ *            the items type.
+ * @author Koka El Kiwi
+ */
+public interface Publisher<T>
+{
+    
+    /**
+     * Adds a subscriber. The method
+     * {@link Subscriber#onSubscribe(Subscription)} is called before any other method of the subscriber.
+     * 
+     * @param subscriber
+     *            the subscriber.
+     * @throws NullPointerException
+     *             if the subscriber is null.
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,57 @@
+/*
+ * Subscriber.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.flow;
+
+/**
+ * A receiver of the items of a {@link Publisher}. The methods are never called
+ * concurrently for a given subscription. This interface mirrors
+ * <code>java.util.concurrent.Flow.Subscriber</code>.
+ * 
+ * @param <T>
+ *            the items type.
+ * @author Koka El Kiwi
+ */
+public interface Subscriber<T>
+{
+    
+    /**
+     * This method is called once, before any other method.
+     * 
+     * @param subscription
+     *            the subscription, used to request items or to cancel.
+     */
+    void onSubscribe(Subscription subscription);
+    
+    /**
+     * This method is called for every item, never more often than requested.
+     * 
+     * @param item
+     *            the item.
+     */
+    void onNext(T item);
+    
+    /**
+     * This method is called once if the subscription fails; no other method is
+     * called afterwards.
+     * 
+     * @param throwable
+     *            the failure cause.
+     */
+    void onError(Throwable throwable);
+    
+    /**
+     * This method is called once when the publisher is closed; no other method
+     * is called afterwards.
+     */
+    void onComplete();
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,39 @@
+/*
+ * Subscription.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.flow;
+
+/**
+ * The link between a {@link Publisher} and one of its {@link Subscriber
+ * subscribers}. This interface mirrors
+ * <code>java.util.concurrent.Flow.Subscription</code>.
+ * 
+ * @author Koka El Kiwi
+ */
+public interface Subscription
+{
+    
+    /**
+     * Requests more items. The demand adds up to the previous requests; a
+     * non-positive request cancels the subscription with an error.
+     * 
+     * @param n
+     *            the number of items.
+     */
+    void request(long n);
+    
+    /**
+     * Cancels the subscription; no more items are delivered. Some already
+     * scheduled ones may still be.
+     */
+    void cancel();
+    
+}
+
+/* End of file. */
\ No newline at end of file
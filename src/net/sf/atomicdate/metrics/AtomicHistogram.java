@@ -0,0 +1,431 @@
+/*
+ * AtomicHistogram.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of signed values, recorded concurrently without locks.
+ * <ul>
+ * <li>The buckets are log-linear: every power of 2 is split in 16 linear
+ * sub-buckets, so a value is known within 6.25% over the whole
+ * <code>long</code> range, with a fixed number of buckets;</li>
+ * <li>Recording a value increments its bucket and the sum, and updates the
+ * extremes only when they change; it doesn't allocate nor lock;</li>
+ * <li>A {@link Snapshot snapshot} copies the buckets, and can be reused, so
+ * reading the histogram periodically doesn't allocate either. Since the
+ * buckets are copied one by one, a snapshot taken while values are recorded
+ * may be slightly inconsistent.</li>
+ * </ul>
+ * 
+ * @author Koka El Kiwi
+ */
+public final class AtomicHistogram
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The number of bits of the sub-bucket index. */
+    private static final int      SUB_BITS = 4;
+    
+    /** The number of sub-buckets per power of 2. */
+    private static final int      SUB      = 1 << SUB_BITS;
+    
+    /** The number of buckets per sign. */
+    static final int              BUCKETS  = (64 - SUB_BITS) * SUB;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The buckets: negative values reversed, then non-negative values. */
+    private final AtomicLongArray counts;
+    
+    /** The sum of the values. */
+    private final AtomicLong      sum;
+    
+    /** The minimum value. */
+    private final AtomicLong      min;
+    
+    /** The maximum value. */
+    private final AtomicLong      max;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Returns the bucket of a value.
+     * 
+     * @param value
+     *            the value.
+     * @return the bucket index.
+     */
+    static int index(final long value)
+    {
+        if (value >= 0)
+        {
+            return BUCKETS + magnitude(value);
+        }
+        
+        return BUCKETS - 1 - magnitude(value == Long.MIN_VALUE ? Long.MAX_VALUE
+                : -value);
+    }
+    
+    /**
+     * Returns the lowest value of a bucket.
+     * 
+     * @param index
+     *            the bucket index.
+     * @return the lowest value.
+     */
+    static long lowest(final int index)
+    {
+        if (index >= BUCKETS)
+        {
+            return lower(index - BUCKETS);
+        }
+        
+        return -upper(BUCKETS - 1 - index);
+    }
+    
+    /**
+     * Returns the highest value of a bucket.
+     * 
+     * @param index
+     *            the bucket index.
+     * @return the highest value.
+     */
+    static long highest(final int index)
+    {
+        if (index >= BUCKETS)
+        {
+            return upper(index - BUCKETS);
+        }
+        
+        return -lower(BUCKETS - 1 - index);
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Default constructor.
+     */
+    public AtomicHistogram()
+    {
+        counts = new AtomicLongArray(2 * BUCKETS);
+        sum = new AtomicLong();
+        min = new AtomicLong(Long.MAX_VALUE);
+        max = new AtomicLong(Long.MIN_VALUE);
+    }
+    
+    /**
+     * Records a value.
+     * 
+     * @param value
+     *            the value.
+     */
+    public void record(final long value)
+    {
+        counts.getAndIncrement(index(value));
+        sum.getAndAdd(value);
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value))
+        {
+            current = min.get();
+        }
+        current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+        {
+            current = max.get();
+        }
+    }
+    
+    /**
+     * Returns the number of values, summing the buckets.
+     * 
+     * @return the number of values.
+     */
+    public long getCount()
+    {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++)
+        {
+            total += counts.get(i);
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Discards the recorded values. The concurrent records may be lost.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < counts.length(); i++)
+        {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+    
+    /**
+     * Takes a snapshot of the histogram.
+     * 
+     * @return the snapshot.
+     */
+    public Snapshot snapshot()
+    {
+        return snapshot(new Snapshot());
+    }
+    
+    /**
+     * Takes a snapshot of the histogram, reusing a previous snapshot.
+     * 
+     * @param snapshot
+     *            the snapshot to fill.
+     * @return the snapshot.
+     * @throws NullPointerException
+     *             if the snapshot is null.
+     */
+    public Snapshot snapshot(final Snapshot snapshot)
+    {
+        if (snapshot == null)
+        {
+            throw new NullPointerException("snapshot=null");
+        }
+        long total = 0;
+        for (int i = 0; i < snapshot.counts.length; i++)
+        {
+            final long n = counts.get(i);
+            snapshot.counts[i] = n;
+            total += n;
+        }
+        snapshot.count = total;
+        snapshot.sum = sum.get();
+        snapshot.min = min.get();
+        snapshot.max = max.get();
+        
+        return snapshot;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns the bucket of a non-negative value, relative to the sign.
+     * 
+     * @param value
+     *            the value.
+     * @return the bucket index.
+     */
+    private static int magnitude(final long value)
+    {
+        if (value < SUB)
+        {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BITS;
+        
+        return (shift + 1 << SUB_BITS) + (int) (value >>> shift & SUB - 1);
+    }
+    
+    /**
+     * Returns the lowest value of a bucket, relative to the sign.
+     * 
+     * @param index
+     *            the bucket index.
+     * @return the lowest value.
+     */
+    private static long lower(final int index)
+    {
+        if (index < SUB)
+        {
+            return index;
+        }
+        final int shift = (index >>> SUB_BITS) - 1;
+        
+        return (long) (SUB + (index & SUB - 1)) << shift;
+    }
+    
+    /**
+     * Returns the highest value of a bucket, relative to the sign.
+     * 
+     * @param index
+     *            the bucket index.
+     * @return the highest value.
+     */
+    private static long upper(final int index)
+    {
+        if (index < SUB)
+        {
+            return index;
+        }
+        final int shift = (index >>> SUB_BITS) - 1;
+        
+        return lower(index) + (1L << shift) - 1;
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * A copy of the histogram, at some point in time.
+     * 
+     * @author Koka El Kiwi
+     */
+    public static final class Snapshot
+    {
+        
+        /** The buckets. */
+        private final long[] counts;
+        
+        /** The number of values. */
+        private long         count;
+        
+        /** The sum of the values. */
+        private long         sum;
+        
+        /** The minimum value. */
+        private long         min;
+        
+        /** The maximum value. */
+        private long         max;
+        
+        /**
+         * Default constructor, for an empty snapshot.
+         */
+        public Snapshot()
+        {
+            counts = new long[2 * BUCKETS];
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+        }
+        
+        /**
+         * Returns the number of values.
+         * 
+         * @return the number of values.
+         */
+        public long getCount()
+        {
+            return count;
+        }
+        
+        /**
+         * Returns the sum of the values.
+         * 
+         * @return the sum.
+         */
+        public long getSum()
+        {
+            return sum;
+        }
+        
+        /**
+         * Returns the mean of the values.
+         * 
+         * @return the mean, 0 if there are none.
+         */
+        public double getMean()
+        {
+            return count > 0 ? (double) sum / count : 0;
+        }
+        
+        /**
+         * Returns the minimum value.
+         * 
+         * @return the minimum value, 0 if there are none.
+         */
+        public long getMin()
+        {
+            return count > 0 ? min : 0;
+        }
+        
+        /**
+         * Returns the maximum value.
+         * 
+         * @return the maximum value, 0 if there are none.
+         */
+        public long getMax()
+        {
+            return count > 0 ? max : 0;
+        }
+        
+        /**
+         * Returns the value at a percentile, within the bucket precision.
+         * 
+         * @param percentile
+         *            the percentile (0 to 100).
+         * @return the value, 0 if there are none.
+         */
+        public long getValueAtPercentile(final double percentile)
+        {
+            if (count == 0)
+            {
+                return 0;
+            }
+            final long rank = Math.max(1,
+                    (long) Math.ceil(percentile / 100D * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank)
+                {
+                    final long low = lowest(i);
+                    final long middle = low + (highest(i) - low) / 2;
+                    
+                    return Math.max(getMin(), Math.min(getMax(), middle));
+                }
+            }
+            
+            return getMax();
+        }
+        
+        /**
+         * Returns the number of values lower than or equal to a bound, within
+         * the bucket precision: the bucket holding the bound is counted.
+         * 
+         * @param bound
+         *            the bound.
+         * @return the number of values.
+         */
+        public long getCountAtOrBelow(final long bound)
+        {
+            final int last = index(bound);
+            long seen = 0;
+            for (int i = 0; i <= last; i++)
+            {
+                seen += counts[i];
+            }
+            
+            return seen;
+        }
+        
+        // See Object for details.
+        @Override
+        public String toString()
+        {
+            return "count=" + count + ", mean=" + getMean() + ", min="
+                    + getMin() + ", p50=" + getValueAtPercentile(50)
+                    + ", p99=" + getValueAtPercentile(99) + ", max="
+                    + getMax();
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,234 @@
+/*
+ * MetricsRegistry.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.metrics;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of the {@link ServerMetrics metrics} of the SNTP servers.
+ * <p>
+ * The metrics of a server are created on its first lookup and kept until
+ * {@link #remove(InetSocketAddress) removed}, so that they survive the
+ * sessions; the sessions of a service look their server up once, when they
+ * are opened, while the clients, the dual-stack queries and the broadcast
+ * clients look it up per exchange.
+ * <p>
+ * The registry holds at most {@link #getCapacity()} servers, since a pool
+ * rotates its addresses: beyond, the metrics of the server that replied the
+ * least recently, or never, are removed. A session still using them keeps
+ * updating them, unregistered.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class MetricsRegistry
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default maximum number of servers. */
+    public static final int        DEFAULT_CAPACITY = 32;
+    
+    /** The default registry instance. */
+    private static MetricsRegistry instance;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The metrics, by server. */
+    private final ConcurrentMap<InetSocketAddress, ServerMetrics> servers;
+    
+    /** The maximum number of servers. */
+    private final int                                             capacity;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    /**
+     * Returns the registry shared by the whole JVM.
+     * 
+     * @return the shared registry.
+     */
+    public static synchronized MetricsRegistry getDefault()
+    {
+        if (instance == null)
+        {
+            instance = new MetricsRegistry();
+        }
+        
+        return instance;
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Default constructor, holding at most {@link #DEFAULT_CAPACITY} servers.
+     */
+    public MetricsRegistry()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param capacity
+     *            the maximum number of servers.
+     * @throws IllegalArgumentException
+     *             if the capacity is not positive.
+     */
+    public MetricsRegistry(final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("capacity<=0");
+        }
+        servers = new ConcurrentHashMap<InetSocketAddress, ServerMetrics>();
+        this.capacity = capacity;
+    }
+    
+    /**
+     * Returns the maximum number of servers.
+     * 
+     * @return the capacity.
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+    
+    /**
+     * Returns the metrics of a server, creating them if needed.
+     * 
+     * @param server
+     *            the server address.
+     * @return the server metrics.
+     * @throws NullPointerException
+     *             if the server is null.
+     */
+    public ServerMetrics getServer(final InetSocketAddress server)
+    {
+        if (server == null)
+        {
+            throw new NullPointerException("server=null");
+        }
+        final ServerMetrics metrics = servers.get(server);
+        if (metrics != null)
+        {
+            return metrics;
+        }
+        final ServerMetrics created = new ServerMetrics(server);
+        final ServerMetrics existing = servers.putIfAbsent(server, created);
+        if (existing != null)
+        {
+            return existing;
+        }
+        if (servers.size() > capacity)
+        {
+            evict(created);
+        }
+        
+        return created;
+    }
+    
+    /**
+     * Removes the metrics of a server. A session still using them keeps
+     * updating them, unregistered.
+     * 
+     * @param server
+     *            the server address.
+     */
+    public void remove(final InetSocketAddress server)
+    {
+        if (server != null)
+        {
+            servers.remove(server);
+        }
+    }
+    
+    /**
+     * Returns the metrics of all the servers.
+     * 
+     * @return the server metrics.
+     */
+    public ServerMetrics[] getServers()
+    {
+        return servers.values().toArray(new ServerMetrics[0]);
+    }
+    
+    /**
+     * Takes a snapshot of the metrics of all the servers.
+     * 
+     * @return the server snapshots.
+     */
+    public ServerMetrics.Snapshot[] snapshot()
+    {
+        final ServerMetrics[] metrics = getServers();
+        final ServerMetrics.Snapshot[] snapshots;
+        snapshots = new ServerMetrics.Snapshot[metrics.length];
+        for (int i = 0; i < metrics.length; i++)
+        {
+            snapshots[i] = metrics[i].snapshot();
+        }
+        
+        return snapshots;
+    }
+    
+    /**
+     * Resets the metrics of all the servers.
+     */
+    public void reset()
+    {
+        for (final ServerMetrics metrics : servers.values())
+        {
+            metrics.reset();
+        }
+    }
+    
+    // Helper methods.
+    // **************************************************************************
+    
+    /**
+     * Removes the metrics of the servers that replied the least recently,
+     * until the capacity is no longer exceeded.
+     * 
+     * @param kept
+     *            the metrics just created, never removed.
+     */
+    private void evict(final ServerMetrics kept)
+    {
+        synchronized (servers)
+        {
+            while (servers.size() > capacity)
+            {
+                ServerMetrics oldest = null;
+                for (final ServerMetrics metrics : servers.values())
+                {
+                    if (metrics != kept && (oldest == null
+                            || metrics.getLastReply() < oldest.getLastReply()))
+                    {
+                        oldest = metrics;
+                    }
+                }
+                if (oldest == null)
+                {
+                    return;
+                }
+                servers.remove(oldest.getServer(), oldest);
+            }
+        }
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,444 @@
+/*
+ * ServerMetrics.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.metrics;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The metrics of the exchanges with a single SNTP server.
+ * <ul>
+ * <li>The counters are {@link StripedCounter striped} and the round-trip
+ * times and offsets are kept in {@link AtomicHistogram lock-free histograms},
+ * so recording an exchange costs a few uncontended atomic updates;</li>
+ * <li>The replies are counted by the round-trip times histogram, and the last
+ * reply is published with ordered (lazy) writes, to keep the number of atomic
+ * updates down.</li>
+ * <li>The values are in milliseconds.</li>
+ * </ul>
+ * 
+ * @author Koka El Kiwi
+ */
+public final class ServerMetrics
+{
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The server address. */
+    private final InetSocketAddress server;
+    
+    /** The requests sent. */
+    private final StripedCounter    sent;
+    
+    /** The requests timed-out. */
+    private final StripedCounter    timeouts;
+    
+    /** The Kiss-o'-Death replies received. */
+    private final StripedCounter    kisses;
+    
+    /** The replies rejected: late, forged or unsynchronized. */
+    private final StripedCounter    rejected;
+    
+    /** The round-trip times. */
+    private final AtomicHistogram   roundTrips;
+    
+    /** The offsets. */
+    private final AtomicHistogram   offsets;
+    
+    /** The last offset and the local time of the last valid reply. */
+    private final AtomicLongArray   last;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param server
+     *            the server address.
+     * @throws NullPointerException
+     *             if the server is null.
+     */
+    public ServerMetrics(final InetSocketAddress server)
+    {
+        if (server == null)
+        {
+            throw new NullPointerException("server=null");
+        }
+        this.server = server;
+        sent = new StripedCounter();
+        timeouts = new StripedCounter();
+        kisses = new StripedCounter();
+        rejected = new StripedCounter();
+        roundTrips = new AtomicHistogram();
+        offsets = new AtomicHistogram();
+        last = new AtomicLongArray(2);
+    }
+    
+    /**
+     * Records a request sent.
+     */
+    public void onSent()
+    {
+        sent.increment();
+    }
+    
+    /**
+     * Records a valid reply.
+     * 
+     * @param roundTrip
+     *            the round-trip time.
+     * @param offset
+     *            the local clock offset.
+     * @param time
+     *            the local receive time.
+     */
+    public void onReceived(final long roundTrip, final long offset,
+            final long time)
+    {
+        roundTrips.record(roundTrip);
+        offsets.record(offset);
+        last.lazySet(0, offset);
+        last.lazySet(1, time);
+    }
+    
+    /**
+     * Records a request timeout.
+     */
+    public void onTimeout()
+    {
+        timeouts.increment();
+    }
+    
+    /**
+     * Records a Kiss-o'-Death reply.
+     */
+    public void onKiss()
+    {
+        kisses.increment();
+    }
+    
+    /**
+     * Records a rejected reply.
+     */
+    public void onRejected()
+    {
+        rejected.increment();
+    }
+    
+    /**
+     * Returns the server address.
+     * 
+     * @return the server address.
+     */
+    public InetSocketAddress getServer()
+    {
+        return server;
+    }
+    
+    /**
+     * Returns the number of requests sent.
+     * 
+     * @return the number of requests.
+     */
+    public long getSent()
+    {
+        return sent.sum();
+    }
+    
+    /**
+     * Returns the number of valid replies received.
+     * 
+     * @return the number of replies.
+     */
+    public long getReceived()
+    {
+        return roundTrips.getCount();
+    }
+    
+    /**
+     * Returns the number of requests timed-out.
+     * 
+     * @return the number of timeouts.
+     */
+    public long getTimeouts()
+    {
+        return timeouts.sum();
+    }
+    
+    /**
+     * Returns the number of Kiss-o'-Death replies received.
+     * 
+     * @return the number of Kiss-o'-Death replies.
+     */
+    public long getKisses()
+    {
+        return kisses.sum();
+    }
+    
+    /**
+     * Returns the number of replies rejected: late, forged or unsynchronized.
+     * 
+     * @return the number of rejected replies.
+     */
+    public long getRejected()
+    {
+        return rejected.sum();
+    }
+    
+    /**
+     * Returns the last offset.
+     * 
+     * @return the offset, 0 if no valid reply was received.
+     */
+    public long getOffset()
+    {
+        return last.get(0);
+    }
+    
+    /**
+     * Returns the local time of the last valid reply.
+     * 
+     * @return the local time, 0 if none was received.
+     */
+    public long getLastReply()
+    {
+        return last.get(1);
+    }
+    
+    /**
+     * Returns the round-trip times histogram.
+     * 
+     * @return the histogram.
+     */
+    public AtomicHistogram getRoundTrips()
+    {
+        return roundTrips;
+    }
+    
+    /**
+     * Returns the offsets histogram.
+     * 
+     * @return the histogram.
+     */
+    public AtomicHistogram getOffsets()
+    {
+        return offsets;
+    }
+    
+    /**
+     * Takes a snapshot of the metrics.
+     * 
+     * @return the snapshot.
+     */
+    public Snapshot snapshot()
+    {
+        return new Snapshot(this);
+    }
+    
+    /**
+     * Resets the metrics. The concurrent updates may be lost.
+     */
+    public void reset()
+    {
+        sent.reset();
+        timeouts.reset();
+        kisses.reset();
+        rejected.reset();
+        roundTrips.reset();
+        offsets.reset();
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        return server + ": sent=" + sent + ", received=" + getReceived()
+                + ", timeouts=" + timeouts + ", kisses=" + kisses
+                + ", rejected=" + rejected;
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * A copy of the metrics of a server, at some point in time.
+     * 
+     * @author Koka El Kiwi
+     */
+    public static final class Snapshot
+    {
+        
+        /** The server address. */
+        private final InetSocketAddress        server;
+        
+        /** The requests sent. */
+        private final long                     sent;
+        
+        /** The valid replies received. */
+        private final long                     received;
+        
+        /** The requests timed-out. */
+        private final long                     timeouts;
+        
+        /** The Kiss-o'-Death replies received. */
+        private final long                     kisses;
+        
+        /** The replies rejected. */
+        private final long                     rejected;
+        
+        /** The last offset. */
+        private final long                     offset;
+        
+        /** The local time of the last valid reply. */
+        private final long                     lastReply;
+        
+        /** The round-trip times. */
+        private final AtomicHistogram.Snapshot roundTrips;
+        
+        /** The offsets. */
+        private final AtomicHistogram.Snapshot offsets;
+        
+        /**
+         * Constructor.
+         * 
+         * @param metrics
+         *            the copied metrics.
+         */
+        private Snapshot(final ServerMetrics metrics)
+        {
+            server = metrics.server;
+            sent = metrics.getSent();
+            timeouts = metrics.getTimeouts();
+            kisses = metrics.getKisses();
+            rejected = metrics.getRejected();
+            roundTrips = metrics.roundTrips.snapshot();
+            offsets = metrics.offsets.snapshot();
+            received = roundTrips.getCount();
+            offset = metrics.getOffset();
+            lastReply = metrics.getLastReply();
+        }
+        
+        /**
+         * Returns the server address.
+         * 
+         * @return the server address.
+         */
+        public InetSocketAddress getServer()
+        {
+            return server;
+        }
+        
+        /**
+         * Returns the number of requests sent.
+         * 
+         * @return the number of requests.
+         */
+        public long getSent()
+        {
+            return sent;
+        }
+        
+        /**
+         * Returns the number of valid replies received.
+         * 
+         * @return the number of replies.
+         */
+        public long getReceived()
+        {
+            return received;
+        }
+        
+        /**
+         * Returns the number of requests timed-out.
+         * 
+         * @return the number of timeouts.
+         */
+        public long getTimeouts()
+        {
+            return timeouts;
+        }
+        
+        /**
+         * Returns the number of Kiss-o'-Death replies received.
+         * 
+         * @return the number of Kiss-o'-Death replies.
+         */
+        public long getKisses()
+        {
+            return kisses;
+        }
+        
+        /**
+         * Returns the number of replies rejected.
+         * 
+         * @return the number of rejected replies.
+         */
+        public long getRejected()
+        {
+            return rejected;
+        }
+        
+        /**
+         * Returns the last offset.
+         * 
+         * @return the offset, 0 if no valid reply was received.
+         */
+        public long getOffset()
+        {
+            return offset;
+        }
+        
+        /**
+         * Returns the local time of the last valid reply.
+         * 
+         * @return the local time, 0 if none was received.
+         */
+        public long getLastReply()
+        {
+            return lastReply;
+        }
+        
+        /**
+         * Returns the round-trip times histogram.
+         * 
+         * @return the histogram snapshot.
+         */
+        public AtomicHistogram.Snapshot getRoundTrips()
+        {
+            return roundTrips;
+        }
+        
+        /**
+         * Returns the offsets histogram.
+         * 
+         * @return the histogram snapshot.
+         */
+        public AtomicHistogram.Snapshot getOffsets()
+        {
+            return offsets;
+        }
+        
+        // See Object for details.
+        @Override
+        public String toString()
+        {
+            return server + ": sent=" + sent + ", received=" + received
+                    + ", timeouts=" + timeouts + ", kisses=" + kisses
+                    + ", rejected=" + rejected + ", rtt=[" + roundTrips
+                    + "], offset=[" + offsets + "]";
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
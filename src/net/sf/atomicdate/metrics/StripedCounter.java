@@ -0,0 +1,144 @@
+/*
+ * StripedCounter.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter updated concurrently by many threads, read once in a while.
+ * <ul>
+ * <li>The count is split in cells, each on its own cache line; a thread always
+ * updates the same cell, chosen by its identifier, so the threads seldom
+ * contend on a cell nor share its cache line;</li>
+ * <li>Reading the counter sums the cells: the sum isn't an atomic snapshot
+ * while the counter is updated.</li>
+ * </ul>
+ * This is the striping of <code>java.util.concurrent.atomic.LongAdder</code>,
+ * which isn't available on Android; the number of cells is fixed instead of
+ * growing on contention.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class StripedCounter
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The number of cells, a power of 2. */
+    private static final int      CELLS;
+    
+    /** The cell spacing (in longs), a cache line. */
+    private static final int      SPACING = 8;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The cells, every SPACING slots, padded at both ends. */
+    private final AtomicLongArray cells;
+    
+    // Class methods.
+    // **************************************************************************
+    
+    static
+    {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        int cells = 1;
+        while (cells < 2 * processors && cells < 64)
+        {
+            cells <<= 1;
+        }
+        CELLS = cells;
+    }
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Default constructor.
+     */
+    public StripedCounter()
+    {
+        cells = new AtomicLongArray((CELLS + 2) * SPACING);
+    }
+    
+    /**
+     * Adds 1 to the counter.
+     */
+    public void increment()
+    {
+        cells.getAndIncrement(cell());
+    }
+    
+    /**
+     * Adds a value to the counter.
+     * 
+     * @param value
+     *            the value.
+     */
+    public void add(final long value)
+    {
+        cells.getAndAdd(cell(), value);
+    }
+    
+    /**
+     * Returns the counter value.
+     * 
+     * @return the sum of the cells.
+     */
+    public long sum()
+    {
+        long sum = 0;
+        for (int i = 0; i < CELLS; i++)
+        {
+            sum += cells.get((i + 1) * SPACING);
+        }
+        
+        return sum;
+    }
+    
+    /**
+     * Resets the counter to 0. The concurrent updates may be lost.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < CELLS; i++)
+        {
+            cells.set((i + 1) * SPACING, 0);
+        }
+    }
+    
+    // See Object for details.
+    @Override
+    public String toString()
+    {
+        return Long.toString(sum());
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns the cell index of the current thread.
+     * 
+     * @return the cell index.
+     */
+    private static int cell()
+    {
+        final long id = Thread.currentThread().getId();
+        
+        // The identifiers are sequential: they are scattered by a Fibonacci
+        // hash.
+        return (((int) (id * 0x9E3779B9L >>> 16) & CELLS - 1) + 1) * SPACING;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,504 @@
+/*
+ * FleetMonitor.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.monitor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.atomicdate.sntp.Codec;
+import net.sf.atomicdate.sntp.Message;
+
+/**
+ * A monitor of a fleet of SNTP servers, polling every server once per period
+ * and appending the results to a {@link SampleLog}.
+ * <ul>
+ * <li>A single thread and a single channel serve the whole fleet, whatever its
+ * size;</li>
+ * <li>The requests are spread evenly over the period, so the traffic is
+ * smooth;</li>
+ * <li>The replies are matched to their server by source address, and must echo
+ * the request transmit timestamp;</li>
+ * <li>No message is kept: every reply, or timeout, becomes a compact sample,
+ * and polling doesn't allocate besides the source addresses returned by the
+ * channel.</li>
+ * </ul>
+ * The server identifiers in the log are the server indexes in the list given
+ * to the constructor.
+ * 
+ * @author Koka El Kiwi
+ */
+public class FleetMonitor
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** Sample flag: the server didn't answer in time. */
+    public static final int                   FLAG_TIMEOUT    = 0x01;
+    
+    /** Sample flag: the server isn't synchronized (alarm leap indicator). */
+    public static final int                   FLAG_ALARM      = 0x02;
+    
+    /** Sample flag: the server sent a Kiss-o'-Death. */
+    public static final int                   FLAG_KISS       = 0x04;
+    
+    /** Sample flag: the server announced a leap second. */
+    public static final int                   FLAG_LEAP       = 0x08;
+    
+    /** The default polling period (in milliseconds). */
+    public static final long                  DEFAULT_PERIOD  = 64000L;
+    
+    /** The default reply timeout (in milliseconds). */
+    public static final long                  DEFAULT_TIMEOUT = 2000L;
+    
+    /** The monitor thread name. */
+    private static final String               THREAD_NAME     = "AtomicDate-Monitor";
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The monitored servers. */
+    private final InetSocketAddress[]         servers;
+    
+    /** The server identifiers by address. */
+    private final Map<SocketAddress, Integer> ids;
+    
+    /** The sample log. */
+    private final SampleLog                   log;
+    
+    /** The polling period (in milliseconds). */
+    private final long                        period;
+    
+    /** The reply timeout (in milliseconds). */
+    private final long                        timeout;
+    
+    /** The polling thread, null if the monitor isn't running. */
+    private Poller                            poller;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The {@link #DEFAULT_PERIOD default period} and
+     * {@link #DEFAULT_TIMEOUT default timeout} are used.
+     * 
+     * @param servers
+     *            the monitored servers.
+     * @param log
+     *            the sample log.
+     * @throws NullPointerException
+     *             if any argument is null.
+     * @throws IllegalArgumentException
+     *             if the server list is empty.
+     */
+    public FleetMonitor(final List<InetSocketAddress> servers,
+            final SampleLog log)
+    {
+        this(servers, log, DEFAULT_PERIOD, DEFAULT_TIMEOUT);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param servers
+     *            the monitored servers.
+     * @param log
+     *            the sample log.
+     * @param period
+     *            the polling period (in milliseconds).
+     * @param timeout
+     *            the reply timeout (in milliseconds).
+     * @throws NullPointerException
+     *             if the server list or the log is null.
+     * @throws IllegalArgumentException
+     *             if the server list is empty, or the timeout isn't shorter
+     *             than the period.
+     */
+    public FleetMonitor(final List<InetSocketAddress> servers,
+            final SampleLog log, final long period, final long timeout)
+    {
+        if (servers == null)
+        {
+            throw new NullPointerException("servers=null");
+        }
+        if (log == null)
+        {
+            throw new NullPointerException("log=null");
+        }
+        if (servers.isEmpty())
+        {
+            throw new IllegalArgumentException("servers empty");
+        }
+        if (timeout <= 0 || timeout >= period)
+        {
+            throw new IllegalArgumentException("timeout<=0 || timeout>=period");
+        }
+        this.servers = servers.toArray(new InetSocketAddress[servers.size()]);
+        this.log = log;
+        this.period = period;
+        this.timeout = timeout;
+        ids = new HashMap<SocketAddress, Integer>();
+        for (int i = 0; i < this.servers.length; i++)
+        {
+            ids.put(this.servers[i], Integer.valueOf(i));
+        }
+    }
+    
+    /**
+     * Starts polling the servers.
+     * 
+     * @throws IllegalStateException
+     *             if the monitor is already running.
+     * @throws IOException
+     *             if an error occurs while opening the channel.
+     */
+    public synchronized void start() throws IOException
+    {
+        if (poller != null)
+        {
+            throw new IllegalStateException("Monitor running.");
+        }
+        poller = new Poller();
+        poller.start();
+    }
+    
+    /**
+     * Stops polling the servers, releasing the channel.
+     */
+    public synchronized void close()
+    {
+        if (poller != null)
+        {
+            poller.close();
+            poller = null;
+        }
+    }
+    
+    /**
+     * Returns the address of a server.
+     * 
+     * @param id
+     *            the server identifier.
+     * @return the server address.
+     * @throws ArrayIndexOutOfBoundsException
+     *             if the identifier is invalid.
+     */
+    public InetSocketAddress getServer(final int id)
+    {
+        return servers[id];
+    }
+    
+    /**
+     * Returns the number of servers.
+     * 
+     * @return the number of servers.
+     */
+    public int getServerCount()
+    {
+        return servers.length;
+    }
+    
+    /**
+     * Returns the sample log.
+     * 
+     * @return the sample log.
+     */
+    public SampleLog getLog()
+    {
+        return log;
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * The polling thread.
+     * 
+     * @author Koka El Kiwi
+     */
+    private class Poller extends Thread
+    {
+        
+        /** The channel. */
+        private final DatagramChannel channel;
+        
+        /** The reply selector. */
+        private final Selector        selector;
+        
+        /** The request buffer. */
+        private final ByteBuffer      request;
+        
+        /** The reply buffer. */
+        private final ByteBuffer      reply;
+        
+        /** The transmit timestamp of the pending requests, per server. */
+        private final long[]          sent;
+        
+        /** The local transmit time of the pending requests, per server. */
+        private final long[]          times;
+        
+        /** The pending request flags, per server. */
+        private final boolean[]       pending;
+        
+        /** The servers in request order, for the timeouts. */
+        private final int[]           queue;
+        
+        /** The first pending entry of the queue. */
+        private int                   first;
+        
+        /** The number of entries of the queue. */
+        private int                   queued;
+        
+        /** The running flag. */
+        private volatile boolean      running;
+        
+        /**
+         * Constructor.
+         * 
+         * @throws IOException
+         *             if an error occurs while opening the channel.
+         */
+        public Poller() throws IOException
+        {
+            super(THREAD_NAME);
+            setDaemon(true);
+            channel = DatagramChannel.open();
+            try
+            {
+                channel.configureBlocking(false);
+                selector = Selector.open();
+                channel.register(selector, SelectionKey.OP_READ);
+            }
+            catch (final IOException ioe)
+            {
+                channel.close();
+                throw ioe;
+            }
+            request = ByteBuffer.allocateDirect(Codec.LENGTH);
+            reply = ByteBuffer.allocateDirect(Message.MAXIMUM_LENGTH);
+            sent = new long[servers.length];
+            times = new long[servers.length];
+            pending = new boolean[servers.length];
+            queue = new int[servers.length];
+            Codec.encodeMessage(new Message(), request);
+            running = true;
+        }
+        
+        /**
+         * Stops the thread and releases the channel.
+         */
+        public void close()
+        {
+            running = false;
+            selector.wakeup();
+            try
+            {
+                join();
+            }
+            catch (final InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        // See Thread for details.
+        @Override
+        public void run()
+        {
+            final int count = servers.length;
+            long start = System.currentTimeMillis();
+            int next = 0;
+            try
+            {
+                while (running)
+                {
+                    long now = System.currentTimeMillis();
+                    if (next == count && now - start >= period)
+                    {
+                        start = now - start >= 2 * period ? now : start
+                                + period;
+                        next = 0;
+                    }
+                    final int due = next == count ? count : (int) Math.min(
+                            count, (now - start) * count / period + 1);
+                    while (next < due)
+                    {
+                        send(next++, now);
+                    }
+                    expire(now);
+                    
+                    long wake = next < count ? start + next * period / count
+                            : start + period;
+                    if (queued > 0)
+                    {
+                        wake = Math.min(wake, times[queue[first]] + timeout);
+                    }
+                    selector.select(Math.max(1, wake - now));
+                    selector.selectedKeys().clear();
+                    receive();
+                }
+            }
+            catch (final IOException ioe)
+            {
+                System.err.println("AtomicDate: error monitoring the fleet.");
+                ioe.printStackTrace(System.err);
+            }
+            finally
+            {
+                try
+                {
+                    selector.close();
+                    channel.close();
+                }
+                catch (final IOException ioe)
+                {
+                    ioe.printStackTrace(System.err);
+                }
+            }
+        }
+        
+        /**
+         * Sends a request to a server. A previous request still pending is
+         * abandoned.
+         * 
+         * @param id
+         *            the server identifier.
+         * @param now
+         *            the local time.
+         * @throws IOException
+         *             if an error occurs while sending the request.
+         */
+        private void send(final int id, final long now) throws IOException
+        {
+            Codec.encodeTime(now, request, Codec.TRANSMIT_TIMESTAMP_INDEX);
+            sent[id] = request.getLong(Codec.TRANSMIT_TIMESTAMP_INDEX);
+            times[id] = now;
+            request.clear();
+            try
+            {
+                channel.send(request, servers[id]);
+            }
+            catch (final IOException ioe)
+            {
+                // Unreachable server, reported as a timeout.
+            }
+            if (!pending[id])
+            {
+                pending[id] = true;
+                queue[(first + queued++) % queue.length] = id;
+            }
+        }
+        
+        /**
+         * Records the timed-out requests.
+         * 
+         * @param now
+         *            the local time.
+         */
+        private void expire(final long now)
+        {
+            while (queued > 0)
+            {
+                final int id = queue[first];
+                if (pending[id] && times[id] + timeout > now)
+                {
+                    break;
+                }
+                if (pending[id])
+                {
+                    pending[id] = false;
+                    log.append(now, id, 0, 0, 0, FLAG_TIMEOUT);
+                }
+                first = (first + 1) % queue.length;
+                queued--;
+            }
+        }
+        
+        /**
+         * Receives and records the pending replies.
+         * 
+         * @throws IOException
+         *             if an error occurs while receiving.
+         */
+        private void receive() throws IOException
+        {
+            while (true)
+            {
+                reply.clear();
+                final SocketAddress source;
+                try
+                {
+                    source = channel.receive(reply);
+                }
+                catch (final PortUnreachableException pue)
+                {
+                    // ICMP error from a server, reported as a timeout.
+                    continue;
+                }
+                if (source == null)
+                {
+                    return;
+                }
+                final long t4 = System.currentTimeMillis();
+                final Integer key = ids.get(source);
+                if (key == null || reply.position() < Codec.LENGTH)
+                {
+                    continue;
+                }
+                final int id = key.intValue();
+                final long originate = reply
+                        .getLong(Codec.ORIGINATE_TIMESTAMP_INDEX);
+                if (!pending[id] || originate != sent[id])
+                {
+                    continue;
+                }
+                pending[id] = false;
+                
+                final int stratum = reply.get(1) & 0xFF;
+                if (stratum == Message.STRATUM_KISS_OF_DEATH)
+                {
+                    // No valid timestamps: recorded like a timeout.
+                    log.append(t4, id, 0, 0, 0, FLAG_KISS);
+                    continue;
+                }
+                final int li = reply.get(0) >> 6 & 0x03;
+                int flags = 0;
+                if (li == Message.LI_ALARM)
+                {
+                    flags |= FLAG_ALARM;
+                }
+                else if (li != Message.LI_NO_WARN)
+                {
+                    flags |= FLAG_LEAP;
+                }
+                final long t1 = times[id];
+                final long t2 = Codec.decodeTime(reply,
+                        Codec.RECEIVE_TIMESTAMP_INDEX);
+                final long t3 = Codec.decodeTime(reply,
+                        Codec.TRANSMIT_TIMESTAMP_INDEX);
+                log.append(t4, id, (t2 - t1 + t3 - t4) / 2, t2 - t1 + t4 - t3,
+                        stratum, flags);
+            }
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,42 @@
+/*
+ * SampleHandler.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.monitor;
+
+/**
+ * A handler of the samples read from a {@link SampleLog}. The samples are
+ * passed as primitive values, so reading a log doesn't allocate.
+ * 
+ * @author Koka El Kiwi
+ */
+public interface SampleHandler
+{
+    
+    /**
+     * This method is called for every sample read.
+     * 
+     * @param time
+     *            the local time of the sample (in milliseconds).
+     * @param server
+     *            the server identifier.
+     * @param offset
+     *            the local time offset to the server time (in milliseconds).
+     * @param delay
+     *            the round-trip delay (in milliseconds).
+     * @param stratum
+     *            the server stratum.
+     * @param flags
+     *            the sample flags, see {@link FleetMonitor}.
+     */
+    void onSample(long time, int server, long offset, long delay, int stratum,
+            int flags);
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,626 @@
+/*
+ * SampleLog.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.monitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A memory-mapped ring log of monitoring samples, with a fixed size.
+ * <ul>
+ * <li>The log is split in blocks; when the current block is full, the oldest
+ * block is reused, so the memory and disk use stay flat;</li>
+ * <li>Every block starts with a keyframe (the time of its first sample) and the
+ * time range of its samples, so range queries skip the blocks out of
+ * range;</li>
+ * <li>The samples are delta and variable-length encoded: a sample usually
+ * takes 6 to 10 bytes;</li>
+ * <li>Appending and reading don't allocate, and a {@link Cursor} resumes
+ * where it stopped instead of decoding its block again.</li>
+ * </ul>
+ * The file layout, in big-endian format, is:
+ * <ul>
+ * <li>0: magic number (32 bits);</li>
+ * <li>4: layout version (32 bits);</li>
+ * <li>8: block size (32 bits, bytes);</li>
+ * <li>12: number of blocks (32 bits);</li>
+ * <li>16: sequence of the current block (64 bits);</li>
+ * <li>64: the blocks, each one with a header:
+ * <ul>
+ * <li>0: block sequence (64 bits), -1 if the block was never used;</li>
+ * <li>8: keyframe time (64 bits, milliseconds);</li>
+ * <li>16: minimum sample time (64 bits, milliseconds);</li>
+ * <li>24: maximum sample time (64 bits, milliseconds);</li>
+ * <li>32: number of samples (32 bits);</li>
+ * <li>36: length of the samples (32 bits, bytes);</li>
+ * <li>40: last sample time (64 bits, milliseconds);</li>
+ * </ul>
+ * followed by the samples: time delta to the previous sample (zigzag varint),
+ * server identifier (varint), offset (zigzag varint), delay (zigzag varint),
+ * stratum (8 bits) and flags (8 bits).</li>
+ * </ul>
+ * The log is thread-safe, and must be written by a single process.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class SampleLog
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The default block size (in bytes). */
+    public static final int        DEFAULT_BLOCK_SIZE = 64 * 1024;
+    
+    /** The magic number ("ADSL"). */
+    private static final int       MAGIC              = 0x4144534C;
+    
+    /** The layout version. */
+    private static final int       VERSION            = 2;
+    
+    /** The file header size (in bytes). */
+    private static final int       HEADER_SIZE        = 64;
+    
+    /** The block header size (in bytes). */
+    private static final int       BLOCK_HEADER_SIZE  = 48;
+    
+    /** The maximum encoded sample size (in bytes). */
+    private static final int       MAX_SAMPLE_SIZE    = 10 + 5 + 10 + 10 + 2;
+    
+    // Field positions:
+    private static final int       POS_MAGIC          = 0;
+    private static final int       POS_VERSION        = 4;
+    private static final int       POS_BLOCK_SIZE     = 8;
+    private static final int       POS_BLOCKS         = 12;
+    private static final int       POS_HEAD           = 16;
+    
+    // Block field positions:
+    private static final int       POS_SEQUENCE       = 0;
+    private static final int       POS_KEYFRAME       = 8;
+    private static final int       POS_MIN_TIME       = 16;
+    private static final int       POS_MAX_TIME       = 24;
+    private static final int       POS_COUNT          = 32;
+    private static final int       POS_LENGTH         = 36;
+    private static final int       POS_LAST_TIME      = 40;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The mapped file. */
+    private final MappedByteBuffer buffer;
+    
+    /** The block size (in bytes). */
+    private final int              blockSize;
+    
+    /** The number of blocks. */
+    private final int              blocks;
+    
+    /** The sequence of the current block. */
+    private long                   head;
+    
+    /** The time of the last appended sample. */
+    private long                   last;
+    
+    /** The decoding position, see {@link #getVarLong()}. */
+    private int                    position;
+    
+    /** The number of samples in range of the last block decoding. */
+    private int                    matched;
+    
+    /** The time of the last decoded sample, see {@link #read}. */
+    private long                   decodedTime;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. An existing log with the same geometry is reopened, and a
+     * new or empty file is initialized.
+     * 
+     * @param file
+     *            the log file.
+     * @param blockSize
+     *            the block size (in bytes).
+     * @param blocks
+     *            the number of blocks.
+     * @throws NullPointerException
+     *             if the file is null.
+     * @throws IllegalArgumentException
+     *             if the geometry is invalid.
+     * @throws IOException
+     *             if an error occurs while mapping the file, or if the file
+     *             isn't a log with the same geometry.
+     */
+    public SampleLog(final File file, final int blockSize, final int blocks)
+            throws IOException
+    {
+        if (file == null)
+        {
+            throw new NullPointerException("file=null");
+        }
+        if (blockSize < BLOCK_HEADER_SIZE + MAX_SAMPLE_SIZE)
+        {
+            throw new IllegalArgumentException("blockSize too small");
+        }
+        if (blocks < 2)
+        {
+            throw new IllegalArgumentException("blocks<2");
+        }
+        final long size = HEADER_SIZE + (long) blockSize * blocks;
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("log too large");
+        }
+        this.blockSize = blockSize;
+        this.blocks = blocks;
+        
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            final boolean empty = raf.length() == 0;
+            if (!empty && raf.length() != size)
+            {
+                throw new IOException("Incompatible log file: " + file);
+            }
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    size);
+        }
+        finally
+        {
+            // The mapping stays valid after the file is closed.
+            raf.close();
+        }
+        
+        if (buffer.getInt(POS_MAGIC) == 0)
+        {
+            buffer.putInt(POS_MAGIC, MAGIC);
+            buffer.putInt(POS_VERSION, VERSION);
+            buffer.putInt(POS_BLOCK_SIZE, blockSize);
+            buffer.putInt(POS_BLOCKS, blocks);
+            for (int i = 0; i < blocks; i++)
+            {
+                buffer.putLong(HEADER_SIZE + i * blockSize + POS_SEQUENCE, -1);
+            }
+            head = 0;
+            reset(head);
+        }
+        else if (buffer.getInt(POS_MAGIC) != MAGIC
+                || buffer.getInt(POS_VERSION) != VERSION
+                || buffer.getInt(POS_BLOCK_SIZE) != blockSize
+                || buffer.getInt(POS_BLOCKS) != blocks)
+        {
+            throw new IOException("Incompatible log file: " + file);
+        }
+        else
+        {
+            head = buffer.getLong(POS_HEAD);
+            last = buffer.getLong(base(head) + POS_LAST_TIME);
+        }
+    }
+    
+    /**
+     * Appends a sample, evicting the oldest block if needed.
+     * 
+     * @param time
+     *            the local time of the sample (in milliseconds).
+     * @param server
+     *            the server identifier.
+     * @param offset
+     *            the local time offset to the server time (in milliseconds).
+     * @param delay
+     *            the round-trip delay (in milliseconds).
+     * @param stratum
+     *            the server stratum.
+     * @param flags
+     *            the sample flags.
+     * @throws IllegalArgumentException
+     *             if the server identifier is negative.
+     */
+    public synchronized void append(final long time, final int server,
+            final long offset, final long delay, final int stratum,
+            final int flags)
+    {
+        if (server < 0)
+        {
+            throw new IllegalArgumentException("server<0");
+        }
+        int base = base(head);
+        int length = buffer.getInt(base + POS_LENGTH);
+        if (BLOCK_HEADER_SIZE + length + MAX_SAMPLE_SIZE > blockSize)
+        {
+            reset(++head);
+            base = base(head);
+            length = 0;
+        }
+        final int count = buffer.getInt(base + POS_COUNT);
+        if (count == 0)
+        {
+            buffer.putLong(base + POS_KEYFRAME, time);
+            buffer.putLong(base + POS_MIN_TIME, time);
+            buffer.putLong(base + POS_MAX_TIME, time);
+            last = time;
+        }
+        
+        int pos = base + BLOCK_HEADER_SIZE + length;
+        pos = putVarLong(pos, zigzag(time - last));
+        pos = putVarLong(pos, server);
+        pos = putVarLong(pos, zigzag(offset));
+        pos = putVarLong(pos, zigzag(delay));
+        buffer.put(pos++, (byte) stratum);
+        buffer.put(pos++, (byte) flags);
+        last = time;
+        buffer.putLong(base + POS_LAST_TIME, time);
+        
+        if (time < buffer.getLong(base + POS_MIN_TIME))
+        {
+            buffer.putLong(base + POS_MIN_TIME, time);
+        }
+        if (time > buffer.getLong(base + POS_MAX_TIME))
+        {
+            buffer.putLong(base + POS_MAX_TIME, time);
+        }
+        buffer.putInt(base + POS_LENGTH, pos - base - BLOCK_HEADER_SIZE);
+        buffer.putInt(base + POS_COUNT, count + 1);
+    }
+    
+    /**
+     * Reads the samples of a time range, from the oldest to the newest block.
+     * 
+     * @param from
+     *            the range start time (inclusive, in milliseconds).
+     * @param to
+     *            the range end time (inclusive, in milliseconds).
+     * @param handler
+     *            the handler of the samples in range.
+     * @return the number of samples read.
+     * @throws NullPointerException
+     *             if the handler is null.
+     */
+    public synchronized int query(final long from, final long to,
+            final SampleHandler handler)
+    {
+        if (handler == null)
+        {
+            throw new NullPointerException("handler=null");
+        }
+        int total = 0;
+        for (long seq = oldest(); seq <= head; seq++)
+        {
+            final int base = base(seq);
+            if (buffer.getLong(base + POS_SEQUENCE) != seq
+                    || buffer.getInt(base + POS_COUNT) == 0
+                    || buffer.getLong(base + POS_MAX_TIME) < from
+                    || buffer.getLong(base + POS_MIN_TIME) > to)
+            {
+                continue;
+            }
+            read(base, 0, 0, 0, Integer.MAX_VALUE, from, to, handler);
+            total += matched;
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Returns a streaming reader, starting at the oldest sample.
+     * 
+     * @return the reader.
+     */
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
+    
+    /**
+     * Writes the log to the disk.
+     */
+    public void flush()
+    {
+        buffer.force();
+    }
+    
+    /**
+     * Returns the number of samples held.
+     * 
+     * @return the number of samples.
+     */
+    public synchronized long size()
+    {
+        long total = 0;
+        for (long seq = oldest(); seq <= head; seq++)
+        {
+            final int base = base(seq);
+            if (buffer.getLong(base + POS_SEQUENCE) == seq)
+            {
+                total += buffer.getInt(base + POS_COUNT);
+            }
+        }
+        
+        return total;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Returns the sequence of the oldest block still held.
+     * 
+     * @return the oldest block sequence.
+     */
+    private long oldest()
+    {
+        return Math.max(0, head - blocks + 1);
+    }
+    
+    /**
+     * Returns the position of a block.
+     * 
+     * @param seq
+     *            the block sequence.
+     * @return the block position.
+     */
+    private int base(final long seq)
+    {
+        return HEADER_SIZE + (int) (seq % blocks) * blockSize;
+    }
+    
+    /**
+     * Resets a block for reuse, and makes it the current one.
+     * 
+     * @param seq
+     *            the new block sequence.
+     */
+    private void reset(final long seq)
+    {
+        final int base = base(seq);
+        buffer.putInt(base + POS_COUNT, 0);
+        buffer.putInt(base + POS_LENGTH, 0);
+        buffer.putLong(base + POS_SEQUENCE, seq);
+        buffer.putLong(POS_HEAD, seq);
+    }
+    
+    /**
+     * Decodes samples from a block. Must be called with the lock held.
+     * 
+     * @param base
+     *            the block position.
+     * @param index
+     *            the index of the first sample to decode.
+     * @param start
+     *            the position of this sample in the block samples (in bytes).
+     * @param previous
+     *            the time of the sample before it, ignored for the first
+     *            sample.
+     * @param max
+     *            the maximum number of samples to pass to the handler.
+     * @param from
+     *            the range start time (inclusive, in milliseconds).
+     * @param to
+     *            the range end time (inclusive, in milliseconds).
+     * @param handler
+     *            the handler of the samples in range.
+     * @return the number of samples decoded, in range or not; the number in
+     *         range is left in {@link #matched}, the decoding position in
+     *         {@link #position} and the last time in {@link #decodedTime}.
+     */
+    private int read(final int base, final int index, final int start,
+            final long previous, final int max, final long from,
+            final long to, final SampleHandler handler)
+    {
+        final int count = buffer.getInt(base + POS_COUNT);
+        long time = index == 0 ? buffer.getLong(base + POS_KEYFRAME)
+                : previous;
+        position = base + BLOCK_HEADER_SIZE + start;
+        matched = 0;
+        int decoded = 0;
+        for (int i = index; i < count && decoded < max; i++)
+        {
+            time += unzigzag(getVarLong());
+            final int server = (int) getVarLong();
+            final long offset = unzigzag(getVarLong());
+            final long delay = unzigzag(getVarLong());
+            final int stratum = buffer.get(position++) & 0xFF;
+            final int flags = buffer.get(position++) & 0xFF;
+            decoded++;
+            if (time >= from && time <= to)
+            {
+                handler.onSample(time, server, offset, delay, stratum, flags);
+                matched++;
+            }
+        }
+        decodedTime = time;
+        
+        return decoded;
+    }
+    
+    /**
+     * Writes a variable-length unsigned number.
+     * 
+     * @param pos
+     *            the position.
+     * @param value
+     *            the number.
+     * @return the position after the number.
+     */
+    private int putVarLong(final int pos, final long value)
+    {
+        int p = pos;
+        long v = value;
+        while ((v & ~0x7FL) != 0)
+        {
+            buffer.put(p++, (byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        buffer.put(p++, (byte) v);
+        
+        return p;
+    }
+    
+    /**
+     * Reads a variable-length unsigned number at the decoding position, and
+     * advances it.
+     * 
+     * @return the number.
+     */
+    private long getVarLong()
+    {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = buffer.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while (b < 0);
+        
+        return value;
+    }
+    
+    /**
+     * Maps a signed number to an unsigned one, keeping the small magnitudes
+     * small.
+     * 
+     * @param value
+     *            the signed number.
+     * @return the unsigned number.
+     */
+    private static long zigzag(final long value)
+    {
+        return value << 1 ^ value >> 63;
+    }
+    
+    /**
+     * Reverses {@link #zigzag(long)}.
+     * 
+     * @param value
+     *            the unsigned number.
+     * @return the signed number.
+     */
+    private static long unzigzag(final long value)
+    {
+        return value >>> 1 ^ -(value & 1);
+    }
+    
+    // Inner classes.
+    // *****************************************************************************
+    
+    /**
+     * A streaming reader of the log, returning the samples in append order.
+     * If the reader falls behind by more than the log size, it skips to the
+     * oldest sample still held.
+     * 
+     * @author Koka El Kiwi
+     */
+    public final class Cursor
+    {
+        
+        /** The current block sequence. */
+        private long seq;
+        
+        /** The number of samples read from the current block. */
+        private int  index;
+        
+        /** The position of the next sample in the block samples (bytes). */
+        private int  start;
+        
+        /** The time of the last sample read from the current block. */
+        private long time;
+        
+        /** The number of times the reader fell behind. */
+        private long skips;
+        
+        /**
+         * Constructor.
+         */
+        private Cursor()
+        {
+            synchronized (SampleLog.this)
+            {
+                seq = oldest();
+            }
+        }
+        
+        /**
+         * Reads the samples appended since the last call.
+         * 
+         * @param handler
+         *            the samples handler.
+         * @param max
+         *            the maximum number of samples to read.
+         * @return the number of samples read.
+         * @throws NullPointerException
+         *             if the handler is null.
+         */
+        public int next(final SampleHandler handler, final int max)
+        {
+            if (handler == null)
+            {
+                throw new NullPointerException("handler=null");
+            }
+            synchronized (SampleLog.this)
+            {
+                if (seq < oldest())
+                {
+                    seq = oldest();
+                    index = 0;
+                    start = 0;
+                    skips++;
+                }
+                int total = 0;
+                while (total < max)
+                {
+                    final int base = base(seq);
+                    if (buffer.getLong(base + POS_SEQUENCE) == seq)
+                    {
+                        final int read = SampleLog.this.read(base, index,
+                                start, time, max - total, Long.MIN_VALUE,
+                                Long.MAX_VALUE, handler);
+                        index += read;
+                        start = position - base - BLOCK_HEADER_SIZE;
+                        time = decodedTime;
+                        total += read;
+                    }
+                    if (seq == head || total >= max)
+                    {
+                        break;
+                    }
+                    seq++;
+                    index = 0;
+                    start = 0;
+                }
+                
+                return total;
+            }
+        }
+        
+        /**
+         * Returns the number of times the reader fell behind and skipped
+         * samples.
+         * 
+         * @return the number of skips.
+         */
+        public long getSkips()
+        {
+            synchronized (SampleLog.this)
+            {
+                return skips;
+            }
+        }
+        
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
@@ -0,0 +1,126 @@
+/*
+ * SharedClock.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.shm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The memory-mapped synchronization state shared between processes, protected
+ * by a sequence lock.
+ * <p>
+ * The layout, in big-endian format, is:
+ * <ul>
+ * <li>0: magic number (32 bits);</li>
+ * <li>4: layout version (32 bits);</li>
+ * <li>8: sequence (64 bits), 0 until the first update, odd while an update
+ * is in progress;</li>
+ * <li>16: local time of the synchronization (64 bits, milliseconds);</li>
+ * <li>24: offset at the synchronization (double, milliseconds);</li>
+ * <li>32: drift (double);</li>
+ * <li>40: maximum error at the synchronization (double, milliseconds);</li>
+ * <li>48: estimated error (double, milliseconds);</li>
+ * <li>56: stratum (32 bits).</li>
+ * </ul>
+ * 
+ * @author Koka El Kiwi
+ */
+abstract class SharedClock
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The magic number ("ADSM"). */
+    static final int                 MAGIC         = 0x4144534D;
+    
+    /** The layout version. */
+    static final int                 VERSION       = 1;
+    
+    /** The mapped region size (in bytes). */
+    static final int                 SIZE          = 64;
+    
+    // Field positions:
+    static final int                 POS_MAGIC     = 0;
+    static final int                 POS_VERSION   = 4;
+    static final int                 POS_SEQUENCE  = 8;
+    static final int                 POS_TIME      = 16;
+    static final int                 POS_OFFSET    = 24;
+    static final int                 POS_DRIFT     = 32;
+    static final int                 POS_MAX_ERROR = 40;
+    static final int                 POS_EST_ERROR = 48;
+    static final int                 POS_STRATUM   = 56;
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The mapped region. */
+    protected final MappedByteBuffer buffer;
+    
+    /** The fence variable, see {@link #fence()}. */
+    private volatile int             barrier;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            the shared file.
+     * @param writable
+     *            true to map the file for writing, otherwise false.
+     * @throws NullPointerException
+     *             if the file is null.
+     * @throws IOException
+     *             if an error occurs while mapping the file.
+     */
+    protected SharedClock(final File file, final boolean writable)
+            throws IOException
+    {
+        if (file == null)
+        {
+            throw new NullPointerException("file=null");
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw"
+                : "r");
+        try
+        {
+            buffer = raf.getChannel().map(
+                    writable ? FileChannel.MapMode.READ_WRITE
+                            : FileChannel.MapMode.READ_ONLY, 0, SIZE);
+        }
+        finally
+        {
+            // The mapping stays valid after the file is closed.
+            raf.close();
+        }
+    }
+    
+    /**
+     * Orders the buffer accesses around the call. A volatile store followed by
+     * a volatile load can't be reordered, and the accesses before the store
+     * and after the load can't cross them.
+     */
+    protected final void fence()
+    {
+        barrier = 0;
+        if (barrier != 0)
+        {
+            throw new AssertionError();
+        }
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
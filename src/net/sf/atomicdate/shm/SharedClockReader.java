@@ -0,0 +1,212 @@
+/*
+ * SharedClockReader.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.shm;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.sf.atomicdate.ClockFilter;
+import net.sf.atomicdate.TimeEstimate;
+
+/**
+ * Reads the synchronization state published by a {@link SharedClockWriter}.
+ * Reading the network time costs a few memory loads, and never blocks the
+ * writer: a read overlapping an update is simply retried.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class SharedClockReader extends SharedClock
+{
+    
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The maximum number of waits for an update to complete. */
+    private static final int MAX_WAITS = 10000;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            the shared file.
+     * @throws NullPointerException
+     *             if the file is null.
+     * @throws IOException
+     *             if the file isn't a shared clock or can't be mapped.
+     */
+    public SharedClockReader(final File file) throws IOException
+    {
+        super(file, false);
+        if (buffer.getInt(POS_MAGIC) != MAGIC)
+        {
+            throw new IOException("Not a shared clock file.");
+        }
+        if (buffer.getInt(POS_VERSION) != VERSION)
+        {
+            throw new IOException("Unsupported shared clock version.");
+        }
+    }
+    
+    /**
+     * Indicates if the writer published a state yet.
+     * 
+     * @return true if a state was published, otherwise false.
+     */
+    public boolean isSynchronized()
+    {
+        return isPublished(buffer.getLong(POS_SEQUENCE));
+    }
+    
+    /**
+     * Returns the network time.
+     * 
+     * @return the network time (in milliseconds).
+     * @throws IllegalStateException
+     *             if no state was published yet.
+     */
+    public long currentTimeMillis()
+    {
+        final long now = System.currentTimeMillis();
+        long seq;
+        long time;
+        double offset;
+        double drift;
+        do
+        {
+            seq = begin();
+            time = buffer.getLong(POS_TIME);
+            offset = buffer.getDouble(POS_OFFSET);
+            drift = buffer.getDouble(POS_DRIFT);
+        }
+        while (!validate(seq));
+        
+        return now + Math.round(offset + drift * (now - time));
+    }
+    
+    /**
+     * Returns the network time together with its error bounds.
+     * 
+     * @return the network time estimate.
+     * @throws IllegalStateException
+     *             if no state was published yet.
+     */
+    public TimeEstimate getTimeEstimate()
+    {
+        final long now = System.currentTimeMillis();
+        long seq;
+        long time;
+        double offset;
+        double drift;
+        double maxError;
+        double estError;
+        do
+        {
+            seq = begin();
+            time = buffer.getLong(POS_TIME);
+            offset = buffer.getDouble(POS_OFFSET);
+            drift = buffer.getDouble(POS_DRIFT);
+            maxError = buffer.getDouble(POS_MAX_ERROR);
+            estError = buffer.getDouble(POS_EST_ERROR);
+        }
+        while (!validate(seq));
+        
+        final long age = Math.max(0, now - time);
+        
+        return new TimeEstimate(now + Math.round(offset + drift * (now - time)),
+                maxError + ClockFilter.PHI * age, estError);
+    }
+    
+    /**
+     * Returns the stratum of the writer's server.
+     * 
+     * @return the stratum.
+     * @throws IllegalStateException
+     *             if no state was published yet.
+     */
+    public int getStratum()
+    {
+        long seq;
+        int stratum;
+        do
+        {
+            seq = begin();
+            stratum = buffer.getInt(POS_STRATUM);
+        }
+        while (!validate(seq));
+        
+        return stratum;
+    }
+    
+    // Helper methods.
+    // ****************************************************************************
+    
+    /**
+     * Starts a read, waiting for an update in progress to complete.
+     * 
+     * @return the sequence at the start of the read.
+     * @throws IllegalStateException
+     *             if no state was published yet, or if the writer died while
+     *             updating.
+     */
+    private long begin()
+    {
+        long seq = buffer.getLong(POS_SEQUENCE);
+        int waits = 0;
+        while ((seq & 1) != 0)
+        {
+            if (++waits > MAX_WAITS)
+            {
+                throw new IllegalStateException("Update never completed.");
+            }
+            Thread.yield();
+            seq = buffer.getLong(POS_SEQUENCE);
+        }
+        if (!isPublished(seq))
+        {
+            throw new IllegalStateException("Not synchronized.");
+        }
+        fence();
+        
+        return seq;
+    }
+    
+    /**
+     * Completes a read.
+     * 
+     * @param seq
+     *            the sequence at the start of the read.
+     * @return true if no update happened during the read, otherwise false.
+     */
+    private boolean validate(final long seq)
+    {
+        fence();
+        
+        return buffer.getLong(POS_SEQUENCE) == seq;
+    }
+    
+    /**
+     * Indicates if a sequence follows a published state: the sequence is 0
+     * until the first update starts, and 1 during it.
+     * 
+     * @param seq
+     *            the sequence.
+     * @return true if a state was published, otherwise false.
+     */
+    private static boolean isPublished(final long seq)
+    {
+        return seq > 1;
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
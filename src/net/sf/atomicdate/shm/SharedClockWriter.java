@@ -0,0 +1,98 @@
+/*
+ * SharedClockWriter.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.shm;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.sf.atomicdate.ClockListener;
+import net.sf.atomicdate.ClockState;
+
+/**
+ * Publishes the synchronization state of a service to a memory-mapped file, so
+ * that the other processes of the host can read the network time with
+ * {@link SharedClockReader} instead of polling the SNTP servers themselves.
+ * There must be a single writer per file.
+ * <p>
+ * Usage: <code>service.addClockListener(new SharedClockWriter(file));</code>
+ * 
+ * @author Koka El Kiwi
+ */
+public final class SharedClockWriter extends SharedClock implements
+        ClockListener
+{
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The current sequence. */
+    private long sequence;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Constructor. The file is created if it doesn't exist.
+     * 
+     * @param file
+     *            the shared file.
+     * @throws NullPointerException
+     *             if the file is null.
+     * @throws IOException
+     *             if an error occurs while mapping the file.
+     */
+    public SharedClockWriter(final File file) throws IOException
+    {
+        super(file, true);
+        sequence = buffer.getLong(POS_SEQUENCE);
+        if ((sequence & 1) != 0)
+        {
+            // A previous writer died while updating: if it was the first
+            // update, nothing was published yet.
+            sequence = sequence == 1 ? 0 : sequence + 1;
+        }
+        buffer.putInt(POS_MAGIC, MAGIC);
+        buffer.putInt(POS_VERSION, VERSION);
+        buffer.putLong(POS_SEQUENCE, sequence);
+    }
+    
+    /**
+     * Publishes a synchronization state.
+     * 
+     * @param state
+     *            the synchronization state.
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public synchronized void publish(final ClockState state)
+    {
+        final long time = state.getSyncTime();
+        buffer.putLong(POS_SEQUENCE, ++sequence);
+        fence();
+        buffer.putLong(POS_TIME, time);
+        buffer.putDouble(POS_OFFSET, state.getOffset());
+        buffer.putDouble(POS_DRIFT, state.getDrift());
+        buffer.putDouble(POS_MAX_ERROR, state.getMaxError(time));
+        buffer.putDouble(POS_EST_ERROR, state.getEstimatedError());
+        buffer.putInt(POS_STRATUM, state.getStratum());
+        fence();
+        buffer.putLong(POS_SEQUENCE, ++sequence);
+    }
+    
+    // See ClockListener for details.
+    @Override
+    public void onUpdate(final ClockState state)
+    {
+        publish(state);
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file
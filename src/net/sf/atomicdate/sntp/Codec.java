@@ -14,6 +14,7 @@ package net.sf.atomicdate.sntp;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A SNTP message encoder/decoder.
@@ -22,12 +23,35 @@ import java.io.OutputStream;
  * <li>SNTP message bits are in big-endian format.</li>
  * <li>Please refer to IETF RFC 2030 for more information.</li>
  * </ul>
+ * The {@link ByteBuffer} methods don't allocate, and can be used on the
+ * packet processing paths.
  * 
  * @author Arm&eacute;nio Pinto (armenio[at]users.sourceforge.net)
  */
 public final class Codec
 {
     
+    // Class attributes.
+    // **************************************************************************
+    
+    /** The message length without authentication (in bytes). */
+    public static final int   LENGTH                    = 48;
+    
+    /** The index of the Originate Timestamp. */
+    public static final int   ORIGINATE_TIMESTAMP_INDEX = 24;
+    
+    /** The index of the Receive Timestamp. */
+    public static final int   RECEIVE_TIMESTAMP_INDEX   = 32;
+    
+    /** The index of the Transmit Timestamp. */
+    public static final int   TRANSMIT_TIMESTAMP_INDEX  = 40;
+    
+    /**
+     * The SNTP time is referenced to 01/01/1900-00:00, while Java references
+     * time to 01/01/1970-00:00.
+     */
+    private static final long SECS_1900_1970            = 2208988800L;
+    
     // Instance methods.
     // **************************************************************************
     
@@ -70,7 +94,7 @@ public final class Codec
     {
         final Message message = new Message();
         final byte flags = (byte) input.read();
-        message.setLeapIndicator((byte) (flags >> 6));
+        message.setLeapIndicator((byte) (flags >> 6 & 0x03));
         message.setVersionNumber((byte) (flags >> 3 & 0x07));
         message.setMode((byte) (flags & 0x07));
         message.setStratum((byte) input.read());
@@ -87,6 +111,110 @@ public final class Codec
         return message;
     }
     
+    /**
+     * Encodes an SNTP message to a buffer, at its current position.
+     * 
+     * @param message
+     *            the message.
+     * @param buffer
+     *            the buffer, with at least {@link #LENGTH} bytes remaining.
+     */
+    public static void encodeMessage(final Message message,
+            final ByteBuffer buffer)
+    {
+        byte flags = (byte) (message.getLeapIndicator() << 6);
+        flags += (byte) (message.getVersionNumber() << 3);
+        flags += message.getMode();
+        buffer.put(flags);
+        buffer.put(message.getStratum());
+        buffer.put(message.getPollInterval());
+        buffer.put(message.getPrecision());
+        buffer.putInt((int) (message.getRootDelay() * 0x10000L));
+        buffer.putInt((int) (message.getRootDispersion() * 0x10000L));
+        final byte[] bitstring = message.getReferenceIdentifier();
+        for (int i = 0; i < 4; i++)
+        {
+            buffer.put(i < bitstring.length ? bitstring[i] : 0);
+        }
+        encodeTimestamp(message.getReferenceTimestamp(), buffer);
+        encodeTimestamp(message.getOriginateTimestamp(), buffer);
+        encodeTimestamp(message.getReceiveTimestamp(), buffer);
+        encodeTimestamp(message.getTransmitTimestamp(), buffer);
+    }
+    
+    /**
+     * Decodes an SNTP message from a buffer, at its current position.
+     * 
+     * @param buffer
+     *            the buffer, with at least {@link #LENGTH} bytes remaining.
+     * @return the message.
+     */
+    public static Message decodeMessage(final ByteBuffer buffer)
+    {
+        final Message message = new Message();
+        final byte flags = buffer.get();
+        message.setLeapIndicator((byte) (flags >> 6 & 0x03));
+        message.setVersionNumber((byte) (flags >> 3 & 0x07));
+        message.setMode((byte) (flags & 0x07));
+        message.setStratum(buffer.get());
+        message.setPollInterval(buffer.get());
+        message.setPrecision(buffer.get());
+        message.setRootDelay((double) (buffer.getInt() & 0xFFFFFFFFL)
+                / 0x10000L);
+        message.setRootDispersion((double) (buffer.getInt() & 0xFFFFFFFFL)
+                / 0x10000L);
+        final byte[] bitstring = new byte[4];
+        buffer.get(bitstring);
+        message.setReferenceIdentifier(bitstring);
+        message.setReferenceTimestamp(decodeTimestamp(buffer));
+        message.setOriginateTimestamp(decodeTimestamp(buffer));
+        message.setReceiveTimestamp(decodeTimestamp(buffer));
+        message.setTransmitTimestamp(decodeTimestamp(buffer));
+        
+        return message;
+    }
+    
+    /**
+     * Encodes a Java time as a timestamp, at a given buffer index.
+     * 
+     * @param time
+     *            the Java time (in milliseconds).
+     * @param buffer
+     *            the buffer.
+     * @param index
+     *            the timestamp index.
+     */
+    public static void encodeTime(final long time, final ByteBuffer buffer,
+            final int index)
+    {
+        long secs = time / 1000;
+        long millis = time % 1000;
+        if (millis < 0)
+        {
+            secs--;
+            millis += 1000;
+        }
+        buffer.putInt(index, (int) (secs + SECS_1900_1970));
+        buffer.putInt(index + 4, (int) ((millis << 32) / 1000));
+    }
+    
+    /**
+     * Decodes a timestamp as a Java time, from a given buffer index.
+     * 
+     * @param buffer
+     *            the buffer.
+     * @param index
+     *            the timestamp index.
+     * @return the Java time (in milliseconds).
+     */
+    public static long decodeTime(final ByteBuffer buffer, final int index)
+    {
+        final long secs = buffer.getInt(index) & 0xFFFFFFFFL;
+        final long fraction = buffer.getInt(index + 4) & 0xFFFFFFFFL;
+        
+        return (secs - SECS_1900_1970) * 1000L + (fraction * 1000L >>> 32);
+    }
+    
     // Helper methods.
     // ****************************************************************************
     
@@ -232,6 +360,36 @@ public final class Codec
         return new Timestamp(integer, fraction);
     }
     
+    /**
+     * Encodes a timestamp to a buffer, at its current position.
+     * 
+     * @param timestamp
+     *            the timestamp to encode.
+     * @param buffer
+     *            the buffer.
+     */
+    protected static void encodeTimestamp(final Timestamp timestamp,
+            final ByteBuffer buffer)
+    {
+        buffer.putInt((int) timestamp.getInteger());
+        buffer.putInt((int) timestamp.getFraction());
+    }
+    
+    /**
+     * Decodes a timestamp from a buffer, at its current position.
+     * 
+     * @param buffer
+     *            the buffer.
+     * @return the decoded timestamp.
+     */
+    protected static Timestamp decodeTimestamp(final ByteBuffer buffer)
+    {
+        final long integer = buffer.getInt() & 0xFFFFFFFFL;
+        final long fraction = buffer.getInt() & 0xFFFFFFFFL;
+        
+        return new Timestamp(integer, fraction);
+    }
+    
 }
 
 /* End of file. */
\ No newline at end of file
@@ -4,6 +4,7 @@
  * 2003/03/14 - [AP] class created.
  * 2008/04/05 - [AP] code revision.
  * 2008/11/05 - [AP] support for the local receive timestamp.
+ * 2026/10/18 - [KK] support for the source address.
  * 
  * Copyright 2003-2008 (C) by Armnio Pinto
  * Read license.txt for more details.
@@ -15,6 +16,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 
 /**
@@ -116,7 +118,7 @@ public abstract class Listener extends Thread
                 socket.receive(packet);
                 final long time = System.currentTimeMillis();
                 onMessage(Codec.decodeMessage(new ByteArrayInputStream(packet
-                        .getData())), time);
+                        .getData())), time, packet.getSocketAddress());
                 
             }
             catch (final IOException ioe)
@@ -149,6 +151,24 @@ public abstract class Listener extends Thread
      */
     protected abstract void onMessage(Message message, long time);
     
+    /**
+     * This method is called everytime a message is received. By default, it
+     * calls {@link #onMessage(Message, long)}.
+     * 
+     * @param message
+     *            the received message.
+     * @param time
+     *            the value of {@link System#currentTimeMillis()} when the
+     *            message was received.
+     * @param source
+     *            the address of the message sender.
+     */
+    protected void onMessage(final Message message, final long time,
+            final SocketAddress source)
+    {
+        onMessage(message, time);
+    }
+    
 }
 
 /* End of file. */
\ No newline at end of file
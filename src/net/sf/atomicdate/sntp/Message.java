@@ -38,9 +38,9 @@ public final class Message
     /** Leap Indicator: last minute has 61 seconds. */
     public static final byte       LI_61_SECS                   = 0x01;
     /** Leap Indicator: last minute has 59 seconds. */
-    public static final byte       LI_59_SECS                   = 0x01;
-    /** Leap Indicator: alarm condition. */
-    public static final byte       LI_ALARM                     = 0x02;
+    public static final byte       LI_59_SECS                   = 0x02;
+    /** Leap Indicator: alarm condition (clock not synchronized). */
+    public static final byte       LI_ALARM                     = 0x03;
     
     /** Version Number: v1 */
     public static final byte       VN_1                         = 0x01;
@@ -72,6 +72,15 @@ public final class Message
     public static final byte       STRATUM_UNSPECIFIED          = 0x00;
     /** Stratum: primary reference. */
     public static final byte       STRATUM_PRIMARY              = 0x01;
+    /** Stratum: Kiss-o'-Death message, the kiss code is the reference id. */
+    public static final byte       STRATUM_KISS_OF_DEATH        = 0x00;
+    
+    /** Kiss code: access denied, the client must stop. */
+    public static final String     KISS_DENY                    = "DENY";
+    /** Kiss code: access restricted, the client must stop. */
+    public static final String     KISS_RSTR                    = "RSTR";
+    /** Kiss code: rate exceeded, the client must reduce its poll rate. */
+    public static final String     KISS_RATE                    = "RATE";
     
     /** Maximum message length (in bytes). */
     public static final int        MAXIMUM_LENGTH               = 384;              // without
@@ -428,6 +437,27 @@ public final class Message
         this.tTransmitTimestamp = tTransmitTimestamp;
     }
     
+    /**
+     * Indicates if the message is a Kiss-o'-Death reply.
+     * 
+     * @return true if it's a Kiss-o'-Death reply, otherwise false.
+     */
+    public boolean isKissOfDeath()
+    {
+        return byStratum == STRATUM_KISS_OF_DEATH
+                && (byMode == MODE_SERVER || byMode == MODE_BROADCAST);
+    }
+    
+    /**
+     * Returns the kiss code of a Kiss-o'-Death reply.
+     * 
+     * @return the kiss code, null if the message isn't a Kiss-o'-Death reply.
+     */
+    public String getKissCode()
+    {
+        return isKissOfDeath() ? new String(sReferenceIdentifier) : null;
+    }
+    
     // See Object for details.
     @Override
     public boolean equals(final Object obj)
@@ -0,0 +1,217 @@
+/*
+ * MessageView.java
+ * 
+ * 2026/10/18 - [KK] class created.
+ * 
+ * Copyright (C) 2026 by Koka El Kiwi
+ * Read license.txt for details.
+ */
+
+package net.sf.atomicdate.sntp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view of an SNTP message held in a buffer, decoding the fields on
+ * demand. Unlike {@link Codec#decodeMessage(ByteBuffer)}, reading a message
+ * doesn't allocate, so a single view can walk millions of messages. The buffer
+ * position and limit aren't used nor changed.
+ * <p>
+ * The time values are in seconds, as in {@link Message}, except the
+ * timestamps, available as Java times or as raw 64 bit values.
+ * 
+ * @author Koka El Kiwi
+ */
+public final class MessageView
+{
+    
+    // Instance attributes.
+    // ***********************************************************************
+    
+    /** The viewed buffer, null until wrapped. */
+    private ByteBuffer buffer;
+    
+    /** The message index in the buffer. */
+    private int        offset;
+    
+    // Instance methods.
+    // **************************************************************************
+    
+    /**
+     * Views the message at a given index of a buffer. The buffer must hold at
+     * least {@link Codec#LENGTH} bytes from the index.
+     * 
+     * @param buffer
+     *            the buffer.
+     * @param offset
+     *            the message index.
+     * @return this view.
+     */
+    public MessageView wrap(final ByteBuffer buffer, final int offset)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        
+        return this;
+    }
+    
+    /**
+     * Returns the Leap Indicator.
+     * 
+     * @return the Leap Indicator.
+     */
+    public byte getLeapIndicator()
+    {
+        return (byte) (buffer.get(offset) >> 6 & 0x03);
+    }
+    
+    /**
+     * Returns the Version Number.
+     * 
+     * @return the Version Number.
+     */
+    public byte getVersionNumber()
+    {
+        return (byte) (buffer.get(offset) >> 3 & 0x07);
+    }
+    
+    /**
+     * Returns the Mode.
+     * 
+     * @return the Mode.
+     */
+    public byte getMode()
+    {
+        return (byte) (buffer.get(offset) & 0x07);
+    }
+    
+    /**
+     * Returns the Stratum.
+     * 
+     * @return the Stratum.
+     */
+    public byte getStratum()
+    {
+        return buffer.get(offset + 1);
+    }
+    
+    /**
+     * Returns the Poll Interval.
+     * 
+     * @return the Poll Interval.
+     */
+    public byte getPollInterval()
+    {
+        return buffer.get(offset + 2);
+    }
+    
+    /**
+     * Returns the Precision.
+     * 
+     * @return the Precision.
+     */
+    public byte getPrecision()
+    {
+        return buffer.get(offset + 3);
+    }
+    
+    /**
+     * Returns the Root Delay.
+     * 
+     * @return the Root Delay (in seconds).
+     */
+    public double getRootDelay()
+    {
+        return (double) (buffer.getInt(offset + 4) & 0xFFFFFFFFL) / 0x10000L;
+    }
+    
+    /**
+     * Returns the Root Dispersion.
+     * 
+     * @return the Root Dispersion (in seconds).
+     */
+    public double getRootDispersion()
+    {
+        return (double) (buffer.getInt(offset + 8) & 0xFFFFFFFFL) / 0x10000L;
+    }
+    
+    /**
+     * Returns the Reference Identifier, as a big-endian number.
+     * 
+     * @return the Reference Identifier.
+     */
+    public int getReferenceIdentifier()
+    {
+        return buffer.getInt(offset + 12);
+    }
+    
+    /**
+     * Returns the Originate Timestamp, as a Java time.
+     * 
+     * @return the Java time (in milliseconds).
+     */
+    public long getOriginateTime()
+    {
+        return Codec.decodeTime(buffer, offset
+                + Codec.ORIGINATE_TIMESTAMP_INDEX);
+    }
+    
+    /**
+     * Returns the Receive Timestamp, as a Java time.
+     * 
+     * @return the Java time (in milliseconds).
+     */
+    public long getReceiveTime()
+    {
+        return Codec.decodeTime(buffer, offset + Codec.RECEIVE_TIMESTAMP_INDEX);
+    }
+    
+    /**
+     * Returns the Transmit Timestamp, as a Java time.
+     * 
+     * @return the Java time (in milliseconds).
+     */
+    public long getTransmitTime()
+    {
+        return Codec.decodeTime(buffer, offset
+                + Codec.TRANSMIT_TIMESTAMP_INDEX);
+    }
+    
+    /**
+     * Returns the raw Originate Timestamp, seconds in the high 32 bits.
+     * 
+     * @return the raw timestamp.
+     */
+    public long getRawOriginateTimestamp()
+    {
+        return buffer.getLong(offset + Codec.ORIGINATE_TIMESTAMP_INDEX);
+    }
+    
+    /**
+     * Returns the raw Transmit Timestamp, seconds in the high 32 bits.
+     * 
+     * @return the raw timestamp.
+     */
+    public long getRawTransmitTimestamp()
+    {
+        return buffer.getLong(offset + Codec.TRANSMIT_TIMESTAMP_INDEX);
+    }
+    
+    /**
+     * Indicates if the message is a Kiss-o'-Death reply.
+     * 
+     * @return true if it's a Kiss-o'-Death reply, otherwise false.
+     * @see Message#isKissOfDeath()
+     */
+    public boolean isKissOfDeath()
+    {
+        final byte mode = getMode();
+        
+        return getStratum() == Message.STRATUM_KISS_OF_DEATH
+                && (mode == Message.MODE_SERVER
+                || mode == Message.MODE_BROADCAST);
+    }
+    
+}
+
+/* End of file. */
\ No newline at end of file